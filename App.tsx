@@ -24,6 +24,8 @@ import EnhancedTimerService from './src/services/EnhancedTimerService';
 import SoundService from './src/services/SoundService';
 import QuizService from './src/services/QuizService';
 import ScoreService from './src/services/ScoreService';
+import ImageCache from './src/services/ImageCache';
+import { MASCOT_CACHE_SOURCES } from './src/components/mascotImages';
 
 // Import constants
 import { Colors } from './src/utils/constants';
@@ -65,6 +67,11 @@ const App: React.FC = () => {
       await SoundService.initialize();
       console.log('✓ Sound service initialized');
 
+      // Decoded in the background; a mascot shown before it finishes just appears a frame later
+      ImageCache.preload(MASCOT_CACHE_SOURCES)
+        .then((stats) => stats && console.log(`✓ Mascot images cached (${stats.count}, ${Math.round(stats.bytes / 1024)} KB)`))
+        .catch((error) => console.error('Error preloading mascot images:', error));
+
       await QuizService.initialize();
       console.log('✓ Quiz service initialized');
 
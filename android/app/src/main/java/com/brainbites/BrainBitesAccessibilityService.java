@@ -0,0 +1,50 @@
+package com.brainbites;
+
+import android.accessibilityservice.AccessibilityService;
+import android.content.Intent;
+import android.os.SystemClock;
+import android.view.accessibility.AccessibilityEvent;
+
+import com.brainbites.usage.BlockedAppEnforcer;
+
+/**
+ * Optional event-driven enforcement backend. Only window state changes are
+ * requested (see res/xml/brainbites_accessibility_service.xml), and each one
+ * is handed to {@link BlockedAppEnforcer} as it is dispatched; while this
+ * service is bound the usage-stats polling loop stays off.
+ */
+public class BrainBitesAccessibilityService extends AccessibilityService {
+    private BlockedAppEnforcer enforcer;
+
+    @Override
+    protected void onServiceConnected() {
+        super.onServiceConnected();
+        enforcer = BlockedAppEnforcer.getInstance(this);
+        enforcer.setAccessibilityConnected(true);
+    }
+
+    @Override
+    public void onAccessibilityEvent(AccessibilityEvent event) {
+        if (enforcer == null || event.getEventType() != AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED) {
+            return;
+        }
+        CharSequence packageName = event.getPackageName();
+        if (packageName == null) return;
+
+        // Event times are uptime based; the enforcer works in wall time
+        long switchedAt = System.currentTimeMillis() - (SystemClock.uptimeMillis() - event.getEventTime());
+        enforcer.onWindowStateChanged(packageName.toString(), switchedAt);
+    }
+
+    @Override
+    public void onInterrupt() {
+    }
+
+    @Override
+    public boolean onUnbind(Intent intent) {
+        if (enforcer != null) {
+            enforcer.setAccessibilityConnected(false);
+        }
+        return super.onUnbind(intent);
+    }
+}
@@ -2,26 +2,29 @@ package com.brainbites;
 
 import android.app.Activity;
 import android.app.Application;
+import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
 import android.util.Log;
 
+import com.brainbites.timer.ForegroundTracker;
+
 public class BrainBitesLifecycleListener implements Application.ActivityLifecycleCallbacks {
     private static final String TAG = "BrainBitesLifecycle";
     
-    private int activityReferences = 0;
-    private boolean isActivityChangingConfigurations = false;
+    private final Context context;
+    private final ForegroundTracker tracker = new ForegroundTracker(this::notifyTimerService);
+    
+    public BrainBitesLifecycleListener(Context context) {
+        this.context = context.getApplicationContext();
+    }
     
     @Override
     public void onActivityCreated(Activity activity, Bundle savedInstanceState) {}
     
     @Override
     public void onActivityStarted(Activity activity) {
-        if (++activityReferences == 1 && !isActivityChangingConfigurations) {
-            // App entered foreground
-            Log.d(TAG, "BrainBites app entered foreground");
-            notifyTimerService(activity, true);
-        }
+        tracker.onActivityStarted();
     }
     
     @Override
@@ -32,12 +35,7 @@ public class BrainBitesLifecycleListener implements Application.ActivityLifecycl
     
     @Override
     public void onActivityStopped(Activity activity) {
-        isActivityChangingConfigurations = activity.isChangingConfigurations();
-        if (--activityReferences == 0 && !isActivityChangingConfigurations) {
-            // App entered background
-            Log.d(TAG, "BrainBites app entered background");
-            notifyTimerService(activity, false);
-        }
+        tracker.onActivityStopped(activity.isChangingConfigurations());
     }
     
     @Override
@@ -46,13 +44,16 @@ public class BrainBitesLifecycleListener implements Application.ActivityLifecycl
     @Override
     public void onActivityDestroyed(Activity activity) {}
     
-    private void notifyTimerService(Activity activity, boolean isForeground) {
+    private void notifyTimerService(boolean isForeground) {
+        Log.d(TAG, isForeground
+            ? "BrainBites app entered foreground"
+            : "BrainBites app entered background");
         try {
-            Intent intent = new Intent(activity, BrainBitesTimerService.class);
+            Intent intent = new Intent(context, BrainBitesTimerService.class);
             intent.setAction(isForeground ? 
                 BrainBitesTimerService.ACTION_APP_FOREGROUND : 
                 BrainBitesTimerService.ACTION_APP_BACKGROUND);
-            activity.startService(intent);
+            context.startService(intent);
         } catch (Exception e) {
             Log.e(TAG, "Failed to notify timer service", e);
         }
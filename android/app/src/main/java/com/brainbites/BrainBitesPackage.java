@@ -4,7 +4,17 @@ import com.facebook.react.ReactPackage;
 import com.facebook.react.bridge.NativeModule;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.uimanager.ViewManager;
+import com.brainbites.images.CachedImageViewManager;
+import com.brainbites.modules.AnalyticsLogModule;
 import com.brainbites.modules.BrainBitesTimerModule;
+import com.brainbites.modules.CursorModule;
+import com.brainbites.modules.GoalRulesModule;
+import com.brainbites.modules.ImageCacheModule;
+import com.brainbites.modules.KeyValueStoreModule;
+import com.brainbites.modules.LeaderboardModule;
+import com.brainbites.modules.ReviewSchedulerModule;
+import com.brainbites.modules.SoundModule;
+import com.brainbites.modules.UsageStatsModule;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -13,13 +23,22 @@ import java.util.List;
 public class BrainBitesPackage implements ReactPackage {
     @Override
     public List<ViewManager> createViewManagers(ReactApplicationContext reactContext) {
-        return Collections.emptyList();
+        return Collections.singletonList(new CachedImageViewManager());
     }
 
     @Override
     public List<NativeModule> createNativeModules(ReactApplicationContext reactContext) {
         List<NativeModule> modules = new ArrayList<>();
         modules.add(new BrainBitesTimerModule(reactContext));
+        modules.add(new AnalyticsLogModule(reactContext));
+        modules.add(new UsageStatsModule(reactContext));
+        modules.add(new SoundModule(reactContext));
+        modules.add(new KeyValueStoreModule(reactContext));
+        modules.add(new GoalRulesModule(reactContext));
+        modules.add(new CursorModule(reactContext));
+        modules.add(new ReviewSchedulerModule(reactContext));
+        modules.add(new LeaderboardModule(reactContext));
+        modules.add(new ImageCacheModule(reactContext));
         return modules;
     }
 }
\ No newline at end of file
@@ -1,10 +1,7 @@
 package com.brainbites.modules;
 
-import android.content.BroadcastReceiver;
-import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
-import android.content.SharedPreferences;
+import android.os.Bundle;
 import android.util.Log;
 
 import com.facebook.react.bridge.Arguments;
@@ -12,25 +9,36 @@ import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.modules.core.DeviceEventManagerModule;
 
 import com.brainbites.BrainBitesTimerService;
+import com.brainbites.ITimerListener;
+import com.brainbites.TimerConnection;
+import com.brainbites.TimerProcess;
+import com.brainbites.metrics.LatencyHistogram;
+import com.brainbites.metrics.StripedCounter;
+import com.brainbites.metrics.TimerMetrics;
+import com.brainbites.timer.ProfileSlots;
+import com.brainbites.timer.UsageAggregates;
+
+import java.util.HashMap;
+import java.util.Map;
 
 public class BrainBitesTimerModule extends ReactContextBaseJavaModule {
     private static final String MODULE_NAME = "BrainBitesTimer";
     private static final String TAG = "BrainBitesTimerModule";
-    private static final String PREFS_NAME = "BrainBitesTimerPrefs";
     
     private final ReactApplicationContext reactContext;
-    private BroadcastReceiver timerUpdateReceiver;
-    private SharedPreferences sharedPrefs;
+    private final TimerConnection timer;
     
     public BrainBitesTimerModule(ReactApplicationContext reactContext) {
         super(reactContext);
         this.reactContext = reactContext;
-        this.sharedPrefs = reactContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        registerTimerReceiver();
+        this.timer = TimerConnection.getInstance(reactContext);
+        registerTimerListener();
     }
     
     @Override
@@ -38,13 +46,13 @@ public class BrainBitesTimerModule extends ReactContextBaseJavaModule {
         return MODULE_NAME;
     }
     
+    /** Starts timing {@code profileId}, switching to it first if another profile is active. */
     @ReactMethod
-    public void startTracking(Promise promise) {
+    public void startTracking(String profileId, Promise promise) {
         try {
-            Log.d(TAG, "Starting timer tracking");
-            Intent intent = new Intent(reactContext, BrainBitesTimerService.class);
-            intent.setAction(BrainBitesTimerService.ACTION_START_TIMER);
-            reactContext.startService(intent);
+            Log.d(TAG, "Starting timer tracking for " + profileId);
+            checkProfileId(profileId);
+            reactContext.startService(serviceIntent(BrainBitesTimerService.ACTION_START_TIMER, profileId));
             promise.resolve(true);
         } catch (Exception e) {
             Log.e(TAG, "Error starting tracking", e);
@@ -52,13 +60,12 @@ public class BrainBitesTimerModule extends ReactContextBaseJavaModule {
         }
     }
     
+    /** Stops the timer if {@code profileId} is the profile being timed. */
     @ReactMethod
-    public void stopTracking(Promise promise) {
+    public void stopTracking(String profileId, Promise promise) {
         try {
-            Log.d(TAG, "Stopping timer tracking");
-            Intent intent = new Intent(reactContext, BrainBitesTimerService.class);
-            intent.setAction(BrainBitesTimerService.ACTION_STOP_TIMER);
-            reactContext.startService(intent);
+            Log.d(TAG, "Stopping timer tracking for " + profileId);
+            reactContext.startService(serviceIntent(BrainBitesTimerService.ACTION_STOP_TIMER, profileId));
             promise.resolve(true);
         } catch (Exception e) {
             Log.e(TAG, "Error stopping tracking", e);
@@ -67,13 +74,13 @@ public class BrainBitesTimerModule extends ReactContextBaseJavaModule {
     }
     
     @ReactMethod
-    public void addTime(double seconds, Promise promise) {
+    public void addTime(String profileId, double seconds, Promise promise) {
         try {
             int secondsInt = (int) seconds;
-            Log.d(TAG, "Adding " + secondsInt + " seconds");
+            Log.d(TAG, "Adding " + secondsInt + " seconds for " + profileId);
             
-            Intent intent = new Intent(reactContext, BrainBitesTimerService.class);
-            intent.setAction(BrainBitesTimerService.ACTION_ADD_TIME);
+            checkProfileId(profileId);
+            Intent intent = serviceIntent(BrainBitesTimerService.ACTION_ADD_TIME, profileId);
             intent.putExtra(BrainBitesTimerService.EXTRA_TIME_SECONDS, secondsInt);
             reactContext.startService(intent);
             
@@ -85,31 +92,85 @@ public class BrainBitesTimerModule extends ReactContextBaseJavaModule {
     }
     
     @ReactMethod
-    public void getRemainingTime(Promise promise) {
+    public void setWarningThresholds(ReadableArray seconds, Promise promise) {
         try {
-            int remainingTime = sharedPrefs.getInt("remaining_time", 0);
-            promise.resolve(remainingTime);
+            int[] thresholds = new int[seconds.size()];
+            for (int i = 0; i < thresholds.length; i++) {
+                thresholds[i] = (int) seconds.getDouble(i);
+            }
+            
+            Intent intent = new Intent(reactContext, BrainBitesTimerService.class);
+            intent.setAction(BrainBitesTimerService.ACTION_SET_WARNING_THRESHOLDS);
+            intent.putExtra(BrainBitesTimerService.EXTRA_THRESHOLDS, thresholds);
+            reactContext.startService(intent);
+            
+            promise.resolve(true);
         } catch (Exception e) {
-            Log.e(TAG, "Error getting remaining time", e);
-            promise.reject("GET_TIME_ERROR", e.getMessage());
+            Log.e(TAG, "Error setting warning thresholds", e);
+            promise.reject("SET_THRESHOLDS_ERROR", e.getMessage());
         }
     }
     
+    /** Makes {@code profileId} the profile being timed, creating it with no time if new. */
     @ReactMethod
-    public void getNegativeTime(Promise promise) {
+    public void setActiveProfile(String profileId, Promise promise) {
         try {
-            int negativeTime = sharedPrefs.getInt("negative_time", 0);
-            promise.resolve(negativeTime);
+            checkProfileId(profileId);
+            reactContext.startService(serviceIntent(BrainBitesTimerService.ACTION_SWITCH_PROFILE, profileId));
+            promise.resolve(true);
         } catch (Exception e) {
-            Log.e(TAG, "Error getting negative time", e);
-            promise.reject("GET_NEGATIVE_TIME_ERROR", e.getMessage());
+            Log.e(TAG, "Error switching profile", e);
+            promise.reject("PROFILE_ERROR", e.getMessage());
         }
     }
     
     @ReactMethod
-    public void clearNegativeTime(Promise promise) {
+    public void getActiveProfile(Promise promise) {
+        callTimer(promise, "PROFILE_ERROR", service -> promise.resolve(service.getActiveProfile()));
+    }
+    
+    @ReactMethod
+    public void getProfiles(Promise promise) {
+        callTimer(promise, "PROFILE_ERROR", service -> {
+            Bundle profiles = service.getProfiles();
+            String[] ids = profiles.getStringArray("ids");
+            int[] balances = profiles.getIntArray("balances");
+            int active = profiles.getInt("active");
+
+            WritableArray result = Arguments.createArray();
+            for (int slot = 0; slot < ids.length; slot++) {
+                WritableMap profile = Arguments.createMap();
+                profile.putString("id", ids[slot]);
+                profile.putInt("remainingTime", balances[slot * 2]);
+                profile.putInt("negativeTime", balances[slot * 2 + 1]);
+                profile.putBoolean("active", slot == active);
+                result.pushMap(profile);
+            }
+            promise.resolve(result);
+        });
+    }
+    
+    /** Deletes a profile and its usage totals; the active profile can't be removed. */
+    @ReactMethod
+    public void removeProfile(String profileId, Promise promise) {
+        callTimer(promise, "PROFILE_ERROR", service -> promise.resolve(service.removeProfile(profileId)));
+    }
+    
+    @ReactMethod
+    public void getRemainingTime(String profileId, Promise promise) {
+        callTimer(promise, "GET_TIME_ERROR", service -> promise.resolve(service.getBalance(profileId)[0]));
+    }
+    
+    @ReactMethod
+    public void getNegativeTime(String profileId, Promise promise) {
+        callTimer(promise, "GET_NEGATIVE_TIME_ERROR", service -> promise.resolve(service.getBalance(profileId)[1]));
+    }
+    
+    @ReactMethod
+    public void clearNegativeTime(String profileId, Promise promise) {
         try {
-            sharedPrefs.edit().putInt("negative_time", 0).apply();
+            // Through the service, which would otherwise write the running balance back over it
+            reactContext.startService(serviceIntent(BrainBitesTimerService.ACTION_CLEAR_NEGATIVE_TIME, profileId));
             promise.resolve(true);
         } catch (Exception e) {
             Log.e(TAG, "Error clearing negative time", e);
@@ -117,6 +178,128 @@ public class BrainBitesTimerModule extends ReactContextBaseJavaModule {
         }
     }
     
+    @ReactMethod
+    public void getUsageSnapshot(String profileId, Promise promise) {
+        if (!ProfileSlots.isValidId(profileId)) {
+            promise.reject("GET_USAGE_ERROR", "Invalid profile id: " + profileId);
+            return;
+        }
+        callTimer(promise, "GET_USAGE_ERROR", service -> {
+            Bundle snapshot = service.getUsageSnapshot(profileId);
+
+            WritableMap result = Arguments.createMap();
+            result.putMap("today", toUsageMap(snapshot.getIntArray("today")));
+            result.putMap("week", toUsageMap(snapshot.getIntArray("week")));
+            result.putMap("month", toUsageMap(snapshot.getIntArray("month")));
+
+            WritableArray hourly = Arguments.createArray();
+            for (int seconds : snapshot.getIntArray("todayHourlySpent")) {
+                hourly.pushInt(seconds);
+            }
+            result.putArray("todayHourlySpent", hourly);
+
+            String[] appNames = snapshot.getStringArray("appNames");
+            int[] appTotals = snapshot.getIntArray("appTotals");
+            WritableMap apps = Arguments.createMap();
+            for (int i = 0; i < appNames.length; i++) {
+                WritableMap app = Arguments.createMap();
+                app.putInt("today", appTotals[i * 3]);
+                app.putInt("week", appTotals[i * 3 + 1]);
+                app.putInt("month", appTotals[i * 3 + 2]);
+                apps.putMap(appNames[i], app);
+            }
+            result.putMap("apps", apps);
+
+            promise.resolve(result);
+        });
+    }
+    
+    @ReactMethod
+    public void getMetrics(Promise promise) {
+        if (!TimerProcess.isEnabled()) {
+            try {
+                promise.resolve(toMetrics(null));
+            } catch (Exception e) {
+                Log.e(TAG, "Error getting metrics", e);
+                promise.reject("GET_METRICS_ERROR", e.getMessage());
+            }
+            return;
+        }
+        // Timer metrics are recorded in the timer process, the rest in this one
+        callTimer(promise, "GET_METRICS_ERROR", service -> promise.resolve(toMetrics(service.getMetrics())));
+    }
+    
+    /** This process's metrics, merged with the timer process's when {@code remote} is set. */
+    private WritableMap toMetrics(Bundle remote) {
+        WritableMap result = Arguments.createMap();
+        result.putDouble("since", remote != null
+            ? Math.min(TimerMetrics.getStartedAt(), remote.getLong("since"))
+            : TimerMetrics.getStartedAt());
+        
+        Map<String, Long> remoteCounters = new HashMap<>();
+        if (remote != null) {
+            String[] names = remote.getStringArray("counterNames");
+            long[] values = remote.getLongArray("counterValues");
+            for (int i = 0; i < names.length; i++) {
+                remoteCounters.put(names[i], values[i]);
+            }
+        }
+        WritableMap counters = Arguments.createMap();
+        for (StripedCounter counter : TimerMetrics.counters()) {
+            Long other = remoteCounters.get(counter.getName());
+            counters.putDouble(counter.getName(), counter.sum() + (other != null ? other : 0));
+        }
+        result.putMap("counters", counters);
+        
+        WritableArray bounds = Arguments.createArray();
+        for (long bound : LatencyHistogram.Snapshot.boundsMicros()) {
+            bounds.pushDouble(bound);
+        }
+        result.putArray("bucketBoundsUs", bounds);
+        
+        Bundle remoteHistograms = remote != null ? remote.getBundle("histograms") : null;
+        WritableMap histograms = Arguments.createMap();
+        for (LatencyHistogram histogram : TimerMetrics.histograms()) {
+            LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+            long[] packed = remoteHistograms != null ? remoteHistograms.getLongArray(snapshot.name) : null;
+            if (packed != null) {
+                snapshot = snapshot.merge(LatencyHistogram.Snapshot.unpack(snapshot.name, packed));
+            }
+            WritableMap h = Arguments.createMap();
+            h.putDouble("count", snapshot.count);
+            h.putDouble("meanUs", snapshot.meanMicros());
+            h.putDouble("p50Us", snapshot.percentileMicros(0.50));
+            h.putDouble("p95Us", snapshot.percentileMicros(0.95));
+            h.putDouble("p99Us", snapshot.percentileMicros(0.99));
+            h.putDouble("maxUs", snapshot.maxNanos / 1000.0);
+            WritableArray buckets = Arguments.createArray();
+            for (long count : snapshot.counts) {
+                buckets.pushDouble(count);
+            }
+            h.putArray("buckets", buckets);
+            histograms.putMap(snapshot.name, h);
+        }
+        result.putMap("histograms", histograms);
+        return result;
+    }
+    
+    private WritableMap toUsageMap(int[] totals) {
+        WritableMap map = Arguments.createMap();
+        map.putInt("earned", totals[UsageAggregates.EARNED]);
+        map.putInt("spent", totals[UsageAggregates.SPENT]);
+        map.putInt("overtime", totals[UsageAggregates.OVERTIME]);
+        return map;
+    }
+    
+    /** Called by the timer events task once a batch is applied; see TimerEventsTaskService. */
+    @ReactMethod
+    public void ackTimerEvents(double seq, Promise promise) {
+        callTimer(promise, "ACK_EVENTS_ERROR", service -> {
+            service.ackEvents((long) seq);
+            promise.resolve(true);
+        });
+    }
+
     @ReactMethod
     public void notifyAppState(String state, Promise promise) {
         try {
@@ -136,27 +319,40 @@ public class BrainBitesTimerModule extends ReactContextBaseJavaModule {
         }
     }
     
-    private void registerTimerReceiver() {
-        timerUpdateReceiver = new BroadcastReceiver() {
+    /** Runs a binder call for a promise, rejecting it with {@code errorCode} if the call fails. */
+    private void callTimer(Promise promise, String errorCode, TimerConnection.Call call) {
+        timer.execute(call, e -> {
+            Log.e(TAG, "Timer service call failed", e);
+            promise.reject(errorCode, e.getMessage());
+        });
+    }
+    
+    private static void checkProfileId(String profileId) {
+        if (!ProfileSlots.isValidId(profileId)) {
+            throw new IllegalArgumentException("Invalid profile id: " + profileId);
+        }
+    }
+    
+    private Intent serviceIntent(String action, String profileId) {
+        Intent intent = new Intent(reactContext, BrainBitesTimerService.class);
+        intent.setAction(action);
+        intent.putExtra(BrainBitesTimerService.EXTRA_PROFILE_ID, profileId);
+        return intent;
+    }
+    
+    private void registerTimerListener() {
+        timer.setListener(new ITimerListener.Stub() {
             @Override
-            public void onReceive(Context context, Intent intent) {
-                if ("com.brainbites.TIMER_UPDATE".equals(intent.getAction())) {
-                    int remainingTime = intent.getIntExtra("remainingTime", 0);
-                    int negativeTime = intent.getIntExtra("negativeTime", 0);
-                    boolean isRunning = intent.getBooleanExtra("isRunning", false);
-                    
-                    WritableMap params = Arguments.createMap();
-                    params.putInt("remainingTime", remainingTime);
-                    params.putInt("negativeTime", negativeTime);
-                    params.putBoolean("isRunning", isRunning);
-                    
-                    sendEvent("TimerUpdate", params);
-                }
+            public void onTimerUpdate(String profileId, int remainingTime, int negativeTime, boolean isRunning) {
+                WritableMap params = Arguments.createMap();
+                params.putString("profileId", profileId);
+                params.putInt("remainingTime", remainingTime);
+                params.putInt("negativeTime", negativeTime);
+                params.putBoolean("isRunning", isRunning);
+                
+                sendEvent("TimerUpdate", params);
             }
-        };
-        
-        IntentFilter filter = new IntentFilter("com.brainbites.TIMER_UPDATE");
-        reactContext.registerReceiver(timerUpdateReceiver, filter);
+        });
     }
     
     private void sendEvent(String eventName, WritableMap params) {
@@ -170,8 +366,6 @@ public class BrainBitesTimerModule extends ReactContextBaseJavaModule {
     @Override
     public void onCatalystInstanceDestroy() {
         super.onCatalystInstanceDestroy();
-        if (timerUpdateReceiver != null) {
-            reactContext.unregisterReceiver(timerUpdateReceiver);
-        }
+        timer.setListener(null);
     }
 }
\ No newline at end of file
@@ -22,13 +22,34 @@ import androidx.core.app.NotificationCompat;
 
 import com.facebook.react.HeadlessJsTaskService;
 
-public class BrainBitesTimerService extends Service {
+import com.brainbites.metrics.TimerMetrics;
+import com.brainbites.timer.Clock;
+import com.brainbites.timer.HandlerScheduler;
+import com.brainbites.timer.ProfileSlots;
+import com.brainbites.timer.TimeFormatter;
+import com.brainbites.timer.TimerController;
+import com.brainbites.timer.TimerEngine;
+import com.brainbites.timer.TimerEventBatcher;
+import com.brainbites.timer.UsageAggregates;
+
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+
+public class BrainBitesTimerService extends Service implements TimerEngine.DeviceState, TimerController.Host {
     private static final String TAG = "BrainBitesTimer";
+    // Constant-folded, so guarded log lines build no strings in release
+    private static final boolean DEBUG = BuildConfig.DEBUG;
     private static final int NOTIFICATION_ID = 1001;
     private static final String CHANNEL_ID = "brainbites_timer_channel";
     private static final String PREFS_NAME = "BrainBitesTimerPrefs";
-    private static final String KEY_REMAINING_TIME = "remaining_time";
-    private static final String KEY_NEGATIVE_TIME = "negative_time";
+    private static final String KEY_WARNING_THRESHOLDS = "warning_thresholds";
+    private static final String KEY_LAST_EVENT_BATCH = "last_event_batch";
+    // Queued and in-flight events, so a process death doesn't drop them
+    private static final String EVENTS_FILE = "timer_events.bin";
     
     // Actions
     public static final String ACTION_UPDATE_TIME = "update_time";
@@ -38,20 +59,24 @@ public class BrainBitesTimerService extends Service {
     public static final String ACTION_APP_FOREGROUND = "app_foreground";
     public static final String ACTION_APP_BACKGROUND = "app_background";
     public static final String ACTION_GET_TIME = "get_time";
+    public static final String ACTION_SET_WARNING_THRESHOLDS = "set_warning_thresholds";
+    public static final String ACTION_SWITCH_PROFILE = "switch_profile";
+    public static final String ACTION_CLEAR_NEGATIVE_TIME = "clear_negative_time";
     public static final String EXTRA_TIME_SECONDS = "time_seconds";
+    public static final String EXTRA_THRESHOLDS = "thresholds";
+    // Profile an action applies to; the active profile when absent
+    public static final String EXTRA_PROFILE_ID = "profile_id";
     
     private PowerManager powerManager;
     private KeyguardManager keyguardManager;
     private SharedPreferences sharedPrefs;
     private NotificationManager notificationManager;
-    private Handler handler;
-    private Runnable timerRunnable;
-    
-    private int remainingTimeSeconds = 0;
-    private int negativeTimeSeconds = 0;
-    private boolean isAppInForeground = true;
-    private boolean isTimerRunning = false;
-    private long lastTickTime = 0;
+    private ProfileSlots profiles;
+    private TimerBinder binder;
+    // The active profile's; only the active profile is ever charged
+    private UsageAggregates usageAggregates;
+    private TimerController controller;
+    private TimerEventBatcher events;
     
     private BroadcastReceiver screenReceiver;
     
@@ -63,10 +88,18 @@ public class BrainBitesTimerService extends Service {
         keyguardManager = (KeyguardManager) getSystemService(Context.KEYGUARD_SERVICE);
         sharedPrefs = getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
         notificationManager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
-        handler = new Handler(Looper.getMainLooper());
+        profiles = ProfileSlots.getInstance(this);
+        usageAggregates = UsageAggregates.forProfile(this, profiles.activeId());
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        HandlerScheduler scheduler = new HandlerScheduler(mainHandler);
+        controller = new TimerController(Clock.SYSTEM, scheduler, this, this);
+        events = new TimerEventBatcher(Clock.SYSTEM, scheduler, this::dispatchEvents, this::saveEvents,
+            sharedPrefs.getLong(KEY_LAST_EVENT_BATCH, 0));
+        binder = new TimerBinder(this, profiles, mainHandler, events);
         
         createNotificationChannel();
         loadSavedTime();
+        restoreEvents();
         
         // Register screen on/off receiver
         registerScreenReceiver();
@@ -83,20 +116,55 @@ public class BrainBitesTimerService extends Service {
     
     private void handleAction(Intent intent) {
         String action = intent.getAction();
-        Log.d(TAG, "Handling action: " + action);
+        if (DEBUG) Log.d(TAG, "Handling action: " + action);
         
+        TimerMetrics.INTENTS_HANDLED.increment();
+        long start = TimerMetrics.begin("BrainBites:intent");
+        try {
+            dispatchAction(action, intent);
+        } finally {
+            TimerMetrics.end(TimerMetrics.INTENT, start);
+        }
+    }
+    
+    private void dispatchAction(String action, Intent intent) {
+        String profileId = intent.getStringExtra(EXTRA_PROFILE_ID);
+        boolean forActive = profileId == null || profileId.equals(profiles.activeId());
         switch (action) {
             case ACTION_ADD_TIME:
                 int secondsToAdd = intent.getIntExtra(EXTRA_TIME_SECONDS, 0);
-                addTime(secondsToAdd);
+                if (forActive) {
+                    addTime(secondsToAdd);
+                } else {
+                    addTimeToIdleProfile(profileId, secondsToAdd);
+                }
                 break;
                 
             case ACTION_START_TIMER:
-                startTimer();
+                if (!forActive) {
+                    switchProfile(profileId);
+                }
+                controller.start();
                 break;
                 
             case ACTION_STOP_TIMER:
-                stopTimer();
+                if (forActive) {
+                    // Settle and hand off while still a foreground service,
+                    // which is what lets us start the events task
+                    controller.flush();
+                    events.flush();
+                    controller.stop();
+                }
+                break;
+                
+            case ACTION_SWITCH_PROFILE:
+                if (!forActive) {
+                    switchProfile(profileId);
+                }
+                break;
+                
+            case ACTION_CLEAR_NEGATIVE_TIME:
+                clearNegativeTime(profileId, forActive);
                 break;
                 
             case ACTION_APP_FOREGROUND:
@@ -110,121 +178,209 @@ public class BrainBitesTimerService extends Service {
             case ACTION_GET_TIME:
                 broadcastCurrentTime();
                 break;
+                
+            case ACTION_SET_WARNING_THRESHOLDS:
+                int[] thresholds = intent.getIntArrayExtra(EXTRA_THRESHOLDS);
+                if (thresholds != null) {
+                    setWarningThresholds(thresholds);
+                }
+                break;
         }
     }
     
     private void addTime(int seconds) {
-        remainingTimeSeconds += seconds;
-        saveTime();
-        updateNotification();
-        broadcastUpdate();
+        usageAggregates.recordEarned(seconds);
+        controller.addTime(seconds);
         
-        Log.d(TAG, "Added " + seconds + " seconds. Total: " + remainingTimeSeconds);
+        if (DEBUG) Log.d(TAG, "Added " + seconds + " seconds. Total: " + controller.getRemainingTimeSeconds());
+    }
+    
+    /** Credits a profile that is not being timed; its balance just sits in its slot. */
+    private void addTimeToIdleProfile(String profileId, int seconds) {
+        int slot = slotFor(profileId);
+        if (slot == ProfileSlots.NO_SLOT) return;
+        profiles.setBalance(slot, profiles.remaining(slot) + seconds, profiles.negative(slot));
+        UsageAggregates aggregates = UsageAggregates.forProfile(this, profileId);
+        aggregates.recordEarned(seconds);
+        aggregates.save();
+    }
+    
+    /**
+     * Makes another profile the one being timed. The outgoing profile is
+     * charged up to now and saved; the engine keeps running, against the new
+     * profile's balance, from its slot in memory.
+     */
+    private void switchProfile(String profileId) {
+        int slot = slotFor(profileId);
+        if (slot == ProfileSlots.NO_SLOT) return;
+        controller.flush();
+        usageAggregates.save();
         
-        // Start timer if not running and we have time
-        if (remainingTimeSeconds > 0 && !isTimerRunning) {
-            startTimer();
+        profiles.setActiveSlot(slot);
+        usageAggregates = UsageAggregates.forProfile(this, profileId);
+        controller.replaceBalance(profiles.remaining(slot), profiles.negative(slot));
+        if (DEBUG) Log.d(TAG, "Switched to profile " + profileId);
+    }
+    
+    /**
+     * Deletes an idle profile and its usage totals; called on the main thread,
+     * so no switch or credit to it can run in between. The active profile
+     * can't be removed.
+     */
+    boolean removeProfile(String profileId) {
+        if (!profiles.remove(profileId)) return false;
+        // Drops the shared instance before its file, and stops anyone still holding it from saving
+        UsageAggregates.deleteProfile(this, profileId);
+        return true;
+    }
+    
+    /** The profile's slot, adding the profile on first use; NO_SLOT if it can't be added. */
+    private int slotFor(String profileId) {
+        try {
+            return profiles.getOrCreate(profileId);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            Log.w(TAG, "Ignoring profile " + profileId + ": " + e.getMessage());
+            return ProfileSlots.NO_SLOT;
         }
     }
     
-    private void startTimer() {
-        if (isTimerRunning) return;
-        
-        isTimerRunning = true;
-        lastTickTime = System.currentTimeMillis();
-        
-        // Start foreground service
-        startForeground(NOTIFICATION_ID, createNotification());
-        
-        // Start timer loop
-        timerRunnable = new Runnable() {
-            @Override
-            public void run() {
-                tickTimer();
-                handler.postDelayed(this, 1000);
-            }
-        };
-        handler.post(timerRunnable);
-        
-        Log.d(TAG, "Timer started");
+    private void clearNegativeTime(String profileId, boolean forActive) {
+        if (forActive) {
+            controller.flush();
+            controller.replaceBalance(controller.getRemainingTimeSeconds(), 0);
+            persist(controller.getRemainingTimeSeconds(), 0);
+            return;
+        }
+        int slot = profiles.slotOf(profileId);
+        if (slot != ProfileSlots.NO_SLOT) {
+            profiles.setBalance(slot, profiles.remaining(slot), 0);
+        }
     }
     
-    private void stopTimer() {
-        isTimerRunning = false;
+    private void setWarningThresholds(int[] thresholds) {
+        controller.setWarningThresholds(thresholds);
         
-        if (timerRunnable != null) {
-            handler.removeCallbacks(timerRunnable);
-            timerRunnable = null;
+        StringBuilder sb = new StringBuilder();
+        for (int threshold : controller.getWarningThresholds()) {
+            if (sb.length() > 0) sb.append(",");
+            sb.append(threshold);
         }
-        
-        stopForeground(true);
-        Log.d(TAG, "Timer stopped");
+        sharedPrefs.edit().putString(KEY_WARNING_THRESHOLDS, sb.toString()).apply();
     }
     
-    private void tickTimer() {
-        long currentTime = System.currentTimeMillis();
-        int elapsedSeconds = (int) ((currentTime - lastTickTime) / 1000);
-        lastTickTime = currentTime;
-        
-        boolean isScreenOn = powerManager.isInteractive();
-        boolean isLocked = keyguardManager.isKeyguardLocked();
-        
-        // Timer counts down when:
-        // 1. Screen is ON
-        // 2. Device is NOT locked
-        // 3. BrainBites app is NOT in foreground
-        // 4. We have time OR we're counting negative
-        boolean shouldDeductTime = isScreenOn && !isLocked && !isAppInForeground;
-        
-        if (shouldDeductTime && elapsedSeconds > 0) {
-            if (remainingTimeSeconds > 0) {
-                // Normal countdown
-                remainingTimeSeconds = Math.max(0, remainingTimeSeconds - elapsedSeconds);
-                
-                // Check for warnings
-                if (remainingTimeSeconds == 300) {
-                    showLowTimeNotification(5);
-                } else if (remainingTimeSeconds == 60) {
-                    showLowTimeNotification(1);
-                } else if (remainingTimeSeconds == 0) {
-                    handleTimeExpired();
-                }
-            } else {
-                // Count negative time (overtime usage)
-                negativeTimeSeconds += elapsedSeconds;
-                
-                // Log every 10 seconds
-                if (negativeTimeSeconds % 10 == 0) {
-                    Log.d(TAG, "Overtime: -" + formatTime(negativeTimeSeconds));
-                }
-            }
+    @Override
+    public void onRunningChanged(boolean running) {
+        if (running) {
+            // Start foreground service
+            startForeground(NOTIFICATION_ID, createNotification());
+            if (DEBUG) Log.d(TAG, "Timer started");
+        } else {
+            stopForeground(true);
+            if (DEBUG) Log.d(TAG, "Timer stopped");
         }
-        
-        // Update every second
+    }
+    
+    @Override
+    public void onStateChanged() {
         updateNotification();
+        broadcastUpdate();
+    }
+    
+    @Override
+    public boolean isInteractive() {
+        return powerManager.isInteractive();
+    }
+    
+    @Override
+    public boolean isKeyguardLocked() {
+        return keyguardManager.isKeyguardLocked();
+    }
+    
+    @Override
+    public void onTimeSpent(int seconds) {
+        TimerMetrics.TICKS_CHARGED.increment();
+        usageAggregates.recordSpent(seconds);
+        events.add(TimerEventBatcher.TYPE_SPENT, profiles.activeId(), seconds);
+    }
+    
+    @Override
+    public void onOvertime(int seconds) {
+        TimerMetrics.TICKS_CHARGED.increment();
+        usageAggregates.recordOvertime(seconds);
+        events.add(TimerEventBatcher.TYPE_OVERTIME, profiles.activeId(), seconds);
         
-        // Save every 5 seconds
-        if (System.currentTimeMillis() % 5000 < 1000) {
-            saveTime();
+        // Log every 10 seconds
+        int negativeTimeSeconds = controller.getNegativeTimeSeconds();
+        if (DEBUG && negativeTimeSeconds % 10 == 0) {
+            Log.d(TAG, "Overtime: -" + TimeFormatter.format(negativeTimeSeconds));
+        }
+    }
+    
+    @Override
+    public void onLowTime(int thresholdSeconds) {
+        showLowTimeNotification(thresholdSeconds);
+        events.add(TimerEventBatcher.TYPE_LOW_TIME, profiles.activeId(), thresholdSeconds);
+    }
+    
+    @Override
+    public void onExpired() {
+        handleTimeExpired();
+        events.add(TimerEventBatcher.TYPE_EXPIRED, profiles.activeId(), 0);
+    }
+    
+    /** Picks up events a previous process queued or had in flight, and resends the latter. */
+    private void restoreEvents() {
+        File file = new File(getFilesDir(), EVENTS_FILE);
+        if (!file.exists()) return;
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            byte[] state = new byte[(int) in.length()];
+            in.readFully(state);
+            events.restore(state);
+            if (DEBUG) Log.d(TAG, "Restored " + events.pendingCount() + " queued events, in flight: " + events.isInFlight());
+        } catch (IOException e) {
+            Log.w(TAG, "Discarding unreadable timer events", e);
+        }
+    }
+    
+    private void saveEvents(byte[] state) {
+        File file = new File(getFilesDir(), EVENTS_FILE);
+        File temp = new File(getFilesDir(), EVENTS_FILE + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(state);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not save timer events", e);
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            Log.w(TAG, "Could not replace " + file);
+        }
+    }
+    
+    /** Hands a batch to the JS events task in the UI process; see {@link TimerEventBatcher}. */
+    private boolean dispatchEvents(TimerEventBatcher.Batch batch) {
+        // Resends reuse the number, so the JS side can skip batches it already applied
+        sharedPrefs.edit().putLong(KEY_LAST_EVENT_BATCH, events.getLastSeq()).apply();
+        if (!TimerProcess.isEnabled()) {
+            // Same process: held until the task service finishes, as HeadlessJsTaskService expects
+            HeadlessJsTaskService.acquireWakeLockNow(this);
+        }
+        try {
+            return startService(TimerEventsTaskService.intentFor(this, batch)) != null;
+        } catch (IllegalStateException | SecurityException e) {
+            // Background start limits (API 26+) once the timer is no longer in the foreground
+            Log.w(TAG, "Could not start the timer events task: " + e.getMessage());
+            return false;
         }
-        
-        // Broadcast update
-        broadcastUpdate();
     }
     
     private void handleAppForeground() {
-        isAppInForeground = true;
-        Log.d(TAG, "App in foreground - timer paused");
+        controller.setAppInForeground(true);
+        if (DEBUG) Log.d(TAG, "App in foreground - timer paused");
     }
     
     private void handleAppBackground() {
-        isAppInForeground = false;
-        Log.d(TAG, "App in background - timer active");
-        
-        // Ensure timer is running if we have time
-        if (remainingTimeSeconds > 0 && !isTimerRunning) {
-            startTimer();
-        }
+        controller.setAppInForeground(false);
+        if (DEBUG) Log.d(TAG, "App in background - timer active");
     }
     
     private void createNotificationChannel() {
@@ -251,38 +407,73 @@ public class BrainBitesTimerService extends Service {
         String text;
         int iconRes = android.R.drawable.ic_menu_recent_history;
         
+        int remainingTimeSeconds = controller.getRemainingTimeSeconds();
+        int negativeTimeSeconds = controller.getNegativeTimeSeconds();
+        boolean charging = controller.isCharging();
+        
         if (remainingTimeSeconds > 0) {
             title = "⏱️ BrainBites Timer";
-            text = formatTime(remainingTimeSeconds) + " remaining";
-        } else if (negativeTimeSeconds > 0) {
+            text = charging
+                ? "Counting down while you use other apps"
+                : TimeFormatter.appendTo(new StringBuilder(24), remainingTimeSeconds)
+                    .append(" remaining").toString();
+        } else if (negativeTimeSeconds > 0 || charging) {
             title = "⚠️ Overtime Usage!";
-            text = "-" + formatTime(negativeTimeSeconds) + " (earning negative points)";
+            text = charging
+                ? "Earning negative points"
+                : TimeFormatter.appendTo(new StringBuilder(40).append('-'), negativeTimeSeconds)
+                    .append(" (earning negative points)").toString();
             iconRes = android.R.drawable.ic_dialog_alert;
         } else {
             title = "⏰ Time's Up!";
             text = "Complete quizzes to earn more time";
         }
         
-        return new NotificationCompat.Builder(this, CHANNEL_ID)
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
             .setSmallIcon(iconRes)
             .setContentTitle(title)
             .setContentText(text)
             .setContentIntent(pendingIntent)
             .setOngoing(true)
             .setPriority(NotificationCompat.PRIORITY_LOW)
-            .setOnlyAlertOnce(true)
-            .build();
+            .setOnlyAlertOnce(true);
+        
+        if (charging) {
+            // The system renders the running clock, so the service can stay idle
+            builder.setWhen(controller.getCountdownBase())
+                .setShowWhen(true)
+                .setUsesChronometer(true)
+                .setChronometerCountDown(remainingTimeSeconds > 0);
+        }
+        
+        return builder.build();
     }
     
     private void updateNotification() {
-        if (isTimerRunning) {
-            notificationManager.notify(NOTIFICATION_ID, createNotification());
+        if (controller.isRunning()) {
+            postNotification(NOTIFICATION_ID, createNotification());
+        }
+    }
+    
+    private void postNotification(int id, Notification notification) {
+        TimerMetrics.NOTIFICATIONS_POSTED.increment();
+        long start = TimerMetrics.begin("BrainBites:notify");
+        try {
+            notificationManager.notify(id, notification);
+        } finally {
+            TimerMetrics.end(TimerMetrics.NOTIFICATION, start);
         }
     }
     
-    private void showLowTimeNotification(int minutes) {
+    private void showLowTimeNotification(int thresholdSeconds) {
         String title = "⚠️ Low Time Warning!";
-        String text = "Only " + minutes + " minute" + (minutes > 1 ? "s" : "") + " left!";
+        String text;
+        if (thresholdSeconds % 60 == 0) {
+            int minutes = thresholdSeconds / 60;
+            text = "Only " + minutes + " minute" + (minutes > 1 ? "s" : "") + " left!";
+        } else {
+            text = "Only " + TimeFormatter.format(thresholdSeconds) + " left!";
+        }
         
         Notification notification = new NotificationCompat.Builder(this, CHANNEL_ID)
             .setSmallIcon(android.R.drawable.ic_dialog_alert)
@@ -292,11 +483,11 @@ public class BrainBitesTimerService extends Service {
             .setAutoCancel(true)
             .build();
             
-        notificationManager.notify(NOTIFICATION_ID + 1, notification);
+        postNotification(NOTIFICATION_ID + 1, notification);
     }
     
     private void handleTimeExpired() {
-        Log.d(TAG, "Time expired!");
+        if (DEBUG) Log.d(TAG, "Time expired!");
         
         // Show expiry notification
         Notification notification = new NotificationCompat.Builder(this, CHANNEL_ID)
@@ -307,70 +498,79 @@ public class BrainBitesTimerService extends Service {
             .setAutoCancel(true)
             .build();
             
-        notificationManager.notify(NOTIFICATION_ID + 2, notification);
+        postNotification(NOTIFICATION_ID + 2, notification);
     }
     
-    private void saveTime() {
-        sharedPrefs.edit()
-            .putInt(KEY_REMAINING_TIME, remainingTimeSeconds)
-            .putInt(KEY_NEGATIVE_TIME, negativeTimeSeconds)
-            .apply();
+    @Override
+    public void persist(int remainingSeconds, int negativeSeconds) {
+        profiles.setBalance(profiles.activeSlot(), remainingSeconds, negativeSeconds);
+        usageAggregates.saveIfDirty();
     }
     
     private void loadSavedTime() {
-        remainingTimeSeconds = sharedPrefs.getInt(KEY_REMAINING_TIME, 300); // Default 5 minutes
-        negativeTimeSeconds = sharedPrefs.getInt(KEY_NEGATIVE_TIME, 0);
-        Log.d(TAG, "Loaded time: " + remainingTimeSeconds + "s, negative: " + negativeTimeSeconds + "s");
+        int slot = profiles.activeSlot();
+        controller.restore(profiles.remaining(slot), profiles.negative(slot));
+        
+        String thresholds = sharedPrefs.getString(KEY_WARNING_THRESHOLDS, "");
+        if (!thresholds.isEmpty()) {
+            String[] parts = thresholds.split(",");
+            int[] seconds = new int[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                seconds[i] = Integer.parseInt(parts[i]);
+            }
+            controller.setWarningThresholds(seconds);
+        }
+        if (DEBUG) Log.d(TAG, "Loaded time for " + profiles.activeId() + ": " + controller.getRemainingTimeSeconds() + "s, negative: "
+            + controller.getNegativeTimeSeconds() + "s");
     }
     
     private void broadcastUpdate() {
-        Intent intent = new Intent("com.brainbites.TIMER_UPDATE");
-        intent.putExtra("remainingTime", remainingTimeSeconds);
-        intent.putExtra("negativeTime", negativeTimeSeconds);
-        intent.putExtra("isRunning", isTimerRunning);
-        sendBroadcast(intent);
+        TimerMetrics.BROADCASTS_SENT.increment();
+        long start = TimerMetrics.begin("BrainBites:broadcast");
+        try {
+            // Straight to bound UIs over binder, in or out of process; no broadcast fan-out
+            binder.notifyListeners(profiles.activeId(), controller.getRemainingTimeSeconds(),
+                controller.getNegativeTimeSeconds(), controller.isRunning());
+        } finally {
+            TimerMetrics.end(TimerMetrics.BROADCAST, start);
+        }
     }
     
     private void broadcastCurrentTime() {
         broadcastUpdate();
     }
     
-    private String formatTime(int seconds) {
-        int hours = seconds / 3600;
-        int minutes = (seconds % 3600) / 60;
-        int secs = seconds % 60;
-        
-        if (hours > 0) {
-            return String.format("%dh %dm", hours, minutes);
-        } else if (minutes > 0) {
-            return String.format("%dm %ds", minutes, secs);
-        } else {
-            return String.format("%ds", secs);
-        }
-    }
-    
     private void registerScreenReceiver() {
         screenReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
                 if (Intent.ACTION_SCREEN_OFF.equals(intent.getAction())) {
-                    Log.d(TAG, "Screen turned OFF");
+                    if (DEBUG) Log.d(TAG, "Screen turned OFF");
                 } else if (Intent.ACTION_SCREEN_ON.equals(intent.getAction())) {
-                    Log.d(TAG, "Screen turned ON");
+                    if (DEBUG) Log.d(TAG, "Screen turned ON");
                 }
+                controller.onDeviceStateChanged();
             }
         };
         
         IntentFilter filter = new IntentFilter();
         filter.addAction(Intent.ACTION_SCREEN_OFF);
         filter.addAction(Intent.ACTION_SCREEN_ON);
+        filter.addAction(Intent.ACTION_USER_PRESENT);
         registerReceiver(screenReceiver, filter);
     }
     
     @Override
     public void onDestroy() {
         super.onDestroy();
-        stopTimer();
+        // Charge and hand off while still in the foreground, which is what lets
+        // us start the events task; whatever doesn't go out stays saved
+        controller.flush();
+        events.flush();
+        controller.stop();
+        usageAggregates.save();
+        events.close();
+        binder.kill();
         if (screenReceiver != null) {
             unregisterReceiver(screenReceiver);
         }
@@ -378,6 +578,25 @@ public class BrainBitesTimerService extends Service {
     
     @Override
     public IBinder onBind(Intent intent) {
-        return null;
+        return binder;
+    }
+    
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        if (args != null && args.length > 0 && "reset".equals(args[0])) {
+            TimerMetrics.reset();
+            writer.println("Metrics reset");
+            return;
+        }
+        
+        writer.println("BrainBitesTimerService state:");
+        if (controller != null) {
+            writer.println("  profile: " + profiles.activeId() + " (" + profiles.size() + " on device)");
+            writer.println("  running: " + controller.isRunning());
+            writer.println("  remaining: " + controller.getRemainingTimeSeconds() + "s");
+            writer.println("  overtime: " + controller.getNegativeTimeSeconds() + "s");
+            writer.println("  appInForeground: " + controller.isAppInForeground());
+        }
+        TimerMetrics.dump(writer);
     }
 }
\ No newline at end of file
@@ -8,12 +8,16 @@ import com.facebook.react.ReactPackage;
 import com.facebook.react.defaults.DefaultNewArchitectureEntryPoint;
 import com.facebook.react.defaults.DefaultReactNativeHost;
 import com.facebook.soloader.SoLoader;
+import com.brainbites.usage.PackageDictionary;
 import java.util.List;
 
 public class MainApplication extends Application implements ReactApplication {
 
-  private final ReactNativeHost mReactNativeHost =
-      new DefaultReactNativeHost(this) {
+  // Created on first use, so the timer process never instantiates it
+  private ReactNativeHost mReactNativeHost;
+
+  private ReactNativeHost createReactNativeHost() {
+    return new DefaultReactNativeHost(this) {
         @Override
         public boolean getUseDeveloperSupport() {
           return BuildConfig.DEBUG;
@@ -43,9 +47,13 @@ public class MainApplication extends Application implements ReactApplication {
           return BuildConfig.IS_HERMES_ENABLED;
         }
       };
+  }
 
   @Override
-  public ReactNativeHost getReactNativeHost() {
+  public synchronized ReactNativeHost getReactNativeHost() {
+    if (mReactNativeHost == null) {
+      mReactNativeHost = createReactNativeHost();
+    }
     return mReactNativeHost;
   }
 
@@ -53,8 +61,14 @@ public class MainApplication extends Application implements ReactApplication {
   public void onCreate() {
     super.onCreate();
     
+    if (TimerProcess.isCurrent(this)) {
+      // Only BrainBitesTimerService runs here: no React Native, no activities
+      PackageDictionary.useTimerProcessFile();
+      return;
+    }
+    
     // Register lifecycle listener for timer service
-    registerActivityLifecycleCallbacks(new BrainBitesLifecycleListener());
+    registerActivityLifecycleCallbacks(new BrainBitesLifecycleListener(this));
     
     SoLoader.init(this, /* native exopackage */ false);
     if (BuildConfig.IS_NEW_ARCHITECTURE_ENABLED) {
@@ -0,0 +1,193 @@
+package com.brainbites;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.RemoteCallbackList;
+import android.os.RemoteException;
+
+import com.brainbites.metrics.LatencyHistogram;
+import com.brainbites.metrics.StripedCounter;
+import com.brainbites.metrics.TimerMetrics;
+import com.brainbites.timer.ProfileSlots;
+import com.brainbites.timer.TimerEventBatcher;
+import com.brainbites.timer.UsageAggregates;
+import com.brainbites.usage.PackageDictionary;
+
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * The timer service's binder. Calls arrive on binder threads and only touch
+ * state that is safe to read from any thread (the profile table and usage
+ * aggregates); anything that moves the engine stays on intents, and other
+ * changes are posted to the service's main thread.
+ */
+final class TimerBinder extends ITimerService.Stub {
+    private final BrainBitesTimerService service;
+    private final Context context;
+    private final ProfileSlots profiles;
+    // Touched only on the service's main thread; acks are posted there
+    private final Handler mainHandler;
+    private final TimerEventBatcher events;
+    private final RemoteCallbackList<ITimerListener> listeners = new RemoteCallbackList<>();
+
+    TimerBinder(BrainBitesTimerService service, ProfileSlots profiles, Handler mainHandler, TimerEventBatcher events) {
+        this.service = service;
+        this.context = service.getApplicationContext();
+        this.profiles = profiles;
+        this.mainHandler = mainHandler;
+        this.events = events;
+    }
+
+    @Override
+    public int[] getBalance(String profileId) {
+        synchronized (profiles) {
+            int slot = profiles.slotOf(profileId);
+            return slot == ProfileSlots.NO_SLOT
+                ? new int[2]
+                : new int[] { profiles.remaining(slot), profiles.negative(slot) };
+        }
+    }
+
+    @Override
+    public String getActiveProfile() {
+        return profiles.activeId();
+    }
+
+    @Override
+    public Bundle getProfiles() {
+        Bundle result = new Bundle();
+        synchronized (profiles) {
+            int count = profiles.size();
+            String[] ids = new String[count];
+            int[] balances = new int[count * 2];
+            for (int slot = 0; slot < count; slot++) {
+                ids[slot] = profiles.idAt(slot);
+                balances[slot * 2] = profiles.remaining(slot);
+                balances[slot * 2 + 1] = profiles.negative(slot);
+            }
+            result.putStringArray("ids", ids);
+            result.putIntArray("balances", balances);
+            result.putInt("active", profiles.activeSlot());
+        }
+        return result;
+    }
+
+    @Override
+    public boolean removeProfile(final String profileId) {
+        // In line with the service's own saves, so none can recreate the deleted file
+        FutureTask<Boolean> removal = new FutureTask<>(() -> service.removeProfile(profileId));
+        if (Looper.myLooper() == mainHandler.getLooper()) {
+            removal.run();
+        } else {
+            mainHandler.post(removal);
+        }
+        try {
+            return removal.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Could not remove profile " + profileId, e.getCause());
+        }
+    }
+
+    @Override
+    public Bundle getUsageSnapshot(String profileId) {
+        UsageAggregates.Snapshot snapshot = UsageAggregates.forProfile(context, profileId)
+            .getSnapshot(System.currentTimeMillis());
+
+        Bundle result = new Bundle();
+        result.putIntArray("today", snapshot.today);
+        result.putIntArray("week", snapshot.week);
+        result.putIntArray("month", snapshot.month);
+        result.putIntArray("todayHourlySpent", snapshot.todayHourlySpent);
+
+        // Flat, so a few hundred apps are two arrays rather than a map of bundles
+        String[] appNames = new String[snapshot.apps.size()];
+        int[] appTotals = new int[appNames.length * 3];
+        int i = 0;
+        for (Map.Entry<String, int[]> entry : snapshot.apps.entrySet()) {
+            appNames[i] = entry.getKey();
+            System.arraycopy(entry.getValue(), 0, appTotals, i * 3, 3);
+            i++;
+        }
+        result.putStringArray("appNames", appNames);
+        result.putIntArray("appTotals", appTotals);
+        return result;
+    }
+
+    @Override
+    public Bundle getMetrics() {
+        StripedCounter[] counters = TimerMetrics.counters();
+        String[] counterNames = new String[counters.length];
+        long[] counterValues = new long[counters.length];
+        for (int i = 0; i < counters.length; i++) {
+            counterNames[i] = counters[i].getName();
+            counterValues[i] = counters[i].sum();
+        }
+
+        Bundle histograms = new Bundle();
+        for (LatencyHistogram histogram : TimerMetrics.histograms()) {
+            histograms.putLongArray(histogram.getName(), histogram.snapshot().pack());
+        }
+
+        Bundle result = new Bundle();
+        result.putLong("since", TimerMetrics.getStartedAt());
+        result.putStringArray("counterNames", counterNames);
+        result.putLongArray("counterValues", counterValues);
+        result.putBundle("histograms", histograms);
+        return result;
+    }
+
+    @Override
+    public void recordAppUsage(String packageName, int seconds, long at) {
+        // Charged to the learner being timed, like earned and spent time
+        UsageAggregates.forProfile(context, profiles.activeId()).recordAppUsage(
+            PackageDictionary.getInstance(context).idOf(packageName), seconds, at);
+    }
+
+    @Override
+    public void ackEvents(final long seq) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                events.ack(seq);
+            }
+        });
+    }
+
+    @Override
+    public void registerListener(ITimerListener listener) {
+        if (listener != null) listeners.register(listener);
+    }
+
+    @Override
+    public void unregisterListener(ITimerListener listener) {
+        if (listener != null) listeners.unregister(listener);
+    }
+
+    /** Sends a timer update to every registered UI; called on the service's main thread. */
+    void notifyListeners(String profileId, int remainingSeconds, int negativeSeconds, boolean running) {
+        int count = listeners.beginBroadcast();
+        try {
+            for (int i = 0; i < count; i++) {
+                try {
+                    listeners.getBroadcastItem(i)
+                        .onTimerUpdate(profileId, remainingSeconds, negativeSeconds, running);
+                } catch (RemoteException e) {
+                    // The UI process died; RemoteCallbackList drops it on its own
+                }
+            }
+        } finally {
+            listeners.finishBroadcast();
+        }
+    }
+
+    void kill() {
+        listeners.kill();
+    }
+}
@@ -0,0 +1,145 @@
+package com.brainbites;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.os.IBinder;
+import android.os.RemoteException;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The UI process's binding to {@link BrainBitesTimerService}. The same path
+ * is used whether the service shares this process or runs in
+ * {@link TimerProcess}; in-process, the binder calls are plain method calls.
+ *
+ * Calls made before the service is connected, or while it is restarting
+ * after its process was killed, are queued and run once it is back. Calls
+ * run in order on one background thread, never on the caller's.
+ */
+public class TimerConnection {
+    private static final String TAG = "BrainBitesTimerClient";
+
+    private static TimerConnection instance;
+
+    public interface Call {
+        void run(ITimerService service) throws RemoteException;
+    }
+
+    public interface ErrorHandler {
+        void onError(Exception e);
+    }
+
+    private final Context context;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "BrainBitesTimerClient");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+
+    // Guarded by this
+    private ITimerService service;
+    private boolean bound = false;
+    private boolean connectedBefore = false;
+    private ITimerListener listener;
+    private final List<Runnable> pending = new ArrayList<>();
+
+    public static synchronized TimerConnection getInstance(Context context) {
+        if (instance == null) {
+            instance = new TimerConnection(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private TimerConnection(Context context) {
+        this.context = context;
+    }
+
+    private final ServiceConnection connection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            List<Runnable> queued;
+            ITimerListener current;
+            synchronized (TimerConnection.this) {
+                service = ITimerService.Stub.asInterface(binder);
+                queued = new ArrayList<>(pending);
+                pending.clear();
+                current = connectedBefore ? listener : null;
+                connectedBefore = true;
+            }
+            if (current != null) {
+                // A restarted service has no listeners; register again first
+                execute(s -> s.registerListener(current), e -> Log.w(TAG, "Could not register listener", e));
+            }
+            for (Runnable task : queued) {
+                executor.execute(task);
+            }
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            // The service process died; the binding stays and reconnects when it restarts
+            synchronized (TimerConnection.this) {
+                service = null;
+            }
+            Log.w(TAG, "Timer service disconnected");
+        }
+    };
+
+    /** Runs {@code call} against the service as soon as it is connected. */
+    public void execute(Call call, ErrorHandler onError) {
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                ITimerService current;
+                synchronized (TimerConnection.this) {
+                    current = service;
+                    if (current == null) {
+                        // Lost the service since this was queued; wait for the reconnect
+                        pending.add(this);
+                        return;
+                    }
+                }
+                try {
+                    call.run(current);
+                } catch (Exception e) {
+                    onError.onError(e);
+                }
+            }
+        };
+
+        synchronized (this) {
+            if (service != null) {
+                executor.execute(task);
+                return;
+            }
+            pending.add(task);
+            if (bound) return;
+            bound = context.bindService(new Intent(context, BrainBitesTimerService.class),
+                connection, Context.BIND_AUTO_CREATE);
+            if (bound) return;
+            pending.remove(task);
+        }
+        onError.onError(new IllegalStateException("Could not bind to the timer service"));
+    }
+
+    /** Receives every timer update, across service restarts, until replaced. */
+    public void setListener(ITimerListener newListener) {
+        ITimerListener previous;
+        synchronized (this) {
+            previous = listener;
+            listener = newListener;
+        }
+        if (previous != null) {
+            execute(s -> s.unregisterListener(previous), e -> Log.w(TAG, "Could not unregister listener", e));
+        }
+        if (newListener != null) {
+            execute(s -> s.registerListener(newListener), e -> Log.w(TAG, "Could not register listener", e));
+        }
+    }
+}
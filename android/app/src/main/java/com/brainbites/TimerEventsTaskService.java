@@ -0,0 +1,72 @@
+package com.brainbites;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+
+import com.brainbites.timer.TimerEventBatcher;
+import com.facebook.react.HeadlessJsTaskService;
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.jstasks.HeadlessJsTaskConfig;
+
+/**
+ * Runs the "BrainBitesTimerEvents" JS task (registered in index.js) on one
+ * batch from {@link TimerEventBatcher}. Always in the UI process, where React
+ * Native lives, even when the timer service runs in its own. The task acks the
+ * batch itself once applied, through BrainBitesTimer.ackTimerEvents.
+ */
+public class TimerEventsTaskService extends HeadlessJsTaskService {
+    public static final String TASK_KEY = "BrainBitesTimerEvents";
+    private static final long TASK_TIMEOUT_MS = 30_000;
+
+    private static final String EXTRA_SEQ = "seq";
+    private static final String EXTRA_TYPES = "types";
+    private static final String EXTRA_PROFILE_IDS = "profile_ids";
+    private static final String EXTRA_VALUES = "values";
+    private static final String EXTRA_FIRST_AT = "first_at";
+    private static final String EXTRA_LAST_AT = "last_at";
+
+    /** The intent that delivers {@code batch}; extras are flat arrays, as the batch keeps them. */
+    public static Intent intentFor(Context context, TimerEventBatcher.Batch batch) {
+        return new Intent(context, TimerEventsTaskService.class)
+            .putExtra(EXTRA_SEQ, batch.seq)
+            .putExtra(EXTRA_TYPES, batch.types)
+            .putExtra(EXTRA_PROFILE_IDS, batch.profileIds)
+            .putExtra(EXTRA_VALUES, batch.values)
+            .putExtra(EXTRA_FIRST_AT, batch.firstAt)
+            .putExtra(EXTRA_LAST_AT, batch.lastAt);
+    }
+
+    @Override
+    protected HeadlessJsTaskConfig getTaskConfig(Intent intent) {
+        Bundle extras = intent != null ? intent.getExtras() : null;
+        if (extras == null || !extras.containsKey(EXTRA_SEQ)) {
+            return null;
+        }
+        int[] types = extras.getIntArray(EXTRA_TYPES);
+        String[] profileIds = extras.getStringArray(EXTRA_PROFILE_IDS);
+        int[] values = extras.getIntArray(EXTRA_VALUES);
+        long[] firstAt = extras.getLongArray(EXTRA_FIRST_AT);
+        long[] lastAt = extras.getLongArray(EXTRA_LAST_AT);
+
+        WritableArray events = Arguments.createArray();
+        for (int i = 0; i < types.length; i++) {
+            WritableMap event = Arguments.createMap();
+            event.putInt("type", types[i]);
+            event.putString("profileId", profileIds[i]);
+            event.putInt("value", values[i]);
+            event.putDouble("firstAt", firstAt[i]);
+            event.putDouble("lastAt", lastAt[i]);
+            events.pushMap(event);
+        }
+        WritableMap data = Arguments.createMap();
+        data.putDouble("seq", extras.getLong(EXTRA_SEQ));
+        data.putArray("events", events);
+
+        // The batch is usually built while the UI is in the background, but
+        // it must not wait for that if the user is in the app
+        return new HeadlessJsTaskConfig(TASK_KEY, data, TASK_TIMEOUT_MS, true);
+    }
+}
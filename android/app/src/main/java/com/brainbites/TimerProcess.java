@@ -0,0 +1,53 @@
+package com.brainbites;
+
+import android.app.Application;
+import android.content.Context;
+import android.os.Build;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The optional ":timer" process. When the build sets timerProcessEnabled,
+ * BrainBitesTimerService runs there on its own, with no React Native runtime
+ * loaded, so the OS only has to keep that small process resident to keep the
+ * countdown alive, and reclaiming the UI process leaves the timer running.
+ */
+public final class TimerProcess {
+    public static final String SUFFIX = ":timer";
+
+    private static Boolean isCurrent;
+
+    private TimerProcess() {}
+
+    /** Whether the build puts the timer service in its own process. */
+    public static boolean isEnabled() {
+        return BuildConfig.TIMER_PROCESS;
+    }
+
+    /** Whether this is the timer's own process; always false when it is not enabled. */
+    public static synchronized boolean isCurrent(Context context) {
+        if (isCurrent == null) {
+            String name = processName();
+            isCurrent = isEnabled() && name != null
+                && name.equals(context.getPackageName() + SUFFIX);
+        }
+        return isCurrent;
+    }
+
+    private static String processName() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            return Application.getProcessName();
+        }
+        try (FileInputStream in = new FileInputStream("/proc/self/cmdline")) {
+            byte[] buffer = new byte[256];
+            int length = in.read(buffer);
+            int end = 0;
+            while (end < length && buffer[end] != 0) end++;
+            return new String(buffer, 0, end, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
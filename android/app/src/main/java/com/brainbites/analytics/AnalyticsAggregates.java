@@ -0,0 +1,167 @@
+package com.brainbites.analytics;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Running totals over the analytics event log. Every field is updated in O(1)
+ * as records are appended, so reading the metrics never replays the log.
+ */
+public class AnalyticsAggregates {
+    private static final int FORMAT_VERSION = 1;
+
+    int totalSessions;
+    long totalPlayTimeMillis;
+    int questionsAnswered;
+    int correctAnswers;
+    long timeEarnedTotal;
+    int achievementsUnlocked;
+    long lastActiveMillis;
+    int favoriteCategoryId = -1;
+    int[] categoryCounts = new int[16];
+
+    long currentSessionStart;
+
+    void apply(long timestamp, int type, int categoryId, int value) {
+        lastActiveMillis = timestamp;
+
+        switch (type) {
+            case AnalyticsEventLog.EVENT_SESSION_START:
+                totalSessions++;
+                currentSessionStart = timestamp;
+                break;
+
+            case AnalyticsEventLog.EVENT_SESSION_END:
+                totalPlayTimeMillis += value;
+                currentSessionStart = 0;
+                break;
+
+            case AnalyticsEventLog.EVENT_QUESTION_ANSWERED:
+                questionsAnswered++;
+                if (value != 0) {
+                    correctAnswers++;
+                }
+                countCategory(categoryId);
+                break;
+
+            case AnalyticsEventLog.EVENT_TIME_EARNED:
+                timeEarnedTotal += value;
+                break;
+
+            case AnalyticsEventLog.EVENT_ACHIEVEMENT_UNLOCKED:
+                achievementsUnlocked++;
+                break;
+
+            case AnalyticsEventLog.EVENT_CATEGORY_SELECTED:
+                countCategory(categoryId);
+                break;
+        }
+    }
+
+    private void countCategory(int categoryId) {
+        if (categoryId < 0) return;
+
+        if (categoryId >= categoryCounts.length) {
+            categoryCounts = Arrays.copyOf(categoryCounts, Math.max(categoryId + 1, categoryCounts.length * 2));
+        }
+        int count = ++categoryCounts[categoryId];
+
+        // The leader can only change to the category that was just bumped
+        if (favoriteCategoryId < 0 || count > categoryCounts[favoriteCategoryId]) {
+            favoriteCategoryId = categoryId;
+        }
+    }
+
+    public int getTotalSessions() {
+        return totalSessions;
+    }
+
+    public long getTotalPlayTimeMillis() {
+        return totalPlayTimeMillis;
+    }
+
+    public long getAverageSessionLengthMillis() {
+        return totalSessions == 0 ? 0 : totalPlayTimeMillis / totalSessions;
+    }
+
+    public int getQuestionsAnswered() {
+        return questionsAnswered;
+    }
+
+    public int getCorrectAnswers() {
+        return correctAnswers;
+    }
+
+    public double getAccuracy() {
+        return questionsAnswered == 0 ? 0 : (double) correctAnswers / questionsAnswered;
+    }
+
+    public long getTimeEarnedTotal() {
+        return timeEarnedTotal;
+    }
+
+    public int getAchievementsUnlocked() {
+        return achievementsUnlocked;
+    }
+
+    public long getLastActiveMillis() {
+        return lastActiveMillis;
+    }
+
+    public int getFavoriteCategoryId() {
+        return favoriteCategoryId;
+    }
+
+    AnalyticsAggregates copy() {
+        AnalyticsAggregates copy = new AnalyticsAggregates();
+        copy.totalSessions = totalSessions;
+        copy.totalPlayTimeMillis = totalPlayTimeMillis;
+        copy.questionsAnswered = questionsAnswered;
+        copy.correctAnswers = correctAnswers;
+        copy.timeEarnedTotal = timeEarnedTotal;
+        copy.achievementsUnlocked = achievementsUnlocked;
+        copy.lastActiveMillis = lastActiveMillis;
+        copy.favoriteCategoryId = favoriteCategoryId;
+        copy.categoryCounts = categoryCounts.clone();
+        copy.currentSessionStart = currentSessionStart;
+        return copy;
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(totalSessions);
+        out.writeLong(totalPlayTimeMillis);
+        out.writeInt(questionsAnswered);
+        out.writeInt(correctAnswers);
+        out.writeLong(timeEarnedTotal);
+        out.writeInt(achievementsUnlocked);
+        out.writeLong(lastActiveMillis);
+        out.writeInt(favoriteCategoryId);
+        out.writeLong(currentSessionStart);
+        out.writeInt(categoryCounts.length);
+        for (int count : categoryCounts) {
+            out.writeInt(count);
+        }
+    }
+
+    void readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != FORMAT_VERSION) {
+            throw new IOException("Unsupported aggregates version");
+        }
+        totalSessions = in.readInt();
+        totalPlayTimeMillis = in.readLong();
+        questionsAnswered = in.readInt();
+        correctAnswers = in.readInt();
+        timeEarnedTotal = in.readLong();
+        achievementsUnlocked = in.readInt();
+        lastActiveMillis = in.readLong();
+        favoriteCategoryId = in.readInt();
+        currentSessionStart = in.readLong();
+        categoryCounts = new int[in.readInt()];
+        for (int i = 0; i < categoryCounts.length; i++) {
+            categoryCounts[i] = in.readInt();
+        }
+    }
+}
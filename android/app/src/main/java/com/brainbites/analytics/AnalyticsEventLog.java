@@ -0,0 +1,415 @@
+package com.brainbites.analytics;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Append-only analytics log. Events are encoded as fixed 24 byte records into a
+ * double buffer and written to numbered segment files by a single background
+ * writer thread, which fsyncs in batches and checkpoints the running
+ * {@link AnalyticsAggregates} next to the log.
+ *
+ * Record layout (big endian):
+ *   long timestamp | short type | short categoryId | int value | int sessionId | int flags
+ */
+public class AnalyticsEventLog {
+    private static final String TAG = "BrainBitesAnalytics";
+
+    public static final int EVENT_OTHER = 0;
+    public static final int EVENT_SESSION_START = 1;
+    public static final int EVENT_SESSION_END = 2;
+    public static final int EVENT_QUESTION_ANSWERED = 3;
+    public static final int EVENT_TIME_EARNED = 4;
+    public static final int EVENT_ACHIEVEMENT_UNLOCKED = 5;
+    public static final int EVENT_CATEGORY_SELECTED = 6;
+    public static final int EVENT_QUIZ_COMPLETED = 7;
+    public static final int EVENT_SCREEN_VIEW = 8;
+    public static final int EVENT_BUTTON_PRESS = 9;
+    public static final int EVENT_ERROR = 10;
+
+    static final int RECORD_SIZE = 24;
+    private static final int RECORDS_PER_SEGMENT = 8192;
+    private static final int BUFFER_RECORDS = 512;
+    private static final int SYNC_BATCH_RECORDS = 64;
+    private static final long SYNC_INTERVAL_MS = 2000;
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CATEGORIES_FILE = "categories.txt";
+    private static final String SNAPSHOT_FILE = "aggregates.bin";
+
+    private static AnalyticsEventLog instance;
+
+    private final File directory;
+    private final Object lock = new Object();
+
+    // Guarded by lock
+    private ByteBuffer pending = ByteBuffer.allocate(BUFFER_RECORDS * RECORD_SIZE);
+    private AnalyticsAggregates aggregates = new AnalyticsAggregates();
+    private final List<String> categories = new ArrayList<>();
+    private final Map<String, Integer> categoryIds = new HashMap<>();
+    private int unsyncedRecords = 0;
+    private long lastSyncTime = System.currentTimeMillis();
+    private boolean flushRequested = false;
+    private boolean clearRequested = false;
+
+    // Owned by the writer thread
+    private ByteBuffer writing = ByteBuffer.allocate(BUFFER_RECORDS * RECORD_SIZE);
+    private FileChannel channel;
+    private int segmentIndex = 0;
+    private int segmentRecords = 0;
+
+    public static synchronized AnalyticsEventLog getInstance(Context context) {
+        if (instance == null) {
+            instance = new AnalyticsEventLog(new File(context.getFilesDir(), "analytics_log"));
+        }
+        return instance;
+    }
+
+    AnalyticsEventLog(File directory) {
+        this.directory = directory;
+        if (!directory.exists() && !directory.mkdirs()) {
+            Log.e(TAG, "Could not create " + directory);
+        }
+
+        loadCategories();
+        recover();
+
+        Thread writerThread = new Thread(this::runWriter, "BrainBitesAnalyticsWriter");
+        writerThread.setPriority(Thread.MIN_PRIORITY);
+        writerThread.start();
+    }
+
+    public void append(int type, String category, int value, int flags) {
+        long now = System.currentTimeMillis();
+
+        synchronized (lock) {
+            while (!pending.hasRemaining()) {
+                // Writer is behind; wait for it to swap buffers rather than grow without bound
+                lock.notifyAll();
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+
+            int categoryId = category != null ? internCategory(category) : -1;
+            if (type == EVENT_SESSION_END && aggregates.currentSessionStart > 0) {
+                value = (int) Math.min(Integer.MAX_VALUE, now - aggregates.currentSessionStart);
+            }
+
+            aggregates.apply(now, type, categoryId, value);
+
+            pending.putLong(now);
+            pending.putShort((short) type);
+            pending.putShort((short) categoryId);
+            pending.putInt(value);
+            pending.putInt(aggregates.totalSessions);
+            pending.putInt(flags);
+
+            lock.notifyAll();
+        }
+    }
+
+    public AnalyticsAggregates getAggregates() {
+        synchronized (lock) {
+            return aggregates.copy();
+        }
+    }
+
+    public String getCategoryName(int categoryId) {
+        synchronized (lock) {
+            return categoryId >= 0 && categoryId < categories.size() ? categories.get(categoryId) : "";
+        }
+    }
+
+    public void requestFlush() {
+        synchronized (lock) {
+            flushRequested = true;
+            lock.notifyAll();
+        }
+    }
+
+    public void clear() {
+        synchronized (lock) {
+            pending.clear();
+            aggregates = new AnalyticsAggregates();
+            categories.clear();
+            categoryIds.clear();
+            deleteQuietly(new File(directory, CATEGORIES_FILE));
+            clearRequested = true;
+            lock.notifyAll();
+        }
+    }
+
+    private int internCategory(String category) {
+        Integer id = categoryIds.get(category);
+        if (id != null) return id;
+
+        int newId = categories.size();
+        categories.add(category);
+        categoryIds.put(category, newId);
+
+        // Categories are few and rarely new, so they are written straight through
+        try (Writer writer = new OutputStreamWriter(
+                new FileOutputStream(new File(directory, CATEGORIES_FILE), true), StandardCharsets.UTF_8)) {
+            writer.write(category.replace('\n', ' '));
+            writer.write('\n');
+        } catch (IOException e) {
+            Log.e(TAG, "Error saving category", e);
+        }
+        return newId;
+    }
+
+    private void runWriter() {
+        while (true) {
+            boolean sync;
+            boolean clear;
+            AnalyticsAggregates snapshot = null;
+
+            synchronized (lock) {
+                while (!clearRequested && pending.position() == 0 && !flushRequested
+                        && !(unsyncedRecords > 0 && System.currentTimeMillis() - lastSyncTime >= SYNC_INTERVAL_MS)) {
+                    try {
+                        lock.wait(unsyncedRecords > 0 ? SYNC_INTERVAL_MS : 0);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                ByteBuffer swap = writing;
+                writing = pending;
+                pending = swap;
+                pending.clear();
+
+                clear = clearRequested;
+                clearRequested = false;
+                unsyncedRecords += writing.position() / RECORD_SIZE;
+                sync = clear || flushRequested || unsyncedRecords >= SYNC_BATCH_RECORDS
+                        || System.currentTimeMillis() - lastSyncTime >= SYNC_INTERVAL_MS;
+                if (sync) {
+                    snapshot = aggregates.copy();
+                    unsyncedRecords = 0;
+                    lastSyncTime = System.currentTimeMillis();
+                    flushRequested = false;
+                }
+                lock.notifyAll();
+            }
+
+            try {
+                if (clear) {
+                    deleteSegments();
+                }
+                writing.flip();
+                writeRecords(writing);
+                writing.clear();
+                if (sync) {
+                    if (channel != null) {
+                        channel.force(false);
+                    }
+                    writeSnapshot(snapshot);
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Error writing analytics log", e);
+            }
+        }
+    }
+
+    private void writeRecords(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel == null || segmentRecords >= RECORDS_PER_SEGMENT) {
+                if (channel != null) {
+                    channel.force(false);
+                    closeChannel();
+                    segmentIndex++;
+                    segmentRecords = 0;
+                }
+                openSegment();
+            }
+
+            int records = Math.min(buffer.remaining() / RECORD_SIZE, RECORDS_PER_SEGMENT - segmentRecords);
+            int limit = buffer.limit();
+            buffer.limit(buffer.position() + records * RECORD_SIZE);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.limit(limit);
+            segmentRecords += records;
+        }
+    }
+
+    private void openSegment() throws IOException {
+        RandomAccessFile file = new RandomAccessFile(segmentFile(segmentIndex), "rw");
+        channel = file.getChannel();
+        channel.position((long) segmentRecords * RECORD_SIZE);
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                Log.e(TAG, "Error closing segment", e);
+            }
+            channel = null;
+        }
+    }
+
+    private void deleteSegments() {
+        closeChannel();
+        for (int index : listSegments()) {
+            deleteQuietly(segmentFile(index));
+        }
+        segmentIndex = 0;
+        segmentRecords = 0;
+    }
+
+    private void writeSnapshot(AnalyticsAggregates snapshot) throws IOException {
+        File target = new File(directory, SNAPSHOT_FILE);
+        File temp = new File(directory, SNAPSHOT_FILE + ".tmp");
+
+        try (FileOutputStream fileOut = new FileOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(fileOut)) {
+            out.writeInt(segmentIndex);
+            out.writeInt(segmentRecords);
+            snapshot.writeTo(out);
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        if (!temp.renameTo(target)) {
+            throw new IOException("Could not replace " + target);
+        }
+    }
+
+    /**
+     * Restores the last checkpoint and replays whatever reached disk after it,
+     * dropping a torn trailing record if the process died mid-write.
+     */
+    private void recover() {
+        int fromSegment = 0;
+        int fromRecord = 0;
+
+        File snapshotFile = new File(directory, SNAPSHOT_FILE);
+        if (snapshotFile.exists()) {
+            try (DataInputStream in = new DataInputStream(new FileInputStream(snapshotFile))) {
+                fromSegment = in.readInt();
+                fromRecord = in.readInt();
+                aggregates.readFrom(in);
+            } catch (IOException e) {
+                Log.e(TAG, "Discarding unreadable aggregates checkpoint", e);
+                aggregates = new AnalyticsAggregates();
+                fromSegment = 0;
+                fromRecord = 0;
+            }
+        }
+
+        int[] segments = listSegments();
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        int replayed = 0;
+
+        for (int index : segments) {
+            segmentIndex = index;
+            segmentRecords = 0;
+            if (index < fromSegment) continue;
+
+            try (RandomAccessFile file = new RandomAccessFile(segmentFile(index), "rw")) {
+                long records = file.length() / RECORD_SIZE;
+                if (file.length() % RECORD_SIZE != 0) {
+                    file.setLength(records * RECORD_SIZE);
+                }
+                segmentRecords = (int) records;
+
+                FileChannel in = file.getChannel();
+                long start = index == fromSegment ? fromRecord : 0;
+                in.position(start * RECORD_SIZE);
+                for (long i = start; i < records; i++) {
+                    record.clear();
+                    while (record.hasRemaining() && in.read(record) > 0) { }
+                    record.flip();
+                    long timestamp = record.getLong();
+                    int type = record.getShort();
+                    int categoryId = record.getShort();
+                    int value = record.getInt();
+                    aggregates.apply(timestamp, type, categoryId, value);
+                    replayed++;
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Error replaying segment " + index, e);
+            }
+        }
+
+        if (replayed > 0) {
+            Log.d(TAG, "Replayed " + replayed + " analytics records after checkpoint");
+        }
+    }
+
+    private void loadCategories() {
+        File file = new File(directory, CATEGORIES_FILE);
+        if (!file.exists()) return;
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                categoryIds.put(line, categories.size());
+                categories.add(line);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error loading categories", e);
+        }
+    }
+
+    private int[] listSegments() {
+        String[] names = directory.list();
+        if (names == null) return new int[0];
+
+        int[] indexes = new int[names.length];
+        int count = 0;
+        for (String name : names) {
+            if (name.endsWith(SEGMENT_SUFFIX)) {
+                try {
+                    int index = Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                    if (index >= 0) {
+                        indexes[count++] = index;
+                    }
+                } catch (NumberFormatException ignored) {
+                    // Not one of ours
+                }
+            }
+        }
+        indexes = Arrays.copyOf(indexes, count);
+        Arrays.sort(indexes);
+        return indexes;
+    }
+
+    private File segmentFile(int index) {
+        return new File(directory, String.format(Locale.US, "%08d%s", index, SEGMENT_SUFFIX));
+    }
+
+    private static void deleteQuietly(File file) {
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Could not delete " + file);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.brainbites.cursor;
+
+import java.util.Arrays;
+
+/**
+ * One page of rows stored column by column. A cursor keeps a single page and
+ * refills it on every read, so the backing arrays are only reallocated when a
+ * caller asks for a larger page than before.
+ */
+public final class ColumnPage {
+    public static final int TYPE_STRING = 0;
+    public static final int TYPE_NUMBER = 1;
+
+    private final int[] types;
+    private final String[][] strings;
+    private final double[][] numbers;
+    private int capacity = 0;
+    // Rows wanted for this page; may be below capacity after a larger page
+    private int limit = 0;
+    private int size = 0;
+
+    public ColumnPage(int[] columnTypes) {
+        types = columnTypes.clone();
+        strings = new String[types.length][];
+        numbers = new double[types.length][];
+    }
+
+    /** Empties the page and sets it to hold {@code rows} rows. */
+    public void reset(int rows) {
+        if (rows > capacity) {
+            for (int c = 0; c < types.length; c++) {
+                if (types[c] == TYPE_STRING) {
+                    strings[c] = new String[rows];
+                } else {
+                    numbers[c] = new double[rows];
+                }
+            }
+            capacity = rows;
+        } else {
+            // Drop references from the last page so its strings can be collected
+            for (int c = 0; c < types.length; c++) {
+                if (types[c] == TYPE_STRING) Arrays.fill(strings[c], 0, size, null);
+            }
+        }
+        limit = rows;
+        size = 0;
+    }
+
+    /** Starts a new row and returns its index; the caller sets every column. */
+    public int addRow() {
+        if (size == limit) {
+            throw new IllegalStateException("Page is full");
+        }
+        return size++;
+    }
+
+    public void setString(int column, int row, String value) {
+        strings[column][row] = value;
+    }
+
+    public void setNumber(int column, int row, double value) {
+        numbers[column][row] = value;
+    }
+
+    public String getString(int column, int row) {
+        return strings[column][row];
+    }
+
+    public double getNumber(int column, int row) {
+        return numbers[column][row];
+    }
+
+    public int columnCount() {
+        return types.length;
+    }
+
+    public int columnType(int column) {
+        return types[column];
+    }
+
+    public boolean isFull() {
+        return size == limit;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
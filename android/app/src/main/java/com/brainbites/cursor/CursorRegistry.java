@@ -0,0 +1,88 @@
+package com.brainbites.cursor;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Open cursors by handle. Each cursor owns one {@link ColumnPage} that is
+ * refilled for every {@link #next} call. JS is expected to close what it
+ * opens; if it doesn't (a screen unmounting mid-read), the least recently
+ * read cursor is closed once {@link #MAX_OPEN} are open.
+ */
+public final class CursorRegistry {
+    public static final int MAX_OPEN = 8;
+    public static final int MAX_PAGE = 512;
+
+    private static CursorRegistry instance;
+
+    private final Map<Integer, Cursor> cursors = new LinkedHashMap<>(16, 0.75f, true);
+    private int nextHandle = 1;
+
+    public static synchronized CursorRegistry getInstance() {
+        if (instance == null) {
+            instance = new CursorRegistry();
+        }
+        return instance;
+    }
+
+    private static final class Cursor {
+        final RowSource source;
+        final ColumnPage page;
+        boolean done;
+
+        Cursor(RowSource source) {
+            this.source = source;
+            this.page = new ColumnPage(source.columnTypes());
+        }
+    }
+
+    public synchronized int open(RowSource source) {
+        if (cursors.size() >= MAX_OPEN) {
+            Iterator<Cursor> eldest = cursors.values().iterator();
+            eldest.next().source.close();
+            eldest.remove();
+        }
+        int handle = nextHandle++;
+        cursors.put(handle, new Cursor(source));
+        return handle;
+    }
+
+    /**
+     * Reads up to {@code rows} rows into the cursor's page and returns it, or
+     * null for an unknown or closed handle. The page is only valid until the
+     * next call for the same handle.
+     */
+    public synchronized ColumnPage next(int handle, int rows) {
+        Cursor cursor = cursors.get(handle);
+        if (cursor == null) return null;
+
+        cursor.page.reset(Math.max(1, Math.min(rows, MAX_PAGE)));
+        if (!cursor.done) {
+            cursor.done = !cursor.source.fill(cursor.page);
+        }
+        return cursor.page;
+    }
+
+    /** Whether the handle's source has no rows left after the last page. */
+    public synchronized boolean isDone(int handle) {
+        Cursor cursor = cursors.get(handle);
+        return cursor == null || cursor.done;
+    }
+
+    public synchronized String[] columnNames(int handle) {
+        Cursor cursor = cursors.get(handle);
+        return cursor == null ? null : cursor.source.columnNames();
+    }
+
+    public synchronized boolean close(int handle) {
+        Cursor cursor = cursors.remove(handle);
+        if (cursor == null) return false;
+        cursor.source.close();
+        return true;
+    }
+
+    public synchronized int openCount() {
+        return cursors.size();
+    }
+}
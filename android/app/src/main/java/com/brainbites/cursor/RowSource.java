@@ -0,0 +1,21 @@
+package com.brainbites.cursor;
+
+/**
+ * A forward-only result set read a page at a time. Sources should do their
+ * expensive per-row work (label lookups, decoding) in {@link #fill}, so a
+ * caller that only wants the first page only pays for that page.
+ */
+public interface RowSource {
+    String[] columnNames();
+
+    /** One of the {@link ColumnPage} TYPE_ constants per column. */
+    int[] columnTypes();
+
+    /**
+     * Adds rows to {@code page} until it is full or the source runs out.
+     * Returns false once there are no rows left.
+     */
+    boolean fill(ColumnPage page);
+
+    void close();
+}
@@ -0,0 +1,219 @@
+package com.brainbites.goals;
+
+import java.util.Arrays;
+
+/**
+ * One scope of goal or achievement rules (e.g. today's goals), compiled into
+ * parallel arrays plus a per-event-type index of the rules that read it.
+ *
+ * An event only visits the rules listed under its type, so its cost does not
+ * grow with the number of unrelated goals. Rules touched and completed since
+ * the last {@link #clearDelta} are tracked for the caller to report.
+ */
+public final class RuleSet {
+    public static final int EVENT_QUESTION = 0;
+    public static final int EVENT_CORRECT = 1;
+    public static final int EVENT_STREAK = 2;
+    public static final int EVENT_ACCURACY = 3;
+    public static final int EVENT_PLAY_TIME = 4;
+    public static final int EVENT_CATEGORIES = 5;
+    public static final int EVENT_SCORE = 6;
+    public static final int EVENT_DAILY_STREAK = 7;
+    public static final int EVENT_TYPES = 8;
+
+    /** Adds each event's value. */
+    public static final int AGG_SUM = 0;
+    /** Keeps the largest value seen. */
+    public static final int AGG_MAX = 1;
+    /** Keeps the last value seen. */
+    public static final int AGG_LATEST = 2;
+    /**
+     * Percentage of the rule's event over its denominator event, both summed;
+     * not satisfiable until the denominator reaches {@code minCount}.
+     */
+    public static final int AGG_RATIO = 3;
+
+    private static final int[] EMPTY = new int[0];
+
+    private String[] ids = new String[8];
+    private int[] event = new int[8];
+    private int[] denominator = new int[8];
+    private int[] aggregation = new int[8];
+    private long[] target = new long[8];
+    private long[] minCount = new long[8];
+    private long[] value = new long[8];
+    private long[] count = new long[8];
+    private boolean[] completed = new boolean[8];
+    private int size = 0;
+
+    private final int[][] byEvent = new int[EVENT_TYPES][];
+
+    private boolean[] isTouched = new boolean[8];
+    private int[] touched = new int[8];
+    private int touchedCount = 0;
+    private int[] completedNow = new int[8];
+    private int completedCount = 0;
+
+    /**
+     * Adds a rule and returns its index. {@code denominatorEvent} is only read
+     * for {@link #AGG_RATIO}; pass -1 otherwise.
+     */
+    public int add(String id, int eventType, int denominatorEvent, int aggregationType,
+                   long targetValue, long minimumCount) {
+        if (eventType < 0 || eventType >= EVENT_TYPES) {
+            throw new IllegalArgumentException("Unknown event type " + eventType);
+        }
+        if (aggregationType == AGG_RATIO && (denominatorEvent < 0 || denominatorEvent >= EVENT_TYPES)) {
+            throw new IllegalArgumentException("Ratio rule " + id + " needs a denominator event");
+        }
+        if (size == ids.length) {
+            grow(size * 2);
+        }
+        ids[size] = id;
+        event[size] = eventType;
+        denominator[size] = aggregationType == AGG_RATIO ? denominatorEvent : -1;
+        aggregation[size] = aggregationType;
+        target[size] = targetValue;
+        minCount[size] = minimumCount;
+        return size++;
+    }
+
+    /** Seeds a rule's state, e.g. from stored progress or lifetime stats. */
+    public void restore(int rule, long ruleValue, long ruleCount, boolean ruleCompleted) {
+        value[rule] = ruleValue;
+        count[rule] = ruleCount;
+        completed[rule] = ruleCompleted;
+    }
+
+    /** Builds the event index; call once after the last {@link #add}. */
+    public RuleSet compile() {
+        int[] perEvent = new int[EVENT_TYPES];
+        for (int i = 0; i < size; i++) {
+            perEvent[event[i]]++;
+            if (denominator[i] >= 0 && denominator[i] != event[i]) {
+                perEvent[denominator[i]]++;
+            }
+        }
+        for (int type = 0; type < EVENT_TYPES; type++) {
+            byEvent[type] = perEvent[type] == 0 ? EMPTY : new int[perEvent[type]];
+            perEvent[type] = 0;
+        }
+        for (int i = 0; i < size; i++) {
+            byEvent[event[i]][perEvent[event[i]]++] = i;
+            if (denominator[i] >= 0 && denominator[i] != event[i]) {
+                byEvent[denominator[i]][perEvent[denominator[i]]++] = i;
+            }
+        }
+        return this;
+    }
+
+    public void onEvent(int type, long eventValue) {
+        if (type < 0 || type >= EVENT_TYPES) return;
+
+        for (int rule : byEvent[type]) {
+            if (completed[rule]) continue;
+
+            long before = value[rule];
+            long beforeCount = count[rule];
+            switch (aggregation[rule]) {
+                case AGG_SUM:
+                    value[rule] += eventValue;
+                    break;
+                case AGG_MAX:
+                    if (eventValue > value[rule]) value[rule] = eventValue;
+                    break;
+                case AGG_LATEST:
+                    value[rule] = eventValue;
+                    break;
+                case AGG_RATIO:
+                    // A rule whose event is its own denominator counts both
+                    if (type == event[rule]) value[rule] += eventValue;
+                    if (type == denominator[rule]) count[rule] += eventValue;
+                    break;
+            }
+            if (value[rule] == before && count[rule] == beforeCount) continue;
+
+            markTouched(rule);
+            if (isSatisfied(rule)) {
+                completed[rule] = true;
+                if (completedCount == completedNow.length) {
+                    completedNow = Arrays.copyOf(completedNow, completedCount * 2);
+                }
+                completedNow[completedCount++] = rule;
+            }
+        }
+    }
+
+    private boolean isSatisfied(int rule) {
+        if (aggregation[rule] == AGG_RATIO) {
+            // Compare exactly; the rounded percentage would unlock 79.6% as 80
+            return count[rule] >= minCount[rule] && count[rule] > 0
+                && value[rule] * 100 >= target[rule] * count[rule];
+        }
+        return value[rule] >= target[rule];
+    }
+
+    /** Progress in the rule's own unit: a total, a maximum, or a percentage. */
+    public long progress(int rule) {
+        if (aggregation[rule] == AGG_RATIO) {
+            return count[rule] == 0 ? 0 : Math.round(value[rule] * 100.0 / count[rule]);
+        }
+        return value[rule];
+    }
+
+    private void markTouched(int rule) {
+        if (isTouched[rule]) return;
+        isTouched[rule] = true;
+        touched[touchedCount++] = rule;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String id(int rule) {
+        return ids[rule];
+    }
+
+    public boolean isCompleted(int rule) {
+        return completed[rule];
+    }
+
+    public int touchedCount() {
+        return touchedCount;
+    }
+
+    public int touchedRule(int i) {
+        return touched[i];
+    }
+
+    public int completedCount() {
+        return completedCount;
+    }
+
+    public int completedRule(int i) {
+        return completedNow[i];
+    }
+
+    public void clearDelta() {
+        for (int i = 0; i < touchedCount; i++) {
+            isTouched[touched[i]] = false;
+        }
+        touchedCount = 0;
+        completedCount = 0;
+    }
+
+    private void grow(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        event = Arrays.copyOf(event, capacity);
+        denominator = Arrays.copyOf(denominator, capacity);
+        aggregation = Arrays.copyOf(aggregation, capacity);
+        target = Arrays.copyOf(target, capacity);
+        minCount = Arrays.copyOf(minCount, capacity);
+        value = Arrays.copyOf(value, capacity);
+        count = Arrays.copyOf(count, capacity);
+        completed = Arrays.copyOf(completed, capacity);
+        isTouched = Arrays.copyOf(isTouched, capacity);
+        touched = Arrays.copyOf(touched, capacity);
+    }
+}
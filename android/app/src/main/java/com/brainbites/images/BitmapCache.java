@@ -0,0 +1,237 @@
+package com.brainbites.images;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.brainbites.metrics.TimerMetrics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Decoded, downsampled bitmaps by key, for images that are swapped often and
+ * must show at once, such as the mascot on every answer.
+ *
+ * JS registers each key with its source and view size; the bitmap is decoded
+ * on a background thread to that size and kept in an LRU bounded by bitmap
+ * bytes, a sixteenth of the app's memory class. Trim-memory callbacks shrink
+ * or empty it; an evicted key is decoded again the next time a view asks for
+ * it, so it only costs a frame of blank view, never a main-thread decode.
+ */
+public class BitmapCache implements ComponentCallbacks2 {
+    private static final String TAG = "BrainBitesImages";
+    private static final int MIN_BYTES = 4 * 1024 * 1024;
+
+    /** Called on the main thread with the bitmap, or null if it could not be decoded. */
+    public interface Listener {
+        void onBitmap(String key, Bitmap bitmap);
+    }
+
+    private static final class Source {
+        final String uri;
+        final int widthPx;
+        final int heightPx;
+
+        Source(String uri, int widthPx, int heightPx) {
+            this.uri = uri;
+            this.widthPx = widthPx;
+            this.heightPx = heightPx;
+        }
+
+        boolean sameAs(Source other) {
+            return other != null && uri.equals(other.uri)
+                    && widthPx == other.widthPx && heightPx == other.heightPx;
+        }
+    }
+
+    private static BitmapCache instance;
+
+    private final Context context;
+    private final LruCache<String, Bitmap> bitmaps;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService decoder = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "BrainBitesImages");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+
+    // Guarded by this
+    private final Map<String, Source> sources = new HashMap<>();
+    private final Map<String, List<Listener>> waiting = new HashMap<>();
+
+    public static synchronized BitmapCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new BitmapCache(context.getApplicationContext());
+            context.getApplicationContext().registerComponentCallbacks(instance);
+        }
+        return instance;
+    }
+
+    private BitmapCache(Context context) {
+        this.context = context;
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        int maxBytes = Math.max(MIN_BYTES, activityManager.getMemoryClass() * 1024 * 1024 / 16);
+        bitmaps = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount();
+            }
+        };
+    }
+
+    /**
+     * Makes {@code key} the image at {@code uri} fitted into the given size.
+     * A changed source drops the bitmap decoded for the old one.
+     */
+    public synchronized void register(String key, String uri, int widthPx, int heightPx) {
+        Source source = new Source(uri, widthPx, heightPx);
+        Source previous = sources.put(key, source);
+        if (previous != null && !previous.sameAs(source)) {
+            bitmaps.remove(key);
+        }
+    }
+
+    /** Decodes every registered key not in memory yet; blocks the calling thread. */
+    public int preloadAll() {
+        List<String> keys;
+        synchronized (this) {
+            keys = new ArrayList<>(sources.keySet());
+        }
+        int loaded = 0;
+        for (String key : keys) {
+            if (load(key) != null) loaded++;
+        }
+        return loaded;
+    }
+
+    /** The bitmap if it is in memory; never decodes. */
+    public Bitmap peek(String key) {
+        Bitmap bitmap = bitmaps.get(key);
+        if (bitmap != null) {
+            TimerMetrics.IMAGE_HITS.increment();
+        } else {
+            TimerMetrics.IMAGE_MISSES.increment();
+        }
+        return bitmap;
+    }
+
+    /**
+     * Delivers the bitmap for {@code key} to {@code listener} on the main
+     * thread, decoding it in the background first if it is not in memory.
+     * Returns the bitmap when it was in memory, in which case the listener
+     * is not called.
+     */
+    public Bitmap request(String key, Listener listener) {
+        Bitmap bitmap = peek(key);
+        if (bitmap != null) return bitmap;
+        synchronized (this) {
+            if (!sources.containsKey(key)) {
+                Log.w(TAG, "No source registered for image " + key);
+                return null;
+            }
+            List<Listener> listeners = waiting.get(key);
+            if (listeners != null) {
+                listeners.add(listener);
+                return null;
+            }
+            listeners = new ArrayList<>();
+            listeners.add(listener);
+            waiting.put(key, listeners);
+        }
+        decoder.execute(() -> {
+            Bitmap decoded = load(key);
+            List<Listener> listeners;
+            synchronized (this) {
+                listeners = waiting.remove(key);
+            }
+            mainHandler.post(() -> {
+                for (Listener waiter : listeners) {
+                    waiter.onBitmap(key, decoded);
+                }
+            });
+        });
+        return null;
+    }
+
+    /** Runs {@link #preloadAll} on the decoder thread and calls back there. */
+    public void preloadAllAsync(Runnable done) {
+        decoder.execute(() -> {
+            preloadAll();
+            done.run();
+        });
+    }
+
+    public int sizeBytes() {
+        return bitmaps.size();
+    }
+
+    public int maxSizeBytes() {
+        return bitmaps.maxSize();
+    }
+
+    public int count() {
+        return bitmaps.snapshot().size();
+    }
+
+    private Bitmap load(String key) {
+        while (true) {
+            Bitmap bitmap = bitmaps.get(key);
+            if (bitmap != null) return bitmap;
+            Source source;
+            synchronized (this) {
+                source = sources.get(key);
+            }
+            if (source == null) return null;
+
+            long start = TimerMetrics.begin("image_decode");
+            try {
+                bitmap = BitmapDecoder.decode(context, source.uri, source.widthPx, source.heightPx);
+            } catch (Exception e) {
+                Log.e(TAG, "Error decoding image " + key + " from " + source.uri, e);
+                return null;
+            } finally {
+                TimerMetrics.end(TimerMetrics.IMAGE_DECODE, start);
+            }
+            if (bitmap == null) return null;
+            synchronized (this) {
+                // Re-registered with another source while decoding; that one is wanted now
+                if (source.sameAs(sources.get(key))) {
+                    bitmaps.put(key, bitmap);
+                    return bitmap;
+                }
+            }
+            bitmap.recycle();
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_MODERATE || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            // Near the front of the kill list, or the foreground is starved
+            bitmaps.evictAll();
+        } else if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_LOW) {
+            bitmaps.trimToSize(bitmaps.maxSize() / 2);
+        }
+        // UI_HIDDEN and RUNNING_MODERATE keep everything: the next screen wants it back
+    }
+
+    @Override
+    public void onLowMemory() {
+        bitmaps.evictAll();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+}
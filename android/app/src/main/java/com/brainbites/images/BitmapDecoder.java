@@ -0,0 +1,85 @@
+package com.brainbites.images;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+
+/**
+ * Decodes an image straight to the size it is shown at. The sample size is
+ * picked from the bounds so the full-resolution bitmap is never allocated,
+ * then the sampled bitmap is scaled down to fit the box exactly.
+ *
+ * Sources are what React Native resolves a required image to: a drawable
+ * resource name in release builds, or a packager URL in debug builds.
+ */
+final class BitmapDecoder {
+    private BitmapDecoder() {}
+
+    /** The image fitted into widthPx by heightPx, aspect kept, or null if it cannot be decoded. */
+    static Bitmap decode(Context context, String uri, int widthPx, int heightPx) throws IOException {
+        byte[] data = read(context, uri);
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) return null;
+
+        float scale = Math.min(1f, Math.min(
+                (float) widthPx / options.outWidth, (float) heightPx / options.outHeight));
+        int targetWidth = Math.max(1, Math.round(options.outWidth * scale));
+        int targetHeight = Math.max(1, Math.round(options.outHeight * scale));
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize(options.outWidth, options.outHeight, targetWidth, targetHeight);
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        Bitmap sampled = BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        if (sampled == null) return null;
+
+        Bitmap fitted = sampled;
+        if (sampled.getWidth() != targetWidth || sampled.getHeight() != targetHeight) {
+            fitted = Bitmap.createScaledBitmap(sampled, targetWidth, targetHeight, true);
+            if (fitted != sampled) sampled.recycle();
+        }
+        // Uploads the texture ahead of the first draw where the platform supports it
+        fitted.prepareToDraw();
+        return fitted;
+    }
+
+    /** Largest power of two that keeps the sampled image at least the target size. */
+    static int sampleSize(int width, int height, int targetWidth, int targetHeight) {
+        int sample = 1;
+        while (width / (sample * 2) >= targetWidth && height / (sample * 2) >= targetHeight) {
+            sample *= 2;
+        }
+        return sample;
+    }
+
+    private static byte[] read(Context context, String uri) throws IOException {
+        InputStream in;
+        if (uri.startsWith("http://") || uri.startsWith("https://") || uri.startsWith("file://")) {
+            in = new URL(uri).openStream();
+        } else {
+            int id = context.getResources().getIdentifier(uri, "drawable", context.getPackageName());
+            if (id == 0) {
+                id = context.getResources().getIdentifier(uri, "raw", context.getPackageName());
+            }
+            if (id == 0) throw new IOException("No drawable named " + uri);
+            in = context.getResources().openRawResource(id);
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(8192, in.available()));
+            byte[] chunk = new byte[16384];
+            for (int n; (n = in.read(chunk)) > 0; ) {
+                out.write(chunk, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.brainbites.images;
+
+import android.graphics.Bitmap;
+import android.widget.ImageView;
+
+import com.facebook.react.uimanager.SimpleViewManager;
+import com.facebook.react.uimanager.ThemedReactContext;
+import com.facebook.react.uimanager.annotations.ReactProp;
+
+/**
+ * {@code <BrainBitesCachedImage cacheKey="...">}: shows a {@link BitmapCache}
+ * bitmap, fitted and centred. Setting the key only swaps a reference on the
+ * main thread; if the bitmap was evicted the view stays blank until the
+ * background decode delivers it.
+ */
+public class CachedImageViewManager extends SimpleViewManager<ImageView> {
+    private static final String VIEW_NAME = "BrainBitesCachedImage";
+
+    @Override
+    public String getName() {
+        return VIEW_NAME;
+    }
+
+    @Override
+    protected ImageView createViewInstance(ThemedReactContext reactContext) {
+        ImageView view = new ImageView(reactContext);
+        view.setScaleType(ImageView.ScaleType.FIT_CENTER);
+        return view;
+    }
+
+    @ReactProp(name = "cacheKey")
+    public void setCacheKey(ImageView view, String key) {
+        view.setTag(key);
+        if (key == null) {
+            view.setImageDrawable(null);
+            return;
+        }
+        Bitmap bitmap = BitmapCache.getInstance(view.getContext()).request(key, (loadedKey, loaded) -> {
+            // The view may have moved on to another key meanwhile
+            if (loadedKey.equals(view.getTag())) {
+                view.setImageBitmap(loaded);
+            }
+        });
+        view.setImageBitmap(bitmap);
+    }
+}
@@ -0,0 +1,85 @@
+package com.brainbites.images;
+
+import android.view.Choreographer;
+
+import com.brainbites.metrics.LatencyHistogram;
+
+import java.util.Arrays;
+
+/**
+ * Records frame intervals on the main thread for a fixed window, from the
+ * vsync timestamps {@link Choreographer} hands each frame. An interval well
+ * over the display's frame period is a dropped frame. Main thread only.
+ */
+public final class FrameRecorder implements Choreographer.FrameCallback {
+    private static final int MAX_FRAMES = 512;
+
+    /** Summary of one window. */
+    public static final class Result {
+        public final int frames;
+        public final int janky;
+        public final double p50Ms;
+        public final double p90Ms;
+        public final double maxMs;
+
+        Result(long[] intervals, int count, long jankNanos) {
+            long[] sorted = Arrays.copyOf(intervals, count);
+            Arrays.sort(sorted);
+            int slow = 0;
+            for (long interval : sorted) {
+                if (interval > jankNanos) slow++;
+            }
+            frames = count;
+            janky = slow;
+            p50Ms = count == 0 ? 0 : sorted[(count - 1) / 2] / 1e6;
+            p90Ms = count == 0 ? 0 : sorted[(int) ((count - 1) * 0.9)] / 1e6;
+            maxMs = count == 0 ? 0 : sorted[count - 1] / 1e6;
+        }
+    }
+
+    public interface Listener {
+        void onFrames(Result result);
+    }
+
+    private final long[] intervals = new long[MAX_FRAMES];
+    private final LatencyHistogram histogram;
+    private final long jankNanos;
+    private final long endNanos;
+    private final Listener listener;
+    private long lastFrameNanos;
+    private int count;
+
+    /**
+     * Starts recording now for {@code durationMs}; every interval also goes
+     * into {@code histogram}. A frame counts as janky past one and a half
+     * periods at {@code refreshRate}.
+     */
+    public static void record(long durationMs, float refreshRate, LatencyHistogram histogram, Listener listener) {
+        long periodNanos = (long) (1e9 / (refreshRate > 0 ? refreshRate : 60f));
+        FrameRecorder recorder = new FrameRecorder(histogram, periodNanos * 3 / 2,
+                System.nanoTime() + durationMs * 1_000_000L, listener);
+        Choreographer.getInstance().postFrameCallback(recorder);
+    }
+
+    private FrameRecorder(LatencyHistogram histogram, long jankNanos, long endNanos, Listener listener) {
+        this.histogram = histogram;
+        this.jankNanos = jankNanos;
+        this.endNanos = endNanos;
+        this.listener = listener;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (lastFrameNanos != 0 && count < MAX_FRAMES) {
+            long interval = frameTimeNanos - lastFrameNanos;
+            intervals[count++] = interval;
+            histogram.record(interval);
+        }
+        lastFrameNanos = frameTimeNanos;
+        if (frameTimeNanos < endNanos && count < MAX_FRAMES) {
+            Choreographer.getInstance().postFrameCallback(this);
+        } else {
+            listener.onFrames(new Result(intervals, count, jankNanos));
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package com.brainbites.leaderboard;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Keeps a {@link RankTree} in step with a remote board. Local score changes
+ * are applied to the tree at once and coalesced per player; {@link #sync}
+ * freezes them into one batch of score deltas, uploads it and applies the
+ * entries that changed on the server since the last sync, in one round trip
+ * (see {@link SyncCodec} for the format).
+ *
+ * A batch is resent unchanged, with the same sequence number, until a sync
+ * succeeds, so the server can drop a repeat whose response was lost; changes
+ * made meanwhile wait for the next batch. The client id, sequence number
+ * and unsent scores are saved after every change to them, so a restart
+ * neither loses nor repeats a delta. The board itself is not saved, so the
+ * first sync after a restart asks for every entry.
+ *
+ * If the state file can't be read, the scores already sent are unknown,
+ * and a delta against nothing would add a player's whole score on top of
+ * what the server has. So from then on, a player with no known sent score
+ * is first looked up with a download-only sync, and their delta is taken
+ * against the server's score.
+ *
+ * Not thread safe; the leaderboard module owns it on its executor.
+ */
+public class LeaderboardSync {
+    private static final int STATE_MAGIC = 0x42424C53;
+    private static final int STATE_VERSION = 2;
+
+    /** One request/response exchange with the board server. */
+    public interface Transport {
+        byte[] exchange(byte[] body) throws IOException;
+    }
+
+    /** Outcome of a successful {@link #sync}. */
+    public static final class Result {
+        public final int uploaded;
+        public final int received;
+        public final long boardVersion;
+
+        Result(int uploaded, int received, long boardVersion) {
+            this.uploaded = uploaded;
+            this.received = received;
+            this.boardVersion = boardVersion;
+        }
+    }
+
+    /** POSTs the body to a fixed URL and returns the response body. */
+    public static final class HttpTransport implements Transport {
+        private static final int TIMEOUT_MS = 10_000;
+
+        private final URL url;
+
+        public HttpTransport(URL url) {
+            this.url = url;
+        }
+
+        @Override
+        public byte[] exchange(byte[] body) throws IOException {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            try {
+                connection.setConnectTimeout(TIMEOUT_MS);
+                connection.setReadTimeout(TIMEOUT_MS);
+                connection.setDoOutput(true);
+                connection.setRequestMethod("POST");
+                connection.setRequestProperty("Content-Type", "application/octet-stream");
+                connection.setFixedLengthStreamingMode(body.length);
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(body);
+                }
+                int status = connection.getResponseCode();
+                if (status != HttpURLConnection.HTTP_OK) {
+                    throw new IOException("Leaderboard sync failed with HTTP " + status);
+                }
+                try (InputStream in = connection.getInputStream()) {
+                    ByteArrayOutputStream response = new ByteArrayOutputStream();
+                    byte[] chunk = new byte[8192];
+                    for (int n; (n = in.read(chunk)) > 0; ) {
+                        response.write(chunk, 0, n);
+                    }
+                    return response.toByteArray();
+                }
+            } finally {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private final RankTree board;
+    private final Transport transport;
+    private final File stateFile;
+
+    private String clientId;
+    private long batchSeq = 1;
+    private long boardVersion;
+    // Set once state was unreadable: scores sent before then are only known to the server
+    private boolean stateLost;
+
+    // Latest local score per player not yet in a batch
+    private final Map<String, Integer> pending = new HashMap<>();
+    // Score per player as of the last batch frozen; deltas are against it
+    private final Map<String, Integer> sent = new HashMap<>();
+
+    // The frozen batch, resent until a sync succeeds; null when none
+    private String[] inFlightIds;
+    private long[] inFlightDeltas;
+    private int[] inFlightScores;
+
+    // Results of exchange()
+    private long responseVersion;
+    private boolean responseFull;
+    private String[] responseIds;
+    private int[] responseScores;
+
+    /** Syncs {@code board} through {@code transport}; a null state file keeps state in memory only. */
+    public LeaderboardSync(RankTree board, Transport transport, File stateFile) {
+        this.board = board;
+        this.transport = transport;
+        this.stateFile = stateFile;
+        loadState();
+    }
+
+    public RankTree getBoard() {
+        return board;
+    }
+
+    public long getBoardVersion() {
+        return boardVersion;
+    }
+
+    /** Whether there are local changes the server has not acknowledged. */
+    public boolean hasUnsent() {
+        return inFlightIds != null || !pending.isEmpty();
+    }
+
+    /** Moves a local player to {@code score} now and queues the change for upload. */
+    public void submit(String playerId, int score) throws IOException {
+        board.put(playerId, score);
+        Integer queued = pending.get(playerId);
+        if (queued != null && queued == score) return;
+        if (queued == null && sent.containsKey(playerId) && score == localScore(playerId)) return;
+        pending.put(playerId, score);
+        saveState();
+    }
+
+    /**
+     * Uploads the frozen batch (freezing pending changes first if there is
+     * none) and applies what changed remotely. On failure the batch stays
+     * frozen for the next attempt.
+     */
+    public Result sync() throws IOException {
+        if (inFlightIds == null && !pending.isEmpty()) {
+            if (stateLost && hasPendingWithoutBase()) {
+                rebase();
+            }
+            freeze();
+        }
+        int uploaded = inFlightIds == null ? 0 : inFlightIds.length;
+
+        // Sequence 0 is a pure download
+        exchange(inFlightIds == null ? 0 : batchSeq, boardVersion, uploaded);
+
+        // The whole response parsed; only now does the batch count as delivered
+        if (inFlightIds != null) {
+            inFlightIds = null;
+            inFlightDeltas = null;
+            inFlightScores = null;
+            batchSeq++;
+        }
+        applyResponse();
+        saveState();
+        return new Result(uploaded, responseIds.length, responseVersion);
+    }
+
+    private boolean hasPendingWithoutBase() {
+        for (String playerId : pending.keySet()) {
+            if (!sent.containsKey(playerId)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Downloads the whole board and takes the server's scores as the sent
+     * scores of pending players with none, so their next deltas are against
+     * what the server already holds. Players the server doesn't have are new.
+     */
+    private void rebase() throws IOException {
+        exchange(0, 0, 0);
+        for (int i = 0; i < responseIds.length; i++) {
+            if (pending.containsKey(responseIds[i]) && !sent.containsKey(responseIds[i])) {
+                sent.put(responseIds[i], responseScores[i]);
+            }
+        }
+        applyResponse();
+        saveState();
+    }
+
+    /** Sends the first {@code uploaded} entries of the frozen batch and parses the reply. */
+    private void exchange(long seq, long sinceVersion, int uploaded) throws IOException {
+        ByteArrayOutputStream request = new ByteArrayOutputStream(64 + uploaded * 16);
+        request.write(SyncCodec.FORMAT);
+        SyncCodec.writeString(request, clientId);
+        SyncCodec.writeVarint(request, seq);
+        SyncCodec.writeVarint(request, sinceVersion);
+        SyncCodec.writeVarint(request, uploaded);
+        for (int i = 0; i < uploaded; i++) {
+            SyncCodec.writeString(request, inFlightIds[i]);
+            SyncCodec.writeSigned(request, inFlightDeltas[i]);
+        }
+
+        InputStream response = new ByteArrayInputStream(transport.exchange(request.toByteArray()));
+        SyncCodec.readFormat(response);
+        long version = SyncCodec.readVarint(response);
+        boolean full = response.read() == 1;
+        int count = SyncCodec.readLength(response);
+        String[] ids = new String[count];
+        int[] scores = new int[count];
+        long score = 0;
+        for (int i = 0; i < count; i++) {
+            ids[i] = SyncCodec.readString(response);
+            long gap = SyncCodec.readVarint(response);
+            score = i == 0 ? gap : score - gap;
+            scores[i] = (int) score;
+        }
+        responseVersion = version;
+        responseFull = full;
+        responseIds = ids;
+        responseScores = scores;
+    }
+
+    /** Applies the last response to the board; local scores not yet delivered stay on top. */
+    private void applyResponse() {
+        if (responseFull) {
+            board.clear();
+        }
+        for (int i = 0; i < responseIds.length; i++) {
+            if (!pending.containsKey(responseIds[i])) {
+                board.put(responseIds[i], responseScores[i]);
+            }
+        }
+        if (responseFull) {
+            for (Map.Entry<String, Integer> entry : pending.entrySet()) {
+                board.put(entry.getKey(), entry.getValue());
+            }
+        }
+        boardVersion = responseVersion;
+    }
+
+    private int localScore(String playerId) {
+        if (inFlightIds != null) {
+            for (int i = 0; i < inFlightIds.length; i++) {
+                if (inFlightIds[i].equals(playerId)) return inFlightScores[i];
+            }
+        }
+        Integer score = sent.get(playerId);
+        return score == null ? 0 : score;
+    }
+
+    private void freeze() throws IOException {
+        int size = 0;
+        String[] ids = new String[pending.size()];
+        long[] deltas = new long[ids.length];
+        int[] scores = new int[ids.length];
+        for (Map.Entry<String, Integer> entry : pending.entrySet()) {
+            Integer base = sent.get(entry.getKey());
+            long delta = (long) entry.getValue() - (base == null ? 0 : base);
+            // A new player goes up even on zero, so they are on the board
+            if (delta == 0 && base != null) continue;
+            ids[size] = entry.getKey();
+            deltas[size] = delta;
+            scores[size] = entry.getValue();
+            size++;
+        }
+        pending.clear();
+        for (int i = 0; i < size; i++) {
+            sent.put(ids[i], scores[i]);
+        }
+        if (size > 0) {
+            inFlightIds = Arrays.copyOf(ids, size);
+            inFlightDeltas = Arrays.copyOf(deltas, size);
+            inFlightScores = Arrays.copyOf(scores, size);
+        }
+        saveState();
+    }
+
+    // State file: written whole to a temp file and renamed over the old one
+
+    private void loadState() {
+        if (stateFile == null || !stateFile.exists()) {
+            clientId = UUID.randomUUID().toString();
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(stateFile))) {
+            if (in.readInt() != STATE_MAGIC || in.readInt() != STATE_VERSION) {
+                throw new IOException("Unrecognised leaderboard state");
+            }
+            clientId = in.readUTF();
+            batchSeq = in.readLong();
+            stateLost = in.readBoolean();
+            readScores(in, sent);
+            readScores(in, pending);
+            int inFlight = in.readInt();
+            if (inFlight > 0) {
+                inFlightIds = new String[inFlight];
+                inFlightDeltas = new long[inFlight];
+                inFlightScores = new int[inFlight];
+                for (int i = 0; i < inFlight; i++) {
+                    inFlightIds[i] = in.readUTF();
+                    inFlightDeltas[i] = in.readLong();
+                    inFlightScores[i] = in.readInt();
+                }
+            }
+        } catch (IOException e) {
+            // Starting over as a new client; sent scores are rebuilt from the server
+            clientId = UUID.randomUUID().toString();
+            batchSeq = 1;
+            stateLost = true;
+            sent.clear();
+            pending.clear();
+            inFlightIds = null;
+            inFlightDeltas = null;
+            inFlightScores = null;
+        }
+        for (Map.Entry<String, Integer> entry : sent.entrySet()) {
+            board.put(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, Integer> entry : pending.entrySet()) {
+            board.put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void saveState() throws IOException {
+        if (stateFile == null) return;
+        File temp = new File(stateFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(temp))) {
+            out.writeInt(STATE_MAGIC);
+            out.writeInt(STATE_VERSION);
+            out.writeUTF(clientId);
+            out.writeLong(batchSeq);
+            out.writeBoolean(stateLost);
+            writeScores(out, sent);
+            writeScores(out, pending);
+            int inFlight = inFlightIds == null ? 0 : inFlightIds.length;
+            out.writeInt(inFlight);
+            for (int i = 0; i < inFlight; i++) {
+                out.writeUTF(inFlightIds[i]);
+                out.writeLong(inFlightDeltas[i]);
+                out.writeInt(inFlightScores[i]);
+            }
+        }
+        if (!temp.renameTo(stateFile)) {
+            throw new IOException("Could not replace " + stateFile);
+        }
+    }
+
+    private static void writeScores(DataOutputStream out, Map<String, Integer> scores) throws IOException {
+        out.writeInt(scores.size());
+        for (Map.Entry<String, Integer> entry : scores.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeInt(entry.getValue());
+        }
+    }
+
+    private static void readScores(DataInputStream in, Map<String, Integer> scores) throws IOException {
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            scores.put(in.readUTF(), in.readInt());
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package com.brainbites.leaderboard;
+
+import java.util.Arrays;
+
+/**
+ * Leaderboard entries (player id and score) in an order-statistic treap over
+ * primitive arrays indexed by node, ordered best first: higher score, then
+ * lower id. Every node keeps its subtree size, so ranking a score, finding the
+ * entry at a position and changing a score are all O(log n) expected; nothing
+ * is ever re-sorted.
+ *
+ * Ranks are competition ranks: players on the same score share the rank of
+ * the first of them, and the next score down skips past them ("1224").
+ * Positions are 0-based places in the full order, ties broken by id.
+ *
+ * Not thread safe; the leaderboard module owns it on its executor.
+ */
+public class RankTree {
+    public static final int NOT_FOUND = -1;
+
+    private static final int NIL = 0;
+
+    private String[] ids;
+    private int[] scores;
+    private int[] left;
+    private int[] right;
+    private int[] sizes;
+    private int[] priorities;
+
+    // Node 0 is NIL; freed nodes are chained through right[]
+    private int nextNode = 1;
+    private int freeList = NIL;
+    private int root = NIL;
+    private int seed = 0x2545F491;
+
+    // Player id -> node, open addressing; 0 is empty
+    private int[] nodeTable;
+
+    // Results of split()
+    private int splitLeft;
+    private int splitRight;
+
+    public RankTree() {
+        this(1024);
+    }
+
+    public RankTree(int expectedSize) {
+        int nodes = 16;
+        while (nodes < expectedSize + 1) {
+            nodes *= 2;
+        }
+        ids = new String[nodes];
+        scores = new int[nodes];
+        left = new int[nodes];
+        right = new int[nodes];
+        sizes = new int[nodes];
+        priorities = new int[nodes];
+        nodeTable = new int[nodes * 2];
+    }
+
+    public int size() {
+        return sizes[root];
+    }
+
+    public boolean contains(String id) {
+        return nodeOf(id) != NIL;
+    }
+
+    /** The player's score, or {@code missing} if they are not on the board. */
+    public int scoreOf(String id, int missing) {
+        int node = nodeOf(id);
+        return node == NIL ? missing : scores[node];
+    }
+
+    /**
+     * Adds the player or moves them to {@code score}. Returns false if they
+     * were already on it with that score.
+     */
+    public boolean put(String id, int score) {
+        int node = nodeOf(id);
+        if (node != NIL) {
+            if (scores[node] == score) return false;
+            root = erase(root, node);
+        } else {
+            node = newNode(id);
+            putNode(id, node);
+        }
+        scores[node] = score;
+        left[node] = NIL;
+        right[node] = NIL;
+        sizes[node] = 1;
+        root = insert(root, node);
+        return true;
+    }
+
+    public boolean remove(String id) {
+        int node = nodeOf(id);
+        if (node == NIL) return false;
+        root = erase(root, node);
+        removeNode(id);
+        ids[node] = null;
+        right[node] = freeList;
+        freeList = node;
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(ids, null);
+        Arrays.fill(nodeTable, 0);
+        nextNode = 1;
+        freeList = NIL;
+        root = NIL;
+    }
+
+    /** 1-based competition rank of the player, or {@link #NOT_FOUND}. */
+    public int rankOf(String id) {
+        int node = nodeOf(id);
+        return node == NIL ? NOT_FOUND : rankOfScore(scores[node]);
+    }
+
+    /** The rank a player on {@code score} would have: one more than the players above it. */
+    public int rankOfScore(int score) {
+        int above = 0;
+        int node = root;
+        while (node != NIL) {
+            if (scores[node] > score) {
+                above += sizes[left[node]] + 1;
+                node = right[node];
+            } else {
+                node = left[node];
+            }
+        }
+        return above + 1;
+    }
+
+    /** 0-based position of the player in the full order, or {@link #NOT_FOUND}. */
+    public int positionOf(String id) {
+        int target = nodeOf(id);
+        if (target == NIL) return NOT_FOUND;
+        int before = 0;
+        int node = root;
+        while (node != target) {
+            if (before(target, node)) {
+                node = left[node];
+            } else {
+                before += sizes[left[node]] + 1;
+                node = right[node];
+            }
+        }
+        return before + sizes[left[node]];
+    }
+
+    /** Id of the entry at {@code position}, or null past the end. */
+    public String idAt(int position) {
+        int node = nodeAt(position);
+        return node == NIL ? null : ids[node];
+    }
+
+    /** Score of the entry at {@code position}; the position must be on the board. */
+    public int scoreAt(int position) {
+        int node = nodeAt(position);
+        if (node == NIL) throw new IndexOutOfBoundsException("position " + position + " of " + size());
+        return scores[node];
+    }
+
+    private int nodeAt(int position) {
+        if (position < 0 || position >= size()) return NIL;
+        int node = root;
+        while (true) {
+            int leftSize = sizes[left[node]];
+            if (position < leftSize) {
+                node = left[node];
+            } else if (position == leftSize) {
+                return node;
+            } else {
+                position -= leftSize + 1;
+                node = right[node];
+            }
+        }
+    }
+
+    // Treap; a node with a higher priority sits above
+
+    /** Whether node a comes before node b: higher score, then lower id. */
+    private boolean before(int a, int b) {
+        return scores[a] > scores[b] || (scores[a] == scores[b] && ids[a].compareTo(ids[b]) < 0);
+    }
+
+    private int insert(int tree, int node) {
+        if (tree == NIL) return node;
+        if (priorities[node] > priorities[tree]) {
+            split(tree, node);
+            left[node] = splitLeft;
+            right[node] = splitRight;
+            sizes[node] = sizes[splitLeft] + sizes[splitRight] + 1;
+            return node;
+        }
+        if (before(node, tree)) {
+            left[tree] = insert(left[tree], node);
+        } else {
+            right[tree] = insert(right[tree], node);
+        }
+        sizes[tree]++;
+        return tree;
+    }
+
+    private int erase(int tree, int node) {
+        if (tree == node) return merge(left[node], right[node]);
+        if (before(node, tree)) {
+            left[tree] = erase(left[tree], node);
+        } else {
+            right[tree] = erase(right[tree], node);
+        }
+        sizes[tree]--;
+        return tree;
+    }
+
+    /** Splits {@code tree} into the nodes before {@code pivot} and the rest. */
+    private void split(int tree, int pivot) {
+        if (tree == NIL) {
+            splitLeft = NIL;
+            splitRight = NIL;
+        } else if (before(tree, pivot)) {
+            split(right[tree], pivot);
+            right[tree] = splitLeft;
+            sizes[tree] = sizes[left[tree]] + sizes[splitLeft] + 1;
+            splitLeft = tree;
+        } else {
+            split(left[tree], pivot);
+            left[tree] = splitRight;
+            sizes[tree] = sizes[splitRight] + sizes[right[tree]] + 1;
+            splitRight = tree;
+        }
+    }
+
+    /** Joins two trees where every node of {@code a} comes before {@code b}. */
+    private int merge(int a, int b) {
+        if (a == NIL) return b;
+        if (b == NIL) return a;
+        if (priorities[a] > priorities[b]) {
+            right[a] = merge(right[a], b);
+            sizes[a] = sizes[left[a]] + sizes[right[a]] + 1;
+            return a;
+        }
+        left[b] = merge(a, left[b]);
+        sizes[b] = sizes[left[b]] + sizes[right[b]] + 1;
+        return b;
+    }
+
+    private int newNode(String id) {
+        int node;
+        if (freeList != NIL) {
+            node = freeList;
+            freeList = right[node];
+        } else {
+            if (nextNode == ids.length) grow();
+            node = nextNode++;
+        }
+        ids[node] = id;
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        priorities[node] = seed;
+        return node;
+    }
+
+    private void grow() {
+        int nodes = ids.length * 2;
+        ids = Arrays.copyOf(ids, nodes);
+        scores = Arrays.copyOf(scores, nodes);
+        left = Arrays.copyOf(left, nodes);
+        right = Arrays.copyOf(right, nodes);
+        sizes = Arrays.copyOf(sizes, nodes);
+        priorities = Arrays.copyOf(priorities, nodes);
+        nodeTable = new int[nodes * 2];
+        for (int node = 1; node < nextNode; node++) {
+            if (ids[node] != null) putNode(ids[node], node);
+        }
+    }
+
+    // Id table, linear probing with backward-shift deletion
+
+    private int nodeOf(String id) {
+        int mask = nodeTable.length - 1;
+        for (int i = mix(id) & mask; nodeTable[i] != 0; i = (i + 1) & mask) {
+            if (ids[nodeTable[i]].equals(id)) return nodeTable[i];
+        }
+        return NIL;
+    }
+
+    private void putNode(String id, int node) {
+        int mask = nodeTable.length - 1;
+        int i = mix(id) & mask;
+        while (nodeTable[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        nodeTable[i] = node;
+    }
+
+    private void removeNode(String id) {
+        int mask = nodeTable.length - 1;
+        int hole = mix(id) & mask;
+        while (!ids[nodeTable[hole]].equals(id)) {
+            hole = (hole + 1) & mask;
+        }
+        // Pull back later entries of the run that may no longer reach their slot
+        for (int i = (hole + 1) & mask; nodeTable[i] != 0; i = (i + 1) & mask) {
+            int home = mix(ids[nodeTable[i]]) & mask;
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                nodeTable[hole] = nodeTable[i];
+                hole = i;
+            }
+        }
+        nodeTable[hole] = 0;
+    }
+
+    private static int mix(String id) {
+        int h = id.hashCode() * 0x85EBCA6B;
+        return h ^ (h >>> 15);
+    }
+}
@@ -0,0 +1,89 @@
+package com.brainbites.leaderboard;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Wire format shared by {@link LeaderboardSync} and the board server: LEB128
+ * varints, zigzag for signed values, and strings as a varint byte length
+ * followed by UTF-8.
+ *
+ * Upload (client to server):
+ *   byte FORMAT | string clientId | varint batchSeq | varint sinceVersion
+ *   | varint count | count * (string playerId | zigzag scoreDelta)
+ * A delta is against the score the client last sent for that player; the
+ * server applies each batch once and treats a repeated batchSeq as a resend.
+ *
+ * Download (server to client):
+ *   byte FORMAT | varint boardVersion | byte full | varint count
+ *   | count * (string playerId | varint scoreGap)
+ * Entries changed since sinceVersion (every entry if full), best score
+ * first; the first gap is the score itself and each later one is how far
+ * below the previous score the entry is.
+ */
+public final class SyncCodec {
+    public static final int FORMAT = 1;
+
+    private SyncCodec() {}
+
+    public static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    public static long readVarint(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) throw new EOFException();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    public static void writeSigned(ByteArrayOutputStream out, long value) {
+        writeVarint(out, (value << 1) ^ (value >> 63));
+    }
+
+    public static long readSigned(InputStream in) throws IOException {
+        long value = readVarint(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    public static String readString(InputStream in) throws IOException {
+        int length = readLength(in);
+        byte[] bytes = new byte[length];
+        int read = 0;
+        while (read < length) {
+            int n = in.read(bytes, read, length - read);
+            if (n < 0) throw new EOFException();
+            read += n;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** A count or length, bounded so a corrupt body cannot ask for a huge allocation. */
+    public static int readLength(InputStream in) throws IOException {
+        long value = readVarint(in);
+        if (value > Integer.MAX_VALUE / 2) throw new IOException("Length out of range: " + value);
+        return (int) value;
+    }
+
+    public static void readFormat(InputStream in) throws IOException {
+        int format = in.read();
+        if (format != FORMAT) throw new IOException("Unsupported sync format " + format);
+    }
+}
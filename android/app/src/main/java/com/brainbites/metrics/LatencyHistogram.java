@@ -0,0 +1,136 @@
+package com.brainbites.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency distribution over fixed microsecond buckets. Recording is a bucket
+ * scan plus two atomic adds; nothing is allocated, so it can sit on the
+ * once-a-second tick path permanently.
+ */
+public final class LatencyHistogram {
+    /** Inclusive upper bounds in microseconds; the last bucket takes the rest. */
+    static final long[] BOUNDS_US = {
+        10, 25, 50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000,
+        250_000, 500_000, 1_000_000, 2_500_000
+    };
+
+    private final String name;
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS_US.length + 1);
+    private final StripedCounter totalNanos;
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+        this.totalNanos = new StripedCounter(name);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void record(long nanos) {
+        long micros = nanos / 1000;
+        int bucket = 0;
+        while (bucket < BOUNDS_US.length && micros > BOUNDS_US[bucket]) {
+            bucket++;
+        }
+        buckets.incrementAndGet(bucket);
+        totalNanos.add(nanos);
+
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    public Snapshot snapshot() {
+        long[] counts = new long[buckets.length()];
+        long count = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+            count += counts[i];
+        }
+        return new Snapshot(name, counts, count, totalNanos.sum(), maxNanos.get());
+    }
+
+    void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+        totalNanos.reset();
+        maxNanos.set(0);
+    }
+
+    public static final class Snapshot {
+        public final String name;
+        public final long[] counts;
+        public final long count;
+        public final long totalNanos;
+        public final long maxNanos;
+
+        Snapshot(String name, long[] counts, long count, long totalNanos, long maxNanos) {
+            this.name = name;
+            this.counts = counts;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        /** Snapshot from {@link #pack} output, e.g. one sent over from the timer process. */
+        public static Snapshot unpack(String name, long[] packed) {
+            long[] counts = new long[packed.length - 2];
+            long count = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = packed[i + 2];
+                count += counts[i];
+            }
+            return new Snapshot(name, counts, count, packed[0], packed[1]);
+        }
+
+        /** totalNanos, maxNanos, then the bucket counts. */
+        public long[] pack() {
+            long[] packed = new long[counts.length + 2];
+            packed[0] = totalNanos;
+            packed[1] = maxNanos;
+            System.arraycopy(counts, 0, packed, 2, counts.length);
+            return packed;
+        }
+
+        /** The same histogram recorded in two processes, as one distribution. */
+        public Snapshot merge(Snapshot other) {
+            long[] merged = counts.clone();
+            for (int i = 0; i < merged.length && i < other.counts.length; i++) {
+                merged[i] += other.counts[i];
+            }
+            return new Snapshot(name, merged, count + other.count,
+                totalNanos + other.totalNanos, Math.max(maxNanos, other.maxNanos));
+        }
+
+        public static long[] boundsMicros() {
+            return BOUNDS_US.clone();
+        }
+
+        public double meanMicros() {
+            return count == 0 ? 0 : totalNanos / 1000.0 / count;
+        }
+
+        /**
+         * Upper bound of the bucket holding the given quantile, capped at the
+         * observed max, so the estimate never under-reports.
+         */
+        public double percentileMicros(double quantile) {
+            if (count == 0) return 0;
+            long rank = (long) Math.ceil(quantile * count);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    long bound = i < BOUNDS_US.length ? BOUNDS_US[i] : Long.MAX_VALUE;
+                    return Math.min(bound, maxNanos / 1000.0);
+                }
+            }
+            return maxNanos / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.brainbites.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Monotonic counter spread over a few cache-line padded cells so that the
+ * main thread, the usage polling handler and binder threads don't contend on
+ * one word. Reads sum the cells and are only as exact as a racy snapshot.
+ */
+public final class StripedCounter {
+    private static final int STRIPES = 4;
+    // 8 longs = 64 bytes between cells
+    private static final int STRIDE = 8;
+
+    private final String name;
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * STRIDE);
+
+    public StripedCounter(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(long delta) {
+        int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        cells.addAndGet(stripe * STRIDE, delta);
+    }
+
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * STRIDE);
+        }
+        return sum;
+    }
+
+    void reset() {
+        for (int i = 0; i < STRIPES; i++) {
+            cells.set(i * STRIDE, 0);
+        }
+    }
+}
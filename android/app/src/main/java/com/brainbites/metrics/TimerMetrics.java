@@ -0,0 +1,124 @@
+package com.brainbites.metrics;
+
+import android.os.Trace;
+
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * Process-wide counters and latency histograms for the timer service and the
+ * usage polling loop.
+ *
+ * Timed sections go through {@link #begin}/{@link #end}, which also open an
+ * {@code android.os.Trace} section so the same spans show up in Perfetto and
+ * systrace captures. Everything here is allocation-free on the recording side.
+ */
+public final class TimerMetrics {
+    private TimerMetrics() {}
+
+    public static final StripedCounter TICKS = new StripedCounter("ticks");
+    public static final StripedCounter TICKS_CHARGED = new StripedCounter("ticks_charged");
+    public static final StripedCounter INTENTS_HANDLED = new StripedCounter("intents_handled");
+    public static final StripedCounter PREFS_FLUSHES = new StripedCounter("prefs_flushes");
+    public static final StripedCounter NOTIFICATIONS_POSTED = new StripedCounter("notifications_posted");
+    public static final StripedCounter BROADCASTS_SENT = new StripedCounter("broadcasts_sent");
+    public static final StripedCounter USAGE_QUERIES = new StripedCounter("usage_queries");
+    public static final StripedCounter ENFORCEMENTS = new StripedCounter("enforcements");
+    // Timer events for the headless JS task, and batches (including resends) handed to it
+    public static final StripedCounter EVENTS_QUEUED = new StripedCounter("events_queued");
+    public static final StripedCounter EVENT_BATCHES = new StripedCounter("event_batches");
+    // Cached image lookups by views, served from memory or waiting on a decode
+    public static final StripedCounter IMAGE_HITS = new StripedCounter("image_hits");
+    public static final StripedCounter IMAGE_MISSES = new StripedCounter("image_misses");
+
+    public static final LatencyHistogram TICK = new LatencyHistogram("tick");
+    public static final LatencyHistogram INTENT = new LatencyHistogram("intent");
+    public static final LatencyHistogram PREFS_FLUSH = new LatencyHistogram("prefs_flush");
+    public static final LatencyHistogram NOTIFICATION = new LatencyHistogram("notification");
+    public static final LatencyHistogram BROADCAST = new LatencyHistogram("broadcast");
+    public static final LatencyHistogram USAGE_QUERY = new LatencyHistogram("usage_query");
+    // App switch to enforcement action, per backend
+    public static final LatencyHistogram ENFORCE_POLLING = new LatencyHistogram("enforce_polling");
+    public static final LatencyHistogram ENFORCE_ACCESSIBILITY = new LatencyHistogram("enforce_a11y");
+    // JS tap timestamp to playback start, SoundPool vs the per-tap decode path
+    public static final LatencyHistogram SOUND_TAP = new LatencyHistogram("sound_tap");
+    public static final LatencyHistogram SOUND_TAP_LEGACY = new LatencyHistogram("sound_tap_legacy");
+    public static final LatencyHistogram KV_WRITE = new LatencyHistogram("kv_write");
+    public static final LatencyHistogram GOALS_SUBMIT = new LatencyHistogram("goals_submit");
+    public static final LatencyHistogram CURSOR_PAGE = new LatencyHistogram("cursor_page");
+    public static final LatencyHistogram REVIEW_RECORD = new LatencyHistogram("review_record");
+    public static final LatencyHistogram LEADERBOARD_UPDATE = new LatencyHistogram("leaderboard_update");
+    public static final LatencyHistogram IMAGE_DECODE = new LatencyHistogram("image_decode");
+    // Frame intervals after an answer, with mascot bitmaps from the native cache and without
+    public static final LatencyHistogram FRAME_CACHED = new LatencyHistogram("frame_cached");
+    public static final LatencyHistogram FRAME_LEGACY = new LatencyHistogram("frame_legacy");
+
+    private static final StripedCounter[] COUNTERS = {
+        TICKS, TICKS_CHARGED, INTENTS_HANDLED, PREFS_FLUSHES,
+        NOTIFICATIONS_POSTED, BROADCASTS_SENT, USAGE_QUERIES, ENFORCEMENTS,
+        EVENTS_QUEUED, EVENT_BATCHES, IMAGE_HITS, IMAGE_MISSES
+    };
+
+    private static final LatencyHistogram[] HISTOGRAMS = {
+        TICK, INTENT, PREFS_FLUSH, NOTIFICATION, BROADCAST, USAGE_QUERY,
+        ENFORCE_POLLING, ENFORCE_ACCESSIBILITY, SOUND_TAP, SOUND_TAP_LEGACY,
+        KV_WRITE, GOALS_SUBMIT, CURSOR_PAGE, REVIEW_RECORD,
+        LEADERBOARD_UPDATE, IMAGE_DECODE, FRAME_CACHED, FRAME_LEGACY
+    };
+
+    private static final long startedAt = System.currentTimeMillis();
+
+    /**
+     * Starts a timed section. {@code traceName} should be a constant; it is
+     * passed straight to {@link Trace#beginSection}.
+     */
+    public static long begin(String traceName) {
+        Trace.beginSection(traceName);
+        return System.nanoTime();
+    }
+
+    /** Ends the section opened by the matching {@link #begin} on this thread. */
+    public static void end(LatencyHistogram histogram, long startNanos) {
+        histogram.record(System.nanoTime() - startNanos);
+        Trace.endSection();
+    }
+
+    public static StripedCounter[] counters() {
+        return COUNTERS.clone();
+    }
+
+    public static LatencyHistogram[] histograms() {
+        return HISTOGRAMS.clone();
+    }
+
+    public static long getStartedAt() {
+        return startedAt;
+    }
+
+    public static void reset() {
+        for (StripedCounter counter : COUNTERS) {
+            counter.reset();
+        }
+        for (LatencyHistogram histogram : HISTOGRAMS) {
+            histogram.reset();
+        }
+    }
+
+    /** Plain text report for {@code adb shell dumpsys activity service ...}. */
+    public static void dump(PrintWriter writer) {
+        long uptimeSeconds = (System.currentTimeMillis() - startedAt) / 1000;
+        writer.println("Metrics (collected over " + uptimeSeconds + "s):");
+        for (StripedCounter counter : COUNTERS) {
+            writer.println("  " + counter.getName() + ": " + counter.sum());
+        }
+
+        writer.println("Latency (us): count mean p50 p95 p99 max");
+        for (LatencyHistogram histogram : HISTOGRAMS) {
+            LatencyHistogram.Snapshot s = histogram.snapshot();
+            writer.println(String.format(Locale.US, "  %-16s %7d %8.1f %8.0f %8.0f %8.0f %8.0f",
+                s.name, s.count, s.meanMicros(),
+                s.percentileMicros(0.50), s.percentileMicros(0.95), s.percentileMicros(0.99),
+                s.maxNanos / 1000.0));
+        }
+    }
+}
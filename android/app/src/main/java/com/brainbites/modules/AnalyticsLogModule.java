@@ -0,0 +1,120 @@
+package com.brainbites.modules;
+
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.WritableMap;
+
+import com.brainbites.analytics.AnalyticsAggregates;
+import com.brainbites.analytics.AnalyticsEventLog;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class AnalyticsLogModule extends ReactContextBaseJavaModule {
+    private static final String MODULE_NAME = "BrainBitesAnalytics";
+    private static final String TAG = "BrainBitesAnalytics";
+
+    private final AnalyticsEventLog eventLog;
+
+    public AnalyticsLogModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+        this.eventLog = AnalyticsEventLog.getInstance(reactContext);
+    }
+
+    @Override
+    public String getName() {
+        return MODULE_NAME;
+    }
+
+    @Override
+    public Map<String, Object> getConstants() {
+        Map<String, Object> eventTypes = new HashMap<>();
+        eventTypes.put("other", AnalyticsEventLog.EVENT_OTHER);
+        eventTypes.put("session_start", AnalyticsEventLog.EVENT_SESSION_START);
+        eventTypes.put("session_end", AnalyticsEventLog.EVENT_SESSION_END);
+        eventTypes.put("question_answered", AnalyticsEventLog.EVENT_QUESTION_ANSWERED);
+        eventTypes.put("time_earned", AnalyticsEventLog.EVENT_TIME_EARNED);
+        eventTypes.put("achievement_unlocked", AnalyticsEventLog.EVENT_ACHIEVEMENT_UNLOCKED);
+        eventTypes.put("category_selected", AnalyticsEventLog.EVENT_CATEGORY_SELECTED);
+        eventTypes.put("quiz_completed", AnalyticsEventLog.EVENT_QUIZ_COMPLETED);
+        eventTypes.put("screen_view", AnalyticsEventLog.EVENT_SCREEN_VIEW);
+        eventTypes.put("button_press", AnalyticsEventLog.EVENT_BUTTON_PRESS);
+        eventTypes.put("error", AnalyticsEventLog.EVENT_ERROR);
+
+        Map<String, Object> constants = new HashMap<>();
+        constants.put("EVENT_TYPES", eventTypes);
+        return constants;
+    }
+
+    @ReactMethod
+    public void logEvent(double type, String category, double value, double flags) {
+        eventLog.append((int) type, category, (int) value, (int) flags);
+    }
+
+    @ReactMethod
+    public void startSession() {
+        eventLog.append(AnalyticsEventLog.EVENT_SESSION_START, null, 0, 0);
+    }
+
+    @ReactMethod
+    public void endSession() {
+        eventLog.append(AnalyticsEventLog.EVENT_SESSION_END, null, 0, 0);
+        eventLog.requestFlush();
+    }
+
+    @ReactMethod
+    public void getMetrics(Promise promise) {
+        try {
+            AnalyticsAggregates aggregates = eventLog.getAggregates();
+
+            WritableMap metrics = Arguments.createMap();
+            metrics.putInt("totalSessions", aggregates.getTotalSessions());
+            metrics.putDouble("totalPlayTime", aggregates.getTotalPlayTimeMillis());
+            metrics.putDouble("averageSessionLength", aggregates.getAverageSessionLengthMillis());
+            metrics.putInt("questionsAnswered", aggregates.getQuestionsAnswered());
+            metrics.putInt("correctAnswers", aggregates.getCorrectAnswers());
+            metrics.putDouble("accuracy", aggregates.getAccuracy());
+            metrics.putString("favoriteCategory", eventLog.getCategoryName(aggregates.getFavoriteCategoryId()));
+            metrics.putDouble("timeEarnedTotal", aggregates.getTimeEarnedTotal());
+            metrics.putInt("achievementsUnlocked", aggregates.getAchievementsUnlocked());
+            metrics.putDouble("lastActiveTime", aggregates.getLastActiveMillis());
+            promise.resolve(metrics);
+        } catch (Exception e) {
+            Log.e(TAG, "Error reading analytics metrics", e);
+            promise.reject("GET_METRICS_ERROR", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void flush(Promise promise) {
+        try {
+            eventLog.requestFlush();
+            promise.resolve(true);
+        } catch (Exception e) {
+            Log.e(TAG, "Error flushing analytics log", e);
+            promise.reject("FLUSH_ERROR", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void clear(Promise promise) {
+        try {
+            eventLog.clear();
+            promise.resolve(true);
+        } catch (Exception e) {
+            Log.e(TAG, "Error clearing analytics log", e);
+            promise.reject("CLEAR_ERROR", e.getMessage());
+        }
+    }
+
+    @Override
+    public void onCatalystInstanceDestroy() {
+        super.onCatalystInstanceDestroy();
+        eventLog.requestFlush();
+    }
+}
@@ -0,0 +1,120 @@
+package com.brainbites.modules;
+
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import com.brainbites.cursor.ColumnPage;
+import com.brainbites.cursor.CursorRegistry;
+import com.brainbites.cursor.RowSource;
+import com.brainbites.metrics.TimerMetrics;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Pages through native result sets opened by other modules (for example
+ * UsageStatsModule.openInstalledApps). Opening resolves {handle, columns};
+ * each {@link #next} resolves {count, done, columns}, where columns holds one
+ * array per column in the order given at open, rather than one map per row.
+ */
+public class CursorModule extends ReactContextBaseJavaModule {
+    private static final String MODULE_NAME = "BrainBitesCursor";
+    private static final String TAG = "BrainBitesCursor";
+
+    private final CursorRegistry registry = CursorRegistry.getInstance();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "BrainBitesCursor");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+
+    public CursorModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+    }
+
+    @Override
+    public String getName() {
+        return MODULE_NAME;
+    }
+
+    /** Registers {@code source} and builds the {handle, columns} result for its opener. */
+    static WritableMap open(RowSource source) {
+        int handle = CursorRegistry.getInstance().open(source);
+        WritableArray columns = Arguments.createArray();
+        for (String name : source.columnNames()) {
+            columns.pushString(name);
+        }
+        WritableMap result = Arguments.createMap();
+        result.putInt("handle", handle);
+        result.putArray("columns", columns);
+        return result;
+    }
+
+    @ReactMethod
+    public void next(final double handle, final double rows, final Promise promise) {
+        executor.execute(() -> {
+            long start = TimerMetrics.begin("BrainBites:cursorPage");
+            try {
+                ColumnPage page = registry.next((int) handle, (int) rows);
+                if (page == null) {
+                    promise.reject("CURSOR_CLOSED", "No open cursor " + (int) handle);
+                    return;
+                }
+                promise.resolve(toResult(page, registry.isDone((int) handle)));
+            } catch (Exception e) {
+                Log.e(TAG, "Error reading cursor page", e);
+                promise.reject("CURSOR_ERROR", e.getMessage());
+            } finally {
+                TimerMetrics.end(TimerMetrics.CURSOR_PAGE, start);
+            }
+        });
+    }
+
+    @ReactMethod
+    public void close(final double handle, final Promise promise) {
+        // Queued behind any page still being read for this handle
+        executor.execute(() -> {
+            try {
+                promise.resolve(registry.close((int) handle));
+            } catch (Exception e) {
+                promise.reject("CURSOR_ERROR", e.getMessage());
+            }
+        });
+    }
+
+    private static WritableMap toResult(ColumnPage page, boolean done) {
+        WritableArray columns = Arguments.createArray();
+        for (int c = 0; c < page.columnCount(); c++) {
+            WritableArray column = Arguments.createArray();
+            if (page.columnType(c) == ColumnPage.TYPE_STRING) {
+                for (int row = 0; row < page.size(); row++) {
+                    column.pushString(page.getString(c, row));
+                }
+            } else {
+                for (int row = 0; row < page.size(); row++) {
+                    column.pushDouble(page.getNumber(c, row));
+                }
+            }
+            columns.pushArray(column);
+        }
+
+        WritableMap result = Arguments.createMap();
+        result.putInt("count", page.size());
+        result.putBoolean("done", done);
+        result.putArray("columns", columns);
+        return result;
+    }
+
+    @Override
+    public void onCatalystInstanceDestroy() {
+        super.onCatalystInstanceDestroy();
+        executor.shutdown();
+    }
+}
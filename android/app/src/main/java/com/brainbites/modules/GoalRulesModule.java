@@ -0,0 +1,172 @@
+package com.brainbites.modules;
+
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import com.brainbites.goals.RuleSet;
+import com.brainbites.metrics.TimerMetrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Evaluates daily goals and achievements against quiz events on a background
+ * thread. JS loads each scope's rules once (today's goals, lifetime
+ * achievements), then submits events to a scope in batches and gets back only
+ * what changed: a flat [rule, progress, ...] list of touched rules and the
+ * indexes of rules the batch completed. Rule indexes are positions in the
+ * array passed to {@link #load}.
+ */
+public class GoalRulesModule extends ReactContextBaseJavaModule {
+    private static final String MODULE_NAME = "BrainBitesGoals";
+    private static final String TAG = "BrainBitesGoals";
+
+    // Owned by the executor thread
+    private final Map<String, RuleSet> scopes = new HashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "BrainBitesGoals");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+
+    public GoalRulesModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+    }
+
+    @Override
+    public String getName() {
+        return MODULE_NAME;
+    }
+
+    @Override
+    public Map<String, Object> getConstants() {
+        Map<String, Object> events = new HashMap<>();
+        events.put("question", RuleSet.EVENT_QUESTION);
+        events.put("correct", RuleSet.EVENT_CORRECT);
+        events.put("streak", RuleSet.EVENT_STREAK);
+        events.put("accuracy", RuleSet.EVENT_ACCURACY);
+        events.put("play_time", RuleSet.EVENT_PLAY_TIME);
+        events.put("categories", RuleSet.EVENT_CATEGORIES);
+        events.put("score", RuleSet.EVENT_SCORE);
+        events.put("daily_streak", RuleSet.EVENT_DAILY_STREAK);
+
+        Map<String, Object> aggregations = new HashMap<>();
+        aggregations.put("sum", RuleSet.AGG_SUM);
+        aggregations.put("max", RuleSet.AGG_MAX);
+        aggregations.put("latest", RuleSet.AGG_LATEST);
+        aggregations.put("ratio", RuleSet.AGG_RATIO);
+
+        Map<String, Object> constants = new HashMap<>();
+        constants.put("EVENTS", events);
+        constants.put("AGGREGATIONS", aggregations);
+        return constants;
+    }
+
+    /**
+     * Replaces a scope's rules. Each rule is {id, event, aggregation, target}
+     * with optional denominator, minCount and the seed state value, count
+     * and completed.
+     */
+    @ReactMethod
+    public void load(String scope, ReadableArray rules, Promise promise) {
+        final RuleSet ruleSet = new RuleSet();
+        try {
+            for (int i = 0; i < rules.size(); i++) {
+                ReadableMap rule = rules.getMap(i);
+                int index = ruleSet.add(
+                    rule.getString("id"),
+                    rule.getInt("event"),
+                    rule.hasKey("denominator") ? rule.getInt("denominator") : -1,
+                    rule.getInt("aggregation"),
+                    (long) rule.getDouble("target"),
+                    rule.hasKey("minCount") ? (long) rule.getDouble("minCount") : 0);
+                ruleSet.restore(index,
+                    rule.hasKey("value") ? (long) rule.getDouble("value") : 0,
+                    rule.hasKey("count") ? (long) rule.getDouble("count") : 0,
+                    rule.hasKey("completed") && rule.getBoolean("completed"));
+            }
+            ruleSet.compile();
+        } catch (Exception e) {
+            Log.e(TAG, "Error compiling rules for " + scope, e);
+            promise.reject("RULES_ERROR", e.getMessage());
+            return;
+        }
+
+        executor.execute(() -> {
+            scopes.put(scope, ruleSet);
+            promise.resolve(ruleSet.size());
+        });
+    }
+
+    /**
+     * Applies a flat [type, value, type, value, ...] list of events to a
+     * scope in order and resolves with its delta.
+     */
+    @ReactMethod
+    public void submit(String scope, ReadableArray events, Promise promise) {
+        final int length = events.size() & ~1;
+        final int[] types = new int[length / 2];
+        final long[] values = new long[length / 2];
+        for (int i = 0; i < length; i += 2) {
+            types[i / 2] = events.getInt(i);
+            values[i / 2] = (long) events.getDouble(i + 1);
+        }
+
+        executor.execute(() -> {
+            long start = TimerMetrics.begin("goals_submit");
+            try {
+                RuleSet ruleSet = scopes.get(scope);
+                if (ruleSet == null) {
+                    promise.reject("RULES_NOT_LOADED", "No rules loaded for " + scope);
+                    return;
+                }
+                for (int i = 0; i < types.length; i++) {
+                    ruleSet.onEvent(types[i], values[i]);
+                }
+                WritableMap delta = toDelta(ruleSet);
+                ruleSet.clearDelta();
+                promise.resolve(delta);
+            } catch (Exception e) {
+                Log.e(TAG, "Error applying goal events", e);
+                promise.reject("RULES_ERROR", e.getMessage());
+            } finally {
+                TimerMetrics.end(TimerMetrics.GOALS_SUBMIT, start);
+            }
+        });
+    }
+
+    private static WritableMap toDelta(RuleSet ruleSet) {
+        WritableArray touched = Arguments.createArray();
+        for (int i = 0; i < ruleSet.touchedCount(); i++) {
+            int rule = ruleSet.touchedRule(i);
+            touched.pushInt(rule);
+            touched.pushDouble(ruleSet.progress(rule));
+        }
+        WritableArray completed = Arguments.createArray();
+        for (int i = 0; i < ruleSet.completedCount(); i++) {
+            completed.pushInt(ruleSet.completedRule(i));
+        }
+
+        WritableMap delta = Arguments.createMap();
+        delta.putArray("touched", touched);
+        delta.putArray("completed", completed);
+        return delta;
+    }
+
+    @Override
+    public void onCatalystInstanceDestroy() {
+        super.onCatalystInstanceDestroy();
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,111 @@
+package com.brainbites.modules;
+
+import android.content.Context;
+import android.hardware.display.DisplayManager;
+import android.util.Log;
+import android.view.Display;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.UiThreadUtil;
+import com.facebook.react.bridge.WritableMap;
+
+import com.brainbites.BuildConfig;
+import com.brainbites.images.BitmapCache;
+import com.brainbites.images.FrameRecorder;
+import com.brainbites.metrics.TimerMetrics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Preloads images into {@link BitmapCache} for {@code BrainBitesCachedImage}
+ * views, and records frame times around moments that swap them. Sizes from
+ * JS are in dp and converted here.
+ */
+public class ImageCacheModule extends ReactContextBaseJavaModule {
+    private static final String MODULE_NAME = "BrainBitesImages";
+    private static final String TAG = "BrainBitesImages";
+
+    private final ReactApplicationContext reactContext;
+    private final BitmapCache cache;
+
+    public ImageCacheModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+        this.reactContext = reactContext;
+        this.cache = BitmapCache.getInstance(reactContext);
+    }
+
+    @Override
+    public String getName() {
+        return MODULE_NAME;
+    }
+
+    @Override
+    public Map<String, Object> getConstants() {
+        Map<String, Object> constants = new HashMap<>();
+        constants.put("frameMetrics", BuildConfig.FRAME_METRICS);
+        return constants;
+    }
+
+    /**
+     * Registers {key, uri, width, height} sources and decodes them in the
+     * background; resolves {count, bytes} once all are in memory.
+     */
+    @ReactMethod
+    public void preload(ReadableArray sources, Promise promise) {
+        try {
+            float density = reactContext.getResources().getDisplayMetrics().density;
+            for (int i = 0; i < sources.size(); i++) {
+                ReadableMap source = sources.getMap(i);
+                cache.register(source.getString("key"), source.getString("uri"),
+                        Math.round((float) source.getDouble("width") * density),
+                        Math.round((float) source.getDouble("height") * density));
+            }
+            cache.preloadAllAsync(() -> promise.resolve(stats()));
+        } catch (Exception e) {
+            Log.e(TAG, "Error preloading images", e);
+            promise.reject("IMAGE_ERROR", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void getStats(Promise promise) {
+        promise.resolve(stats());
+    }
+
+    /**
+     * Records frame intervals for {@code durationMs} from now and resolves
+     * {frames, janky, p50Ms, p90Ms, maxMs}. The intervals also go into the
+     * "frame_cached" or "frame_legacy" latency metrics, by {@code cached}.
+     */
+    @ReactMethod
+    public void captureFrames(double durationMs, boolean cached, Promise promise) {
+        DisplayManager displays = (DisplayManager) reactContext.getSystemService(Context.DISPLAY_SERVICE);
+        Display display = displays.getDisplay(Display.DEFAULT_DISPLAY);
+        float refreshRate = display != null ? display.getRefreshRate() : 60f;
+        UiThreadUtil.runOnUiThread(() -> FrameRecorder.record((long) durationMs, refreshRate,
+                cached ? TimerMetrics.FRAME_CACHED : TimerMetrics.FRAME_LEGACY, result -> {
+                    WritableMap map = Arguments.createMap();
+                    map.putInt("frames", result.frames);
+                    map.putInt("janky", result.janky);
+                    map.putDouble("p50Ms", result.p50Ms);
+                    map.putDouble("p90Ms", result.p90Ms);
+                    map.putDouble("maxMs", result.maxMs);
+                    promise.resolve(map);
+                }));
+    }
+
+    private WritableMap stats() {
+        WritableMap stats = Arguments.createMap();
+        stats.putInt("count", cache.count());
+        stats.putInt("bytes", cache.sizeBytes());
+        stats.putInt("maxBytes", cache.maxSizeBytes());
+        return stats;
+    }
+}
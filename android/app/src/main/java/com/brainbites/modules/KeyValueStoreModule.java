@@ -0,0 +1,133 @@
+package com.brainbites.modules;
+
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableMapKeySetIterator;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.WritableMap;
+
+import com.brainbites.metrics.TimerMetrics;
+import com.brainbites.storage.KeyValueStore;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bridge to {@link KeyValueStore}. Reads are blocking synchronous methods
+ * served from memory, so services can read state without awaiting; writes
+ * take a whole map per call and land as a single log batch.
+ */
+public class KeyValueStoreModule extends ReactContextBaseJavaModule {
+    private static final String MODULE_NAME = "BrainBitesKV";
+    private static final String TAG = "BrainBitesKV";
+
+    private final KeyValueStore store;
+
+    public KeyValueStoreModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+        this.store = KeyValueStore.getInstance(reactContext);
+    }
+
+    @Override
+    public String getName() {
+        return MODULE_NAME;
+    }
+
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public WritableMap getMany(ReadableArray keys) {
+        WritableMap result = Arguments.createMap();
+        for (int i = 0; i < keys.size(); i++) {
+            String key = keys.getString(i);
+            putValue(result, key, store.get(key));
+        }
+        return result;
+    }
+
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public WritableMap getByPrefix(String prefix) {
+        WritableMap result = Arguments.createMap();
+        for (Map.Entry<String, Object> entry : store.getByPrefix(prefix).entrySet()) {
+            putValue(result, entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    /** Writes every entry in one batch; null values remove their key. */
+    @ReactMethod
+    public void multiSet(ReadableMap entries, Promise promise) {
+        long start = TimerMetrics.begin("kv_write");
+        try {
+            Map<String, Object> batch = new HashMap<>();
+            ReadableMapKeySetIterator iterator = entries.keySetIterator();
+            while (iterator.hasNextKey()) {
+                String key = iterator.nextKey();
+                switch (entries.getType(key)) {
+                    case Null:
+                        batch.put(key, null);
+                        break;
+                    case Boolean:
+                        batch.put(key, entries.getBoolean(key));
+                        break;
+                    case Number:
+                        batch.put(key, entries.getDouble(key));
+                        break;
+                    case String:
+                        batch.put(key, entries.getString(key));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unsupported value for " + key);
+                }
+            }
+            store.putAll(batch);
+            promise.resolve(true);
+        } catch (Exception e) {
+            Log.e(TAG, "Error writing game state", e);
+            promise.reject("KV_WRITE_ERROR", e.getMessage());
+        } finally {
+            TimerMetrics.end(TimerMetrics.KV_WRITE, start);
+        }
+    }
+
+    @ReactMethod
+    public void removeByPrefix(String prefix, Promise promise) {
+        try {
+            store.removeByPrefix(prefix);
+            promise.resolve(true);
+        } catch (Exception e) {
+            Log.e(TAG, "Error removing game state", e);
+            promise.reject("KV_WRITE_ERROR", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void getStats(Promise promise) {
+        WritableMap stats = Arguments.createMap();
+        stats.putInt("keys", store.size());
+        stats.putInt("logBytes", store.getLogBytes());
+        stats.putInt("liveBytes", store.getLiveBytes());
+        stats.putInt("compactions", store.getCompactions());
+        promise.resolve(stats);
+    }
+
+    private static void putValue(WritableMap map, String key, Object value) {
+        if (value instanceof Boolean) {
+            map.putBoolean(key, (Boolean) value);
+        } else if (value instanceof Double) {
+            map.putDouble(key, (Double) value);
+        } else if (value instanceof String) {
+            map.putString(key, (String) value);
+        }
+    }
+
+    @Override
+    public void onCatalystInstanceDestroy() {
+        super.onCatalystInstanceDestroy();
+        store.force();
+    }
+}
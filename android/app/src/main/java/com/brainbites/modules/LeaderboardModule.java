@@ -0,0 +1,209 @@
+package com.brainbites.modules;
+
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import com.brainbites.BuildConfig;
+import com.brainbites.leaderboard.LeaderboardSync;
+import com.brainbites.leaderboard.RankTree;
+import com.brainbites.metrics.TimerMetrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leaderboard ranks. Score changes go straight into a native
+ * {@link RankTree}, so rank lookups and pages never sort anything. When the
+ * build sets a board URL, changes are uploaded in batches: the first change
+ * schedules a sync a little later, so a quiz session's answers go out
+ * together, and failed syncs back off. Without a URL the board holds only
+ * the players on this device.
+ */
+public class LeaderboardModule extends ReactContextBaseJavaModule {
+    private static final String MODULE_NAME = "BrainBitesLeaderboard";
+    private static final String TAG = "BrainBitesLeaderboard";
+    private static final String STATE_FILE_NAME = "leaderboard_sync.bin";
+
+    private static final long SYNC_DELAY_MS = 30_000;
+    private static final long MAX_RETRY_DELAY_MS = 15 * 60_000;
+
+    private final LeaderboardSync sync;
+    private final boolean remote;
+    private ScheduledFuture<?> scheduledSync;
+    private long retryDelayMs = SYNC_DELAY_MS;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "BrainBitesLeaderboard");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+
+    public LeaderboardModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+        LeaderboardSync.Transport transport = null;
+        if (!BuildConfig.LEADERBOARD_URL.isEmpty()) {
+            try {
+                transport = new LeaderboardSync.HttpTransport(new URL(BuildConfig.LEADERBOARD_URL));
+            } catch (IOException e) {
+                Log.e(TAG, "Invalid leaderboard URL", e);
+            }
+        }
+        remote = transport != null;
+        sync = new LeaderboardSync(new RankTree(), transport,
+                new File(reactContext.getFilesDir(), STATE_FILE_NAME));
+        if (remote && sync.hasUnsent()) {
+            executor.execute(() -> scheduleSync(SYNC_DELAY_MS));
+        }
+    }
+
+    @Override
+    public String getName() {
+        return MODULE_NAME;
+    }
+
+    /** Moves a player on this device to {@code score} and resolves their new rank. */
+    @ReactMethod
+    public void submitScore(String playerId, double score, Promise promise) {
+        executor.execute(() -> {
+            long start = TimerMetrics.begin("leaderboard_update");
+            try {
+                sync.submit(playerId, (int) score);
+                if (remote && sync.hasUnsent()) {
+                    scheduleSync(SYNC_DELAY_MS);
+                }
+                promise.resolve(sync.getBoard().rankOf(playerId));
+            } catch (Exception e) {
+                Log.e(TAG, "Error submitting score", e);
+                promise.reject("LEADERBOARD_ERROR", e.getMessage());
+            } finally {
+                TimerMetrics.end(TimerMetrics.LEADERBOARD_UPDATE, start);
+            }
+        });
+    }
+
+    /** Resolves {rank, position, score, total} for the player, or null if they are not on the board. */
+    @ReactMethod
+    public void getRank(String playerId, Promise promise) {
+        executor.execute(() -> {
+            try {
+                RankTree board = sync.getBoard();
+                int position = board.positionOf(playerId);
+                if (position == RankTree.NOT_FOUND) {
+                    promise.resolve(null);
+                    return;
+                }
+                int score = board.scoreAt(position);
+                WritableMap rank = Arguments.createMap();
+                rank.putInt("rank", board.rankOfScore(score));
+                rank.putInt("position", position);
+                rank.putInt("score", score);
+                rank.putInt("total", board.size());
+                promise.resolve(rank);
+            } catch (Exception e) {
+                Log.e(TAG, "Error reading rank", e);
+                promise.reject("LEADERBOARD_ERROR", e.getMessage());
+            }
+        });
+    }
+
+    /** Resolves up to {@code count} entries {id, score, rank} from {@code position} on, best first. */
+    @ReactMethod
+    public void getPage(int position, int count, Promise promise) {
+        executor.execute(() -> {
+            try {
+                RankTree board = sync.getBoard();
+                WritableArray page = Arguments.createArray();
+                int end = Math.min(board.size(), Math.max(0, position) + count);
+                int rank = 0;
+                int previousScore = 0;
+                for (int i = Math.max(0, position); i < end; i++) {
+                    int score = board.scoreAt(i);
+                    // Ties share a rank; only the first on a score needs a lookup
+                    if (rank == 0 || score != previousScore) {
+                        rank = board.rankOfScore(score);
+                        previousScore = score;
+                    }
+                    WritableMap entry = Arguments.createMap();
+                    entry.putString("id", board.idAt(i));
+                    entry.putInt("score", score);
+                    entry.putInt("rank", rank);
+                    page.pushMap(entry);
+                }
+                promise.resolve(page);
+            } catch (Exception e) {
+                Log.e(TAG, "Error reading leaderboard page", e);
+                promise.reject("LEADERBOARD_ERROR", e.getMessage());
+            }
+        });
+    }
+
+    /** Syncs now; resolves {uploaded, received, version}, or null when there is no remote board. */
+    @ReactMethod
+    public void sync(Promise promise) {
+        executor.execute(() -> {
+            if (!remote) {
+                promise.resolve(null);
+                return;
+            }
+            try {
+                LeaderboardSync.Result result = runSync();
+                WritableMap map = Arguments.createMap();
+                map.putInt("uploaded", result.uploaded);
+                map.putInt("received", result.received);
+                map.putDouble("version", result.boardVersion);
+                promise.resolve(map);
+            } catch (IOException e) {
+                Log.w(TAG, "Leaderboard sync failed", e);
+                promise.reject("LEADERBOARD_SYNC_ERROR", e.getMessage());
+            }
+        });
+    }
+
+    // Executor thread only
+
+    private void scheduleSync(long delayMs) {
+        if (scheduledSync != null && !scheduledSync.isDone()) return;
+        scheduledSync = executor.schedule(() -> {
+            scheduledSync = null;
+            try {
+                runSync();
+            } catch (IOException e) {
+                Log.w(TAG, "Leaderboard sync failed, retrying in " + retryDelayMs + " ms", e);
+                scheduleSync(retryDelayMs);
+                retryDelayMs = Math.min(retryDelayMs * 2, MAX_RETRY_DELAY_MS);
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private LeaderboardSync.Result runSync() throws IOException {
+        LeaderboardSync.Result result = sync.sync();
+        retryDelayMs = SYNC_DELAY_MS;
+        // Changes made while the batch was out go in the next one
+        if (sync.hasUnsent()) {
+            scheduleSync(SYNC_DELAY_MS);
+        }
+        return result;
+    }
+
+    @Override
+    public void onCatalystInstanceDestroy() {
+        super.onCatalystInstanceDestroy();
+        // Unsent changes are saved and go out after the next launch
+        executor.execute(() -> {
+            if (scheduledSync != null) scheduledSync.cancel(false);
+        });
+        executor.shutdown();
+    }
+}
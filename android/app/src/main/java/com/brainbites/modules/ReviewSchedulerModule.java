@@ -0,0 +1,149 @@
+package com.brainbites.modules;
+
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.WritableMap;
+
+import com.brainbites.metrics.TimerMetrics;
+import com.brainbites.review.ReviewScheduler;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Spaced-repetition question selection. JS syncs the bank once per launch as
+ * parallel arrays of question ids and deck names (category and level), then
+ * asks for the next question from some decks and records each answer.
+ * Unknown deck names are ignored; a deck only exists once a question is in it.
+ */
+public class ReviewSchedulerModule extends ReactContextBaseJavaModule {
+    private static final String MODULE_NAME = "BrainBitesReview";
+    private static final String TAG = "BrainBitesReview";
+
+    private final ReviewScheduler scheduler;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "BrainBitesReview");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+
+    public ReviewSchedulerModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+        scheduler = ReviewScheduler.getInstance(reactContext);
+    }
+
+    @Override
+    public String getName() {
+        return MODULE_NAME;
+    }
+
+    @ReactMethod
+    public void sync(ReadableArray questionIds, ReadableArray decks, Promise promise) {
+        final int[] ids = new int[questionIds.size()];
+        final String[] deckNames = new String[decks.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = questionIds.getInt(i);
+        }
+        for (int i = 0; i < deckNames.length; i++) {
+            deckNames[i] = decks.getString(i);
+        }
+
+        executor.execute(() -> {
+            try {
+                scheduler.sync(ids, deckNames);
+                promise.resolve(scheduler.size());
+            } catch (Exception e) {
+                Log.e(TAG, "Error syncing question bank", e);
+                promise.reject("REVIEW_ERROR", e.getMessage());
+            }
+        });
+    }
+
+    /** Resolves the id of the question to ask next from {@code decks} (all if null), or -1. */
+    @ReactMethod
+    public void next(ReadableArray decks, Promise promise) {
+        final String[] deckNames = toStrings(decks);
+        executor.execute(() -> {
+            try {
+                promise.resolve(scheduler.next(deckIndexes(deckNames), System.currentTimeMillis()));
+            } catch (Exception e) {
+                Log.e(TAG, "Error picking next question", e);
+                promise.reject("REVIEW_ERROR", e.getMessage());
+            }
+        });
+    }
+
+    /** Resolves the question's new interval in minutes, or -1 if it is not in the bank. */
+    @ReactMethod
+    public void record(int questionId, boolean correct, double responseMillis, Promise promise) {
+        executor.execute(() -> {
+            long start = TimerMetrics.begin("review_record");
+            try {
+                int quality = ReviewScheduler.qualityOf(correct, (long) responseMillis);
+                promise.resolve(scheduler.record(questionId, quality, System.currentTimeMillis()));
+            } catch (Exception e) {
+                Log.e(TAG, "Error recording answer", e);
+                promise.reject("REVIEW_ERROR", e.getMessage());
+            } finally {
+                TimerMetrics.end(TimerMetrics.REVIEW_RECORD, start);
+            }
+        });
+    }
+
+    /** Resolves {due, unseen}: questions due now and never asked, over {@code decks} (all if null). */
+    @ReactMethod
+    public void getStats(ReadableArray decks, Promise promise) {
+        final String[] deckNames = toStrings(decks);
+        executor.execute(() -> {
+            try {
+                int[] indexes = deckIndexes(deckNames);
+                int total = indexes == null ? scheduler.deckCount() : indexes.length;
+                long now = System.currentTimeMillis();
+                int due = 0;
+                int unseen = 0;
+                for (int i = 0; i < total; i++) {
+                    int deck = indexes == null ? i : indexes[i];
+                    due += scheduler.dueCount(deck, now);
+                    unseen += scheduler.unseenCount(deck);
+                }
+                WritableMap stats = Arguments.createMap();
+                stats.putInt("due", due);
+                stats.putInt("unseen", unseen);
+                promise.resolve(stats);
+            } catch (Exception e) {
+                Log.e(TAG, "Error reading review stats", e);
+                promise.reject("REVIEW_ERROR", e.getMessage());
+            }
+        });
+    }
+
+    private static String[] toStrings(ReadableArray values) {
+        if (values == null) return null;
+        String[] result = new String[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.getString(i);
+        }
+        return result;
+    }
+
+    private int[] deckIndexes(String[] deckNames) {
+        if (deckNames == null) return null;
+        int[] indexes = new int[deckNames.length];
+        for (int i = 0; i < deckNames.length; i++) {
+            indexes[i] = scheduler.findDeck(deckNames[i]);
+        }
+        return indexes;
+    }
+
+    @Override
+    public void onCatalystInstanceDestroy() {
+        super.onCatalystInstanceDestroy();
+        executor.shutdown();
+    }
+}
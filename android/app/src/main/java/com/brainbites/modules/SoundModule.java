@@ -0,0 +1,264 @@
+package com.brainbites.modules;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.res.AssetFileDescriptor;
+import android.media.AudioAttributes;
+import android.media.MediaPlayer;
+import android.media.SoundPool;
+import android.util.Log;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+
+import com.brainbites.metrics.LatencyHistogram;
+import com.brainbites.metrics.TimerMetrics;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Quiz feedback sounds and background music.
+ *
+ * The short clips are decoded once into a {@link SoundPool} on a background
+ * thread when the module is created, so a tap only has to start an already
+ * decoded buffer. Music is too large for SoundPool and goes through a single
+ * {@link MediaPlayer} that is reset and reused between tracks. The enabled
+ * flag lives in memory; prefs are only read at startup and written on change.
+ */
+public class SoundModule extends ReactContextBaseJavaModule {
+    private static final String MODULE_NAME = "BrainBitesSound";
+    private static final String TAG = "BrainBitesSound";
+
+    private static final String PREFS_NAME = "BrainBitesPrefs";
+    private static final String KEY_SOUNDS_ENABLED = "sounds_enabled";
+
+    private static final String[] EFFECTS = {
+        "button_press", "correct_answer", "wrong_answer", "achievement", "level_up", "time_bonus"
+    };
+    private static final int MAX_STREAMS = 4;
+    private static final float MUSIC_VOLUME = 0.6f;
+
+    private final ReactApplicationContext reactContext;
+    private final SharedPreferences prefs;
+    private final SoundPool soundPool;
+    // Filled by the loader and SoundPool threads, read on the bridge thread
+    private final Map<String, Integer> soundIds = new HashMap<>();
+    private final Set<Integer> loadedIds = new HashSet<>();
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "BrainBitesSoundLoader");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private volatile boolean enabled;
+    private MediaPlayer musicPlayer;
+    private String currentTrack;
+    // Set from the main looper's prepared callback
+    private volatile boolean musicPrepared = false;
+
+    public SoundModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+        this.reactContext = reactContext;
+        this.prefs = reactContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.enabled = prefs.getBoolean(KEY_SOUNDS_ENABLED, true);
+
+        AudioAttributes attributes = new AudioAttributes.Builder()
+            .setUsage(AudioAttributes.USAGE_GAME)
+            .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+            .build();
+        this.soundPool = new SoundPool.Builder()
+            .setMaxStreams(MAX_STREAMS)
+            .setAudioAttributes(attributes)
+            .build();
+        soundPool.setOnLoadCompleteListener((pool, sampleId, status) -> {
+            if (status == 0) {
+                synchronized (loadedIds) {
+                    loadedIds.add(sampleId);
+                }
+            }
+        });
+
+        loader.execute(this::preloadEffects);
+    }
+
+    @Override
+    public String getName() {
+        return MODULE_NAME;
+    }
+
+    private void preloadEffects() {
+        long start = System.currentTimeMillis();
+        for (String name : EFFECTS) {
+            int resId = rawResource(name);
+            if (resId == 0) {
+                Log.w(TAG, "Missing sound resource: " + name);
+                continue;
+            }
+            int soundId = soundPool.load(reactContext, resId, 1);
+            synchronized (soundIds) {
+                soundIds.put(name, soundId);
+            }
+        }
+        Log.d(TAG, "Queued " + EFFECTS.length + " effects in "
+            + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    private int rawResource(String name) {
+        return reactContext.getResources().getIdentifier(name, "raw", reactContext.getPackageName());
+    }
+
+    /**
+     * Plays a preloaded effect. {@code tappedAt} is the JS {@code Date.now()}
+     * of the triggering tap, or 0 when there is none to measure from.
+     */
+    @ReactMethod
+    public void play(String name, double tappedAt) {
+        if (!enabled) return;
+
+        int soundId;
+        synchronized (soundIds) {
+            Integer id = soundIds.get(name);
+            soundId = id != null ? id : 0;
+        }
+        boolean ready;
+        synchronized (loadedIds) {
+            ready = loadedIds.contains(soundId);
+        }
+        if (!ready) {
+            // Still decoding right after startup; a late click is worse than none
+            Log.d(TAG, "Effect not ready: " + name);
+            return;
+        }
+
+        if (soundPool.play(soundId, 1f, 1f, 1, 0, 1f) != 0) {
+            recordTapLatency(TimerMetrics.SOUND_TAP, tappedAt);
+        }
+    }
+
+    /**
+     * Records a tap-to-sound sample from the JS fallback player, so both paths
+     * can be compared in the same metrics dump.
+     */
+    @ReactMethod
+    public void recordLegacyLatency(double tappedAt, double startedAt) {
+        if (tappedAt > 0 && startedAt >= tappedAt) {
+            TimerMetrics.SOUND_TAP_LEGACY.record((long) ((startedAt - tappedAt) * 1_000_000L));
+        }
+    }
+
+    private static void recordTapLatency(LatencyHistogram histogram, double tappedAt) {
+        if (tappedAt <= 0) return;
+        long elapsedMs = System.currentTimeMillis() - (long) tappedAt;
+        if (elapsedMs >= 0) {
+            histogram.record(elapsedMs * 1_000_000L);
+        }
+    }
+
+    @ReactMethod
+    public void playMusic(String name, boolean loop) {
+        if (!enabled) return;
+
+        try {
+            if (musicPlayer == null) {
+                musicPlayer = new MediaPlayer();
+                musicPlayer.setAudioAttributes(new AudioAttributes.Builder()
+                    .setUsage(AudioAttributes.USAGE_GAME)
+                    .setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
+                    .build());
+                musicPlayer.setOnPreparedListener(player -> {
+                    musicPrepared = true;
+                    player.start();
+                });
+                musicPlayer.setOnErrorListener((player, what, extra) -> {
+                    Log.w(TAG, "Music playback error " + what + "/" + extra);
+                    resetMusic();
+                    return true;
+                });
+            } else if (name.equals(currentTrack)) {
+                musicPlayer.setLooping(loop);
+                // Still preparing, it starts itself once ready
+                if (musicPrepared && !musicPlayer.isPlaying()) {
+                    musicPlayer.start();
+                }
+                return;
+            }
+
+            int resId = rawResource(name);
+            if (resId == 0) {
+                Log.w(TAG, "Missing music resource: " + name);
+                return;
+            }
+
+            resetMusic();
+            try (AssetFileDescriptor afd = reactContext.getResources().openRawResourceFd(resId)) {
+                musicPlayer.setDataSource(afd.getFileDescriptor(), afd.getStartOffset(), afd.getLength());
+            }
+            musicPlayer.setLooping(loop);
+            musicPlayer.setVolume(MUSIC_VOLUME, MUSIC_VOLUME);
+            currentTrack = name;
+            musicPlayer.prepareAsync();
+        } catch (Exception e) {
+            Log.e(TAG, "Error playing music " + name, e);
+            resetMusic();
+        }
+    }
+
+    @ReactMethod
+    public void stopMusic() {
+        if (musicPlayer == null) return;
+        try {
+            if (musicPrepared && musicPlayer.isPlaying()) {
+                // Keep the decoder; the same track usually resumes shortly
+                musicPlayer.pause();
+                musicPlayer.seekTo(0);
+            } else {
+                resetMusic();
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error stopping music", e);
+            resetMusic();
+        }
+    }
+
+    private void resetMusic() {
+        if (musicPlayer != null) {
+            musicPlayer.reset();
+        }
+        musicPrepared = false;
+        currentTrack = null;
+    }
+
+    @ReactMethod
+    public void setEnabled(boolean enabled) {
+        if (this.enabled == enabled) return;
+        this.enabled = enabled;
+        prefs.edit().putBoolean(KEY_SOUNDS_ENABLED, enabled).apply();
+        if (!enabled) {
+            soundPool.autoPause();
+            stopMusic();
+        }
+    }
+
+    @ReactMethod
+    public void isEnabled(Promise promise) {
+        promise.resolve(enabled);
+    }
+
+    @Override
+    public void onCatalystInstanceDestroy() {
+        super.onCatalystInstanceDestroy();
+        loader.shutdownNow();
+        soundPool.release();
+        if (musicPlayer != null) {
+            musicPlayer.release();
+            musicPlayer = null;
+        }
+    }
+}
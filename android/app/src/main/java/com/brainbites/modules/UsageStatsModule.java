@@ -1,6 +1,7 @@
 package com.brainbites.modules;
 
 import android.app.AppOpsManager;
+import android.app.KeyguardManager;
 import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
@@ -8,15 +9,17 @@ import android.app.PendingIntent;
 import android.app.Service;
 import android.app.usage.UsageStats;
 import android.app.usage.UsageStatsManager;
+import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.SharedPreferences;
-import android.content.pm.ApplicationInfo;
-import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Handler;
 import android.os.IBinder;
 import android.os.Looper;
+import android.os.PowerManager;
+import android.os.RemoteException;
 import android.provider.Settings;
 import android.util.Log;
 
@@ -27,38 +30,80 @@ import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 
+import com.brainbites.ITimerService;
+import com.brainbites.TimerConnection;
+import com.brainbites.cursor.ColumnPage;
+import com.brainbites.cursor.CursorRegistry;
+import com.brainbites.metrics.TimerMetrics;
+import com.brainbites.timer.Clock;
+import com.brainbites.timer.HandlerScheduler;
+import com.brainbites.timer.Scheduler;
+import com.brainbites.timer.TimeFormatter;
+import com.brainbites.usage.AppLabelCache;
+import com.brainbites.usage.BlockedAppEnforcer;
+import com.brainbites.usage.BlockedAppSet;
+import com.brainbites.usage.InstalledAppSource;
+import com.brainbites.usage.PackageDictionary;
+import com.brainbites.usage.UsageHistoryImporter;
+import com.brainbites.usage.UsageHistoryStore;
+
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
-import java.util.concurrent.TimeUnit;
 
 public class UsageStatsModule extends ReactContextBaseJavaModule {
     private static final String MODULE_NAME = "UsageStatsModule";
     private static final String TAG = "BrainBitesTimer";
     private static final String PREFS_NAME = "BrainBitesPrefs";
     private static final String KEY_AVAILABLE_TIME = "available_time";
-    private static final String KEY_BLOCKED_APPS = "blocked_apps";
     private static final String CHANNEL_ID = "brainbites_timer";
     private static final int NOTIFICATION_ID = 1001;
+    // Notification refresh while a blocked app is in front
+    private static final long CHECKPOINT_INTERVAL_MS = 30_000;
 
     private final ReactApplicationContext reactContext;
     private SharedPreferences prefs;
     private UsageStatsManager usageStatsManager;
-    private Handler handler;
-    private Runnable timerRunnable;
+    private UsageHistoryImporter historyImporter;
+    private PackageDictionary packageDictionary;
+    private BlockedAppSet blockedApps;
+    private BlockedAppEnforcer enforcer;
+    private TimerConnection timerConnection;
+    private AppLabelCache appLabels;
+    private PowerManager powerManager;
+    private KeyguardManager keyguardManager;
+    private BroadcastReceiver screenReceiver;
+    private final Clock clock = Clock.SYSTEM;
+    private Scheduler scheduler;
+    private Runnable pollRunnable;
     private boolean isTimerRunning = false;
     private long availableTimeSeconds = 300; // Start with 5 minutes
+    // Blocked app in front and the start of its not yet charged time
+    private int blockedForegroundApp = PackageDictionary.NO_ID;
+    private long blockedSince;
+    // Screen on and unlocked; time in a blocked app only counts while it is
+    private boolean deviceInUse = true;
 
     public UsageStatsModule(ReactApplicationContext reactContext) {
         super(reactContext);
         this.reactContext = reactContext;
         this.prefs = reactContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
         this.usageStatsManager = (UsageStatsManager) reactContext.getSystemService(Context.USAGE_STATS_SERVICE);
-        this.handler = new Handler(Looper.getMainLooper());
+        this.scheduler = new HandlerScheduler(new Handler(Looper.getMainLooper()));
+        this.historyImporter = new UsageHistoryImporter(usageStatsManager, UsageHistoryStore.getInstance(reactContext));
+        this.packageDictionary = PackageDictionary.getInstance(reactContext);
+        this.blockedApps = BlockedAppSet.getInstance(reactContext);
+        this.enforcer = BlockedAppEnforcer.getInstance(reactContext);
+        this.timerConnection = TimerConnection.getInstance(reactContext);
+        this.appLabels = new AppLabelCache(packageDictionary);
+        this.powerManager = (PowerManager) reactContext.getSystemService(Context.POWER_SERVICE);
+        this.keyguardManager = (KeyguardManager) reactContext.getSystemService(Context.KEYGUARD_SERVICE);
         
         // Load saved time
         this.availableTimeSeconds = prefs.getLong(KEY_AVAILABLE_TIME, 300);
@@ -108,11 +153,16 @@ public class UsageStatsModule extends ReactContextBaseJavaModule {
     }
 
     @ReactMethod
-    public void addBonusTime(double seconds, Promise promise) {
+    public void addBonusTime(final double seconds, Promise promise) {
         try {
-            availableTimeSeconds += (long) seconds;
-            saveAvailableTime();
-            updateNotification();
+            runOnScheduler(new Runnable() {
+                @Override
+                public void run() {
+                    settleBlockedTime();
+                    availableTimeSeconds += (long) seconds;
+                    onBalanceChanged();
+                }
+            });
             promise.resolve(true);
         } catch (Exception e) {
             promise.reject("ERROR", e.getMessage());
@@ -120,11 +170,16 @@ public class UsageStatsModule extends ReactContextBaseJavaModule {
     }
 
     @ReactMethod
-    public void consumeTime(double seconds, Promise promise) {
+    public void consumeTime(final double seconds, Promise promise) {
         try {
-            availableTimeSeconds = Math.max(0, availableTimeSeconds - (long) seconds);
-            saveAvailableTime();
-            updateNotification();
+            runOnScheduler(new Runnable() {
+                @Override
+                public void run() {
+                    settleBlockedTime();
+                    availableTimeSeconds = Math.max(0, availableTimeSeconds - (long) seconds);
+                    onBalanceChanged();
+                }
+            });
             promise.resolve(true);
         } catch (Exception e) {
             promise.reject("ERROR", e.getMessage());
@@ -140,6 +195,7 @@ public class UsageStatsModule extends ReactContextBaseJavaModule {
             }
 
             startTimerService();
+            importHistoryInBackground();
             promise.resolve(true);
         } catch (Exception e) {
             promise.reject("ERROR", e.getMessage());
@@ -156,22 +212,46 @@ public class UsageStatsModule extends ReactContextBaseJavaModule {
         }
     }
 
+    /** Whether blocked apps are caught by the accessibility service rather than polling. */
+    @ReactMethod
+    public void isAccessibilityEnforcementEnabled(Promise promise) {
+        try {
+            promise.resolve(enforcer.isEventDriven());
+        } catch (Exception e) {
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void openAccessibilitySettings(Promise promise) {
+        try {
+            Intent intent = new Intent(Settings.ACTION_ACCESSIBILITY_SETTINGS);
+            intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+            reactContext.startActivity(intent);
+            promise.resolve(true);
+        } catch (Exception e) {
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
     @ReactMethod
     public void getInstalledApps(Promise promise) {
         try {
             WritableArray apps = Arguments.createArray();
-            PackageManager pm = reactContext.getPackageManager();
-            List<ApplicationInfo> packages = pm.getInstalledApplications(PackageManager.GET_META_DATA);
-
-            for (ApplicationInfo appInfo : packages) {
-                // Filter out system apps
-                if ((appInfo.flags & ApplicationInfo.FLAG_SYSTEM) == 0) {
+            InstalledAppSource source = new InstalledAppSource(reactContext.getPackageManager(), appLabels);
+            ColumnPage page = new ColumnPage(source.columnTypes());
+            boolean more = true;
+            while (more) {
+                page.reset(CursorRegistry.MAX_PAGE);
+                more = source.fill(page);
+                for (int row = 0; row < page.size(); row++) {
                     WritableMap app = Arguments.createMap();
-                    app.putString("packageName", appInfo.packageName);
-                    app.putString("appName", pm.getApplicationLabel(appInfo).toString());
+                    app.putString("packageName", page.getString(0, row));
+                    app.putString("appName", page.getString(1, row));
                     apps.pushMap(app);
                 }
             }
+            source.close();
 
             promise.resolve(apps);
         } catch (Exception e) {
@@ -179,22 +259,96 @@ public class UsageStatsModule extends ReactContextBaseJavaModule {
         }
     }
 
+    /**
+     * Opens a cursor over the user-installed apps, read a page at a time
+     * through BrainBitesCursor. Labels are only resolved for pages read.
+     */
+    @ReactMethod
+    public void openInstalledApps(Promise promise) {
+        try {
+            promise.resolve(CursorModule.open(
+                    new InstalledAppSource(reactContext.getPackageManager(), appLabels)));
+        } catch (Exception e) {
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
     @ReactMethod
     public void setBlockedApps(ReadableArray packageNames, Promise promise) {
         try {
-            StringBuilder sb = new StringBuilder();
+            List<String> names = new ArrayList<>(packageNames.size());
             for (int i = 0; i < packageNames.size(); i++) {
-                if (i > 0) sb.append(",");
-                sb.append(packageNames.getString(i));
+                names.add(packageNames.getString(i));
             }
             
-            prefs.edit().putString(KEY_BLOCKED_APPS, sb.toString()).apply();
+            blockedApps.setBlockedApps(names);
             promise.resolve(true);
         } catch (Exception e) {
             promise.reject("ERROR", e.getMessage());
         }
     }
 
+    @ReactMethod
+    public void importUsageHistory(final Promise promise) {
+        if (!hasUsageStatsPermission()) {
+            promise.reject("NO_PERMISSION", "Usage stats permission not granted");
+            return;
+        }
+
+        historyImporter.importAsync(new UsageHistoryImporter.Callback() {
+            @Override
+            public void onComplete(int imported, boolean caughtUp) {
+                WritableMap result = Arguments.createMap();
+                result.putInt("imported", imported);
+                result.putBoolean("caughtUp", caughtUp);
+                promise.resolve(result);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                promise.reject("IMPORT_ERROR", e.getMessage());
+            }
+        });
+    }
+
+    @ReactMethod
+    public void getBlockedAppMinutesPerDay(final double days, final Promise promise) {
+        // Served from the local store on the import thread; never calls into UsageStatsManager
+        historyImporter.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    int[] seconds = historyImporter.getStore()
+                            .secondsPerDay(blockedApps.asMask(), (int) days, System.currentTimeMillis());
+                    WritableArray minutes = Arguments.createArray();
+                    for (int value : seconds) {
+                        minutes.pushInt(value / 60);
+                    }
+                    promise.resolve(minutes);
+                } catch (Exception e) {
+                    promise.reject("ERROR", e.getMessage());
+                }
+            }
+        });
+    }
+
+    private void importHistoryInBackground() {
+        historyImporter.importAsync(new UsageHistoryImporter.Callback() {
+            @Override
+            public void onComplete(int imported, boolean caughtUp) {
+                if (!caughtUp) {
+                    // Keep each run bounded; queue the next window batch behind it
+                    importHistoryInBackground();
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Background usage import failed", e);
+            }
+        });
+    }
+
     private boolean hasUsageStatsPermission() {
         AppOpsManager appOps = (AppOpsManager) reactContext.getSystemService(Context.APP_OPS_SERVICE);
         int mode = appOps.checkOpNoThrow(AppOpsManager.OPSTR_GET_USAGE_STATS,
@@ -204,6 +358,7 @@ public class UsageStatsModule extends ReactContextBaseJavaModule {
 
     private void saveAvailableTime() {
         prefs.edit().putLong(KEY_AVAILABLE_TIME, availableTimeSeconds).apply();
+        enforcer.setTimeExhausted(availableTimeSeconds <= 0);
     }
 
     private void createNotificationChannel() {
@@ -240,57 +395,226 @@ public class UsageStatsModule extends ReactContextBaseJavaModule {
         Intent serviceIntent = new Intent(reactContext, TimerService.class);
         reactContext.stopService(serviceIntent);
         
-        if (timerRunnable != null) {
-            handler.removeCallbacks(timerRunnable);
-        }
+        runOnScheduler(new Runnable() {
+            @Override
+            public void run() {
+                settleBlockedTime();
+                blockedForegroundApp = PackageDictionary.NO_ID;
+                scheduler.cancel(checkpointTask);
+                stopPolling();
+                unregisterScreenReceiver();
+                enforcer.setListener(null);
+            }
+        });
     }
 
     private void startMonitoringApps() {
-        timerRunnable = new Runnable() {
+        runOnScheduler(new Runnable() {
+            @Override
+            public void run() {
+                registerScreenReceiver();
+            }
+        });
+        enforcer.setTimeExhausted(availableTimeSeconds <= 0);
+        enforcer.setListener(enforcerListener);
+        if (!enforcer.isEventDriven()) {
+            startPolling();
+        }
+    }
+
+    private final BlockedAppEnforcer.Listener enforcerListener = new BlockedAppEnforcer.Listener() {
+        @Override
+        public void onForegroundAppChanged(int packageId, long switchedAt) {
+            settleBlockedTime();
+            if (blockedApps.contains(packageId)) {
+                blockedForegroundApp = packageId;
+                blockedSince = clock.currentTimeMillis();
+            } else {
+                blockedForegroundApp = PackageDictionary.NO_ID;
+            }
+            scheduleCheckpoint();
+        }
+
+        @Override
+        public void onBackendChanged(boolean eventDriven) {
+            if (!isTimerRunning) return;
+            if (eventDriven) {
+                stopPolling();
+            } else {
+                startPolling();
+            }
+        }
+    };
+
+    // Fallback backend: one usage-stats query a second, while no accessibility service is bound
+    private void startPolling() {
+        if (pollRunnable != null) return;
+        
+        pollRunnable = new Runnable() {
             @Override
             public void run() {
                 if (!isTimerRunning) return;
                 
-                checkCurrentApp();
-                handler.postDelayed(this, 1000); // Check every second
+                pollForegroundApp();
+                scheduler.postDelayed(this, 1000); // Check every second
             }
         };
         
-        handler.post(timerRunnable);
+        scheduler.postDelayed(pollRunnable, 0);
     }
 
-    private void checkCurrentApp() {
-        if (availableTimeSeconds <= 0) {
-            // No time left, potentially close/minimize apps
+    private void stopPolling() {
+        if (pollRunnable != null) {
+            scheduler.cancel(pollRunnable);
+            pollRunnable = null;
+        }
+    }
+
+    private void pollForegroundApp() {
+        UsageStats current = queryForegroundApp();
+        if (current == null) {
+            enforcer.onForegroundApp(PackageDictionary.NO_ID, clock.currentTimeMillis(),
+                    BlockedAppEnforcer.BACKEND_POLLING);
             return;
         }
+        // Blocked apps are always interned, so a miss just means "not blocked"
+        enforcer.onForegroundApp(packageDictionary.lookup(current.getPackageName()),
+                current.getLastTimeUsed(), BlockedAppEnforcer.BACKEND_POLLING);
+    }
 
-        String currentApp = getCurrentForegroundApp();
-        if (currentApp != null && isAppBlocked(currentApp)) {
-            // Deduct time
-            availableTimeSeconds--;
-            saveAvailableTime();
-            updateNotification();
-            
-            if (availableTimeSeconds <= 0) {
+    private final Runnable checkpointTask = new Runnable() {
+        @Override
+        public void run() {
+            settleBlockedTime();
+            if (blockedForegroundApp != PackageDictionary.NO_ID && deviceInUse && availableTimeSeconds <= 0) {
                 // Time's up - send user back to BrainBites
-                Intent intent = reactContext.getPackageManager()
-                        .getLaunchIntentForPackage(reactContext.getPackageName());
-                if (intent != null) {
-                    intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
-                    reactContext.startActivity(intent);
-                }
+                enforcer.returnToBrainBites();
             }
+            scheduleCheckpoint();
         }
+    };
+
+    /**
+     * Tracks whether the device is in use, as TimerEngine does for the timer:
+     * a blocked app left in front when the screen goes off or locks is not
+     * charged again until the user unlocks.
+     */
+    private void registerScreenReceiver() {
+        if (screenReceiver != null) return;
+
+        deviceInUse = isDeviceInUse();
+        screenReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                onDeviceStateChanged();
+            }
+        };
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_SCREEN_OFF);
+        filter.addAction(Intent.ACTION_SCREEN_ON);
+        filter.addAction(Intent.ACTION_USER_PRESENT);
+        reactContext.registerReceiver(screenReceiver, filter);
     }
 
-    private String getCurrentForegroundApp() {
-        long currentTime = System.currentTimeMillis();
-        List<UsageStats> stats = usageStatsManager.queryUsageStats(
-                UsageStatsManager.INTERVAL_DAILY,
-                currentTime - 1000 * 10, // Last 10 seconds
-                currentTime
-        );
+    private void unregisterScreenReceiver() {
+        if (screenReceiver == null) return;
+        reactContext.unregisterReceiver(screenReceiver);
+        screenReceiver = null;
+        deviceInUse = true;
+    }
+
+    private boolean isDeviceInUse() {
+        return powerManager.isInteractive() && !keyguardManager.isKeyguardLocked();
+    }
+
+    private void onDeviceStateChanged() {
+        boolean inUse = isDeviceInUse();
+        if (inUse == deviceInUse) return;
+
+        // Close the interval at screen-off or lock, reopen it at unlock
+        settleBlockedTime();
+        deviceInUse = inUse;
+        if (inUse) {
+            blockedSince = clock.currentTimeMillis();
+        }
+        scheduleCheckpoint();
+    }
+
+    /**
+     * While a blocked app is in front and the device in use, wakes at the
+     * earlier of the moment the balance runs out and the next notification
+     * refresh.
+     */
+    private void scheduleCheckpoint() {
+        scheduler.cancel(checkpointTask);
+        if (blockedForegroundApp == PackageDictionary.NO_ID || !deviceInUse || availableTimeSeconds <= 0) return;
+
+        long elapsed = clock.currentTimeMillis() - blockedSince;
+        long delay = Math.min(availableTimeSeconds * 1000 - elapsed, CHECKPOINT_INTERVAL_MS);
+        scheduler.postDelayed(checkpointTask, Math.max(0, delay));
+    }
+
+    /**
+     * Charges the whole seconds spent in the blocked app in front since the
+     * last settle, if the device has been in use since then.
+     */
+    private void settleBlockedTime() {
+        if (blockedForegroundApp == PackageDictionary.NO_ID || !deviceInUse) return;
+
+        long now = clock.currentTimeMillis();
+        long seconds = (now - blockedSince) / 1000;
+        if (seconds <= 0) return;
+        blockedSince += seconds * 1000;
+
+        // Deduct time
+        availableTimeSeconds = Math.max(0, availableTimeSeconds - seconds);
+        recordAppUsage(packageDictionary.nameOf(blockedForegroundApp), (int) seconds, now);
+        saveAvailableTime();
+        updateNotification();
+    }
+
+    /**
+     * Usage totals belong to the timer service, which may run in its own
+     * process, so they are recorded there rather than in this one.
+     */
+    private void recordAppUsage(final String packageName, final int seconds, final long at) {
+        timerConnection.execute(new TimerConnection.Call() {
+            @Override
+            public void run(ITimerService service) throws RemoteException {
+                service.recordAppUsage(packageName, seconds, at);
+            }
+        }, new TimerConnection.ErrorHandler() {
+            @Override
+            public void onError(Exception e) {
+                Log.w(TAG, "Could not record app usage", e);
+            }
+        });
+    }
+
+    private void onBalanceChanged() {
+        saveAvailableTime();
+        updateNotification();
+        scheduleCheckpoint();
+    }
+
+    private void runOnScheduler(Runnable task) {
+        scheduler.postDelayed(task, 0);
+    }
+
+    private UsageStats queryForegroundApp() {
+        long currentTime = clock.currentTimeMillis();
+        TimerMetrics.USAGE_QUERIES.increment();
+        long start = TimerMetrics.begin("BrainBites:queryUsageStats");
+        List<UsageStats> stats;
+        try {
+            stats = usageStatsManager.queryUsageStats(
+                    UsageStatsManager.INTERVAL_DAILY,
+                    currentTime - 1000 * 10, // Last 10 seconds
+                    currentTime
+            );
+        } finally {
+            TimerMetrics.end(TimerMetrics.USAGE_QUERY, start);
+        }
         
         if (stats != null && !stats.isEmpty()) {
             UsageStats recentStats = null;
@@ -300,29 +624,12 @@ public class UsageStatsModule extends ReactContextBaseJavaModule {
                     recentStats = usageStats;
                 }
             }
-            
-            if (recentStats != null) {
-                return recentStats.getPackageName();
-            }
+            return recentStats;
         }
         
         return null;
     }
 
-    private boolean isAppBlocked(String packageName) {
-        String blockedApps = prefs.getString(KEY_BLOCKED_APPS, "");
-        if (blockedApps.isEmpty()) return false;
-        
-        String[] apps = blockedApps.split(",");
-        for (String app : apps) {
-            if (app.equals(packageName)) {
-                return true;
-            }
-        }
-        
-        return false;
-    }
-
     private void updateNotification() {
         NotificationManager notificationManager = 
             (NotificationManager) reactContext.getSystemService(Context.NOTIFICATION_SERVICE);
@@ -332,7 +639,7 @@ public class UsageStatsModule extends ReactContextBaseJavaModule {
             return;
         }
         
-        String timeString = formatTime(availableTimeSeconds);
+        String timeString = TimeFormatter.format(availableTimeSeconds);
         boolean isWarning = availableTimeSeconds < 300; // Less than 5 minutes
         
         Intent intent = reactContext.getPackageManager()
@@ -354,20 +661,6 @@ public class UsageStatsModule extends ReactContextBaseJavaModule {
         notificationManager.notify(NOTIFICATION_ID, builder.build());
     }
 
-    private String formatTime(long seconds) {
-        long hours = TimeUnit.SECONDS.toHours(seconds);
-        long minutes = TimeUnit.SECONDS.toMinutes(seconds) % 60;
-        long secs = seconds % 60;
-        
-        if (hours > 0) {
-            return String.format("%dh %dm", hours, minutes);
-        } else if (minutes > 0) {
-            return String.format("%dm %ds", minutes, secs);
-        } else {
-            return String.format("%ds", secs);
-        }
-    }
-
     // Inner Service class
     public static class TimerService extends Service {
         @Override
@@ -0,0 +1,547 @@
+package com.brainbites.review;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Spaced-repetition schedule for the question bank (SM-2 with intervals in
+ * minutes), in primitive arrays indexed by slot, persisted in place in a
+ * memory-mapped file.
+ *
+ * Every deck (a category and level) has two indexed min-heaps over its
+ * slots: questions already seen, keyed by due minute, and questions never
+ * seen, keyed by a fixed shuffle rank. {@link #next} serves the most overdue
+ * question in the given decks, else a new one, else the one due soonest, so
+ * the bank never runs out; it only peeks. {@link #record} is an SM-2 update,
+ * an O(log n) heap move and one record write into the mapping.
+ *
+ * File layout (big endian):
+ *   int magic | int version | int count | int deckCount
+ *   deck[MAX_DECKS]: byte nameLength | name UTF-8
+ *   record[count]: int id | int dueMinute | int intervalMinutes
+ *                  | short easePercent | short repetitions | short deck | short lapses
+ * A record with no repetitions and no lapses has never been answered.
+ */
+public class ReviewScheduler {
+    private static final String TAG = "BrainBitesReview";
+    private static final String FILE_NAME = "review_schedule.bin";
+    private static final int MAGIC = 0x42425251;
+    private static final int FORMAT_VERSION = 1;
+
+    public static final int MAX_DECKS = 64;
+    public static final int NOT_FOUND = -1;
+
+    private static final int DECK_SIZE = 32;
+    private static final int MAX_DECK_BYTES = DECK_SIZE - 1;
+    private static final int HEADER_SIZE = 16 + MAX_DECKS * DECK_SIZE;
+    private static final int RECORD_SIZE = 20;
+    private static final short RETIRED = -1;
+
+    static final int RELEARN_MINUTES = 10;
+    static final int DAY_MINUTES = 24 * 60;
+    static final int MAX_INTERVAL_MINUTES = 365 * DAY_MINUTES;
+    static final int INITIAL_EASE = 250;
+    static final int MIN_EASE = 130;
+
+    private static ReviewScheduler instance;
+
+    private final File file;
+    private ByteBuffer map;
+    private int capacity;
+    private int count;
+
+    // Per slot; mirrors of the records, so reads never touch the mapping
+    private int[] ids;
+    private int[] due;
+    private int[] interval;
+    private short[] ease;
+    private short[] repetitions;
+    private short[] deckOf;
+    private short[] lapses;
+
+    // Per slot, shared by all heaps: a slot sits in at most one
+    private int[] key;
+    private int[] heapPos;
+
+    private final String[] deckNames = new String[MAX_DECKS];
+    private int deckCount;
+    private final Heap[] seen = new Heap[MAX_DECKS];
+    private final Heap[] fresh = new Heap[MAX_DECKS];
+
+    // Question id -> slot + 1, open addressing; 0 is empty
+    private int[] slotTable;
+
+    /** Slots of one deck, ordered by {@link #key} then slot. */
+    private static final class Heap {
+        int[] slots = new int[16];
+        int size;
+    }
+
+    public static synchronized ReviewScheduler getInstance(Context context) {
+        if (instance == null) {
+            instance = new ReviewScheduler(new File(context.getFilesDir(), FILE_NAME));
+            instance.load();
+        }
+        return instance;
+    }
+
+    /** A schedule kept in {@code file}; null keeps it in memory only. */
+    public ReviewScheduler(File file) {
+        this.file = file;
+    }
+
+    /** Maps the file and rebuilds the heaps; starts empty if there is nothing valid to load. */
+    public synchronized void load() {
+        boolean isNew = file == null || !file.exists() || file.length() < HEADER_SIZE;
+        int stored = 0;
+        count = 0;
+        deckCount = 0;
+        if (!isNew) {
+            stored = (int) Math.min((file.length() - HEADER_SIZE) / RECORD_SIZE, Integer.MAX_VALUE);
+        }
+        // The file is always a whole power-of-two capacity, so this maps it as it is
+        int slots = 1024;
+        while (slots < stored) {
+            slots *= 2;
+        }
+        allocate(slots);
+
+        if (isNew || map.getInt(0) != MAGIC || map.getInt(4) != FORMAT_VERSION
+                || map.getInt(8) < 0 || map.getInt(8) > stored
+                || map.getInt(12) < 0 || map.getInt(12) > MAX_DECKS) {
+            if (!isNew) {
+                Log.w(TAG, "Discarding review schedule with unknown format");
+            }
+            reset();
+            return;
+        }
+
+        deckCount = map.getInt(12);
+        for (int deck = 0; deck < deckCount; deck++) {
+            int offset = 16 + deck * DECK_SIZE;
+            byte[] bytes = new byte[Math.min(map.get(offset) & 0xFF, MAX_DECK_BYTES)];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = map.get(offset + 1 + i);
+            }
+            deckNames[deck] = new String(bytes, StandardCharsets.UTF_8);
+            seen[deck] = new Heap();
+            fresh[deck] = new Heap();
+        }
+
+        count = map.getInt(8);
+        for (int slot = 0; slot < count; slot++) {
+            int offset = recordOffset(slot);
+            ids[slot] = map.getInt(offset);
+            due[slot] = map.getInt(offset + 4);
+            interval[slot] = map.getInt(offset + 8);
+            ease[slot] = map.getShort(offset + 12);
+            repetitions[slot] = map.getShort(offset + 14);
+            deckOf[slot] = map.getShort(offset + 16);
+            lapses[slot] = map.getShort(offset + 18);
+            if (deckOf[slot] < 0 || deckOf[slot] >= deckCount) {
+                deckOf[slot] = RETIRED;
+            }
+            putSlot(ids[slot], slot);
+            if (deckOf[slot] != RETIRED) {
+                Heap heap = heapFor(slot);
+                key[slot] = keyFor(slot);
+                append(heap, slot);
+            }
+        }
+        for (int deck = 0; deck < deckCount; deck++) {
+            heapify(seen[deck]);
+            heapify(fresh[deck]);
+        }
+    }
+
+    /**
+     * Makes the bank exactly {@code questionIds}, each in the deck of the same
+     * index: new ids are added as unseen, known ones keep their schedule (and
+     * move deck if theirs changed), and ids no longer in the bank are retired
+     * until they come back.
+     */
+    public synchronized void sync(int[] questionIds, String[] decks) {
+        if (questionIds.length != decks.length) {
+            throw new IllegalArgumentException("Got " + questionIds.length + " ids but " + decks.length + " decks");
+        }
+        boolean[] present = new boolean[count + questionIds.length];
+        for (int i = 0; i < questionIds.length; i++) {
+            int deck = deckIndex(decks[i]);
+            int slot = slotOf(questionIds[i]);
+            if (slot == NOT_FOUND) {
+                slot = add(questionIds[i], deck);
+            } else if (deckOf[slot] != deck) {
+                if (deckOf[slot] != RETIRED) {
+                    remove(heapFor(slot), slot);
+                }
+                deckOf[slot] = (short) deck;
+                writeRecord(slot);
+                key[slot] = keyFor(slot);
+                insert(heapFor(slot), slot);
+            }
+            present[slot] = true;
+        }
+        for (int slot = 0; slot < count; slot++) {
+            if (!present[slot] && deckOf[slot] != RETIRED) {
+                remove(heapFor(slot), slot);
+                deckOf[slot] = RETIRED;
+                writeRecord(slot);
+            }
+        }
+    }
+
+    /** The index of a deck name, adding it if new. */
+    public synchronized int deckIndex(String name) {
+        for (int deck = 0; deck < deckCount; deck++) {
+            if (deckNames[deck].equals(name)) return deck;
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_DECK_BYTES) {
+            throw new IllegalArgumentException("Deck name too long: " + name);
+        }
+        if (deckCount == MAX_DECKS) {
+            throw new IllegalStateException("Deck limit of " + MAX_DECKS + " reached");
+        }
+        int deck = deckCount++;
+        int offset = 16 + deck * DECK_SIZE;
+        map.put(offset, (byte) bytes.length);
+        for (int i = 0; i < bytes.length; i++) {
+            map.put(offset + 1 + i, bytes[i]);
+        }
+        map.putInt(12, deckCount);
+        deckNames[deck] = name;
+        seen[deck] = new Heap();
+        fresh[deck] = new Heap();
+        return deck;
+    }
+
+    /** Like {@link #deckIndex} but never adds; {@link #NOT_FOUND} for an unknown deck. */
+    public synchronized int findDeck(String name) {
+        for (int deck = 0; deck < deckCount; deck++) {
+            if (deckNames[deck].equals(name)) return deck;
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * The question to ask next from {@code decks} (all decks if null): the
+     * most overdue, else an unseen one, else the one due soonest. Returns
+     * {@link #NOT_FOUND} if the decks are empty.
+     */
+    public synchronized int next(int[] decks, long nowMillis) {
+        int nowMinute = toMinute(nowMillis);
+        int overdue = NOT_FOUND;
+        int unseen = NOT_FOUND;
+        int soonest = NOT_FOUND;
+        int deckTotal = decks == null ? deckCount : decks.length;
+        for (int i = 0; i < deckTotal; i++) {
+            int deck = decks == null ? i : decks[i];
+            if (deck < 0 || deck >= deckCount) continue;
+            Heap dueHeap = seen[deck];
+            if (dueHeap.size > 0) {
+                int top = dueHeap.slots[0];
+                if (key[top] <= nowMinute) {
+                    if (overdue == NOT_FOUND || less(top, overdue)) overdue = top;
+                } else if (soonest == NOT_FOUND || less(top, soonest)) {
+                    soonest = top;
+                }
+            }
+            Heap newHeap = fresh[deck];
+            if (newHeap.size > 0 && (unseen == NOT_FOUND || less(newHeap.slots[0], unseen))) {
+                unseen = newHeap.slots[0];
+            }
+        }
+        int slot = overdue != NOT_FOUND ? overdue : unseen != NOT_FOUND ? unseen : soonest;
+        return slot == NOT_FOUND ? NOT_FOUND : ids[slot];
+    }
+
+    /** SM-2 quality (0-5) of an answer: wrong is a lapse, slow right answers count for less. */
+    public static int qualityOf(boolean correct, long responseMillis) {
+        if (!correct) return 1;
+        if (responseMillis > 0 && responseMillis < 5_000) return 5;
+        return responseMillis > 15_000 ? 3 : 4;
+    }
+
+    /**
+     * Records an answer to question {@code id} with SM-2 {@code quality} and
+     * reschedules it. Returns its new interval in minutes, or
+     * {@link #NOT_FOUND} for an unknown or retired question.
+     */
+    public synchronized int record(int id, int quality, long nowMillis) {
+        int slot = slotOf(id);
+        if (slot == NOT_FOUND || deckOf[slot] == RETIRED) return NOT_FOUND;
+        quality = Math.max(0, Math.min(5, quality));
+
+        Heap from = heapFor(slot);
+        long minutes;
+        if (quality < 3) {
+            repetitions[slot] = 0;
+            lapses[slot] = (short) Math.min(Short.MAX_VALUE, lapses[slot] + 1);
+            minutes = RELEARN_MINUTES;
+        } else {
+            if (repetitions[slot] == 0) {
+                minutes = DAY_MINUTES;
+            } else if (repetitions[slot] == 1) {
+                minutes = 6L * DAY_MINUTES;
+            } else {
+                minutes = ((long) interval[slot] * ease[slot] + 50) / 100;
+            }
+            repetitions[slot] = (short) Math.min(Short.MAX_VALUE, repetitions[slot] + 1);
+        }
+        int miss = 5 - quality;
+        ease[slot] = (short) Math.max(MIN_EASE, ease[slot] + 10 - miss * (8 + miss * 2));
+        interval[slot] = (int) Math.min(minutes, MAX_INTERVAL_MINUTES);
+        due[slot] = toMinute(nowMillis) + interval[slot];
+        writeRecord(slot);
+
+        Heap to = heapFor(slot);
+        if (from == to) {
+            int oldKey = key[slot];
+            key[slot] = due[slot];
+            if (key[slot] < oldKey) siftUp(to, heapPos[slot]); else siftDown(to, heapPos[slot]);
+        } else {
+            remove(from, slot);
+            key[slot] = due[slot];
+            insert(to, slot);
+        }
+        return interval[slot];
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    public synchronized int deckCount() {
+        return deckCount;
+    }
+
+    /** Due time of question {@code id} in epoch millis; 0 if never answered or unknown. */
+    public synchronized long dueAt(int id) {
+        int slot = slotOf(id);
+        if (slot == NOT_FOUND || isUnseen(slot)) return 0;
+        return due[slot] * 60_000L;
+    }
+
+    /** Seen questions in {@code deck} due by now; walks only the due part of the heap. */
+    public synchronized int dueCount(int deck, long nowMillis) {
+        if (deck < 0 || deck >= deckCount) return 0;
+        return countAtMost(seen[deck], 0, toMinute(nowMillis));
+    }
+
+    public synchronized int unseenCount(int deck) {
+        return deck < 0 || deck >= deckCount ? 0 : fresh[deck].size;
+    }
+
+    private int countAtMost(Heap heap, int position, int limit) {
+        if (position >= heap.size || key[heap.slots[position]] > limit) return 0;
+        return 1 + countAtMost(heap, 2 * position + 1, limit) + countAtMost(heap, 2 * position + 2, limit);
+    }
+
+    // Slots and records
+
+    private int add(int id, int deck) {
+        if (count == capacity) {
+            allocate(capacity * 2);
+        }
+        int slot = count++;
+        ids[slot] = id;
+        due[slot] = 0;
+        interval[slot] = 0;
+        ease[slot] = INITIAL_EASE;
+        repetitions[slot] = 0;
+        lapses[slot] = 0;
+        deckOf[slot] = (short) deck;
+        writeRecord(slot);
+        map.putInt(8, count);
+        putSlot(id, slot);
+        key[slot] = keyFor(slot);
+        insert(fresh[deck], slot);
+        return slot;
+    }
+
+    private boolean isUnseen(int slot) {
+        return repetitions[slot] == 0 && lapses[slot] == 0;
+    }
+
+    private Heap heapFor(int slot) {
+        return isUnseen(slot) ? fresh[deckOf[slot]] : seen[deckOf[slot]];
+    }
+
+    /** Due minute for seen questions; for unseen ones a rank that spreads the bank's order. */
+    private int keyFor(int slot) {
+        if (!isUnseen(slot)) return due[slot];
+        int h = ids[slot] * 0x9E3779B1;
+        return (h ^ (h >>> 16)) & Integer.MAX_VALUE;
+    }
+
+    private void writeRecord(int slot) {
+        int offset = recordOffset(slot);
+        map.putInt(offset, ids[slot]);
+        map.putInt(offset + 4, due[slot]);
+        map.putInt(offset + 8, interval[slot]);
+        map.putShort(offset + 12, ease[slot]);
+        map.putShort(offset + 14, repetitions[slot]);
+        map.putShort(offset + 16, deckOf[slot]);
+        map.putShort(offset + 18, lapses[slot]);
+    }
+
+    private static int recordOffset(int slot) {
+        return HEADER_SIZE + slot * RECORD_SIZE;
+    }
+
+    private static int toMinute(long millis) {
+        return (int) (millis / 60_000);
+    }
+
+    private void reset() {
+        for (int i = 0; i < HEADER_SIZE; i++) {
+            map.put(i, (byte) 0);
+        }
+        map.putInt(0, MAGIC);
+        map.putInt(4, FORMAT_VERSION);
+        count = 0;
+        deckCount = 0;
+        Arrays.fill(deckNames, null);
+        Arrays.fill(slotTable, 0);
+    }
+
+    /** (Re)maps the file for {@code slots} records and grows the arrays to match. */
+    private void allocate(int slots) {
+        int size = HEADER_SIZE + slots * RECORD_SIZE;
+        ByteBuffer next = null;
+        // Once mapping has failed, stay in memory rather than lose what is there
+        if (file != null && (map == null || map.isDirect())) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                // The mapping stays valid after the channel is closed; growing it extends the file
+                next = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            } catch (IOException e) {
+                Log.e(TAG, "Error mapping review schedule, progress will not persist", e);
+            }
+        }
+        if (next == null) {
+            next = ByteBuffer.allocate(size);
+            if (map != null) {
+                for (int i = 0; i < map.capacity(); i++) {
+                    next.put(i, map.get(i));
+                }
+            }
+        }
+        map = next;
+
+        capacity = slots;
+        ids = ids == null ? new int[slots] : Arrays.copyOf(ids, slots);
+        due = due == null ? new int[slots] : Arrays.copyOf(due, slots);
+        interval = interval == null ? new int[slots] : Arrays.copyOf(interval, slots);
+        ease = ease == null ? new short[slots] : Arrays.copyOf(ease, slots);
+        repetitions = repetitions == null ? new short[slots] : Arrays.copyOf(repetitions, slots);
+        deckOf = deckOf == null ? new short[slots] : Arrays.copyOf(deckOf, slots);
+        lapses = lapses == null ? new short[slots] : Arrays.copyOf(lapses, slots);
+        key = key == null ? new int[slots] : Arrays.copyOf(key, slots);
+        heapPos = heapPos == null ? new int[slots] : Arrays.copyOf(heapPos, slots);
+
+        slotTable = new int[slots * 2];
+        for (int slot = 0; slot < count; slot++) {
+            putSlot(ids[slot], slot);
+        }
+    }
+
+    private int slotOf(int id) {
+        int mask = slotTable.length - 1;
+        for (int i = mix(id) & mask; slotTable[i] != 0; i = (i + 1) & mask) {
+            if (ids[slotTable[i] - 1] == id) return slotTable[i] - 1;
+        }
+        return NOT_FOUND;
+    }
+
+    private void putSlot(int id, int slot) {
+        int mask = slotTable.length - 1;
+        int i = mix(id) & mask;
+        while (slotTable[i] != 0 && ids[slotTable[i] - 1] != id) {
+            i = (i + 1) & mask;
+        }
+        slotTable[i] = slot + 1;
+    }
+
+    private static int mix(int id) {
+        int h = id * 0x85EBCA6B;
+        return h ^ (h >>> 15);
+    }
+
+    // Indexed binary min-heaps over slots
+
+    private boolean less(int a, int b) {
+        return key[a] < key[b] || (key[a] == key[b] && a < b);
+    }
+
+    private void append(Heap heap, int slot) {
+        if (heap.size == heap.slots.length) {
+            heap.slots = Arrays.copyOf(heap.slots, heap.size * 2);
+        }
+        heap.slots[heap.size] = slot;
+        heapPos[slot] = heap.size++;
+    }
+
+    private void insert(Heap heap, int slot) {
+        append(heap, slot);
+        siftUp(heap, heap.size - 1);
+    }
+
+    private void remove(Heap heap, int slot) {
+        int position = heapPos[slot];
+        int last = heap.slots[--heap.size];
+        if (position == heap.size) return;
+        heap.slots[position] = last;
+        heapPos[last] = position;
+        if (position > 0 && less(last, heap.slots[(position - 1) / 2])) {
+            siftUp(heap, position);
+        } else {
+            siftDown(heap, position);
+        }
+    }
+
+    private void heapify(Heap heap) {
+        for (int position = heap.size / 2 - 1; position >= 0; position--) {
+            siftDown(heap, position);
+        }
+    }
+
+    private void siftUp(Heap heap, int position) {
+        int slot = heap.slots[position];
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            int parentSlot = heap.slots[parent];
+            if (!less(slot, parentSlot)) break;
+            heap.slots[position] = parentSlot;
+            heapPos[parentSlot] = position;
+            position = parent;
+        }
+        heap.slots[position] = slot;
+        heapPos[slot] = position;
+    }
+
+    private void siftDown(Heap heap, int position) {
+        int slot = heap.slots[position];
+        int half = heap.size / 2;
+        while (position < half) {
+            int child = 2 * position + 1;
+            if (child + 1 < heap.size && less(heap.slots[child + 1], heap.slots[child])) {
+                child++;
+            }
+            int childSlot = heap.slots[child];
+            if (!less(childSlot, slot)) break;
+            heap.slots[position] = childSlot;
+            heapPos[childSlot] = position;
+            position = child;
+        }
+        heap.slots[position] = slot;
+        heapPos[slot] = position;
+    }
+}
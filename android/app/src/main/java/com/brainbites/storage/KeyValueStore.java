@@ -0,0 +1,511 @@
+package com.brainbites.storage;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Typed key-value store for game state, kept fully in memory and persisted as
+ * a log of write batches in a memory-mapped file.
+ *
+ * A write is one append of just the keys it touches; there is no document to
+ * re-serialize. Reads never touch the file. Once superseded entries make up
+ * most of the log it is compacted into a single batch of the live values and
+ * swapped in with a rename. The mapping is forced to disk on a background
+ * thread shortly after each write, so a crash of the process loses nothing
+ * and a power loss at most the last second.
+ *
+ * File layout (big endian):
+ *   int magic | int version
+ *   batch*: int payloadLength | int crc32(payload) | payload
+ *   payload: int count, then per entry byte type | short keyLength | key UTF-8 | value
+ * Values are a byte for booleans, a double for numbers and an int length plus
+ * UTF-8 for strings; {@link #TYPE_DELETED} has none. A zero length ends the
+ * log; a batch whose checksum does not match is treated as torn and dropped
+ * with everything after it.
+ */
+public class KeyValueStore {
+    private static final String TAG = "BrainBitesKV";
+    private static final String FILE_NAME = "game_state.kv";
+    private static final int MAGIC = 0x42424b56;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int BATCH_HEADER_SIZE = 8;
+
+    static final byte TYPE_DELETED = 0;
+    static final byte TYPE_BOOLEAN = 1;
+    static final byte TYPE_NUMBER = 2;
+    static final byte TYPE_STRING = 3;
+
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+    private static final int COMPACT_MIN_BYTES = 32 * 1024;
+    private static final int MAX_KEY_BYTES = 0xFFFF;
+    private static final long FORCE_DELAY_MS = 1000;
+
+    private static KeyValueStore instance;
+
+    private final File file;
+    private final Map<String, Object> values = new HashMap<>();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "BrainBitesKVWriter");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    // Guarded by this
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private int writePosition = HEADER_SIZE;
+    private int liveBytes = 0;
+    private boolean forceScheduled = false;
+    private boolean compactionScheduled = false;
+    private int compactions = 0;
+
+    public static synchronized KeyValueStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new KeyValueStore(new File(context.getFilesDir(), FILE_NAME));
+            instance.load();
+        }
+        return instance;
+    }
+
+    public KeyValueStore(File file) {
+        this.file = file;
+    }
+
+    /** Boolean, Double or String, or null when the key is not set. */
+    public synchronized Object get(String key) {
+        return values.get(key);
+    }
+
+    /** Copy of every entry whose key starts with {@code prefix}. */
+    public synchronized Map<String, Object> getByPrefix(String prefix) {
+        Map<String, Object> result = new HashMap<>();
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                result.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    public synchronized int size() {
+        return values.size();
+    }
+
+    public void put(String key, Object value) throws IOException {
+        putAll(Collections.singletonMap(key, value));
+    }
+
+    /**
+     * Applies all entries as one batch; a null value removes the key. Entries
+     * that would not change anything are skipped, and nothing is written if
+     * none are left.
+     */
+    public synchronized void putAll(Map<String, Object> entries) throws IOException {
+        List<String> keys = new ArrayList<>(entries.size());
+        List<Object> batchValues = new ArrayList<>(entries.size());
+        for (Map.Entry<String, Object> entry : entries.entrySet()) {
+            Object value = normalize(entry.getValue());
+            if (utf8Length(entry.getKey()) > MAX_KEY_BYTES) {
+                throw new IllegalArgumentException("Key too long: " + entry.getKey());
+            }
+            Object current = values.get(entry.getKey());
+            if (value == null ? current == null : value.equals(current)) continue;
+            keys.add(entry.getKey());
+            batchValues.add(value);
+        }
+        if (keys.isEmpty()) return;
+
+        appendBatch(keys, batchValues);
+        for (int i = 0; i < keys.size(); i++) {
+            apply(keys.get(i), batchValues.get(i));
+        }
+        if (shouldCompact()) {
+            scheduleCompaction();
+        }
+        scheduleForce();
+    }
+
+    public synchronized void removeByPrefix(String prefix) throws IOException {
+        Map<String, Object> removals = new HashMap<>();
+        for (String key : values.keySet()) {
+            if (key.startsWith(prefix)) {
+                removals.put(key, null);
+            }
+        }
+        putAll(removals);
+    }
+
+    /** Bytes of log in use, including superseded entries. */
+    public synchronized int getLogBytes() {
+        return writePosition;
+    }
+
+    public synchronized int getLiveBytes() {
+        return liveBytes;
+    }
+
+    public synchronized int getCompactions() {
+        return compactions;
+    }
+
+    private static Object normalize(Object value) {
+        if (value instanceof Number && !(value instanceof Double)) {
+            return ((Number) value).doubleValue();
+        }
+        if (value == null || value instanceof Boolean || value instanceof Double || value instanceof String) {
+            return value;
+        }
+        throw new IllegalArgumentException("Unsupported value type " + value.getClass().getSimpleName());
+    }
+
+    private void apply(String key, Object value) {
+        Object previous = value == null ? values.remove(key) : values.put(key, value);
+        if (previous != null) {
+            liveBytes -= entrySize(key, previous);
+        }
+        if (value != null) {
+            liveBytes += entrySize(key, value);
+        }
+    }
+
+    private void appendBatch(List<String> keys, List<Object> batchValues) throws IOException {
+        int payloadSize = 4;
+        for (int i = 0; i < keys.size(); i++) {
+            payloadSize += entrySize(keys.get(i), batchValues.get(i));
+        }
+
+        byte[] bytes = new byte[payloadSize];
+        ByteBuffer payload = ByteBuffer.wrap(bytes);
+        payload.putInt(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            writeEntry(payload, keys.get(i), batchValues.get(i));
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, payloadSize);
+
+        // Keep a zero word after the batch so the scan on load stops there
+        ensureCapacity(writePosition + BATCH_HEADER_SIZE + payloadSize + 4);
+        ByteBuffer out = mapped.duplicate();
+        out.position(writePosition + BATCH_HEADER_SIZE);
+        out.put(bytes);
+        // Length last, so a scan never sees a batch before its body is in place
+        mapped.putInt(writePosition + 4, (int) crc.getValue());
+        mapped.putInt(writePosition, payloadSize);
+        writePosition += BATCH_HEADER_SIZE + payloadSize;
+    }
+
+    private static int entrySize(String key, Object value) {
+        int size = 1 + 2 + utf8Length(key);
+        if (value instanceof Boolean) {
+            size += 1;
+        } else if (value instanceof Double) {
+            size += 8;
+        } else if (value instanceof String) {
+            size += 4 + utf8Length((String) value);
+        }
+        return size;
+    }
+
+    private static void writeEntry(ByteBuffer out, String key, Object value) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        if (value == null) {
+            out.put(TYPE_DELETED);
+        } else if (value instanceof Boolean) {
+            out.put(TYPE_BOOLEAN);
+        } else if (value instanceof Double) {
+            out.put(TYPE_NUMBER);
+        } else {
+            out.put(TYPE_STRING);
+        }
+        out.putShort((short) keyBytes.length);
+        out.put(keyBytes);
+
+        if (value instanceof Boolean) {
+            out.put((byte) ((Boolean) value ? 1 : 0));
+        } else if (value instanceof Double) {
+            out.putDouble((Double) value);
+        } else if (value instanceof String) {
+            byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+            out.putInt(bytes.length);
+            out.put(bytes);
+        }
+    }
+
+    private static int utf8Length(String s) {
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private void ensureCapacity(int needed) throws IOException {
+        // Mapping here from scratch would leave a log without a header
+        if (mapped == null) throw new IOException("Game state could not be opened");
+        if (needed <= mapped.capacity()) return;
+
+        int capacity = mapped.capacity();
+        while (capacity < needed) {
+            capacity *= 2;
+        }
+        if (channel == null) {
+            channel = new RandomAccessFile(file, "rw").getChannel();
+        }
+        mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private boolean shouldCompact() {
+        return writePosition >= COMPACT_MIN_BYTES && writePosition >= 2 * (HEADER_SIZE + liveBytes);
+    }
+
+    private void scheduleCompaction() {
+        if (compactionScheduled) return;
+        compactionScheduled = true;
+        executor.execute(() -> {
+            synchronized (this) {
+                compactionScheduled = false;
+                if (!shouldCompact()) return;
+                try {
+                    compact();
+                } catch (IOException e) {
+                    Log.e(TAG, "Error compacting game state", e);
+                }
+            }
+        });
+    }
+
+    /** Rewrites the log as a single batch of the live entries. */
+    synchronized void compact() throws IOException {
+
+        File temp = new File(file.getPath() + ".tmp");
+        int payloadSize = 4 + liveBytes;
+        int length = HEADER_SIZE + BATCH_HEADER_SIZE + payloadSize;
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < length * 2) {
+            capacity *= 2;
+        }
+
+        List<String> keys = new ArrayList<>(values.keySet());
+        List<Object> liveValues = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            liveValues.add(values.get(key));
+        }
+
+        try (RandomAccessFile out = new RandomAccessFile(temp, "rw")) {
+            out.setLength(0);
+            FileChannel tempChannel = out.getChannel();
+            MappedByteBuffer tempMapped = tempChannel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            tempMapped.putInt(0, MAGIC);
+            tempMapped.putInt(4, FORMAT_VERSION);
+
+            MappedByteBuffer previous = mapped;
+            int previousPosition = writePosition;
+            mapped = tempMapped;
+            writePosition = HEADER_SIZE;
+            try {
+                appendBatch(keys, liveValues);
+                tempMapped.force();
+            } catch (IOException | RuntimeException e) {
+                mapped = previous;
+                writePosition = previousPosition;
+                throw e;
+            }
+        }
+
+        closeChannel();
+        if (!temp.renameTo(file)) {
+            throw new IOException("Could not replace " + file);
+        }
+        channel = new RandomAccessFile(file, "rw").getChannel();
+        mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        compactions++;
+        Log.d(TAG, "Compacted to " + writePosition + " bytes, " + values.size() + " keys");
+    }
+
+    private void scheduleForce() {
+        if (forceScheduled) return;
+        forceScheduled = true;
+        executor.schedule(this::force, FORCE_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /** Flushes the mapping to disk now. */
+    public synchronized void force() {
+        forceScheduled = false;
+        if (mapped != null) {
+            mapped.force();
+        }
+    }
+
+    synchronized void load() {
+        try {
+            boolean isNew = !file.exists() || file.length() < HEADER_SIZE;
+            channel = new RandomAccessFile(file, "rw").getChannel();
+            int capacity = (int) Math.max(channel.size(), INITIAL_CAPACITY);
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+
+            if (isNew || mapped.getInt(0) != MAGIC || mapped.getInt(4) != FORMAT_VERSION) {
+                if (!isNew) {
+                    Log.w(TAG, "Discarding game state with unknown format");
+                }
+                reset();
+                return;
+            }
+
+            int batches = replay();
+            Log.d(TAG, "Loaded " + values.size() + " keys from " + batches + " batches");
+        } catch (IOException e) {
+            Log.e(TAG, "Error opening game state, starting a new one", e);
+            startOver();
+        }
+    }
+
+    /**
+     * Replaces an unreadable file with an empty log. If even that fails the
+     * store stays closed and every write throws.
+     */
+    private void startOver() {
+        values.clear();
+        liveBytes = 0;
+        mapped = null;
+        closeChannel();
+        try {
+            channel = new RandomAccessFile(file, "rw").getChannel();
+            channel.truncate(0);
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, INITIAL_CAPACITY);
+            reset();
+        } catch (IOException e) {
+            Log.e(TAG, "Game state unavailable", e);
+            mapped = null;
+            closeChannel();
+        }
+    }
+
+    private int replay() {
+        int position = HEADER_SIZE;
+        int batches = 0;
+        CRC32 crc = new CRC32();
+
+        while (position + BATCH_HEADER_SIZE <= mapped.capacity()) {
+            int payloadSize = mapped.getInt(position);
+            if (payloadSize == 0) break;
+            if (payloadSize < 4 || position + BATCH_HEADER_SIZE + payloadSize > mapped.capacity()) {
+                Log.w(TAG, "Dropping torn batch at " + position);
+                clearFrom(position);
+                break;
+            }
+
+            byte[] bytes = new byte[payloadSize];
+            ByteBuffer source = mapped.duplicate();
+            source.position(position + BATCH_HEADER_SIZE);
+            source.get(bytes);
+            crc.reset();
+            crc.update(bytes, 0, payloadSize);
+            if ((int) crc.getValue() != mapped.getInt(position + 4)) {
+                Log.w(TAG, "Dropping batch with bad checksum at " + position);
+                clearFrom(position);
+                break;
+            }
+
+            try {
+                ByteBuffer payload = ByteBuffer.wrap(bytes);
+                int count = payload.getInt();
+                List<String> keys = new ArrayList<>(count);
+                List<Object> batchValues = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    byte type = payload.get();
+                    byte[] keyBytes = new byte[payload.getShort() & 0xFFFF];
+                    payload.get(keyBytes);
+                    keys.add(new String(keyBytes, StandardCharsets.UTF_8));
+                    batchValues.add(readValue(payload, type));
+                }
+                // Only apply once the whole batch decoded
+                for (int i = 0; i < count; i++) {
+                    apply(keys.get(i), batchValues.get(i));
+                }
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Dropping undecodable batch at " + position, e);
+                clearFrom(position);
+                break;
+            }
+
+            position += BATCH_HEADER_SIZE + payloadSize;
+            batches++;
+        }
+        writePosition = position;
+        return batches;
+    }
+
+    private static Object readValue(ByteBuffer in, byte type) {
+        switch (type) {
+            case TYPE_DELETED:
+                return null;
+            case TYPE_BOOLEAN:
+                return in.get() != 0;
+            case TYPE_NUMBER:
+                return in.getDouble();
+            case TYPE_STRING: {
+                byte[] bytes = new byte[in.getInt()];
+                in.get(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+            default:
+                throw new IllegalStateException("Unknown value type " + type);
+        }
+    }
+
+    private void clearFrom(int position) {
+        for (int i = position; i < mapped.capacity(); i++) {
+            mapped.put(i, (byte) 0);
+        }
+    }
+
+    private void reset() {
+        values.clear();
+        liveBytes = 0;
+        clearFrom(0);
+        mapped.putInt(0, MAGIC);
+        mapped.putInt(4, FORMAT_VERSION);
+        writePosition = HEADER_SIZE;
+        mapped.force();
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                Log.e(TAG, "Error closing game state", e);
+            }
+            channel = null;
+        }
+    }
+}
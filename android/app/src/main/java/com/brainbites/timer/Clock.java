@@ -0,0 +1,8 @@
+package com.brainbites.timer;
+
+/** Wall clock seam so the timer state machines can run on simulated time. */
+public interface Clock {
+    Clock SYSTEM = System::currentTimeMillis;
+
+    long currentTimeMillis();
+}
@@ -0,0 +1,35 @@
+package com.brainbites.timer;
+
+/**
+ * Started-activity reference count behind {@code BrainBitesLifecycleListener}.
+ * Reports the app entering and leaving the foreground, ignoring the
+ * stop/start pair of a configuration change.
+ */
+public class ForegroundTracker {
+
+    public interface Listener {
+        void onForegroundChanged(boolean inForeground);
+    }
+
+    private final Listener listener;
+
+    private int activityReferences = 0;
+    private boolean isActivityChangingConfigurations = false;
+
+    public ForegroundTracker(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void onActivityStarted() {
+        if (++activityReferences == 1 && !isActivityChangingConfigurations) {
+            listener.onForegroundChanged(true);
+        }
+    }
+
+    public void onActivityStopped(boolean changingConfigurations) {
+        isActivityChangingConfigurations = changingConfigurations;
+        if (--activityReferences == 0 && !isActivityChangingConfigurations) {
+            listener.onForegroundChanged(false);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.brainbites.timer;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Timer balances for every learner profile on the device, in a fixed-size
+ * table of slots in a memory-mapped file.
+ *
+ * Each slot is a profile id plus its remaining and overtime seconds. The
+ * whole table is a little over a kilobyte, so it is mapped once and kept
+ * resident: switching profiles is a slot index change, and saving a balance
+ * is two int stores into the mapping, left to the kernel to write back.
+ * Changes to the set of profiles or the active one are rare and would lose
+ * a whole profile if torn, so those are forced to disk before returning.
+ *
+ * File layout (big endian):
+ *   int magic | int version | int activeSlot | int count
+ *   slot[MAX_PROFILES]: int remaining | int negative | byte idLength | id UTF-8
+ * Slots below {@code count} are in use; removing a profile moves the last
+ * slot into its place.
+ */
+public class ProfileSlots {
+    private static final String TAG = "BrainBitesProfiles";
+    private static final String FILE_NAME = "timer_profiles.bin";
+    private static final int MAGIC = 0x42425054;
+    private static final int FORMAT_VERSION = 1;
+
+    public static final String DEFAULT_PROFILE = "default";
+    public static final int MAX_PROFILES = 16;
+    public static final int NO_SLOT = -1;
+
+    private static final int HEADER_SIZE = 16;
+    private static final int SLOT_SIZE = 64;
+    private static final int MAX_ID_BYTES = SLOT_SIZE - 9;
+    private static final int TABLE_SIZE = HEADER_SIZE + MAX_PROFILES * SLOT_SIZE;
+
+    // Where the single-account timer kept its balance
+    private static final String LEGACY_PREFS_NAME = "BrainBitesTimerPrefs";
+    private static final String LEGACY_KEY_REMAINING = "remaining_time";
+    private static final String LEGACY_KEY_NEGATIVE = "negative_time";
+    private static final int DEFAULT_REMAINING = 300;
+
+    private static ProfileSlots instance;
+
+    private final File file;
+    private ByteBuffer table;
+    // Decoded ids, so lookups never read the mapping
+    private final String[] ids = new String[MAX_PROFILES];
+
+    public static synchronized ProfileSlots getInstance(Context context) {
+        if (instance == null) {
+            instance = new ProfileSlots(new File(context.getFilesDir(), FILE_NAME));
+            if (!instance.load()) {
+                SharedPreferences legacy = context.getSharedPreferences(LEGACY_PREFS_NAME, Context.MODE_PRIVATE);
+                instance.seed(legacy.getInt(LEGACY_KEY_REMAINING, DEFAULT_REMAINING),
+                    legacy.getInt(LEGACY_KEY_NEGATIVE, 0));
+            }
+        }
+        return instance;
+    }
+
+    public ProfileSlots(File file) {
+        this.file = file;
+    }
+
+    /** Profile ids also name per-profile files, so they are kept filename-safe. */
+    public static boolean isValidId(String id) {
+        if (id == null || id.isEmpty() || id.length() > MAX_ID_BYTES) return false;
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            boolean ok = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+                || (c >= '0' && c <= '9') || c == '-' || c == '_';
+            if (!ok) return false;
+        }
+        return true;
+    }
+
+    public synchronized int slotOf(String id) {
+        int count = size();
+        for (int slot = 0; slot < count; slot++) {
+            if (ids[slot].equals(id)) return slot;
+        }
+        return NO_SLOT;
+    }
+
+    /** Returns the profile's slot, adding it with an empty balance if it is new. */
+    public synchronized int getOrCreate(String id) {
+        int slot = slotOf(id);
+        if (slot != NO_SLOT) return slot;
+        if (!isValidId(id)) {
+            throw new IllegalArgumentException("Invalid profile id: " + id);
+        }
+        int count = size();
+        if (count == MAX_PROFILES) {
+            throw new IllegalStateException("Profile limit of " + MAX_PROFILES + " reached");
+        }
+        writeSlot(count, id, 0, 0);
+        table.putInt(12, count + 1);
+        force();
+        return count;
+    }
+
+    /**
+     * Removes a profile that is not active. Returns false if it is unknown or
+     * active; the timer must switch away from a profile before it goes.
+     */
+    public synchronized boolean remove(String id) {
+        int slot = slotOf(id);
+        if (slot == NO_SLOT || slot == activeSlot()) return false;
+
+        int last = size() - 1;
+        if (slot != last) {
+            writeSlot(slot, ids[last], remaining(last), negative(last));
+            if (activeSlot() == last) {
+                table.putInt(8, slot);
+            }
+        }
+        ids[last] = null;
+        table.putInt(12, last);
+        force();
+        return true;
+    }
+
+    public synchronized int size() {
+        return table.getInt(12);
+    }
+
+    public synchronized int activeSlot() {
+        return table.getInt(8);
+    }
+
+    public synchronized void setActiveSlot(int slot) {
+        checkSlot(slot);
+        table.putInt(8, slot);
+        force();
+    }
+
+    public synchronized String activeId() {
+        return ids[activeSlot()];
+    }
+
+    public synchronized String idAt(int slot) {
+        checkSlot(slot);
+        return ids[slot];
+    }
+
+    public synchronized int remaining(int slot) {
+        checkSlot(slot);
+        return table.getInt(slotOffset(slot));
+    }
+
+    public synchronized int negative(int slot) {
+        checkSlot(slot);
+        return table.getInt(slotOffset(slot) + 4);
+    }
+
+    public synchronized void setBalance(int slot, int remainingSeconds, int negativeSeconds) {
+        checkSlot(slot);
+        table.putInt(slotOffset(slot), remainingSeconds);
+        table.putInt(slotOffset(slot) + 4, negativeSeconds);
+    }
+
+    private void writeSlot(int slot, String id, int remainingSeconds, int negativeSeconds) {
+        byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+        int offset = slotOffset(slot);
+        table.putInt(offset, remainingSeconds);
+        table.putInt(offset + 4, negativeSeconds);
+        table.put(offset + 8, (byte) bytes.length);
+        for (int i = 0; i < bytes.length; i++) {
+            table.put(offset + 9 + i, bytes[i]);
+        }
+        ids[slot] = id;
+    }
+
+    private void force() {
+        if (table instanceof MappedByteBuffer) {
+            ((MappedByteBuffer) table).force();
+        }
+    }
+
+    private void checkSlot(int slot) {
+        if (slot < 0 || slot >= size()) {
+            throw new IndexOutOfBoundsException("No profile in slot " + slot);
+        }
+    }
+
+    private static int slotOffset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    /** Maps the table; returns false if there was no valid table to load. */
+    synchronized boolean load() {
+        boolean isNew = !file.exists() || file.length() < TABLE_SIZE;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // The mapping stays valid after the channel is closed
+            table = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, TABLE_SIZE);
+        } catch (IOException e) {
+            Log.e(TAG, "Error mapping profile table, balances will not persist", e);
+            table = ByteBuffer.allocate(TABLE_SIZE);
+            isNew = true;
+        }
+
+        if (isNew || table.getInt(0) != MAGIC || table.getInt(4) != FORMAT_VERSION) {
+            if (!isNew) {
+                Log.w(TAG, "Discarding profile table with unknown format");
+            }
+            return false;
+        }
+
+        int count = table.getInt(12);
+        if (count < 1 || count > MAX_PROFILES || table.getInt(8) < 0 || table.getInt(8) >= count) {
+            Log.w(TAG, "Discarding corrupt profile table");
+            return false;
+        }
+        for (int slot = 0; slot < count; slot++) {
+            int offset = slotOffset(slot);
+            int length = table.get(offset + 8) & 0xFF;
+            byte[] bytes = new byte[Math.min(length, MAX_ID_BYTES)];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = table.get(offset + 9 + i);
+            }
+            ids[slot] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return true;
+    }
+
+    /** Starts a fresh table holding just the default profile with the given balance. */
+    synchronized void seed(int remainingSeconds, int negativeSeconds) {
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            table.put(i, (byte) 0);
+        }
+        Arrays.fill(ids, null);
+        table.putInt(0, MAGIC);
+        table.putInt(4, FORMAT_VERSION);
+        table.putInt(8, 0);
+        table.putInt(12, 1);
+        writeSlot(0, DEFAULT_PROFILE, remainingSeconds, negativeSeconds);
+        force();
+    }
+}
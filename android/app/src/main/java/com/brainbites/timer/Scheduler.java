@@ -0,0 +1,11 @@
+package com.brainbites.timer;
+
+/**
+ * Delayed task seam over {@code android.os.Handler}. Tasks run one at a time
+ * on the scheduler's thread, in due-time order.
+ */
+public interface Scheduler {
+    void postDelayed(Runnable task, long delayMillis);
+
+    void cancel(Runnable task);
+}
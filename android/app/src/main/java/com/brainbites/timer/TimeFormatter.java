@@ -0,0 +1,29 @@
+package com.brainbites.timer;
+
+/**
+ * Formats second counts as "1h 5m", "4m 12s" or "37s".
+ *
+ * Same output as the {@code String.format} versions it replaces, but built
+ * with plain appends; it runs for every notification refresh.
+ */
+public final class TimeFormatter {
+    private TimeFormatter() {}
+
+    public static String format(long seconds) {
+        return appendTo(new StringBuilder(12), seconds).toString();
+    }
+
+    public static StringBuilder appendTo(StringBuilder sb, long seconds) {
+        long hours = seconds / 3600;
+        long minutes = (seconds % 3600) / 60;
+        long secs = seconds % 60;
+
+        if (hours > 0) {
+            return sb.append(hours).append("h ").append(minutes).append('m');
+        } else if (minutes > 0) {
+            return sb.append(minutes).append("m ").append(secs).append('s');
+        } else {
+            return sb.append(secs).append('s');
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.brainbites.timer;
+
+import com.brainbites.metrics.TimerMetrics;
+
+/**
+ * The timer service's run loop: starting and stopping the timer, settling
+ * charged time, persistence, and app foreground/background hand-offs.
+ *
+ * Nothing ticks. While time is being charged one task is scheduled for the
+ * earlier of the next warning/expiry deadline and a checkpoint; otherwise
+ * (screen off, locked, BrainBites in front) nothing is scheduled at all and
+ * the next screen, keyguard or foreground change resumes charging.
+ *
+ * Time, scheduling, device state and every side effect are injected, so the
+ * service is a thin adapter and the same state machine can be replayed on
+ * simulated time.
+ */
+public class TimerController implements TimerEngine.Listener {
+    static final long CHECKPOINT_INTERVAL_MS = 30_000;
+    static final long SAVE_INTERVAL_MS = 5000;
+
+    /** Side effects; engine events are forwarded as they happen. */
+    public interface Host extends TimerEngine.Listener {
+        /** The timer started or stopped (foreground service on/off). */
+        void onRunningChanged(boolean running);
+
+        /** Balance, charging or running state changed (notification and broadcast). */
+        void onStateChanged();
+
+        void persist(int remainingSeconds, int negativeSeconds);
+    }
+
+    private final Clock clock;
+    private final Scheduler scheduler;
+    private final Host host;
+    private final TimerEngine engine;
+
+    private boolean isRunning = false;
+    private long lastSaveTime = 0;
+
+    private final Runnable deadlineTask = new Runnable() {
+        @Override
+        public void run() {
+            settle();
+        }
+    };
+
+    public TimerController(Clock clock, Scheduler scheduler,
+                           TimerEngine.DeviceState deviceState, Host host) {
+        this.clock = clock;
+        this.scheduler = scheduler;
+        this.host = host;
+        this.engine = new TimerEngine(deviceState, this);
+    }
+
+    public void restore(int remainingSeconds, int negativeSeconds) {
+        engine.restore(remainingSeconds, negativeSeconds);
+    }
+
+    /**
+     * Charges the current balance up to now and persists it, e.g. before the
+     * host points persistence at another profile.
+     */
+    public void flush() {
+        if (isRunning) {
+            engine.tick(clock.currentTimeMillis());
+        }
+        persist();
+    }
+
+    /**
+     * Swaps in another balance, such as the next profile's, after a
+     * {@link #flush}. Charging carries on from now against the new balance;
+     * device and foreground state are unchanged.
+     */
+    public void replaceBalance(int remainingSeconds, int negativeSeconds) {
+        engine.restore(remainingSeconds, negativeSeconds);
+        if (isRunning) {
+            long now = clock.currentTimeMillis();
+            engine.start(now);
+            lastSaveTime = now;
+            schedule(now);
+        }
+        host.onStateChanged();
+    }
+
+    public void setWarningThresholds(int[] thresholdSeconds) {
+        engine.setWarningThresholds(thresholdSeconds);
+        if (isRunning) {
+            schedule(clock.currentTimeMillis());
+        }
+    }
+
+    public int[] getWarningThresholds() {
+        return engine.getWarningThresholds();
+    }
+
+    public void addTime(int seconds) {
+        long now = clock.currentTimeMillis();
+        if (isRunning) {
+            engine.tick(now);
+        }
+        engine.addTime(seconds);
+        persist();
+        host.onStateChanged();
+
+        if (isRunning) {
+            schedule(now);
+        } else if (engine.getRemainingTimeSeconds() > 0) {
+            // Start timer if not running and we have time
+            start();
+        }
+    }
+
+    public void start() {
+        if (isRunning) return;
+
+        isRunning = true;
+        long now = clock.currentTimeMillis();
+        engine.start(now);
+        lastSaveTime = now;
+        host.onRunningChanged(true);
+        schedule(now);
+    }
+
+    public void stop() {
+        if (isRunning) {
+            // Charge the partial interval before the timer goes away
+            engine.tick(clock.currentTimeMillis());
+        }
+        isRunning = false;
+        scheduler.cancel(deadlineTask);
+        persist();
+        host.onRunningChanged(false);
+    }
+
+    public void setAppInForeground(boolean inForeground) {
+        if (isRunning) {
+            long now = clock.currentTimeMillis();
+            engine.tick(now);
+            engine.setAppInForeground(inForeground);
+            restartInterval(now);
+        } else {
+            engine.setAppInForeground(inForeground);
+        }
+
+        // Ensure timer is running if we have time
+        if (!inForeground && engine.getRemainingTimeSeconds() > 0 && !isRunning) {
+            start();
+        }
+    }
+
+    /**
+     * Closes the current charging interval after a screen or keyguard change
+     * and starts a new one against the new state.
+     */
+    public void onDeviceStateChanged() {
+        if (isRunning) {
+            long now = clock.currentTimeMillis();
+            engine.tick(now);
+            restartInterval(now);
+        }
+    }
+
+    private void restartInterval(long now) {
+        boolean wasCharging = engine.isCharging();
+        engine.start(now);
+        if (wasCharging != engine.isCharging() || now - lastSaveTime >= SAVE_INTERVAL_MS) {
+            persist();
+        }
+        host.onStateChanged();
+        schedule(now);
+    }
+
+    void settle() {
+        TimerMetrics.TICKS.increment();
+        long start = TimerMetrics.begin("BrainBites:tick");
+        try {
+            long now = clock.currentTimeMillis();
+            engine.tick(now);
+
+            if (now - lastSaveTime >= SAVE_INTERVAL_MS) {
+                persist();
+            }
+            host.onStateChanged();
+            schedule(now);
+        } finally {
+            TimerMetrics.end(TimerMetrics.TICK, start);
+        }
+    }
+
+    private void schedule(long now) {
+        scheduler.cancel(deadlineTask);
+        if (!isRunning || !engine.isCharging()) return;
+
+        long due = now + CHECKPOINT_INTERVAL_MS;
+        long deadline = engine.nextDeadline();
+        if (deadline >= 0 && deadline < due) {
+            due = deadline;
+        }
+        scheduler.postDelayed(deadlineTask, due - now);
+    }
+
+    private void persist() {
+        lastSaveTime = clock.currentTimeMillis();
+        TimerMetrics.PREFS_FLUSHES.increment();
+        long start = TimerMetrics.begin("BrainBites:saveTime");
+        try {
+            host.persist(engine.getRemainingTimeSeconds(), engine.getNegativeTimeSeconds());
+        } finally {
+            TimerMetrics.end(TimerMetrics.PREFS_FLUSH, start);
+        }
+    }
+
+    @Override
+    public void onTimeSpent(int seconds) {
+        host.onTimeSpent(seconds);
+    }
+
+    @Override
+    public void onOvertime(int seconds) {
+        host.onOvertime(seconds);
+    }
+
+    @Override
+    public void onLowTime(int thresholdSeconds) {
+        host.onLowTime(thresholdSeconds);
+        // A restart must not roll the balance back above the threshold and warn twice
+        persist();
+    }
+
+    @Override
+    public void onExpired() {
+        host.onExpired();
+        persist();
+    }
+
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    /** Whether time is being charged right now. */
+    public boolean isCharging() {
+        return isRunning && engine.isCharging();
+    }
+
+    /** See {@link TimerEngine#getCountdownBase}. */
+    public long getCountdownBase() {
+        return engine.getCountdownBase();
+    }
+
+    public boolean isAppInForeground() {
+        return engine.isAppInForeground();
+    }
+
+    public int getRemainingTimeSeconds() {
+        return engine.getRemainingTimeSeconds();
+    }
+
+    public int getNegativeTimeSeconds() {
+        return engine.getNegativeTimeSeconds();
+    }
+}
@@ -0,0 +1,192 @@
+package com.brainbites.timer;
+
+import java.util.Arrays;
+
+/**
+ * Countdown and overtime bookkeeping behind {@code BrainBitesTimerService}.
+ *
+ * Holds no Android types: the device state comes in through
+ * {@link DeviceState} and side effects go out through {@link Listener}, so the
+ * same code runs in the service and on a plain JVM.
+ *
+ * While time is being charged the balance falls linearly from the start of
+ * the current interval, so the next warning or the expiry is an absolute
+ * deadline ({@link #nextDeadline}) and nothing needs to tick in between.
+ */
+public class TimerEngine {
+    public static final int[] DEFAULT_WARNING_THRESHOLDS = {300, 60};
+
+    public interface DeviceState {
+        boolean isInteractive();
+
+        boolean isKeyguardLocked();
+    }
+
+    public interface Listener {
+        void onTimeSpent(int seconds);
+
+        void onOvertime(int seconds);
+
+        /** The balance fell to or through {@code thresholdSeconds}. */
+        void onLowTime(int thresholdSeconds);
+
+        void onExpired();
+    }
+
+    private final DeviceState deviceState;
+    private final Listener listener;
+
+    private int remainingTimeSeconds = 0;
+    private int negativeTimeSeconds = 0;
+    private boolean isAppInForeground = true;
+    private long lastTickTime = 0;
+    private boolean wasDeducting = false;
+    // Ascending, positive, no duplicates
+    private int[] warningThresholds;
+
+    public TimerEngine(DeviceState deviceState, Listener listener) {
+        this.deviceState = deviceState;
+        this.listener = listener;
+        setWarningThresholds(DEFAULT_WARNING_THRESHOLDS);
+    }
+
+    public void restore(int remainingTimeSeconds, int negativeTimeSeconds) {
+        this.remainingTimeSeconds = remainingTimeSeconds;
+        this.negativeTimeSeconds = negativeTimeSeconds;
+    }
+
+    /** Begins a new charging interval at {@code now}, sampling the device state afresh. */
+    public void start(long now) {
+        lastTickTime = now;
+        wasDeducting = shouldDeductTime();
+    }
+
+    public void addTime(int seconds) {
+        remainingTimeSeconds += seconds;
+    }
+
+    public void setAppInForeground(boolean inForeground) {
+        isAppInForeground = inForeground;
+    }
+
+    public void setWarningThresholds(int[] thresholdSeconds) {
+        int[] sorted = thresholdSeconds.clone();
+        Arrays.sort(sorted);
+        int count = 0;
+        for (int threshold : sorted) {
+            if (threshold > 0 && (count == 0 || sorted[count - 1] != threshold)) {
+                sorted[count++] = threshold;
+            }
+        }
+        warningThresholds = Arrays.copyOf(sorted, count);
+    }
+
+    public int[] getWarningThresholds() {
+        return warningThresholds.clone();
+    }
+
+    /**
+     * Charges the time elapsed since the previous tick.
+     *
+     * Timer counts down when:
+     * 1. Screen is ON
+     * 2. Device is NOT locked
+     * 3. BrainBites app is NOT in foreground
+     * 4. We have time OR we're counting negative
+     *
+     * An interval is only charged when those held at both of its ends, so a
+     * tick delayed across a screen-off or a lock is never billed.
+     */
+    public void tick(long now) {
+        long elapsedMs = now - lastTickTime;
+        int elapsedSeconds = (int) (elapsedMs / 1000);
+        // Carry the sub-second remainder so 1.0x s ticks don't lose time
+        lastTickTime = now - (elapsedMs - elapsedSeconds * 1000L);
+
+        boolean shouldDeductTime = shouldDeductTime();
+        boolean chargeable = shouldDeductTime && wasDeducting;
+        wasDeducting = shouldDeductTime;
+        if (!chargeable) {
+            lastTickTime = now;
+        }
+
+        if (chargeable && elapsedSeconds > 0) {
+            int overtimeSeconds = elapsedSeconds;
+            if (remainingTimeSeconds > 0) {
+                // Normal countdown
+                int before = remainingTimeSeconds;
+                int spent = Math.min(elapsedSeconds, remainingTimeSeconds);
+                listener.onTimeSpent(spent);
+                remainingTimeSeconds -= spent;
+                overtimeSeconds -= spent;
+
+                // Warn once per downward crossing, for the lowest mark crossed
+                if (remainingTimeSeconds == 0) {
+                    listener.onExpired();
+                } else {
+                    for (int threshold : warningThresholds) {
+                        if (before > threshold && remainingTimeSeconds <= threshold) {
+                            listener.onLowTime(threshold);
+                            break;
+                        }
+                    }
+                }
+            }
+            if (overtimeSeconds > 0) {
+                // Count negative time (overtime usage)
+                negativeTimeSeconds += overtimeSeconds;
+                listener.onOvertime(overtimeSeconds);
+            }
+        }
+    }
+
+    /**
+     * Wall time at which the balance reaches the next warning threshold or
+     * zero, or -1 when nothing is being charged or only overtime is.
+     */
+    public long nextDeadline() {
+        if (!wasDeducting || remainingTimeSeconds <= 0) return -1;
+
+        int target = 0;
+        for (int threshold : warningThresholds) {
+            if (threshold < remainingTimeSeconds) {
+                target = threshold;
+            }
+        }
+        return lastTickTime + (remainingTimeSeconds - target) * 1000L;
+    }
+
+    /** Whether the current interval is being charged, as of the last tick. */
+    public boolean isCharging() {
+        return wasDeducting;
+    }
+
+    /**
+     * Wall time the balance would reach zero if charging continues, or, in
+     * overtime, the wall time overtime started; what a chronometer counts
+     * down to or up from.
+     */
+    public long getCountdownBase() {
+        return remainingTimeSeconds > 0
+            ? lastTickTime + remainingTimeSeconds * 1000L
+            : lastTickTime - negativeTimeSeconds * 1000L;
+    }
+
+    private boolean shouldDeductTime() {
+        return !isAppInForeground
+            && deviceState.isInteractive()
+            && !deviceState.isKeyguardLocked();
+    }
+
+    public int getRemainingTimeSeconds() {
+        return remainingTimeSeconds;
+    }
+
+    public int getNegativeTimeSeconds() {
+        return negativeTimeSeconds;
+    }
+
+    public boolean isAppInForeground() {
+        return isAppInForeground;
+    }
+}
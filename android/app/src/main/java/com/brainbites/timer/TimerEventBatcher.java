@@ -0,0 +1,346 @@
+package com.brainbites.timer;
+
+import com.brainbites.metrics.TimerMetrics;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Queues timer events for the JS side and hands them over in batches, so
+ * background reconciliation (overtime penalties, analytics) costs one
+ * headless task per batch instead of one per event.
+ *
+ * Events are coalesced per (type, profile): summed types add up, the rest
+ * keep their latest value, so the queue is bounded by types times profiles
+ * no matter how long delivery stalls. A batch goes out on expiry, once
+ * {@link #FLUSH_THRESHOLD} distinct entries are waiting, or
+ * {@link #MAX_DELAY_MS} after the oldest one was queued.
+ *
+ * Only one batch is in flight at a time. It stays in flight until the JS
+ * task acknowledges its sequence number; unacknowledged batches are sent
+ * again, unchanged, with backoff, and the JS side skips sequence numbers it
+ * has already applied. Meanwhile new events keep coalescing behind it.
+ *
+ * The queue, the batch in flight and the last sequence number are handed to
+ * a {@link Store} after every change. A restarted process {@link #restore}s
+ * them and resends the batch in flight under its original number, so a
+ * process death neither loses events nor gets a batch applied twice.
+ *
+ * Not thread-safe; the service drives it from its main thread.
+ */
+public class TimerEventBatcher {
+    /** Overtime seconds charged; summed. */
+    public static final int TYPE_OVERTIME = 0;
+    /** Seconds of balance spent; summed. */
+    public static final int TYPE_SPENT = 1;
+    /** Low-time warning crossed; latest threshold in seconds. */
+    public static final int TYPE_LOW_TIME = 2;
+    /** Balance ran out; flushes the queue right away. */
+    public static final int TYPE_EXPIRED = 3;
+    static final int TYPE_COUNT = 4;
+
+    static final int FLUSH_THRESHOLD = 16;
+    // Nothing downstream is urgent except expiry, which flushes at once
+    static final long MAX_DELAY_MS = 10 * 60_000;
+    // Longer than the headless task timeout, so a slow task isn't sent twice
+    static final long ACK_TIMEOUT_MS = 45_000;
+    static final long MAX_RETRY_DELAY_MS = 15 * 60_000;
+    private static final int STATE_VERSION = 1;
+
+    /** Where batches go; delivery is confirmed later through {@link #ack}. */
+    public interface Sink {
+        /** Starts delivery; false if it could not be started and should be retried. */
+        boolean dispatch(Batch batch);
+    }
+
+    /** Keeps the batcher's state across process deaths. */
+    public interface Store {
+        /** Replaces the saved state with {@code state}, as read back by {@link #restore}. */
+        void save(byte[] state);
+    }
+
+    /** An immutable batch; entry {@code i} is spread across the arrays. */
+    public static final class Batch {
+        public final long seq;
+        public final int[] types;
+        public final String[] profileIds;
+        public final int[] values;
+        public final long[] firstAt;
+        public final long[] lastAt;
+
+        Batch(long seq, int[] types, String[] profileIds, int[] values, long[] firstAt, long[] lastAt) {
+            this.seq = seq;
+            this.types = types;
+            this.profileIds = profileIds;
+            this.values = values;
+            this.firstAt = firstAt;
+            this.lastAt = lastAt;
+        }
+
+        public int size() {
+            return types.length;
+        }
+    }
+
+    private final Clock clock;
+    private final Scheduler scheduler;
+    private final Sink sink;
+    private final Store store;
+    private long lastSeq;
+
+    private int[] types = new int[FLUSH_THRESHOLD];
+    private String[] profileIds = new String[FLUSH_THRESHOLD];
+    private int[] values = new int[FLUSH_THRESHOLD];
+    private long[] firstAt = new long[FLUSH_THRESHOLD];
+    private long[] lastAt = new long[FLUSH_THRESHOLD];
+    private int size = 0;
+    private boolean delayScheduled = false;
+
+    private Batch inFlight;
+    private long retryDelay = ACK_TIMEOUT_MS;
+
+    private final Runnable delayTask = new Runnable() {
+        @Override
+        public void run() {
+            delayScheduled = false;
+            flush();
+        }
+    };
+
+    private final Runnable retryTask = new Runnable() {
+        @Override
+        public void run() {
+            if (inFlight == null) return;
+            retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY_MS);
+            send();
+        }
+    };
+
+    /**
+     * {@code lastSeq} is the last sequence number handed out, for when there
+     * is no saved state to {@link #restore}.
+     */
+    public TimerEventBatcher(Clock clock, Scheduler scheduler, Sink sink, Store store, long lastSeq) {
+        this.clock = clock;
+        this.scheduler = scheduler;
+        this.sink = sink;
+        this.store = store;
+        this.lastSeq = lastSeq;
+    }
+
+    /**
+     * Takes over the state a previous process saved: the queue keeps its
+     * original deadline and the batch in flight is sent again at once.
+     */
+    public void restore(byte[] state) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(state));
+        if (in.readInt() != STATE_VERSION) {
+            throw new IOException("Unknown event state version");
+        }
+        long savedSeq = in.readLong();
+        Batch saved = null;
+        if (in.readBoolean()) {
+            long seq = in.readLong();
+            int count = in.readInt();
+            saved = new Batch(seq, new int[count], new String[count], new int[count], new long[count], new long[count]);
+            for (int i = 0; i < count; i++) {
+                saved.types[i] = in.readInt();
+                saved.profileIds[i] = in.readUTF();
+                saved.values[i] = in.readInt();
+                saved.firstAt[i] = in.readLong();
+                saved.lastAt[i] = in.readLong();
+            }
+        }
+        int count = in.readInt();
+        if (count > types.length) {
+            grow(count);
+        }
+        for (int i = 0; i < count; i++) {
+            types[i] = in.readInt();
+            profileIds[i] = in.readUTF();
+            values[i] = in.readInt();
+            firstAt[i] = in.readLong();
+            lastAt[i] = in.readLong();
+        }
+
+        // Only take anything on once the whole state decoded
+        size = count;
+        lastSeq = Math.max(lastSeq, savedSeq);
+        inFlight = saved;
+        retryDelay = ACK_TIMEOUT_MS;
+        if (inFlight != null) {
+            send();
+        } else {
+            scheduleQueued();
+        }
+    }
+
+    public void add(int type, String profileId, int value) {
+        if (type < 0 || type >= TYPE_COUNT) {
+            throw new IllegalArgumentException("Unknown event type " + type);
+        }
+        TimerMetrics.EVENTS_QUEUED.increment();
+        long now = clock.currentTimeMillis();
+
+        int entry = indexOf(type, profileId);
+        if (entry < 0) {
+            if (size == types.length) {
+                grow(size * 2);
+            }
+            entry = size++;
+            types[entry] = type;
+            profileIds[entry] = profileId;
+            values[entry] = value;
+            firstAt[entry] = now;
+        } else if (type == TYPE_OVERTIME || type == TYPE_SPENT) {
+            values[entry] += value;
+        } else {
+            values[entry] = value;
+        }
+        lastAt[entry] = now;
+
+        if (type == TYPE_EXPIRED || size >= FLUSH_THRESHOLD) {
+            flush();
+        } else if (!delayScheduled) {
+            delayScheduled = true;
+            scheduler.postDelayed(delayTask, MAX_DELAY_MS);
+        }
+        save();
+    }
+
+    /**
+     * Sends what is queued now, unless a batch is still in flight; then it
+     * goes out as soon as that one is acknowledged.
+     */
+    public void flush() {
+        if (inFlight != null || size == 0) return;
+        if (delayScheduled) {
+            delayScheduled = false;
+            scheduler.cancel(delayTask);
+        }
+
+        inFlight = new Batch(++lastSeq,
+            Arrays.copyOf(types, size), Arrays.copyOf(profileIds, size),
+            Arrays.copyOf(values, size), Arrays.copyOf(firstAt, size), Arrays.copyOf(lastAt, size));
+        Arrays.fill(profileIds, 0, size, null);
+        size = 0;
+        retryDelay = ACK_TIMEOUT_MS;
+        // Saved before it goes out, so a resend after a restart keeps its number
+        save();
+        send();
+    }
+
+    private void send() {
+        TimerMetrics.EVENT_BATCHES.increment();
+        if (!sink.dispatch(inFlight)) {
+            // Couldn't even start; back off as if it had timed out
+            retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY_MS);
+        }
+        scheduler.postDelayed(retryTask, retryDelay);
+    }
+
+    /** The JS task applied batch {@code seq}; releases whatever queued behind it. */
+    public void ack(long seq) {
+        if (inFlight == null || inFlight.seq != seq) return;
+        inFlight = null;
+        scheduler.cancel(retryTask);
+        save();
+        scheduleQueued();
+    }
+
+    /** Whatever waited behind a batch keeps its original deadline. */
+    private void scheduleQueued() {
+        if (size == 0 || delayScheduled) return;
+
+        long oldest = firstAt[0];
+        for (int i = 1; i < size; i++) {
+            oldest = Math.min(oldest, firstAt[i]);
+        }
+        long delay = oldest + MAX_DELAY_MS - clock.currentTimeMillis();
+        if (delay <= 0 || size >= FLUSH_THRESHOLD || hasExpiry()) {
+            flush();
+        } else {
+            delayScheduled = true;
+            scheduler.postDelayed(delayTask, delay);
+        }
+    }
+
+    /** Stops the timers; queued and unacknowledged events stay saved for the next process. */
+    public void close() {
+        scheduler.cancel(delayTask);
+        scheduler.cancel(retryTask);
+        delayScheduled = false;
+    }
+
+    public long getLastSeq() {
+        return lastSeq;
+    }
+
+    public int pendingCount() {
+        return size;
+    }
+
+    public boolean isInFlight() {
+        return inFlight != null;
+    }
+
+    private void save() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + (size + (inFlight != null ? inFlight.size() : 0)) * 40);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(STATE_VERSION);
+            out.writeLong(lastSeq);
+            out.writeBoolean(inFlight != null);
+            if (inFlight != null) {
+                out.writeLong(inFlight.seq);
+                out.writeInt(inFlight.size());
+                for (int i = 0; i < inFlight.size(); i++) {
+                    writeEntry(out, inFlight.types[i], inFlight.profileIds[i], inFlight.values[i],
+                        inFlight.firstAt[i], inFlight.lastAt[i]);
+                }
+            }
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                writeEntry(out, types[i], profileIds[i], values[i], firstAt[i], lastAt[i]);
+            }
+        } catch (IOException e) {
+            // In-memory stream
+            throw new IllegalStateException(e);
+        }
+        store.save(bytes.toByteArray());
+    }
+
+    private static void writeEntry(DataOutputStream out, int type, String profileId, int value,
+                                   long first, long last) throws IOException {
+        out.writeInt(type);
+        out.writeUTF(profileId);
+        out.writeInt(value);
+        out.writeLong(first);
+        out.writeLong(last);
+    }
+
+    private boolean hasExpiry() {
+        for (int i = 0; i < size; i++) {
+            if (types[i] == TYPE_EXPIRED) return true;
+        }
+        return false;
+    }
+
+    private int indexOf(int type, String profileId) {
+        for (int i = 0; i < size; i++) {
+            if (types[i] == type && profileIds[i].equals(profileId)) return i;
+        }
+        return -1;
+    }
+
+    private void grow(int capacity) {
+        types = Arrays.copyOf(types, capacity);
+        profileIds = Arrays.copyOf(profileIds, capacity);
+        values = Arrays.copyOf(values, capacity);
+        firstAt = Arrays.copyOf(firstAt, capacity);
+        lastAt = Arrays.copyOf(lastAt, capacity);
+    }
+}
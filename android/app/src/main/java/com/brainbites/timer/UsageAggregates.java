@@ -0,0 +1,359 @@
+package com.brainbites.timer;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.brainbites.usage.PackageDictionary;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Rolling earned/spent/overtime totals kept in per-hour buckets.
+ *
+ * The buckets live in a ring of primitive arrays covering the last 31 local
+ * days. Today, last-7-days and last-30-days sums are maintained alongside the
+ * ring, so every query is O(1); the only non-constant work is subtracting a
+ * day's 24 buckets when it falls out of a window at midnight.
+ */
+public class UsageAggregates {
+    private static final String TAG = "BrainBitesUsage";
+    private static final String FILE_NAME = "usage_aggregates.bin";
+    private static final int FORMAT_VERSION = 1;
+
+    public static final int EARNED = 0;
+    public static final int SPENT = 1;
+    public static final int OVERTIME = 2;
+    private static final int KINDS = 3;
+
+    private static final int DAYS = 31;
+    private static final int HOURS = DAYS * 24;
+    private static final int WEEK_DAYS = 7;
+    private static final int MONTH_DAYS = 30;
+    private static final long HOUR_MS = 3600_000L;
+    private static final long SAVE_INTERVAL_MS = 60_000L;
+
+    // By profile id; a profile's file is only read the first time it is used
+    private static final Map<String, UsageAggregates> instances = new HashMap<>();
+
+    private final File file;
+    private final PackageDictionary dictionary;
+
+    // [kind][hour slot], slot = localHour % HOURS
+    private final int[][] hourly = new int[KINDS][HOURS];
+    private final int[] today = new int[KINDS];
+    private final int[] week = new int[KINDS];
+    private final int[] month = new int[KINDS];
+    // Indexed by PackageDictionary id, null for apps never charged
+    private AppUsage[] apps = new AppUsage[0];
+
+    // Local hour of the most recent record; every slot newer than it is empty
+    private long currentHour = -1;
+    private boolean dirty = false;
+    private long lastSaveTime = 0;
+    // Set once the profile is removed, so a stale holder can't write the file back
+    private boolean discarded = false;
+
+    private static class AppUsage {
+        final int[] daily = new int[DAYS];
+        int today;
+        int week;
+        int month;
+    }
+
+    public static class Snapshot {
+        public final int[] today = new int[KINDS];
+        public final int[] week = new int[KINDS];
+        public final int[] month = new int[KINDS];
+        public final int[] todayHourlySpent = new int[24];
+        public final Map<String, int[]> apps = new HashMap<>();
+    }
+
+    public static synchronized UsageAggregates forProfile(Context context, String profileId) {
+        UsageAggregates aggregates = instances.get(profileId);
+        if (aggregates == null) {
+            aggregates = new UsageAggregates(fileFor(context, profileId),
+                PackageDictionary.getInstance(context));
+            aggregates.load();
+            instances.put(profileId, aggregates);
+        }
+        return aggregates;
+    }
+
+    /** Forgets a removed profile's totals and deletes its file. */
+    public static synchronized void deleteProfile(Context context, String profileId) {
+        if (ProfileSlots.DEFAULT_PROFILE.equals(profileId)) return;
+        UsageAggregates removed = instances.remove(profileId);
+        if (removed != null) {
+            removed.discard();
+        }
+        File file = fileFor(context, profileId);
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Could not delete " + file);
+        }
+    }
+
+    private static File fileFor(Context context, String profileId) {
+        // The default profile keeps the file from before profiles existed
+        String name = ProfileSlots.DEFAULT_PROFILE.equals(profileId)
+            ? FILE_NAME
+            : "usage_aggregates_" + profileId + ".bin";
+        return new File(context.getFilesDir(), name);
+    }
+
+    UsageAggregates(File file, PackageDictionary dictionary) {
+        this.file = file;
+        this.dictionary = dictionary;
+    }
+
+    public void recordEarned(int seconds) {
+        record(EARNED, seconds, System.currentTimeMillis());
+    }
+
+    public void recordSpent(int seconds) {
+        record(SPENT, seconds, System.currentTimeMillis());
+    }
+
+    public void recordOvertime(int seconds) {
+        record(OVERTIME, seconds, System.currentTimeMillis());
+    }
+
+    public synchronized void record(int kind, int seconds, long now) {
+        if (seconds <= 0) return;
+
+        advanceTo(localHour(now));
+        hourly[kind][(int) (currentHour % HOURS)] += seconds;
+        today[kind] += seconds;
+        week[kind] += seconds;
+        month[kind] += seconds;
+        dirty = true;
+    }
+
+    public synchronized void recordAppUsage(int packageId, int seconds, long now) {
+        if (packageId < 0 || seconds <= 0) return;
+
+        advanceTo(localHour(now));
+        AppUsage usage = appUsage(packageId);
+        usage.daily[(int) ((currentHour / 24) % DAYS)] += seconds;
+        usage.today += seconds;
+        usage.week += seconds;
+        usage.month += seconds;
+        dirty = true;
+    }
+
+    public synchronized Snapshot getSnapshot(long now) {
+        advanceTo(localHour(now));
+
+        Snapshot snapshot = new Snapshot();
+        System.arraycopy(today, 0, snapshot.today, 0, KINDS);
+        System.arraycopy(week, 0, snapshot.week, 0, KINDS);
+        System.arraycopy(month, 0, snapshot.month, 0, KINDS);
+
+        if (currentHour >= 0) {
+            long dayStartHour = currentHour - (currentHour % 24);
+            // Later hours haven't happened yet; leave them at zero whatever their slots hold
+            for (int h = 0; h <= currentHour % 24; h++) {
+                snapshot.todayHourlySpent[h] = hourly[SPENT][(int) ((dayStartHour + h) % HOURS)];
+            }
+        }
+
+        for (int id = 0; id < apps.length; id++) {
+            AppUsage usage = apps[id];
+            if (usage != null) {
+                snapshot.apps.put(dictionary.nameOf(id), new int[] { usage.today, usage.week, usage.month });
+            }
+        }
+        return snapshot;
+    }
+
+    private AppUsage appUsage(int packageId) {
+        if (packageId >= apps.length) {
+            apps = Arrays.copyOf(apps, Math.max(packageId + 1, apps.length * 2));
+        }
+        if (apps[packageId] == null) {
+            apps[packageId] = new AppUsage();
+        }
+        return apps[packageId];
+    }
+
+    /**
+     * Moves the ring forward to {@code hour}, clearing recycled slots and
+     * retiring days that leave the today/week/month windows.
+     */
+    private void advanceTo(long hour) {
+        if (currentHour < 0 || hour - currentHour >= HOURS) {
+            if (currentHour >= 0) {
+                reset();
+            }
+            currentHour = hour;
+            return;
+        }
+        if (hour <= currentHour) {
+            // Clock went backwards; keep charging the newest bucket
+            return;
+        }
+
+        long fromDay = currentHour / 24;
+        long toDay = hour / 24;
+
+        clearHours(currentHour + 1, Math.min(hour, fromDay * 24 + 23));
+
+        // Retire leaving days before their slots are reused by the new day
+        for (long day = fromDay + 1; day <= toDay; day++) {
+            retireDay(day - WEEK_DAYS, week);
+            retireDay(day - MONTH_DAYS, month);
+            // The whole day, so its later hours don't show the day they last held
+            clearHours(day * 24, day * 24 + 23);
+
+            int daySlot = (int) (day % DAYS);
+            for (AppUsage usage : apps) {
+                if (usage == null) continue;
+                usage.week -= usage.daily[(int) ((day - WEEK_DAYS) % DAYS)];
+                usage.month -= usage.daily[(int) ((day - MONTH_DAYS) % DAYS)];
+                usage.daily[daySlot] = 0;
+                usage.today = 0;
+            }
+        }
+        if (toDay > fromDay) {
+            for (int kind = 0; kind < KINDS; kind++) {
+                today[kind] = 0;
+            }
+        }
+
+        currentHour = hour;
+    }
+
+    private void clearHours(long fromHour, long toHour) {
+        for (long h = fromHour; h <= toHour; h++) {
+            int slot = (int) (h % HOURS);
+            for (int kind = 0; kind < KINDS; kind++) {
+                hourly[kind][slot] = 0;
+            }
+        }
+    }
+
+    private void retireDay(long day, int[] window) {
+        // Slots of days before the first record are still zero, so they subtract nothing
+        long firstHour = day * 24;
+        for (int kind = 0; kind < KINDS; kind++) {
+            int total = 0;
+            for (int h = 0; h < 24; h++) {
+                total += hourly[kind][(int) ((firstHour + h) % HOURS)];
+            }
+            window[kind] -= total;
+        }
+    }
+
+    private void reset() {
+        for (int kind = 0; kind < KINDS; kind++) {
+            Arrays.fill(hourly[kind], 0);
+            today[kind] = 0;
+            week[kind] = 0;
+            month[kind] = 0;
+        }
+        apps = new AppUsage[0];
+        dirty = true;
+    }
+
+    private static long localHour(long millis) {
+        return (millis + TimeZone.getDefault().getOffset(millis)) / HOUR_MS;
+    }
+
+    public synchronized void saveIfDirty() {
+        if (dirty && System.currentTimeMillis() - lastSaveTime >= SAVE_INTERVAL_MS) {
+            save();
+        }
+    }
+
+    private synchronized void discard() {
+        discarded = true;
+        dirty = false;
+    }
+
+    public synchronized void save() {
+        if (!dirty || discarded) return;
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(temp))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(currentHour);
+            for (int kind = 0; kind < KINDS; kind++) {
+                out.writeInt(today[kind]);
+                out.writeInt(week[kind]);
+                out.writeInt(month[kind]);
+                for (int value : hourly[kind]) {
+                    out.writeInt(value);
+                }
+            }
+            int appCount = 0;
+            for (AppUsage usage : apps) {
+                if (usage != null) appCount++;
+            }
+            // Names rather than ids, so the file survives a lost dictionary
+            out.writeInt(appCount);
+            for (int id = 0; id < apps.length; id++) {
+                AppUsage usage = apps[id];
+                if (usage == null) continue;
+                out.writeUTF(dictionary.nameOf(id));
+                out.writeInt(usage.today);
+                out.writeInt(usage.week);
+                out.writeInt(usage.month);
+                for (int value : usage.daily) {
+                    out.writeInt(value);
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error saving usage aggregates", e);
+            return;
+        }
+
+        if (temp.renameTo(file)) {
+            dirty = false;
+            lastSaveTime = System.currentTimeMillis();
+        } else {
+            Log.e(TAG, "Could not replace " + file);
+        }
+    }
+
+    synchronized void load() {
+        if (!file.exists()) return;
+
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                Log.w(TAG, "Ignoring usage aggregates with unknown format");
+                return;
+            }
+            currentHour = in.readLong();
+            for (int kind = 0; kind < KINDS; kind++) {
+                today[kind] = in.readInt();
+                week[kind] = in.readInt();
+                month[kind] = in.readInt();
+                for (int i = 0; i < HOURS; i++) {
+                    hourly[kind][i] = in.readInt();
+                }
+            }
+            int appCount = in.readInt();
+            for (int i = 0; i < appCount; i++) {
+                AppUsage usage = appUsage(dictionary.idOf(in.readUTF()));
+                usage.today = in.readInt();
+                usage.week = in.readInt();
+                usage.month = in.readInt();
+                for (int d = 0; d < DAYS; d++) {
+                    usage.daily[d] = in.readInt();
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error loading usage aggregates", e);
+            currentHour = -1;
+            reset();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.brainbites.usage;
+
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * App labels, by {@link PackageDictionary} id for apps already interned and
+ * by name for the rest. Resolving a label loads the app's resources, which is
+ * by far the slowest part of listing apps, so each label is looked up once
+ * per process. Listing apps never interns them; only usage and blocking do.
+ */
+public class AppLabelCache {
+    private final PackageDictionary dictionary;
+    private String[] labels = new String[0];
+    private final Map<String, String> labelsByName = new HashMap<>();
+
+    public AppLabelCache(PackageDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    public synchronized String labelOf(PackageManager pm, ApplicationInfo appInfo) {
+        int id = dictionary.lookup(appInfo.packageName);
+        if (id == PackageDictionary.NO_ID) {
+            String label = labelsByName.get(appInfo.packageName);
+            if (label == null) {
+                label = pm.getApplicationLabel(appInfo).toString();
+                labelsByName.put(appInfo.packageName, label);
+            }
+            return label;
+        }
+
+        if (id >= labels.length) {
+            labels = Arrays.copyOf(labels, Math.max(id + 1, labels.length * 2));
+        }
+        if (labels[id] == null) {
+            // Interned since it was first listed
+            String label = labelsByName.remove(appInfo.packageName);
+            labels[id] = label != null ? label : pm.getApplicationLabel(appInfo).toString();
+        }
+        return labels[id];
+    }
+}
@@ -0,0 +1,118 @@
+package com.brainbites.usage;
+
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import com.brainbites.metrics.LatencyHistogram;
+import com.brainbites.metrics.TimerMetrics;
+
+/**
+ * Single entry point for "this app is now in front" from either enforcement
+ * backend, and the enforcement action itself.
+ *
+ * The accessibility backend reports each activity window change as it is
+ * dispatched, leaving out keyboards, the shade and other overlays;
+ * the polling backend reports what {@code queryUsageStats} shows once a
+ * second and only runs while no accessibility service is connected. Both
+ * feed the same dedup, blocked check and switch-to-action latency metric.
+ * Called on the main thread.
+ */
+public class BlockedAppEnforcer {
+    private static final String TAG = "BrainBitesEnforcer";
+
+    public static final int BACKEND_POLLING = 0;
+    public static final int BACKEND_ACCESSIBILITY = 1;
+
+    public interface Listener {
+        /** {@code switchedAt} is wall time; may be a little in the past. */
+        void onForegroundAppChanged(int packageId, long switchedAt);
+
+        void onBackendChanged(boolean eventDriven);
+    }
+
+    private static BlockedAppEnforcer instance;
+
+    private final Context context;
+    private final PackageDictionary dictionary;
+    private final BlockedAppSet blockedApps;
+
+    private volatile boolean accessibilityConnected = false;
+    private volatile boolean timeExhausted = false;
+    private int foregroundApp = PackageDictionary.NO_ID;
+    private Listener listener;
+
+    public static synchronized BlockedAppEnforcer getInstance(Context context) {
+        if (instance == null) {
+            Context appContext = context.getApplicationContext();
+            instance = new BlockedAppEnforcer(appContext,
+                PackageDictionary.getInstance(appContext), BlockedAppSet.getInstance(appContext));
+        }
+        return instance;
+    }
+
+    BlockedAppEnforcer(Context context, PackageDictionary dictionary, BlockedAppSet blockedApps) {
+        this.context = context;
+        this.dictionary = dictionary;
+        this.blockedApps = blockedApps;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void setTimeExhausted(boolean exhausted) {
+        timeExhausted = exhausted;
+    }
+
+    public boolean isEventDriven() {
+        return accessibilityConnected;
+    }
+
+    public void setAccessibilityConnected(boolean connected) {
+        if (accessibilityConnected == connected) return;
+        accessibilityConnected = connected;
+        Log.d(TAG, connected ? "Accessibility enforcement active" : "Falling back to polling");
+        if (listener != null) {
+            listener.onBackendChanged(connected);
+        }
+    }
+
+    /** A {@code TYPE_WINDOW_STATE_CHANGED} event for an activity window, with its wall-clock time. */
+    public void onWindowStateChanged(String packageName, long eventTime) {
+        // Blocked apps are always interned; anything unknown is not blocked
+        // and not worth a dictionary write
+        int id = dictionary.lookup(packageName);
+        onForegroundApp(id, eventTime, BACKEND_ACCESSIBILITY);
+    }
+
+    public void onForegroundApp(int packageId, long switchedAt, int backend) {
+        if (packageId == foregroundApp) return;
+        foregroundApp = packageId;
+
+        if (listener != null) {
+            listener.onForegroundAppChanged(packageId, switchedAt);
+        }
+        if (timeExhausted && blockedApps.contains(packageId)) {
+            returnToBrainBites();
+            LatencyHistogram latency = backend == BACKEND_ACCESSIBILITY
+                ? TimerMetrics.ENFORCE_ACCESSIBILITY
+                : TimerMetrics.ENFORCE_POLLING;
+            latency.record(Math.max(0, System.currentTimeMillis() - switchedAt) * 1_000_000L);
+        }
+    }
+
+    public int getForegroundApp() {
+        return foregroundApp;
+    }
+
+    /** Brings BrainBites to the front over whatever is showing. */
+    public void returnToBrainBites() {
+        TimerMetrics.ENFORCEMENTS.increment();
+        Intent intent = context.getPackageManager().getLaunchIntentForPackage(context.getPackageName());
+        if (intent != null) {
+            intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+            context.startActivity(intent);
+        }
+    }
+}
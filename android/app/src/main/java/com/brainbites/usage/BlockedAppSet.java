@@ -0,0 +1,101 @@
+package com.brainbites.usage;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The user's blocked apps as a bitmap over {@link PackageDictionary} ids.
+ *
+ * The comma separated list in prefs stays the storage format, but it is only
+ * parsed at startup; membership checks on the polling and enforcement paths
+ * are a single array read. Updates swap in a new array, so readers on other
+ * threads never need a lock.
+ */
+public class BlockedAppSet {
+    private static final String PREFS_NAME = "BrainBitesPrefs";
+    private static final String KEY_BLOCKED_APPS = "blocked_apps";
+
+    private static BlockedAppSet instance;
+
+    private final SharedPreferences prefs;
+    private final PackageDictionary dictionary;
+    private volatile boolean[] blocked = new boolean[0];
+    private volatile int count = 0;
+
+    public static synchronized BlockedAppSet getInstance(Context context) {
+        if (instance == null) {
+            Context appContext = context.getApplicationContext();
+            instance = new BlockedAppSet(
+                appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE),
+                PackageDictionary.getInstance(appContext));
+            instance.load();
+        }
+        return instance;
+    }
+
+    public BlockedAppSet(SharedPreferences prefs, PackageDictionary dictionary) {
+        this.prefs = prefs;
+        this.dictionary = dictionary;
+    }
+
+    public boolean contains(int packageId) {
+        boolean[] current = blocked;
+        return packageId >= 0 && packageId < current.length && current[packageId];
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /** Snapshot of the membership bitmap, indexed by package id. */
+    public boolean[] asMask() {
+        return blocked;
+    }
+
+    public synchronized void setBlockedApps(Collection<String> packageNames) {
+        StringBuilder sb = new StringBuilder();
+        for (String packageName : packageNames) {
+            if (sb.length() > 0) sb.append(",");
+            sb.append(packageName);
+        }
+        prefs.edit().putString(KEY_BLOCKED_APPS, sb.toString()).apply();
+        rebuild(packageNames);
+    }
+
+    private void load() {
+        String blockedApps = prefs.getString(KEY_BLOCKED_APPS, "");
+        if (blockedApps.isEmpty()) return;
+
+        List<String> packageNames = new ArrayList<>();
+        for (String app : blockedApps.split(",")) {
+            packageNames.add(app);
+        }
+        rebuild(packageNames);
+    }
+
+    private void rebuild(Collection<String> packageNames) {
+        int[] ids = new int[packageNames.size()];
+        int maxId = -1;
+        int i = 0;
+        for (String packageName : packageNames) {
+            ids[i] = dictionary.idOf(packageName);
+            maxId = Math.max(maxId, ids[i]);
+            i++;
+        }
+
+        boolean[] next = new boolean[maxId + 1];
+        int nextCount = 0;
+        for (int id : ids) {
+            if (id >= 0 && !next[id]) {
+                next[id] = true;
+                nextCount++;
+            }
+        }
+        blocked = next;
+        count = nextCount;
+    }
+}
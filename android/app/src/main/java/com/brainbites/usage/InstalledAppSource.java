@@ -0,0 +1,68 @@
+package com.brainbites.usage;
+
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+
+import com.brainbites.cursor.ColumnPage;
+import com.brainbites.cursor.RowSource;
+
+import java.util.List;
+
+/**
+ * User-installed apps as {packageName, appName} rows. The package list itself
+ * is cheap; labels are resolved only for the rows of the page being read.
+ */
+public class InstalledAppSource implements RowSource {
+    private static final String[] COLUMNS = {"packageName", "appName"};
+    private static final int[] TYPES = {ColumnPage.TYPE_STRING, ColumnPage.TYPE_STRING};
+    private static final int COLUMN_PACKAGE = 0;
+    private static final int COLUMN_NAME = 1;
+
+    private final PackageManager pm;
+    private final AppLabelCache labels;
+    private List<ApplicationInfo> packages;
+    private int position = 0;
+
+    public InstalledAppSource(PackageManager pm, AppLabelCache labels) {
+        this.pm = pm;
+        this.labels = labels;
+        // No flags: GET_META_DATA would parse every app's metadata bundle for nothing
+        this.packages = pm.getInstalledApplications(0);
+        skipSystemApps();
+    }
+
+    @Override
+    public String[] columnNames() {
+        return COLUMNS.clone();
+    }
+
+    @Override
+    public int[] columnTypes() {
+        return TYPES.clone();
+    }
+
+    @Override
+    public boolean fill(ColumnPage page) {
+        while (packages != null && position < packages.size() && !page.isFull()) {
+            ApplicationInfo appInfo = packages.get(position++);
+            int row = page.addRow();
+            page.setString(COLUMN_PACKAGE, row, appInfo.packageName);
+            page.setString(COLUMN_NAME, row, labels.labelOf(pm, appInfo));
+            skipSystemApps();
+        }
+        return packages != null && position < packages.size();
+    }
+
+    // Leaves position on the next user app so fill() can report the end exactly
+    private void skipSystemApps() {
+        while (position < packages.size()
+                && (packages.get(position).flags & ApplicationInfo.FLAG_SYSTEM) != 0) {
+            position++;
+        }
+    }
+
+    @Override
+    public void close() {
+        packages = null;
+    }
+}
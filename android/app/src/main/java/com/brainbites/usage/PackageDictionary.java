@@ -0,0 +1,129 @@
+package com.brainbites.usage;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Process-wide mapping from package names to dense int ids.
+ *
+ * Ids are assigned in first-seen order and never reused, and the mapping is
+ * persisted as one name per line, so per-app structures elsewhere can be
+ * plain arrays indexed by id and stay valid across restarts.
+ */
+public class PackageDictionary {
+    private static final String TAG = "BrainBitesPackages";
+    private static final String FILE_NAME = "package_dictionary.txt";
+    private static final String TIMER_PROCESS_FILE_NAME = "package_dictionary_timer.txt";
+
+    public static final int NO_ID = -1;
+
+    private static PackageDictionary instance;
+    private static String fileName = FILE_NAME;
+
+    private final File file;
+    private final Map<String, Integer> ids = new HashMap<>();
+    private String[] names = new String[64];
+    private int size = 0;
+
+    // Foreground polling sees the same String instance tick after tick
+    private String lastName;
+    private int lastId = NO_ID;
+
+    public static synchronized PackageDictionary getInstance(Context context) {
+        if (instance == null) {
+            instance = new PackageDictionary(new File(context.getFilesDir(), fileName));
+            instance.load();
+        }
+        return instance;
+    }
+
+    /**
+     * Ids only hold within one process, and two processes appending to the
+     * same file would disagree on them, so the timer process keeps its own.
+     * Must be called before the first {@link #getInstance}.
+     */
+    public static synchronized void useTimerProcessFile() {
+        fileName = TIMER_PROCESS_FILE_NAME;
+    }
+
+    public PackageDictionary(File file) {
+        this.file = file;
+    }
+
+    /** Returns the id for {@code packageName}, assigning and persisting a new one if needed. */
+    public synchronized int idOf(String packageName) {
+        if (packageName == null) return NO_ID;
+        if (packageName == lastName) return lastId;
+
+        Integer id = ids.get(packageName);
+        if (id == null) {
+            id = add(packageName);
+            persist(packageName);
+        }
+        lastName = packageName;
+        lastId = id;
+        return id;
+    }
+
+    /** Returns the id for {@code packageName}, or {@link #NO_ID} without assigning one. */
+    public synchronized int lookup(String packageName) {
+        if (packageName == null) return NO_ID;
+        if (packageName == lastName) return lastId;
+
+        Integer id = ids.get(packageName);
+        return id != null ? id : NO_ID;
+    }
+
+    public synchronized String nameOf(int id) {
+        return id >= 0 && id < size ? names[id] : null;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private int add(String packageName) {
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+        }
+        names[size] = packageName;
+        ids.put(packageName, size);
+        return size++;
+    }
+
+    private void persist(String packageName) {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8)) {
+            writer.write(packageName);
+            writer.write('\n');
+        } catch (IOException e) {
+            Log.e(TAG, "Error saving package dictionary", e);
+        }
+    }
+
+    synchronized void load() {
+        if (!file.exists()) return;
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                add(line);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error loading package dictionary", e);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.brainbites.usage;
+
+import android.app.usage.UsageEvents;
+import android.app.usage.UsageStatsManager;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams {@link UsageStatsManager#queryEvents} into a {@link UsageHistoryStore}
+ * in fixed windows starting from the store's high-water mark. Each window is
+ * committed as one chunk, so an interrupted import resumes where it stopped
+ * and a single run never holds more than one window of events in memory.
+ */
+public class UsageHistoryImporter {
+    private static final String TAG = "BrainBitesUsageHistory";
+
+    private static final long WINDOW_MS = TimeUnit.HOURS.toMillis(6);
+    private static final int MAX_WINDOWS_PER_RUN = 28;
+    private static final long INITIAL_LOOKBACK_MS = TimeUnit.DAYS.toMillis(90);
+    // An app "open" longer than this missed its background event; drop it
+    private static final long MAX_OPEN_MS = TimeUnit.HOURS.toMillis(12);
+
+    public interface Callback {
+        void onComplete(int imported, boolean caughtUp);
+
+        void onError(Exception e);
+    }
+
+    private final UsageStatsManager usageStatsManager;
+    private final UsageHistoryStore store;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "BrainBitesUsageImport");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    public UsageHistoryImporter(UsageStatsManager usageStatsManager, UsageHistoryStore store) {
+        this.usageStatsManager = usageStatsManager;
+        this.store = store;
+    }
+
+    public UsageHistoryStore getStore() {
+        return store;
+    }
+
+    /**
+     * Runs one bounded import on the background thread. Callers that need the
+     * full backlog can call again while {@code caughtUp} is false.
+     */
+    public void importAsync(final Callback callback) {
+        executor.execute(() -> {
+            try {
+                long now = System.currentTimeMillis();
+                int imported = runImport(now);
+                callback.onComplete(imported, store.getHighWaterMark() >= now);
+            } catch (Exception e) {
+                Log.e(TAG, "Usage history import failed", e);
+                callback.onError(e);
+            }
+        });
+    }
+
+    /** Runs {@code task} on the import thread, after any pending import. */
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    int runImport(long now) throws IOException {
+        long from = store.getHighWaterMark();
+        if (from <= 0) {
+            from = now - INITIAL_LOOKBACK_MS;
+        }
+
+        PackageDictionary dictionary = store.getDictionary();
+        long[] open = store.getOpenIntervals();
+        UsageEvents.Event event = new UsageEvents.Event();
+        int imported = 0;
+        int windows = 0;
+
+        while (from < now && windows < MAX_WINDOWS_PER_RUN) {
+            long to = Math.min(from + WINDOW_MS, now);
+            UsageEvents events = usageStatsManager.queryEvents(from, to);
+
+            while (events != null && events.hasNextEvent()) {
+                events.getNextEvent(event);
+                long time = event.getTimeStamp();
+
+                switch (event.getEventType()) {
+                    case UsageEvents.Event.MOVE_TO_FOREGROUND: {
+                        int id = dictionary.idOf(event.getPackageName());
+                        if (id >= open.length) {
+                            open = Arrays.copyOf(open, Math.max(id + 1, open.length * 2));
+                        }
+                        if (open[id] == 0) {
+                            open[id] = time;
+                        }
+                        break;
+                    }
+
+                    case UsageEvents.Event.MOVE_TO_BACKGROUND: {
+                        int id = dictionary.lookup(event.getPackageName());
+                        if (id >= 0 && id < open.length && open[id] > 0) {
+                            if (time > open[id]) {
+                                store.append(id, open[id], time - open[id]);
+                                imported++;
+                            }
+                            open[id] = 0;
+                        }
+                        break;
+                    }
+
+                    case UsageEvents.Event.SCREEN_NON_INTERACTIVE:
+                    case UsageEvents.Event.DEVICE_SHUTDOWN:
+                        imported += closeAll(open, time);
+                        break;
+                }
+            }
+
+            for (int id = 0; id < open.length; id++) {
+                if (open[id] > 0 && to - open[id] > MAX_OPEN_MS) {
+                    open[id] = 0;
+                }
+            }
+
+            store.commit(to, open);
+            from = to;
+            windows++;
+        }
+
+        if (imported > 0) {
+            Log.d(TAG, "Imported " + imported + " intervals over " + windows + " windows");
+        }
+        return imported;
+    }
+
+    private int closeAll(long[] open, long time) {
+        int closed = 0;
+        for (int id = 0; id < open.length; id++) {
+            if (open[id] > 0) {
+                if (time > open[id]) {
+                    store.append(id, open[id], time - open[id]);
+                    closed++;
+                }
+                open[id] = 0;
+            }
+        }
+        return closed;
+    }
+}
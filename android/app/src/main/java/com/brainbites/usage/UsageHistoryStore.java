@@ -0,0 +1,350 @@
+package com.brainbites.usage;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Local columnar store of per-app foreground intervals.
+ *
+ * The file is a sequence of length-prefixed chunks, one per import window.
+ * Each chunk carries the (id, name) pairs for packages it references for the
+ * first time, the import high-water mark and still-open intervals, then three
+ * varint columns: package id, zigzag start delta and duration, all in seconds.
+ * Ids are {@link PackageDictionary} ids; names are kept in the file so it can
+ * be remapped if the dictionary is ever lost. A torn trailing chunk is cut off
+ * on load, which rolls the importer back to the previous window.
+ */
+public class UsageHistoryStore {
+    private static final String TAG = "BrainBitesUsageHistory";
+    private static final String FILE_NAME = "usage_history.bin";
+    private static final int MAGIC = 0x42425548;
+    private static final int FORMAT_VERSION = 2;
+
+    private static final long DAY_SECONDS = 86400L;
+
+    private static UsageHistoryStore instance;
+
+    private final File file;
+    private final PackageDictionary dictionary;
+    // Dictionary ids whose names have already been written to this file
+    private boolean[] namedInFile = new boolean[64];
+
+    // Columns; starts are seconds since the Unix epoch
+    private int size = 0;
+    private int[] packageColumn = new int[1024];
+    private long[] startColumn = new long[1024];
+    private int[] durationColumn = new int[1024];
+    private int persistedSize = 0;
+
+    private long highWaterMark = 0;
+    // Foreground start in millis by package id, 0 when not open
+    private long[] openSince = new long[0];
+
+    public static synchronized UsageHistoryStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new UsageHistoryStore(new File(context.getFilesDir(), FILE_NAME),
+                PackageDictionary.getInstance(context));
+            instance.load();
+        }
+        return instance;
+    }
+
+    UsageHistoryStore(File file, PackageDictionary dictionary) {
+        this.file = file;
+        this.dictionary = dictionary;
+    }
+
+    public PackageDictionary getDictionary() {
+        return dictionary;
+    }
+
+    public synchronized long getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    /** Copy of the still-open intervals, indexed by package id. */
+    public synchronized long[] getOpenIntervals() {
+        return openSince.clone();
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized void append(int packageId, long startMillis, long durationMillis) {
+        int duration = (int) (durationMillis / 1000);
+        if (packageId < 0 || duration <= 0) return;
+
+        if (size == packageColumn.length) {
+            int capacity = size * 2;
+            packageColumn = Arrays.copyOf(packageColumn, capacity);
+            startColumn = Arrays.copyOf(startColumn, capacity);
+            durationColumn = Arrays.copyOf(durationColumn, capacity);
+        }
+        packageColumn[size] = packageId;
+        startColumn[size] = startMillis / 1000;
+        durationColumn[size] = duration;
+        size++;
+    }
+
+    /**
+     * Persists everything appended since the last commit together with the
+     * importer position, as one chunk.
+     */
+    public synchronized void commit(long newHighWaterMark, long[] stillOpen) throws IOException {
+        int openCount = 0;
+        List<Integer> newNames = new ArrayList<>();
+        for (int id = 0; id < stillOpen.length; id++) {
+            if (stillOpen[id] > 0) {
+                openCount++;
+                collectNewName(id, newNames);
+            }
+        }
+        for (int i = persistedSize; i < size; i++) {
+            collectNewName(packageColumn[i], newNames);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + (size - persistedSize) * 8);
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeLong(newHighWaterMark);
+        out.writeInt(newNames.size());
+        for (int id : newNames) {
+            writeVarint(out, id);
+            out.writeUTF(dictionary.nameOf(id));
+        }
+        out.writeInt(openCount);
+        for (int id = 0; id < stillOpen.length; id++) {
+            if (stillOpen[id] > 0) {
+                writeVarint(out, id);
+                out.writeLong(stillOpen[id]);
+            }
+        }
+
+        out.writeInt(size - persistedSize);
+        for (int i = persistedSize; i < size; i++) {
+            writeVarint(out, packageColumn[i]);
+        }
+        long previousStart = persistedSize > 0 ? startColumn[persistedSize - 1] : 0;
+        for (int i = persistedSize; i < size; i++) {
+            writeVarint(out, zigzag(startColumn[i] - previousStart));
+            previousStart = startColumn[i];
+        }
+        for (int i = persistedSize; i < size; i++) {
+            writeVarint(out, durationColumn[i]);
+        }
+        out.flush();
+
+        boolean isNew = !file.exists() || file.length() == 0;
+        try (FileOutputStream fileOut = new FileOutputStream(file, true);
+             DataOutputStream fileData = new DataOutputStream(fileOut)) {
+            if (isNew) {
+                fileData.writeInt(MAGIC);
+                fileData.writeInt(FORMAT_VERSION);
+            }
+            fileData.writeInt(bytes.size());
+            bytes.writeTo(fileData);
+            fileData.flush();
+            fileOut.getFD().sync();
+        }
+
+        for (int id : newNames) {
+            markNamed(id);
+        }
+        persistedSize = size;
+        highWaterMark = newHighWaterMark;
+        openSince = stillOpen.clone();
+    }
+
+    /**
+     * Foreground seconds per local day for the packages set in
+     * {@code packageMask}, oldest first, with the last element being today.
+     */
+    public synchronized int[] secondsPerDay(boolean[] packageMask, int days, long nowMillis) {
+        int[] result = new int[days];
+        if (days <= 0) return result;
+
+        TimeZone timeZone = TimeZone.getDefault();
+        long offset = timeZone.getOffset(nowMillis) / 1000;
+        long today = (nowMillis / 1000 + offset) / DAY_SECONDS;
+        long firstDay = today - days + 1;
+
+        for (int i = 0; i < size; i++) {
+            int id = packageColumn[i];
+            if (id >= packageMask.length || !packageMask[id]) continue;
+
+            long start = startColumn[i] + offset;
+            long end = start + durationColumn[i];
+            long startDay = start / DAY_SECONDS;
+            long endDay = (end - 1) / DAY_SECONDS;
+            if (endDay < firstDay || startDay > today) continue;
+
+            // Split intervals that cross local midnight
+            for (long day = Math.max(startDay, firstDay); day <= Math.min(endDay, today); day++) {
+                long dayStart = day * DAY_SECONDS;
+                long overlap = Math.min(end, dayStart + DAY_SECONDS) - Math.max(start, dayStart);
+                result[(int) (day - firstDay)] += (int) overlap;
+            }
+        }
+        return result;
+    }
+
+    private void collectNewName(int id, List<Integer> newNames) {
+        if (id < namedInFile.length && namedInFile[id]) return;
+        if (!newNames.contains(id)) {
+            newNames.add(id);
+        }
+    }
+
+    private void markNamed(int id) {
+        if (id >= namedInFile.length) {
+            namedInFile = Arrays.copyOf(namedInFile, Math.max(id + 1, namedInFile.length * 2));
+        }
+        namedInFile[id] = true;
+    }
+
+    synchronized void load() {
+        if (!file.exists()) return;
+
+        byte[] data;
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            data = new byte[(int) in.length()];
+            in.readFully(data);
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading usage history", e);
+            return;
+        }
+
+        int validLength = 0;
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                Log.w(TAG, "Discarding usage history with unknown format");
+                truncate(0);
+                return;
+            }
+            validLength = 8;
+
+            int[] remap = new int[0];
+            while (validLength + 4 <= data.length) {
+                int length = in.readInt();
+                if (length < 0 || validLength + 4 + length > data.length) break;
+                remap = readChunk(new DataInputStream(new ByteArrayInputStream(data, validLength + 4, length)), remap);
+                in.skipBytes(length);
+                validLength += 4 + length;
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Usage history chunk is corrupt, keeping " + validLength + " bytes", e);
+        }
+
+        if (validLength < data.length) {
+            truncate(validLength);
+        }
+        Log.d(TAG, "Loaded " + size + " usage intervals");
+    }
+
+    /** Decodes one chunk, mapping file ids to current dictionary ids through {@code remap}. */
+    private int[] readChunk(DataInputStream in, int[] remap) throws IOException {
+        long chunkHighWaterMark = in.readLong();
+
+        int newPackages = in.readInt();
+        int[] fileIds = new int[newPackages];
+        String[] names = new String[newPackages];
+        for (int i = 0; i < newPackages; i++) {
+            fileIds[i] = (int) readVarint(in);
+            names[i] = in.readUTF();
+        }
+
+        int openCount = in.readInt();
+        int[] openIds = new int[openCount];
+        long[] openStarts = new long[openCount];
+        for (int i = 0; i < openCount; i++) {
+            openIds[i] = (int) readVarint(in);
+            openStarts[i] = in.readLong();
+        }
+
+        int count = in.readInt();
+        int[] ids = new int[count];
+        long[] starts = new long[count];
+        int[] durations = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = (int) readVarint(in);
+        }
+        long previousStart = size > 0 ? startColumn[size - 1] : 0;
+        for (int i = 0; i < count; i++) {
+            previousStart += unzigzag(readVarint(in));
+            starts[i] = previousStart;
+        }
+        for (int i = 0; i < count; i++) {
+            durations[i] = (int) readVarint(in);
+        }
+
+        // Only apply once the whole chunk decoded
+        for (int i = 0; i < newPackages; i++) {
+            if (fileIds[i] >= remap.length) {
+                remap = Arrays.copyOf(remap, Math.max(fileIds[i] + 1, remap.length * 2));
+            }
+            remap[fileIds[i]] = dictionary.idOf(names[i]);
+            markNamed(remap[fileIds[i]]);
+        }
+        for (int i = 0; i < count; i++) {
+            append(remap[ids[i]], starts[i] * 1000, durations[i] * 1000L);
+        }
+        openSince = new long[dictionary.size()];
+        for (int i = 0; i < openCount; i++) {
+            openSince[remap[openIds[i]]] = openStarts[i];
+        }
+        highWaterMark = chunkHighWaterMark;
+        persistedSize = size;
+        return remap;
+    }
+
+    private void truncate(long length) {
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(length);
+        } catch (IOException e) {
+            Log.e(TAG, "Error truncating usage history", e);
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarint(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarint(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) throw new EOFException();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,128 @@
+package com.brainbites.leaderboard;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class RankTreeTest {
+
+    @Test
+    public void tiedScoresShareACompetitionRank() {
+        RankTree tree = new RankTree();
+        tree.put("dana", 50);
+        tree.put("ben", 90);
+        tree.put("cara", 90);
+        tree.put("al", 100);
+
+        assertEquals(1, tree.rankOf("al"));
+        assertEquals(2, tree.rankOf("ben"));
+        assertEquals(2, tree.rankOf("cara"));
+        assertEquals(4, tree.rankOf("dana"));
+        assertEquals(RankTree.NOT_FOUND, tree.rankOf("eve"));
+
+        // Ties keep distinct positions, lower id first
+        assertEquals(1, tree.positionOf("ben"));
+        assertEquals(2, tree.positionOf("cara"));
+        assertEquals("cara", tree.idAt(2));
+
+        assertEquals(1, tree.rankOfScore(120));
+        assertEquals(2, tree.rankOfScore(90));
+        assertEquals(4, tree.rankOfScore(70));
+        assertEquals(5, tree.rankOfScore(0));
+    }
+
+    @Test
+    public void removeAndPutAgain() {
+        RankTree tree = new RankTree();
+        tree.put("a", 30);
+        tree.put("b", 20);
+        tree.put("c", 10);
+
+        assertTrue(tree.remove("b"));
+        assertFalse(tree.remove("b"));
+        assertFalse(tree.contains("b"));
+        assertEquals(2, tree.size());
+        assertEquals(2, tree.rankOf("c"));
+        assertEquals(-1, tree.scoreOf("b", -1));
+
+        // Back on the board in a different place, reusing the freed node
+        assertTrue(tree.put("b", 40));
+        assertEquals(3, tree.size());
+        assertEquals(1, tree.rankOf("b"));
+        assertEquals(0, tree.positionOf("b"));
+        assertEquals(3, tree.rankOf("c"));
+
+        assertFalse(tree.put("b", 40));
+        assertTrue(tree.put("b", 5));
+        assertEquals(3, tree.rankOf("b"));
+        assertEquals("b", tree.idAt(2));
+        assertNull(tree.idAt(3));
+    }
+
+    @Test
+    public void growsPastItsInitialCapacity() {
+        RankTree tree = new RankTree(4);
+        Map<String, Integer> scores = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            String id = "player" + i;
+            int score = random.nextInt(200);
+            tree.put(id, score);
+            scores.put(id, score);
+        }
+        // Churn that frees and reuses nodes and moves players around
+        for (int i = 0; i < 2000; i++) {
+            String id = "player" + random.nextInt(1200);
+            if (random.nextInt(4) == 0) {
+                tree.remove(id);
+                scores.remove(id);
+            } else {
+                int score = random.nextInt(200);
+                tree.put(id, score);
+                scores.put(id, score);
+            }
+        }
+
+        List<Map.Entry<String, Integer>> expected = new ArrayList<>(scores.entrySet());
+        expected.sort((a, b) -> a.getValue().equals(b.getValue())
+                ? a.getKey().compareTo(b.getKey())
+                : Integer.compare(b.getValue(), a.getValue()));
+
+        assertEquals(expected.size(), tree.size());
+        int rank = 1;
+        for (int position = 0; position < expected.size(); position++) {
+            Map.Entry<String, Integer> entry = expected.get(position);
+            if (position > 0 && !entry.getValue().equals(expected.get(position - 1).getValue())) {
+                rank = position + 1;
+            }
+            assertEquals(entry.getKey(), tree.idAt(position));
+            assertEquals((int) entry.getValue(), tree.scoreAt(position));
+            assertEquals(position, tree.positionOf(entry.getKey()));
+            assertEquals(rank, tree.rankOf(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void clearEmptiesTheBoard() {
+        RankTree tree = new RankTree(4);
+        for (int i = 0; i < 40; i++) {
+            tree.put("p" + i, i);
+        }
+        tree.clear();
+        assertEquals(0, tree.size());
+        assertFalse(tree.contains("p1"));
+
+        tree.put("p1", 7);
+        assertEquals(1, tree.rankOf("p1"));
+        assertEquals(1, tree.size());
+    }
+}
@@ -0,0 +1,178 @@
+package com.brainbites.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Recovery of the write log: damage is made to a copy of a log written by
+ * one store and read back by a fresh one, as after a crash.
+ */
+public class KeyValueStoreTest {
+    private static final int BATCH_HEADER_SIZE = 8;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void reopensEveryType() throws IOException {
+        File file = folder.newFile("state.kv");
+        KeyValueStore store = open(file);
+        store.put("score.total", 1250);
+        store.put("score.name", "Brainy \u00e9\u6f22");
+        store.put("flags.sound", true);
+        store.put("score.total", 1300);
+        store.put("flags.sound", null);
+        store.force();
+
+        KeyValueStore reopened = open(copyOf(file));
+        assertEquals(1300.0, reopened.get("score.total"));
+        assertEquals("Brainy \u00e9\u6f22", reopened.get("score.name"));
+        assertNull(reopened.get("flags.sound"));
+        assertEquals(2, reopened.size());
+        assertEquals(store.getLogBytes(), reopened.getLogBytes());
+    }
+
+    @Test
+    public void dropsBatchTruncatedMidWrite() throws IOException {
+        File file = folder.newFile("state.kv");
+        KeyValueStore store = open(file);
+        store.put("a", "kept");
+        int lastBatch = store.getLogBytes();
+        store.put("b", "a value long enough to be cut in half");
+        int end = store.getLogBytes();
+        store.force();
+
+        // The file ends inside the last batch's payload
+        File damaged = copyOf(file);
+        try (RandomAccessFile out = new RandomAccessFile(damaged, "rw")) {
+            out.setLength(end - 5);
+        }
+
+        KeyValueStore reopened = open(damaged);
+        assertEquals("kept", reopened.get("a"));
+        assertNull(reopened.get("b"));
+        assertEquals(lastBatch, reopened.getLogBytes());
+
+        // Appends go where the torn batch was and survive the next start
+        reopened.put("c", 3);
+        reopened.force();
+        KeyValueStore again = open(copyOf(damaged));
+        assertEquals("kept", again.get("a"));
+        assertNull(again.get("b"));
+        assertEquals(3.0, again.get("c"));
+    }
+
+    @Test
+    public void dropsBatchWithBadChecksumAndEverythingAfter() throws IOException {
+        File file = folder.newFile("state.kv");
+        KeyValueStore store = open(file);
+        store.put("a", 1);
+        int badBatch = store.getLogBytes();
+        store.put("b", 2);
+        store.put("c", 3);
+        store.force();
+
+        File damaged = copyOf(file);
+        try (RandomAccessFile out = new RandomAccessFile(damaged, "rw")) {
+            int offset = badBatch + BATCH_HEADER_SIZE + 4;
+            out.seek(offset);
+            int original = out.read();
+            out.seek(offset);
+            out.write(original ^ 0x20);
+        }
+
+        KeyValueStore reopened = open(damaged);
+        assertEquals(1.0, reopened.get("a"));
+        assertNull(reopened.get("b"));
+        assertNull(reopened.get("c"));
+        assertEquals(badBatch, reopened.getLogBytes());
+    }
+
+    @Test
+    public void startsOverOnUnknownHeader() throws IOException {
+        File file = folder.newFile("state.kv");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write("not a game state log".getBytes("UTF-8"));
+        }
+
+        KeyValueStore store = open(file);
+        assertEquals(0, store.size());
+        store.put("a", 1);
+        store.force();
+        assertEquals(1.0, open(copyOf(file)).get("a"));
+    }
+
+    @Test
+    public void compactsToLiveEntriesAndReopens() throws IOException {
+        File file = folder.newFile("state.kv");
+        KeyValueStore store = open(file);
+        for (int i = 0; i < 500; i++) {
+            Map<String, Object> batch = new HashMap<>();
+            batch.put("counter", i);
+            batch.put("key" + (i % 10), "value " + i);
+            store.putAll(batch);
+        }
+        store.removeByPrefix("key9");
+        int before = store.getLogBytes();
+
+        store.compact();
+        assertEquals(1, store.getCompactions());
+        assertTrue(store.getLogBytes() < before / 10);
+        // One batch of the live entries and nothing else
+        assertEquals(8 + BATCH_HEADER_SIZE + 4 + store.getLiveBytes(), store.getLogBytes());
+
+        // Writes after the swap land in the new file
+        store.put("after", true);
+        store.force();
+
+        KeyValueStore reopened = open(copyOf(file));
+        assertEquals(11, reopened.size());
+        assertEquals(499.0, reopened.get("counter"));
+        assertEquals("value 498", reopened.get("key8"));
+        assertNull(reopened.get("key9"));
+        assertEquals(true, reopened.get("after"));
+        assertEquals(store.getLiveBytes(), reopened.getLiveBytes());
+    }
+
+    @Test
+    public void skipsWritesThatChangeNothing() throws IOException {
+        KeyValueStore store = open(folder.newFile("state.kv"));
+        store.put("a", 1);
+        int bytes = store.getLogBytes();
+        store.put("a", 1.0);
+        store.put("missing", null);
+        assertEquals(bytes, store.getLogBytes());
+    }
+
+    private static KeyValueStore open(File file) {
+        KeyValueStore store = new KeyValueStore(file);
+        store.load();
+        return store;
+    }
+
+    private File copyOf(File file) throws IOException {
+        byte[] bytes;
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            bytes = new byte[(int) in.length()];
+            in.readFully(bytes);
+        }
+        File copy = folder.newFile();
+        try (FileOutputStream out = new FileOutputStream(copy)) {
+            out.write(Arrays.copyOf(bytes, bytes.length));
+        }
+        return copy;
+    }
+}
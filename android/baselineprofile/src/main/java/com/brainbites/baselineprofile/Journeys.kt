@@ -0,0 +1,33 @@
+package com.brainbites.baselineprofile
+
+import androidx.benchmark.macro.MacrobenchmarkScope
+import androidx.test.uiautomator.By
+import androidx.test.uiautomator.Until
+
+const val TARGET_PACKAGE = "com.brainbites"
+
+private const val UI_TIMEOUT_MS = 10_000L
+
+/**
+ * User journeys shared by the profile generator and the benchmarks. Screens
+ * are found through React Native testIDs, which surface as resource ids.
+ */
+internal fun MacrobenchmarkScope.waitForHome() {
+    // First launch shows onboarding; skip it once and Home is the entry point after
+    device.wait(Until.findObject(By.res("welcome-skip")), 3_000L)?.click()
+    check(device.wait(Until.hasObject(By.res("home-difficulty-Easy")), UI_TIMEOUT_MS)) {
+        "Home screen did not render"
+    }
+}
+
+/** Opens a quiz from Home and answers one question. */
+internal fun MacrobenchmarkScope.answerQuestion() {
+    device.findObject(By.res("home-difficulty-Easy")).click()
+    val answer = device.wait(Until.findObject(By.res("quiz-answer-A")), UI_TIMEOUT_MS)
+        ?: error("Quiz did not render")
+    answer.click()
+    // Feedback, score, time reward and goal updates all run off this tap
+    device.waitForIdle()
+    device.pressBack()
+    device.waitForIdle()
+}
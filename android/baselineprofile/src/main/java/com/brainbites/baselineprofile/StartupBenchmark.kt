@@ -0,0 +1,66 @@
+package com.brainbites.baselineprofile
+
+import androidx.benchmark.macro.BaselineProfileMode
+import androidx.benchmark.macro.CompilationMode
+import androidx.benchmark.macro.FrameTimingMetric
+import androidx.benchmark.macro.StartupMode
+import androidx.benchmark.macro.StartupTimingMetric
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Cold start to time-to-initial-display, and the quiz answer path, with and
+ * without the Baseline Profile, so each run shows what the profile buys.
+ * Results are written to build/outputs/connected_android_test_additional_output.
+ */
+@RunWith(AndroidJUnit4::class)
+@LargeTest
+class StartupBenchmark {
+    @get:Rule
+    val rule = MacrobenchmarkRule()
+
+    @Test
+    fun startupNoCompilation() = startup(CompilationMode.None())
+
+    @Test
+    fun startupBaselineProfile() =
+        startup(CompilationMode.Partial(BaselineProfileMode.Require))
+
+    @Test
+    fun answerNoCompilation() = answer(CompilationMode.None())
+
+    @Test
+    fun answerBaselineProfile() =
+        answer(CompilationMode.Partial(BaselineProfileMode.Require))
+
+    private fun startup(compilationMode: CompilationMode) = rule.measureRepeated(
+        packageName = TARGET_PACKAGE,
+        metrics = listOf(StartupTimingMetric()),
+        compilationMode = compilationMode,
+        startupMode = StartupMode.COLD,
+        iterations = 10,
+        setupBlock = { pressHome() },
+    ) {
+        startActivityAndWait()
+        waitForHome()
+    }
+
+    private fun answer(compilationMode: CompilationMode) = rule.measureRepeated(
+        packageName = TARGET_PACKAGE,
+        metrics = listOf(FrameTimingMetric()),
+        compilationMode = compilationMode,
+        startupMode = StartupMode.WARM,
+        iterations = 5,
+        setupBlock = {
+            pressHome()
+            startActivityAndWait()
+            waitForHome()
+        },
+    ) {
+        answerQuestion()
+    }
+}
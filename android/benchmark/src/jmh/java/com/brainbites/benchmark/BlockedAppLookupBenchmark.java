@@ -0,0 +1,105 @@
+package com.brainbites.benchmark;
+
+import com.brainbites.usage.BlockedAppSet;
+import com.brainbites.usage.PackageDictionary;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Blocked-app check on the foreground polling path: the old prefs read plus
+ * comma split against the {@link BlockedAppSet} bitmap, for a foreground app
+ * that is last in the list (worst case for the split) or not in it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BlockedAppLookupBenchmark {
+    private static final String KEY_BLOCKED_APPS = "blocked_apps";
+    // Distinct copies, so no lookup hits the dictionary's same-instance shortcut
+    private static final int NAME_COPIES = 16;
+
+    @Param({"1", "10", "100", "1000"})
+    public int blockedCount;
+
+    @Param({"true", "false"})
+    public boolean blocked;
+
+    private InMemoryPreferences prefs;
+    private File dictionaryFile;
+    private PackageDictionary dictionary;
+    private BlockedAppSet blockedApps;
+    private String foregroundApp;
+    private String[] foregroundCopies;
+    private int nextCopy;
+    private int foregroundId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<String> packages = new ArrayList<>(blockedCount);
+        for (int i = 0; i < blockedCount; i++) {
+            packages.add("com.example.app" + i);
+        }
+
+        prefs = new InMemoryPreferences();
+        dictionaryFile = File.createTempFile("package_dictionary", ".txt");
+        dictionary = new PackageDictionary(dictionaryFile);
+        blockedApps = new BlockedAppSet(prefs, dictionary);
+        blockedApps.setBlockedApps(packages);
+
+        // A fresh String, as UsageStatsManager hands back, not the interned literal
+        foregroundApp = new String(blocked ? packages.get(blockedCount - 1) : "com.example.other");
+        foregroundCopies = new String[NAME_COPIES];
+        for (int i = 0; i < NAME_COPIES; i++) {
+            foregroundCopies[i] = new String(foregroundApp);
+        }
+        foregroundId = dictionary.lookup(foregroundApp);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dictionaryFile.delete();
+    }
+
+    @Benchmark
+    public boolean legacySplit() {
+        String blockedAppsCsv = prefs.getString(KEY_BLOCKED_APPS, "");
+        if (blockedAppsCsv.isEmpty()) return false;
+
+        String[] apps = blockedAppsCsv.split(",");
+        for (String app : apps) {
+            if (app.equals(foregroundApp)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Benchmark
+    public boolean bitmapById() {
+        return blockedApps.contains(foregroundId);
+    }
+
+    /** A different name instance per poll, as usage queries return, so this pays for the map probe and equals. */
+    @Benchmark
+    public boolean bitmapByName() {
+        String name = foregroundCopies[nextCopy];
+        nextCopy = (nextCopy + 1) & (NAME_COPIES - 1);
+        return blockedApps.contains(dictionary.lookup(name));
+    }
+}
@@ -0,0 +1,144 @@
+package com.brainbites.benchmark;
+
+import com.brainbites.cursor.ColumnPage;
+import com.brainbites.cursor.CursorRegistry;
+import com.brainbites.cursor.RowSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listing installed apps the old way, one map per app for the whole list
+ * before anything is returned, against reading them through a
+ * {@link CursorRegistry} cursor. HashMap stands in for WritableMap, which is
+ * a HashMap-backed map in the Java bridge.
+ *
+ * firstItem benchmarks are time to the first row JS could render; drain
+ * benchmarks read everything. Run with the gc profiler (the default for this
+ * suite): gc.alloc.rate.norm is bytes allocated per call. The whole list keeps
+ * every row alive until it is serialized, while a cursor only ever holds one
+ * page, so peak live memory is bounded by {@code pageSize} rather than
+ * {@code appCount}.
+ *
+ * {@code labelCost} is CPU spent per label, standing in for
+ * PackageManager.getApplicationLabel loading each app's resources.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CursorPagingBenchmark {
+    @Param({"500"})
+    public int appCount;
+
+    @Param({"50"})
+    public int pageSize;
+
+    @Param({"0", "2000"})
+    public int labelCost;
+
+    private String[] packageNames;
+    private final CursorRegistry registry = new CursorRegistry();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        packageNames = new String[appCount];
+        for (int i = 0; i < appCount; i++) {
+            packageNames[i] = "com.example.app" + i;
+        }
+    }
+
+    /** Apps with synthetic labels, resolved as each row is filled. */
+    final class SyntheticAppSource implements RowSource {
+        private int position = 0;
+
+        @Override
+        public String[] columnNames() {
+            return new String[] {"packageName", "appName"};
+        }
+
+        @Override
+        public int[] columnTypes() {
+            return new int[] {ColumnPage.TYPE_STRING, ColumnPage.TYPE_STRING};
+        }
+
+        @Override
+        public boolean fill(ColumnPage page) {
+            while (position < appCount && !page.isFull()) {
+                int row = page.addRow();
+                page.setString(0, row, packageNames[position]);
+                page.setString(1, row, label(position));
+                position++;
+            }
+            return position < appCount;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private String label(int app) {
+        Blackhole.consumeCPU(labelCost);
+        return "App " + app;
+    }
+
+    private List<Map<String, Object>> wholeList() {
+        List<Map<String, Object>> apps = new ArrayList<>();
+        for (int i = 0; i < appCount; i++) {
+            Map<String, Object> app = new HashMap<>();
+            app.put("packageName", packageNames[i]);
+            app.put("appName", label(i));
+            apps.add(app);
+        }
+        return apps;
+    }
+
+    @Benchmark
+    public Object wholeListFirstItem() {
+        return wholeList().get(0);
+    }
+
+    @Benchmark
+    public Object cursorFirstItem() {
+        int handle = registry.open(new SyntheticAppSource());
+        String first = registry.next(handle, pageSize).getString(1, 0);
+        registry.close(handle);
+        return first;
+    }
+
+    @Benchmark
+    public Object wholeListDrain() {
+        return wholeList();
+    }
+
+    @Benchmark
+    public int cursorDrain(Blackhole blackhole) {
+        int handle = registry.open(new SyntheticAppSource());
+        int rows = 0;
+        boolean done = false;
+        while (!done) {
+            ColumnPage page = registry.next(handle, pageSize);
+            for (int row = 0; row < page.size(); row++) {
+                blackhole.consume(page.getString(1, row));
+            }
+            rows += page.size();
+            done = registry.isDone(handle);
+        }
+        registry.close(handle);
+        return rows;
+    }
+}
@@ -0,0 +1,44 @@
+package com.brainbites.benchmark;
+
+import com.brainbites.timer.TimeFormatter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/** {@link TimeFormatter} against the {@code String.format} version it replaced. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FormatTimeBenchmark {
+
+    /** Seconds only, minutes and seconds, hours and minutes. */
+    @Param({"37", "252", "3900"})
+    public int seconds;
+
+    @Benchmark
+    public String legacyFormat() {
+        int hours = seconds / 3600;
+        int minutes = (seconds % 3600) / 60;
+        int secs = seconds % 60;
+
+        if (hours > 0) {
+            return String.format("%dh %dm", hours, minutes);
+        } else if (minutes > 0) {
+            return String.format("%dm %ds", minutes, secs);
+        } else {
+            return String.format("%ds", secs);
+        }
+    }
+
+    @Benchmark
+    public String timeFormatter() {
+        return TimeFormatter.format(seconds);
+    }
+}
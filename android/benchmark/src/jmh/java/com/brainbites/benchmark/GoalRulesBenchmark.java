@@ -0,0 +1,125 @@
+package com.brainbites.benchmark;
+
+import com.brainbites.goals.RuleSet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Quiz events through the indexed {@link RuleSet} against the old approach of
+ * scanning every goal per event and switching on its type. Targets are out of
+ * reach so every rule stays live and the numbers are steady state.
+ *
+ * Results are per event; {@code ruleCount} covers today's handful of goals
+ * up to a catalogue far bigger than the app ships.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class GoalRulesBenchmark {
+    private static final int BATCH = 1024;
+    private static final int[] AGGREGATION_BY_EVENT = {
+        RuleSet.AGG_SUM, RuleSet.AGG_SUM, RuleSet.AGG_MAX, RuleSet.AGG_LATEST,
+        RuleSet.AGG_SUM, RuleSet.AGG_LATEST, RuleSet.AGG_LATEST, RuleSet.AGG_LATEST
+    };
+
+    @Param({"6", "64", "1024"})
+    public int ruleCount;
+
+    private RuleSet ruleSet;
+    private List<ScannedGoal> scannedGoals;
+    private final int[] eventTypes = new int[BATCH];
+    private final long[] eventValues = new long[BATCH];
+
+    /** What the JS loop kept per goal. */
+    static final class ScannedGoal {
+        final int type;
+        final int aggregation;
+        final long target;
+        long current;
+        boolean completed;
+
+        ScannedGoal(int type, int aggregation, long target) {
+            this.type = type;
+            this.aggregation = aggregation;
+            this.target = target;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(7);
+        ruleSet = new RuleSet();
+        scannedGoals = new ArrayList<>(ruleCount);
+        for (int i = 0; i < ruleCount; i++) {
+            int type = i % RuleSet.EVENT_TYPES;
+            int aggregation = AGGREGATION_BY_EVENT[type];
+            ruleSet.add("rule" + i, type, -1, aggregation, Long.MAX_VALUE, 0);
+            scannedGoals.add(new ScannedGoal(type, aggregation, Long.MAX_VALUE));
+        }
+        ruleSet.compile();
+
+        // Mostly answers, as a quiz produces them
+        for (int i = 0; i < BATCH; i++) {
+            int roll = random.nextInt(10);
+            eventTypes[i] = roll < 4 ? RuleSet.EVENT_QUESTION
+                : roll < 7 ? RuleSet.EVENT_CORRECT
+                : roll < 9 ? RuleSet.EVENT_STREAK
+                : RuleSet.EVENT_PLAY_TIME;
+            eventValues[i] = 1 + random.nextInt(20);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int indexed() {
+        for (int i = 0; i < BATCH; i++) {
+            ruleSet.onEvent(eventTypes[i], eventValues[i]);
+        }
+        int touched = ruleSet.touchedCount();
+        ruleSet.clearDelta();
+        return touched;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int scanAll() {
+        int touched = 0;
+        for (int i = 0; i < BATCH; i++) {
+            int type = eventTypes[i];
+            long value = eventValues[i];
+            for (ScannedGoal goal : scannedGoals) {
+                if (goal.completed || goal.type != type) continue;
+                switch (goal.aggregation) {
+                    case RuleSet.AGG_SUM:
+                        goal.current += value;
+                        break;
+                    case RuleSet.AGG_MAX:
+                        if (value > goal.current) goal.current = value;
+                        break;
+                    default:
+                        goal.current = value;
+                        break;
+                }
+                if (goal.current >= goal.target) {
+                    goal.completed = true;
+                }
+                touched++;
+            }
+        }
+        return touched;
+    }
+}
@@ -0,0 +1,32 @@
+package com.brainbites.benchmark;
+
+import android.content.SharedPreferences;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** Map-backed {@link SharedPreferences} for the JVM benchmarks. */
+class InMemoryPreferences implements SharedPreferences {
+    private final Map<String, String> values = new HashMap<>();
+
+    @Override
+    public String getString(String key, String defValue) {
+        String value = values.get(key);
+        return value != null ? value : defValue;
+    }
+
+    @Override
+    public Editor edit() {
+        return new Editor() {
+            @Override
+            public Editor putString(String key, String value) {
+                values.put(key, value);
+                return this;
+            }
+
+            @Override
+            public void apply() {
+            }
+        };
+    }
+}
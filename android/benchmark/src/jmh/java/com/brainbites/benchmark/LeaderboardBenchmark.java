@@ -0,0 +1,114 @@
+package com.brainbites.benchmark;
+
+import com.brainbites.leaderboard.RankTree;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rank queries and score updates on a {@link RankTree} holding a million
+ * players, against rebuilding the ranking the way the JS service would: sort
+ * every entry object again after a change and search the result.
+ *
+ * Scores are drawn from a skewed distribution so there are long runs of
+ * ties, as on a real board.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LeaderboardBenchmark {
+    @Param({"1000000"})
+    public int players;
+
+    private RankTree board;
+    private String[] ids;
+    private Entry[] entries;
+    private final Random random = new Random(5);
+
+    /** A JS leaderboard row. */
+    static final class Entry {
+        final String id;
+        int score;
+
+        Entry(String id, int score) {
+            this.id = id;
+            this.score = score;
+        }
+    }
+
+    private static final Comparator<Entry> BEST_FIRST = (a, b) ->
+            a.score != b.score ? Integer.compare(b.score, a.score) : a.id.compareTo(b.id);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        board = new RankTree(players);
+        ids = new String[players];
+        entries = new Entry[players];
+        for (int i = 0; i < players; i++) {
+            ids[i] = "player-" + i;
+            int score = randomScore();
+            board.put(ids[i], score);
+            entries[i] = new Entry(ids[i], score);
+        }
+        Arrays.sort(entries, BEST_FIRST);
+    }
+
+    private int randomScore() {
+        double u = random.nextDouble();
+        return (int) (200_000 * u * u * u);
+    }
+
+    @Benchmark
+    public int rankOf() {
+        return board.rankOf(ids[random.nextInt(players)]);
+    }
+
+    @Benchmark
+    public int scoreAtPosition() {
+        return board.scoreAt(random.nextInt(players));
+    }
+
+    @Benchmark
+    public int positionOf() {
+        return board.positionOf(ids[random.nextInt(players)]);
+    }
+
+    /** A player earns points and the board answers their new rank. */
+    @Benchmark
+    public int updateAndRank() {
+        String id = ids[random.nextInt(players)];
+        board.put(id, board.scoreOf(id, 0) + 10 + random.nextInt(90));
+        return board.rankOf(id);
+    }
+
+    /** The same update when the ranking is a sorted array rebuilt on every change. */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int resortAndRank() {
+        Entry entry = entries[random.nextInt(players)];
+        entry.score += 10 + random.nextInt(90);
+        Arrays.sort(entries, BEST_FIRST);
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i] == entry) {
+                int rank = i;
+                while (rank > 0 && entries[rank - 1].score == entry.score) {
+                    rank--;
+                }
+                return rank + 1;
+            }
+        }
+        return RankTree.NOT_FOUND;
+    }
+}
@@ -0,0 +1,94 @@
+package com.brainbites.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * What a mascot pose swap costs on its critical path: a full-resolution
+ * decode of the PNG, which an uncached {@code <Image>} does, against taking
+ * the bitmap BitmapCache decoded at startup. {@code sampledDecode} is that
+ * one-off startup decode on the cache's own thread. The JVM's PNG decoder
+ * stands in for BitmapFactory; ratios, not absolute times, carry over.
+ *
+ * Sampling hardly shortens the decode, since the whole zlib stream is
+ * inflated either way; what it saves is memory. The view is Mascot's largest
+ * box (150 dp) at xxhdpi, so a 2:3 pose fits in 300 x 450 px and is sampled
+ * by 2, kept at about 0.5 MB where the full bitmap is 6 MB.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MascotDecodeBenchmark {
+    private static final String IMAGES = "../../src/assets/images/";
+    private static final int BOX_PX = 450;
+
+    @Param({"mascot_happy", "mascot_peeking"})
+    public String image;
+
+    private byte[] png;
+    private int sample;
+    private final Map<String, BufferedImage> cache = new HashMap<>();
+
+    @Setup
+    public void setUp() throws IOException {
+        png = Files.readAllBytes(new File(IMAGES + image + ".png").toPath());
+        BufferedImage full = ImageIO.read(new ByteArrayInputStream(png));
+        float scale = Math.min(1f, Math.min((float) BOX_PX / full.getWidth(), (float) BOX_PX / full.getHeight()));
+        int targetWidth = Math.round(full.getWidth() * scale);
+        int targetHeight = Math.round(full.getHeight() * scale);
+        // Same rule as BitmapDecoder.sampleSize
+        sample = 1;
+        while (full.getWidth() / (sample * 2) >= targetWidth && full.getHeight() / (sample * 2) >= targetHeight) {
+            sample *= 2;
+        }
+        cache.put(image, sampledDecode());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public BufferedImage cachedSwap() {
+        return cache.get(image);
+    }
+
+    @Benchmark
+    public BufferedImage fullDecode() throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(png));
+    }
+
+    @Benchmark
+    public BufferedImage sampledDecode() throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(png))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(sample, sample, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+}
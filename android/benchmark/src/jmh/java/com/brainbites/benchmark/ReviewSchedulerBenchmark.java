@@ -0,0 +1,151 @@
+package com.brainbites.benchmark;
+
+import com.brainbites.review.ReviewScheduler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picking and rescheduling a question with {@link ReviewScheduler}'s per-deck
+ * heaps against the same policy as a scan over every question, which is what
+ * filtering the bank in JS amounts to. Both start from a bank that has had a
+ * year of answers (120 a day, 80% right) and keep answering from there.
+ *
+ * Results are per answered question, except {@code reload}: opening the
+ * schedule file and rebuilding the heaps, as on app start.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReviewSchedulerBenchmark {
+    private static final int DECKS = 36;
+    private static final int ANSWERS_PER_DAY = 120;
+    private static final long ANSWER_GAP_MS = 20_000;
+    private static final long DAY_MS = 86_400_000L;
+
+    @Param({"100000"})
+    public int questionCount;
+
+    private File file;
+    private ReviewScheduler scheduler;
+    private ScanSchedule scan;
+    private final Random random = new Random(11);
+    private long now = 1_700_000_000_000L;
+
+    /** The scheduler's pick order, kept in plain arrays and found by scanning. */
+    static final class ScanSchedule {
+        final int[] due;
+        final int[] interval;
+        final boolean[] seen;
+        final int[] rank;
+
+        ScanSchedule(int size, Random random) {
+            due = new int[size];
+            interval = new int[size];
+            seen = new boolean[size];
+            rank = new int[size];
+            for (int i = 0; i < size; i++) {
+                rank[i] = random.nextInt(Integer.MAX_VALUE);
+            }
+        }
+
+        int next(int nowMinute) {
+            int overdue = -1;
+            int unseen = -1;
+            int soonest = -1;
+            for (int i = 0; i < due.length; i++) {
+                if (!seen[i]) {
+                    if (unseen < 0 || rank[i] < rank[unseen]) unseen = i;
+                } else if (due[i] <= nowMinute) {
+                    if (overdue < 0 || due[i] < due[overdue]) overdue = i;
+                } else if (soonest < 0 || due[i] < due[soonest]) {
+                    soonest = i;
+                }
+            }
+            return overdue >= 0 ? overdue : unseen >= 0 ? unseen : soonest;
+        }
+
+        void record(int question, boolean correct, int nowMinute) {
+            seen[question] = true;
+            interval[question] = correct ? Math.max(24 * 60, interval[question] * 5 / 2) : 10;
+            due[question] = nowMinute + interval[question];
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = File.createTempFile("review", ".bin");
+        file.delete();
+        scheduler = new ReviewScheduler(file);
+        scheduler.load();
+        int[] ids = new int[questionCount];
+        String[] decks = new String[questionCount];
+        for (int i = 0; i < questionCount; i++) {
+            ids[i] = i;
+            decks[i] = "category" + (i % (DECKS / 3)) + "|" + (i % 3);
+        }
+        scheduler.sync(ids, decks);
+        scan = new ScanSchedule(questionCount, random);
+
+        for (int day = 0; day < 365; day++) {
+            for (int i = 0; i < ANSWERS_PER_DAY; i++) {
+                now += ANSWER_GAP_MS;
+                answerScheduled();
+                answerScanned();
+            }
+            now += DAY_MS - ANSWERS_PER_DAY * ANSWER_GAP_MS;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file.toPath());
+    }
+
+    @Benchmark
+    public int scheduled() {
+        now += ANSWER_GAP_MS;
+        return answerScheduled();
+    }
+
+    @Benchmark
+    public int linearScan() {
+        now += ANSWER_GAP_MS;
+        return answerScanned();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int reload() {
+        ReviewScheduler reloaded = new ReviewScheduler(file);
+        reloaded.load();
+        return reloaded.size();
+    }
+
+    private int answerScheduled() {
+        int id = scheduler.next(null, now);
+        boolean correct = random.nextInt(100) < 80;
+        return scheduler.record(id, ReviewScheduler.qualityOf(correct, 2_000 + random.nextInt(20_000)), now);
+    }
+
+    private int answerScanned() {
+        int nowMinute = (int) (now / 60_000);
+        int question = scan.next(nowMinute);
+        scan.record(question, random.nextInt(100) < 80, nowMinute);
+        return question;
+    }
+}
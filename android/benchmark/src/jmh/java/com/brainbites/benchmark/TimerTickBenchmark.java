@@ -0,0 +1,91 @@
+package com.brainbites.benchmark;
+
+import com.brainbites.timer.TimeFormatter;
+import com.brainbites.timer.TimerEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One iteration of the service's once-a-second tick: charge the elapsed time
+ * and build the notification text. Run with the gc profiler to see the
+ * per-tick allocation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TimerTickBenchmark {
+
+    /** Countdown with time left, or overtime once it has run out. */
+    @Param({"countdown", "overtime"})
+    public String phase;
+
+    private TimerEngine engine;
+    private long now;
+
+    @Setup
+    public void setUp() {
+        engine = new TimerEngine(
+            new TimerEngine.DeviceState() {
+                @Override
+                public boolean isInteractive() {
+                    return true;
+                }
+
+                @Override
+                public boolean isKeyguardLocked() {
+                    return false;
+                }
+            },
+            new TimerEngine.Listener() {
+                @Override
+                public void onTimeSpent(int seconds) {
+                }
+
+                @Override
+                public void onOvertime(int seconds) {
+                }
+
+                @Override
+                public void onLowTime(int minutes) {
+                }
+
+                @Override
+                public void onExpired() {
+                }
+            });
+        // Enough countdown that a measurement run never reaches zero
+        engine.restore("countdown".equals(phase) ? Integer.MAX_VALUE : 0, 0);
+        engine.setAppInForeground(false);
+        now = 0;
+        engine.start(now);
+    }
+
+    @Benchmark
+    public int tick() {
+        now += 1000;
+        engine.tick(now);
+        return engine.getRemainingTimeSeconds() + engine.getNegativeTimeSeconds();
+    }
+
+    @Benchmark
+    public void tickAndFormat(Blackhole bh) {
+        now += 1000;
+        engine.tick(now);
+        int remaining = engine.getRemainingTimeSeconds();
+        String text = remaining > 0
+            ? TimeFormatter.appendTo(new StringBuilder(24), remaining).append(" remaining").toString()
+            : TimeFormatter.appendTo(new StringBuilder(40).append('-'), engine.getNegativeTimeSeconds())
+                .append(" (earning negative points)").toString();
+        bh.consume(text);
+    }
+}
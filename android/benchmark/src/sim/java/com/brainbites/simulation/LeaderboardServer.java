@@ -0,0 +1,205 @@
+package com.brainbites.simulation;
+
+import com.brainbites.leaderboard.RankTree;
+import com.brainbites.leaderboard.SyncCodec;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Stand-in for the remote leaderboard, speaking the {@link SyncCodec} format
+ * at POST /board/sync. Every applied batch bumps the board version and stamps
+ * the entries it touched with it; a client gets the entries stamped after the
+ * version it last saw, or every entry if it has seen none. Each client's last
+ * applied batch number is kept so a resent batch is not applied twice.
+ *
+ * Faults can be injected: a share of requests fails with 503 before anything
+ * is applied, and a share is applied but the connection is closed without a
+ * response, as when the network drops on the way back.
+ *
+ *   ./gradlew :benchmark:leaderboardServer -PserverArgs="--port 8787"
+ */
+public class LeaderboardServer {
+    public static final String PATH = "/board/sync";
+
+    private final Random random;
+    private final int rejectPercent;
+    private final int dropResponsePercent;
+
+    private final RankTree board = new RankTree();
+    private final Map<String, Long> stamps = new HashMap<>();
+    private final Map<String, Long> lastBatch = new HashMap<>();
+    private long version;
+
+    private HttpServer server;
+    private long requests;
+    private long rejected;
+    private long dropped;
+    private long repeats;
+    private long bytesIn;
+    private long bytesOut;
+
+    public LeaderboardServer(long seed, int rejectPercent, int dropResponsePercent) {
+        this.random = new Random(seed);
+        this.rejectPercent = rejectPercent;
+        this.dropResponsePercent = dropResponsePercent;
+    }
+
+    /** Starts serving on {@code port} (0 picks a free one); returns the port. */
+    public int start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.createContext(PATH, this::handle);
+        server.start();
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    /** The authoritative board; only read it while no client is syncing. */
+    public RankTree getBoard() {
+        return board;
+    }
+
+    /** Adds entries directly, as other players' uploads would have. */
+    public synchronized void seed(String playerId, int score) {
+        board.put(playerId, score);
+        stamps.put(playerId, ++version);
+    }
+
+    public synchronized String stats() {
+        return String.format(Locale.US,
+                "%d requests, %d rejected, %d responses dropped, %d repeats skipped, %d B in, %d B out",
+                requests, rejected, dropped, repeats, bytesIn, bytesOut);
+    }
+
+    public synchronized long getBytesOut() {
+        return bytesOut;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            byte[] request = readAll(exchange.getRequestBody());
+            byte[] response;
+            synchronized (this) {
+                requests++;
+                bytesIn += request.length;
+                if (random.nextInt(100) < rejectPercent) {
+                    rejected++;
+                    exchange.sendResponseHeaders(503, -1);
+                    return;
+                }
+                response = apply(new ByteArrayInputStream(request));
+                if (random.nextInt(100) < dropResponsePercent) {
+                    dropped++;
+                    return;
+                }
+                bytesOut += response.length;
+            }
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        } catch (IOException e) {
+            exchange.sendResponseHeaders(400, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private byte[] apply(InputStream in) throws IOException {
+        SyncCodec.readFormat(in);
+        String clientId = SyncCodec.readString(in);
+        long batchSeq = SyncCodec.readVarint(in);
+        long since = SyncCodec.readVarint(in);
+        int count = SyncCodec.readLength(in);
+        String[] ids = new String[count];
+        long[] deltas = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = SyncCodec.readString(in);
+            deltas[i] = SyncCodec.readSigned(in);
+        }
+
+        Long last = lastBatch.get(clientId);
+        if (batchSeq != 0 && last != null && batchSeq <= last) {
+            repeats++;
+        } else if (batchSeq != 0) {
+            lastBatch.put(clientId, batchSeq);
+            version++;
+            for (int i = 0; i < count; i++) {
+                board.put(ids[i], (int) (board.scoreOf(ids[i], 0) + deltas[i]));
+                stamps.put(ids[i], version);
+            }
+        }
+
+        boolean full = since == 0 || since > version;
+        List<String> changed = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : stamps.entrySet()) {
+            if (full || entry.getValue() > since) {
+                changed.add(entry.getKey());
+            }
+        }
+        // Best first, so each score is a small gap below the one before
+        changed.sort((a, b) -> Integer.compare(board.positionOf(a), board.positionOf(b)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + changed.size() * 12);
+        out.write(SyncCodec.FORMAT);
+        SyncCodec.writeVarint(out, version);
+        out.write(full ? 1 : 0);
+        SyncCodec.writeVarint(out, changed.size());
+        int previous = 0;
+        for (int i = 0; i < changed.size(); i++) {
+            int score = board.scoreOf(changed.get(i), 0);
+            SyncCodec.writeString(out, changed.get(i));
+            SyncCodec.writeVarint(out, i == 0 ? score : previous - score);
+            previous = score;
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        for (int n; (n = in.read(chunk)) > 0; ) {
+            out.write(chunk, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = 8787;
+        int reject = 0;
+        int drop = 0;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--reject":
+                    reject = Integer.parseInt(args[++i]);
+                    break;
+                case "--drop":
+                    drop = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        LeaderboardServer server = new LeaderboardServer(System.nanoTime(), reject, drop);
+        System.out.println("Leaderboard stand-in on http://127.0.0.1:" + server.start(port) + PATH);
+    }
+}
@@ -0,0 +1,257 @@
+package com.brainbites.simulation;
+
+import com.brainbites.leaderboard.LeaderboardSync;
+import com.brainbites.leaderboard.RankTree;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Runs {@link LeaderboardSync} clients against a {@link LeaderboardServer} on
+ * loopback, with rejected requests, dropped responses, app restarts (a new
+ * client from the saved state file and an empty board) and restarts with a
+ * corrupted state file (after which the app submits its score again, as
+ * ScoreService does on load), then checks that:
+ *
+ * - every local score reached the server exactly once: the server's score
+ *   for each player is their latest local total, so no delta was lost or
+ *   applied twice;
+ * - after a final sync every client's board is the server's, entry by entry.
+ *
+ * Upload and download bytes are reported against the same entries as the
+ * JSON the JS service would otherwise exchange.
+ *
+ *   ./gradlew :benchmark:simulateLeaderboard -PsimArgs="--clients 20 --rounds 500 --board 10000"
+ */
+public class LeaderboardSyncSimulation {
+    private final Random random;
+    private final int clientCount;
+    private final int rounds;
+    private final int boardSize;
+    private final int rejectPercent;
+    private final int dropPercent;
+
+    private LeaderboardSimulationClient[] clients;
+    private LeaderboardServer server;
+    private URL url;
+    private long uploadedEntries;
+    private long receivedEntries;
+    private long syncs;
+    private long failures;
+    private long restarts;
+    private long corruptions;
+    private int violations;
+
+    LeaderboardSyncSimulation(long seed, int clientCount, int rounds, int boardSize,
+                              int rejectPercent, int dropPercent) {
+        this.random = new Random(seed);
+        this.clientCount = clientCount;
+        this.rounds = rounds;
+        this.boardSize = boardSize;
+        this.rejectPercent = rejectPercent;
+        this.dropPercent = dropPercent;
+    }
+
+    /** One device: its player, their running total, and the sync state on disk. */
+    private final class LeaderboardSimulationClient {
+        final String playerId;
+        final File stateFile;
+        LeaderboardSync sync;
+        int total;
+        boolean submitted;
+
+        LeaderboardSimulationClient(int index, File dir) {
+            playerId = "player-" + index;
+            stateFile = new File(dir, "client-" + index + ".bin");
+            restart();
+        }
+
+        void restart() {
+            sync = new LeaderboardSync(new RankTree(), new LeaderboardSync.HttpTransport(url), stateFile);
+        }
+
+        /** Restarts from a state file cut short or overwritten, then submits the total again. */
+        void restartCorrupted() throws IOException {
+            if (stateFile.exists()) {
+                byte[] state = Files.readAllBytes(stateFile.toPath());
+                if (random.nextBoolean()) {
+                    state = Arrays.copyOf(state, random.nextInt(state.length));
+                } else {
+                    for (int i = 0; i < state.length; i++) {
+                        state[i] = (byte) random.nextInt(256);
+                    }
+                }
+                Files.write(stateFile.toPath(), state);
+            }
+            restart();
+            if (submitted) {
+                sync.submit(playerId, total);
+            }
+        }
+    }
+
+    void run() throws IOException {
+        File dir = Files.createTempDirectory("leaderboard-sim").toFile();
+        server = new LeaderboardServer(random.nextLong(), rejectPercent, dropPercent);
+        url = new URL("http://127.0.0.1:" + server.start(0) + LeaderboardServer.PATH);
+        try {
+            for (int i = 0; i < boardSize; i++) {
+                server.seed("remote-" + i, random.nextInt(50_000));
+            }
+            clients = new LeaderboardSimulationClient[clientCount];
+            for (int i = 0; i < clientCount; i++) {
+                clients[i] = new LeaderboardSimulationClient(i, dir);
+            }
+
+            for (int round = 0; round < rounds; round++) {
+                LeaderboardSimulationClient client = clients[random.nextInt(clientCount)];
+                int action = random.nextInt(100);
+                if (action < 60) {
+                    // A few answers: points in, the odd overtime penalty out
+                    for (int answers = 1 + random.nextInt(5); answers > 0; answers--) {
+                        client.total = Math.max(0, client.total
+                                + (random.nextInt(10) == 0 ? -random.nextInt(200) : 10 + random.nextInt(90)));
+                        client.sync.submit(client.playerId, client.total);
+                        client.submitted = true;
+                    }
+                } else if (action < 95) {
+                    trySync(client);
+                } else if (action < 98) {
+                    restarts++;
+                    client.restart();
+                } else {
+                    corruptions++;
+                    client.restartCorrupted();
+                }
+            }
+
+            // Everyone settles, then takes one more pass to see the others' last batches
+            for (LeaderboardSimulationClient client : clients) {
+                while (client.sync.hasUnsent()) {
+                    trySync(client);
+                }
+            }
+            for (LeaderboardSimulationClient client : clients) {
+                while (!trySync(client)) {
+                    // retry until a response gets through
+                }
+            }
+            check();
+            report();
+        } finally {
+            server.stop();
+            for (File file : dir.listFiles()) {
+                file.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    private boolean trySync(LeaderboardSimulationClient client) {
+        syncs++;
+        try {
+            LeaderboardSync.Result result = client.sync.sync();
+            uploadedEntries += result.uploaded;
+            receivedEntries += result.received;
+            return true;
+        } catch (IOException e) {
+            failures++;
+            return false;
+        }
+    }
+
+    private void check() {
+        RankTree truth = server.getBoard();
+        for (LeaderboardSimulationClient client : clients) {
+            int stored = truth.scoreOf(client.playerId, -1);
+            int expected = client.submitted ? client.total : -1;
+            if (stored != expected) {
+                violation(client.playerId + " has " + stored + " on the server, " + client.total + " locally");
+            }
+            RankTree board = client.sync.getBoard();
+            if (board.size() != truth.size()) {
+                violation(client.playerId + " sees " + board.size() + " entries, server has " + truth.size());
+                continue;
+            }
+            for (int position = 0; position < truth.size(); position++) {
+                if (!truth.idAt(position).equals(board.idAt(position))
+                        || truth.scoreAt(position) != board.scoreAt(position)) {
+                    violation(client.playerId + " differs at position " + position + ": "
+                            + board.idAt(position) + "=" + board.scoreAt(position) + ", server "
+                            + truth.idAt(position) + "=" + truth.scoreAt(position));
+                    break;
+                }
+            }
+        }
+    }
+
+    private void violation(String message) {
+        if (violations++ < 20) {
+            System.out.println("VIOLATION " + message);
+        }
+    }
+
+    private void report() {
+        // What the same entries cost as {"id":"...","score":n} objects
+        long jsonBytes = 0;
+        RankTree truth = server.getBoard();
+        for (int position = 0; position < truth.size(); position++) {
+            jsonBytes += 19 + truth.idAt(position).length() + Integer.toString(truth.scoreAt(position)).length();
+        }
+        long jsonPerEntry = jsonBytes / Math.max(1, truth.size());
+        System.out.println(String.format(Locale.US,
+                "%d clients, %d rounds over a %d-entry board, %d restarts, %d with a corrupted state file",
+                clientCount, rounds, truth.size(), restarts + corruptions, corruptions));
+        System.out.println(String.format(Locale.US,
+                "syncs: %d (%d failed), entries uploaded: %d, received: %d", syncs, failures, uploadedEntries, receivedEntries));
+        System.out.println("server: " + server.stats());
+        System.out.println(String.format(Locale.US,
+                "download: %.1f B/entry, as JSON: %d B/entry",
+                (double) server.getBytesOut() / Math.max(1, receivedEntries), jsonPerEntry));
+        System.out.println(violations == 0 ? "OK, no violations" : violations + " violations");
+    }
+
+    public static void main(String[] args) throws IOException {
+        long seed = 1;
+        int clients = 20;
+        int rounds = 500;
+        int board = 10_000;
+        int reject = 5;
+        int drop = 10;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--clients":
+                    clients = Integer.parseInt(args[++i]);
+                    break;
+                case "--rounds":
+                    rounds = Integer.parseInt(args[++i]);
+                    break;
+                case "--board":
+                    board = Integer.parseInt(args[++i]);
+                    break;
+                case "--reject":
+                    reject = Integer.parseInt(args[++i]);
+                    break;
+                case "--drop":
+                    drop = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        LeaderboardSyncSimulation simulation =
+                new LeaderboardSyncSimulation(seed, clients, rounds, board, reject, drop);
+        simulation.run();
+        if (simulation.violations > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.brainbites.simulation;
+
+import com.brainbites.timer.TimerEngine;
+
+/** Screen, keyguard and BrainBites foreground state as the user sees it. */
+class SimulatedDevice implements TimerEngine.DeviceState {
+    boolean interactive = false;
+    boolean locked = true;
+    boolean appInForeground = false;
+
+    @Override
+    public boolean isInteractive() {
+        return interactive;
+    }
+
+    @Override
+    public boolean isKeyguardLocked() {
+        return locked;
+    }
+
+    /** Whether screen time is being spent outside BrainBites right now. */
+    boolean isChargeable() {
+        return interactive && !locked && !appInForeground;
+    }
+}
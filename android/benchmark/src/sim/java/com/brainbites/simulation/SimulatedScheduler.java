@@ -0,0 +1,96 @@
+package com.brainbites.simulation;
+
+import com.brainbites.timer.Clock;
+import com.brainbites.timer.Scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Virtual time plus a single-threaded task queue, standing in for the main
+ * looper. Every task run counts as a CPU wakeup. With {@code suspend} set,
+ * tasks that come due while the screen is off wait for the next screen-on,
+ * the way a looper does while the CPU sleeps.
+ */
+class SimulatedScheduler implements Clock, Scheduler {
+
+    private static final class Task implements Comparable<Task> {
+        final long due;
+        final long seq;
+        final Runnable runnable;
+
+        Task(long due, long seq, Runnable runnable) {
+            this.due = due;
+            this.seq = seq;
+            this.runnable = runnable;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            if (due != other.due) return Long.compare(due, other.due);
+            return Long.compare(seq, other.seq);
+        }
+    }
+
+    private final SimulatedDevice device;
+    private final boolean suspend;
+    private final PriorityQueue<Task> queue = new PriorityQueue<>();
+    private final List<Task> deferred = new ArrayList<>();
+    private long now;
+    private long seq;
+
+    long wakeups;
+    long screenOffWakeups;
+
+    SimulatedScheduler(SimulatedDevice device, boolean suspend, long startTime) {
+        this.device = device;
+        this.suspend = suspend;
+        this.now = startTime;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return now;
+    }
+
+    @Override
+    public void postDelayed(Runnable task, long delayMillis) {
+        queue.add(new Task(now + Math.max(0, delayMillis), seq++, task));
+    }
+
+    @Override
+    public void cancel(Runnable task) {
+        queue.removeIf(t -> t.runnable == task);
+        deferred.removeIf(t -> t.runnable == task);
+    }
+
+    /** Drops every pending task, as a process death does. */
+    void clear() {
+        queue.clear();
+        deferred.clear();
+    }
+
+    /** Runs the tasks due up to {@code time} and leaves the clock there. */
+    void runUntil(long time) {
+        if (device.interactive && !deferred.isEmpty()) {
+            for (Task task : deferred) {
+                queue.add(new Task(now, task.seq, task.runnable));
+            }
+            deferred.clear();
+        }
+
+        while (!queue.isEmpty() && queue.peek().due <= time) {
+            Task task = queue.poll();
+            now = Math.max(now, task.due);
+            if (suspend && !device.interactive) {
+                deferred.add(task);
+                continue;
+            }
+            wakeups++;
+            if (!device.interactive) screenOffWakeups++;
+            task.runnable.run();
+        }
+        now = Math.max(now, time);
+    }
+}
@@ -0,0 +1,468 @@
+package com.brainbites.simulation;
+
+import com.brainbites.metrics.LatencyHistogram;
+import com.brainbites.metrics.TimerMetrics;
+import com.brainbites.timer.ForegroundTracker;
+import com.brainbites.timer.TimerController;
+import com.brainbites.timer.TimerEngine;
+import com.brainbites.timer.TimerEventBatcher;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Replays synthetic user days against {@link TimerController} and
+ * {@link ForegroundTracker} on virtual time and checks, after every settle and
+ * every user event, that:
+ *
+ * - the balance is never lost: remaining == earned - spent, also across
+ *   process deaths, where only unpersisted charges may roll back;
+ * - time and overtime are only charged while the screen is on, unlocked
+ *   and BrainBites is in the background, and never more than that time;
+ * - each low-time warning and the expiry fire exactly once per crossing;
+ * - overtime handed to the JS events task is applied exactly once, even
+ *   when acks are lost or the process dies with events queued or in flight.
+ *
+ * Wakeups, flushes, state pushes and JS task starts are reported as
+ * performance figures.
+ *
+ *   ./gradlew :benchmark:simulate -PsimArgs="--days 90 --seed 7 --suspend --thresholds 600,120,30"
+ */
+public class TimerSimulation {
+    private static final long SECOND = 1000;
+    private static final long MINUTE = 60 * SECOND;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+    private static final int MAX_REPORTED = 20;
+    private static final String PROFILE = "default";
+    // Headless JS start-up plus the task itself
+    private static final long JS_TASK_MS = 1500;
+    private static final int ACK_LOSS_PERCENT = 5;
+
+    private final Random random;
+    private final SimulatedDevice device = new SimulatedDevice();
+    private final SimulatedScheduler scheduler;
+    private final Host host = new Host();
+    // Zero (expiry) followed by the warning thresholds, ascending
+    private final int[] thresholds;
+    private final int[] warningThresholds;
+
+    private TimerController controller;
+    private ForegroundTracker tracker;
+    private TimerEventBatcher events;
+
+    // The service's stored batch number and event state, and the JS task's last applied batch
+    private long dispatchedSeq;
+    private byte[] savedEvents;
+    private long appliedSeq;
+    private long overtimeQueued;
+    private long overtimeApplied;
+    private long eventsQueued;
+    private long tasksStarted;
+    private long batchesSkipped;
+
+    // Ledger kept independently of the engine
+    private long earned;
+    private long spent;
+    private long overtime;
+    private int persistedRemaining = 300;
+    private int persistedNegative = 0;
+    private long spentAtPersist;
+    private long overtimeAtPersist;
+
+    private long eligibleMs;
+    private long lastEventTime;
+    private final boolean[] armed;
+    private final List<Integer> fired = new ArrayList<>();
+
+    private long flushes;
+    private long stateChanges;
+    private long restarts;
+    private long warnings;
+    private long violations;
+
+    private final class Host implements TimerController.Host {
+        @Override
+        public void onTimeSpent(int seconds) {
+            if (!device.isChargeable()) violation("spent " + seconds + "s while not chargeable");
+            spent += seconds;
+            queueEvent(TimerEventBatcher.TYPE_SPENT, seconds);
+            checkChargedWithinEligible();
+        }
+
+        @Override
+        public void onOvertime(int seconds) {
+            if (!device.isChargeable()) violation("overtime " + seconds + "s while not chargeable");
+            overtime += seconds;
+            overtimeQueued += seconds;
+            queueEvent(TimerEventBatcher.TYPE_OVERTIME, seconds);
+            checkChargedWithinEligible();
+        }
+
+        @Override
+        public void onLowTime(int thresholdSeconds) {
+            warnings++;
+            fired.add(thresholdSeconds);
+            queueEvent(TimerEventBatcher.TYPE_LOW_TIME, thresholdSeconds);
+        }
+
+        @Override
+        public void onExpired() {
+            warnings++;
+            fired.add(0);
+            queueEvent(TimerEventBatcher.TYPE_EXPIRED, 0);
+        }
+
+        @Override
+        public void onRunningChanged(boolean running) {
+        }
+
+        @Override
+        public void onStateChanged() {
+            stateChanges++;
+            check();
+        }
+
+        @Override
+        public void persist(int remainingSeconds, int negativeSeconds) {
+            flushes++;
+            persistedRemaining = remainingSeconds;
+            persistedNegative = negativeSeconds;
+            spentAtPersist = spent;
+            overtimeAtPersist = overtime;
+        }
+    }
+
+    TimerSimulation(long seed, boolean suspend, int[] warningThresholds) {
+        this.random = new Random(seed);
+        this.scheduler = new SimulatedScheduler(device, suspend, 0);
+        this.warningThresholds = warningThresholds;
+        int[] sorted = warningThresholds.clone();
+        Arrays.sort(sorted);
+        this.thresholds = new int[sorted.length + 1];
+        System.arraycopy(sorted, 0, thresholds, 1, sorted.length);
+        this.armed = new boolean[thresholds.length];
+        earned = persistedRemaining;
+        startProcess();
+    }
+
+    private void startProcess() {
+        controller = new TimerController(scheduler, scheduler, device, host);
+        controller.restore(persistedRemaining, persistedNegative);
+        controller.setWarningThresholds(warningThresholds);
+        tracker = new ForegroundTracker(controller::setAppInForeground);
+        events = new TimerEventBatcher(scheduler, scheduler, this::startEventsTask,
+            state -> savedEvents = state, dispatchedSeq);
+        if (savedEvents != null) {
+            try {
+                events.restore(savedEvents);
+            } catch (IOException e) {
+                violation("could not restore events: " + e.getMessage());
+            }
+        }
+        rearm(persistedRemaining);
+    }
+
+    private void queueEvent(int type, int value) {
+        eventsQueued++;
+        events.add(type, PROFILE, value);
+    }
+
+    /** The service's sink: the JS task runs a little later and usually acks. */
+    private boolean startEventsTask(TimerEventBatcher.Batch batch) {
+        tasksStarted++;
+        dispatchedSeq = batch.seq;
+        TimerEventBatcher sender = events;
+        scheduler.postDelayed(() -> runEventsTask(sender, batch), JS_TASK_MS + randomMs(JS_TASK_MS));
+        return true;
+    }
+
+    private void runEventsTask(TimerEventBatcher sender, TimerEventBatcher.Batch batch) {
+        if (batch.seq <= appliedSeq) {
+            batchesSkipped++;
+        } else {
+            appliedSeq = batch.seq;
+            for (int i = 0; i < batch.size(); i++) {
+                if (batch.types[i] == TimerEventBatcher.TYPE_OVERTIME) {
+                    overtimeApplied += batch.values[i];
+                }
+            }
+            if (overtimeApplied > overtimeQueued) {
+                violation("applied overtime " + overtimeApplied + " > queued " + overtimeQueued);
+            }
+        }
+        if (random.nextInt(100) >= ACK_LOSS_PERCENT) {
+            sender.ack(batch.seq);
+        }
+    }
+
+    private void killProcess() {
+        restarts++;
+        scheduler.clear();
+        // Unpersisted charges die with the process
+        spent = spentAtPersist;
+        overtime = overtimeAtPersist;
+        if (persistedRemaining != earned - spent) {
+            violation("persisted balance " + persistedRemaining + " != earned - spent " + (earned - spent));
+        }
+        startProcess();
+    }
+
+    // Events
+
+    private void advanceTo(long time) {
+        scheduler.runUntil(time);
+        if (device.isChargeable()) {
+            eligibleMs += time - lastEventTime;
+        }
+        lastEventTime = time;
+        check();
+    }
+
+    private void screenOn(long time) {
+        advanceTo(time);
+        device.interactive = true;
+        controller.onDeviceStateChanged();
+        check();
+    }
+
+    private void unlock(long time) {
+        advanceTo(time);
+        device.locked = false;
+        controller.onDeviceStateChanged();
+        check();
+    }
+
+    private void screenOff(long time) {
+        if (device.appInForeground) appStopped(time, false);
+        advanceTo(time);
+        device.interactive = false;
+        device.locked = true;
+        controller.onDeviceStateChanged();
+        check();
+    }
+
+    private void appStarted(long time) {
+        advanceTo(time);
+        // The service settles the interval up to now before the switch lands
+        tracker.onActivityStarted();
+        device.appInForeground = true;
+        check();
+    }
+
+    private void appStopped(long time, boolean changingConfigurations) {
+        advanceTo(time);
+        tracker.onActivityStopped(changingConfigurations);
+        if (!changingConfigurations) device.appInForeground = false;
+        check();
+    }
+
+    private void rotate(long time) {
+        appStopped(time, true);
+        advanceTo(time + 200);
+        tracker.onActivityStarted();
+        check();
+    }
+
+    private void earn(long time, int seconds) {
+        advanceTo(time);
+        earned += seconds;
+        controller.addTime(seconds);
+        check();
+    }
+
+    // Invariants
+
+    private void check() {
+        int remaining = controller.getRemainingTimeSeconds();
+        if (remaining < 0) violation("negative balance " + remaining);
+        if (remaining != earned - spent) {
+            violation("balance " + remaining + " != earned - spent " + (earned - spent));
+        }
+        if (controller.getNegativeTimeSeconds() != overtime) {
+            violation("overtime " + controller.getNegativeTimeSeconds() + " != charged " + overtime);
+        }
+
+        int expected = -1;
+        for (int i = 0; i < thresholds.length; i++) {
+            if (armed[i] && remaining <= thresholds[i] && expected < 0) {
+                expected = thresholds[i];
+            }
+        }
+        if (expected < 0 ? !fired.isEmpty() : fired.size() != 1 || fired.get(0) != expected) {
+            violation("expected warning " + expected + " but fired " + fired);
+        }
+        fired.clear();
+        rearm(remaining);
+    }
+
+    private void rearm(int remaining) {
+        for (int i = 0; i < thresholds.length; i++) {
+            armed[i] = remaining > thresholds[i];
+        }
+    }
+
+    private void checkChargedWithinEligible() {
+        long eligibleNow = eligibleMs
+            + (device.isChargeable() ? scheduler.currentTimeMillis() - lastEventTime : 0);
+        if ((spent + overtime) * SECOND > eligibleNow) {
+            violation("charged " + (spent + overtime) + "s but only " + eligibleNow / SECOND + "s eligible");
+        }
+    }
+
+    private void violation(String message) {
+        if (violations++ < MAX_REPORTED) {
+            long now = scheduler.currentTimeMillis();
+            System.out.println(String.format(Locale.US, "VIOLATION day %d %02d:%02d:%02d: %s",
+                now / DAY, now % DAY / HOUR, now % HOUR / MINUTE, now % MINUTE / SECOND, message));
+        }
+    }
+
+    // Synthetic days
+
+    private void simulateDay(int day) {
+        long dayStart = day * DAY;
+        long time = dayStart + 7 * HOUR + randomMs(60 * MINUTE);
+        int sessions = 15 + random.nextInt(40);
+        long spacing = 16 * HOUR / sessions;
+
+        for (int i = 0; i < sessions && time < dayStart + 23 * HOUR; i++) {
+            time = session(time);
+            if (random.nextInt(100) < 3) {
+                advanceTo(time + SECOND + randomMs(HOUR));
+                killProcess();
+            }
+            time += randomMs(2 * spacing);
+        }
+        advanceTo(dayStart + DAY);
+    }
+
+    /** One pick-up of the phone; returns the time the screen went off. */
+    private long session(long time) {
+        screenOn(time);
+        time += randomMs(3 * SECOND);
+        if (random.nextInt(10) == 0) {
+            // Glanced at the lock screen only
+            time += 5 * SECOND + randomMs(5 * SECOND);
+            screenOff(time);
+            return time;
+        }
+        unlock(time);
+
+        if (random.nextInt(4) == 0) {
+            time += 2 * SECOND;
+            appStarted(time);
+            long quizEnd = time + MINUTE + randomMs(9 * MINUTE);
+            while (time < quizEnd) {
+                time += MINUTE + randomMs(MINUTE);
+                earn(time, 30 + random.nextInt(91));
+                if (random.nextInt(5) == 0) {
+                    rotate(time + randomMs(10 * SECOND));
+                    time += 10 * SECOND;
+                }
+            }
+            if (random.nextInt(3) == 0) {
+                // Straight to screen off from the quiz
+                time += randomMs(30 * SECOND);
+                screenOff(time);
+                return time;
+            }
+            time += randomMs(5 * SECOND);
+            appStopped(time, false);
+        }
+
+        time += MINUTE + randomMs(29 * MINUTE);
+        screenOff(time);
+        return time;
+    }
+
+    private long randomMs(long bound) {
+        return (long) (random.nextDouble() * bound);
+    }
+
+    public static void main(String[] args) {
+        int days = 90;
+        long seed = 1;
+        boolean suspend = false;
+        int[] warningThresholds = TimerEngine.DEFAULT_WARNING_THRESHOLDS;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--days":
+                    days = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--suspend":
+                    suspend = true;
+                    break;
+                case "--thresholds": {
+                    String[] parts = args[++i].split(",");
+                    warningThresholds = new int[parts.length];
+                    for (int j = 0; j < parts.length; j++) {
+                        warningThresholds[j] = Integer.parseInt(parts[j]);
+                    }
+                    break;
+                }
+                default:
+                    throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+
+        long started = System.nanoTime();
+        TimerSimulation simulation = new TimerSimulation(seed, suspend, warningThresholds);
+        for (int day = 0; day < days; day++) {
+            simulation.simulateDay(day);
+        }
+        simulation.controller.stop();
+        simulation.drainEvents();
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        simulation.report(days, seed, suspend, elapsedMs);
+        System.exit(simulation.violations == 0 ? 0 : 1);
+    }
+
+    /** Hands over what is still queued and runs resends until the last batch is acked. */
+    private void drainEvents() {
+        // With --suspend, tasks only run while the CPU is awake
+        device.interactive = true;
+        events.flush();
+        long time = scheduler.currentTimeMillis();
+        while (events.isInFlight() || events.pendingCount() > 0) {
+            time += MINUTE;
+            scheduler.runUntil(time);
+            events.flush();
+        }
+        if (overtimeApplied != overtimeQueued) {
+            violation("applied overtime " + overtimeApplied + " != queued " + overtimeQueued);
+        }
+    }
+
+    private void report(int days, long seed, boolean suspend, long elapsedMs) {
+        LatencyHistogram.Snapshot tick = TimerMetrics.TICK.snapshot();
+        System.out.println(String.format(Locale.US,
+            "Simulated %d days (seed %d%s) in %d ms%n"
+                + "  earned %ds, spent %ds, overtime %ds, eligible %ds%n"
+                + "  warnings %d, process restarts %d%n"
+                + "  wakeups %d (%.0f/day), with screen off %d (%.0f/day)%n"
+                + "  flushes %d (%.0f/day), state pushes %d (%.0f/day)%n"
+                + "  events %d -> JS task starts %d (%.1f/day), resends skipped %d%n"
+                + "  overtime applied %ds of %ds%n"
+                + "  settle cost on this JVM: mean %.2f us, p99 <= %.0f us%n"
+                + "  violations %d",
+            days, seed, suspend ? ", suspend" : "", elapsedMs,
+            earned, spent, overtime, eligibleMs / SECOND,
+            warnings, restarts,
+            scheduler.wakeups, (double) scheduler.wakeups / days,
+            scheduler.screenOffWakeups, (double) scheduler.screenOffWakeups / days,
+            flushes, (double) flushes / days, stateChanges, (double) stateChanges / days,
+            eventsQueued, tasksStarted, (double) tasksStarted / days, batchesSkipped,
+            overtimeApplied, overtimeQueued,
+            tick.meanMicros(), tick.percentileMicros(0.99),
+            violations));
+    }
+}
@@ -0,0 +1,14 @@
+package android.content;
+
+/** JVM stand-in for the benchmark build; only what the shared sources touch. */
+public interface SharedPreferences {
+    String getString(String key, String defValue);
+
+    Editor edit();
+
+    interface Editor {
+        Editor putString(String key, String value);
+
+        void apply();
+    }
+}
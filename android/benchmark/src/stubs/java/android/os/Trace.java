@@ -0,0 +1,12 @@
+package android.os;
+
+/** JVM stand-in for the benchmark build; sections are dropped. */
+public final class Trace {
+    private Trace() {}
+
+    public static void beginSection(String sectionName) {
+    }
+
+    public static void endSection() {
+    }
+}
@@ -5,5 +5,7 @@
 import { AppRegistry } from 'react-native';
 import App from './App';
 import { name as appName } from './app.json';
+import timerEventsTask, { TIMER_EVENTS_TASK } from './src/services/TimerEventsTask';
 
 AppRegistry.registerComponent(appName, () => App);
+AppRegistry.registerHeadlessTask(TIMER_EVENTS_TASK, () => timerEventsTask);
@@ -0,0 +1,31 @@
+#!/bin/bash
+# Frame times while answering quickly, the moment the mascot pose swaps.
+#
+# Every answer records main-thread frame intervals for 1.5 s into the
+# "frame_cached" metric, or "frame_legacy" when the mascots are drawn with
+# <Image> because ImageCache.setNativeCacheEnabled(false) was called. Run
+# once each way to compare; gfxinfo gives the render-thread view of the
+# same session.
+#
+# Needs one connected device, ideally a low-end one, with a release build
+# made with -PframeMetricsEnabled=true; other release builds record nothing.
+# Usage: scripts/measure-feedback-frames.sh
+
+set -e
+
+PACKAGE="com.brainbites"
+SERVICE="$PACKAGE/.BrainBitesTimerService"
+
+adb wait-for-device
+adb shell am force-stop "$PACKAGE"
+adb shell monkey -p "$PACKAGE" -c android.intent.category.LAUNCHER 1 > /dev/null
+read -r -p "Open a quiz and start the timer, then press Enter... "
+
+adb shell dumpsys gfxinfo "$PACKAGE" reset > /dev/null
+read -r -p "Answer 20 questions as fast as you can, then press Enter... "
+
+echo "== gfxinfo"
+adb shell dumpsys gfxinfo "$PACKAGE" | grep -E "Total frames rendered|Janky frames|50th|90th|95th|99th"
+
+echo "== frame intervals after answers (us): count mean p50 p95 p99 max"
+adb shell dumpsys activity service "$SERVICE" | grep -E "frame_cached|frame_legacy|image_decode|image_hits|image_misses"
@@ -0,0 +1,77 @@
+#!/bin/bash
+# Compares the timer service running in the app process against the
+# separate ":timer" process: memory held while only the timer is alive, and
+# how long the service takes to come back after its process is killed.
+#
+# Needs one connected emulator or rooted device (kill -9 runs as root).
+# Usage: scripts/measure-timer-process.sh [runs]
+
+set -e
+
+PACKAGE="com.brainbites"
+SERVICE="$PACKAGE/.BrainBitesTimerService"
+RUNS="${1:-5}"
+ROOT_DIR="$(cd "$(dirname "$0")/.." && pwd)"
+
+adb root > /dev/null
+adb wait-for-device
+
+pss_of() {
+  adb shell dumpsys meminfo "$1" | awk '/TOTAL PSS:/ { print $3; exit } /TOTAL:/ { print $2; exit }'
+}
+
+pid_of() {
+  adb shell pidof "$1" | tr -d '\r'
+}
+
+measure() {
+  local enabled="$1"
+  local process="$PACKAGE"
+  if [ "$enabled" = "true" ]; then
+    process="$PACKAGE:timer"
+  fi
+
+  echo "== timerProcessEnabled=$enabled ($process)"
+  (cd "$ROOT_DIR/android" && ./gradlew -q installRelease -PtimerProcessEnabled="$enabled")
+
+  adb shell am force-stop "$PACKAGE"
+  adb shell monkey -p "$PACKAGE" -c android.intent.category.LAUNCHER 1 > /dev/null
+  read -r -p "Start the timer in the app, then press Enter... "
+
+  # Background the UI so the system can reclaim it; only the timer should stay
+  adb shell input keyevent KEYCODE_HOME
+  if [ "$enabled" = "true" ]; then
+    adb shell am kill "$PACKAGE"
+  fi
+  sleep 5
+
+  echo "PSS of $process: $(pss_of "$process") KB"
+
+  local total=0
+  for run in $(seq 1 "$RUNS"); do
+    local pid
+    pid="$(pid_of "$process")"
+    if [ -z "$pid" ]; then
+      echo "$process is not running"
+      return 1
+    fi
+    local start
+    start=$(date +%s%N)
+    adb shell kill -9 "$pid"
+
+    local next=""
+    while [ -z "$next" ] || [ "$next" = "$pid" ]; do
+      next="$(pid_of "$process")"
+    done
+    until adb shell dumpsys activity services "$SERVICE" | grep -q "app=ProcessRecord"; do
+      :
+    done
+    local elapsed=$(( ($(date +%s%N) - start) / 1000000 ))
+    total=$((total + elapsed))
+    echo "run $run: restarted in ${elapsed} ms"
+  done
+  echo "mean restart: $((total / RUNS)) ms"
+}
+
+measure false
+measure true
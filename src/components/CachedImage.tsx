@@ -0,0 +1,31 @@
+import React from 'react';
+import { Image, ImageSourcePropType, ImageStyle, StyleProp, requireNativeComponent } from 'react-native';
+import ImageCache from '../services/ImageCache';
+
+interface NativeCachedImageProps {
+  cacheKey: string;
+  style?: StyleProp<ImageStyle>;
+}
+
+const NativeCachedImage = ImageCache.isAvailable
+  ? requireNativeComponent<NativeCachedImageProps>('BrainBitesCachedImage')
+  : null;
+
+interface CachedImageProps {
+  cacheKey: string; // as preloaded through ImageCache
+  source: ImageSourcePropType; // used when the native cache is off or missing
+  style?: StyleProp<ImageStyle>;
+}
+
+/**
+ * A preloaded bitmap from the native cache, fitted and centred like
+ * resizeMode="contain". Swapping the key never decodes on the main thread.
+ */
+const CachedImage: React.FC<CachedImageProps> = ({ cacheKey, source, style }) => {
+  if (NativeCachedImage && ImageCache.isEnabled()) {
+    return <NativeCachedImage cacheKey={cacheKey} style={style} />;
+  }
+  return <Image source={source} style={style} resizeMode="contain" />;
+};
+
+export default CachedImage;
@@ -7,15 +7,16 @@ import {
   Animated,
   Dimensions,
   Platform,
-  Image,
 } from 'react-native';
 import Icon from 'react-native-vector-icons/MaterialCommunityIcons';
 import SoundService from '../services/SoundService';
+import CachedImage from './CachedImage';
+import { MASCOT_IMAGES, MascotType, mascotKey } from './mascotImages';
 
 const { width, height } = Dimensions.get('window');
 
 interface MascotProps {
-  type?: 'happy' | 'excited' | 'thoughtful' | 'encouraging' | 'celebration' | 'sad' | 'peeking';
+  type?: MascotType;
   message?: string;
   onDismiss?: () => void;
   onPress?: () => void;
@@ -142,25 +143,8 @@ const Mascot: React.FC<MascotProps> = ({
   };
   
   // Get mascot image based on type
-  const getMascotImage = () => {
-    try {
-      const images = {
-        happy: require('../assets/images/mascot_happy.png'),
-        excited: require('../assets/images/mascot_excited.png'),
-        thoughtful: require('../assets/images/mascot_thoughtful.png'),
-        encouraging: require('../assets/images/mascot_encouraging.png'),
-        celebration: require('../assets/images/mascot_celebration.png'),
-        sad: require('../assets/images/mascot_sad.png'),
-        peeking: require('../assets/images/mascot_peeking.png'),
-      };
-      
-      return images[type] || images.happy;
-    } catch (error) {
-      // Return null if images not found
-      console.log('Mascot images not found. Please add mascot images to assets/images/');
-      return null;
-    }
-  };
+  const getMascotImage = () => MASCOT_IMAGES[type] || MASCOT_IMAGES.happy;
+  const imageKey = MASCOT_IMAGES[type] ? mascotKey(type) : mascotKey('happy');
   
   // Get position styles
   const getPositionStyles = () => {
@@ -240,13 +224,13 @@ const Mascot: React.FC<MascotProps> = ({
         style={styles.mascotContainer}
       >
         {getMascotImage() ? (
-          <Image
+          <CachedImage
+            cacheKey={imageKey}
             source={getMascotImage()}
             style={[
               styles.mascotImage,
               dimensions,
             ]}
-            resizeMode="contain"
           />
         ) : (
           <View style={[styles.mascotPlaceholder, dimensions]}>
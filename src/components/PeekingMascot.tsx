@@ -4,11 +4,12 @@ import {
   TouchableOpacity,
   Animated,
   Dimensions,
-  Image,
   StyleSheet,
 } from 'react-native';
 import Icon from 'react-native-vector-icons/MaterialCommunityIcons';
 import SoundService from '../services/SoundService';
+import CachedImage from './CachedImage';
+import { MASCOT_IMAGES, mascotKey } from './mascotImages';
 
 const { width, height } = Dimensions.get('window');
 
@@ -105,13 +106,7 @@ const PeekingMascot: React.FC<PeekingMascotProps> = ({
     outputRange: side === 'left' ? [-100, 0] : [100, 0],
   });
   
-  const getMascotImage = () => {
-    try {
-      return require('../assets/images/mascot_peeking.png');
-    } catch (error) {
-      return null;
-    }
-  };
+  const getMascotImage = () => MASCOT_IMAGES.peeking;
 
   return (
     <Animated.View
@@ -130,10 +125,10 @@ const PeekingMascot: React.FC<PeekingMascotProps> = ({
         style={styles.touchable}
       >
         {getMascotImage() ? (
-          <Image
+          <CachedImage
+            cacheKey={mascotKey('peeking')}
             source={getMascotImage()}
             style={styles.mascot}
-            resizeMode="contain"
           />
         ) : (
           <View style={styles.mascotPlaceholder}>
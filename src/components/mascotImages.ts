@@ -0,0 +1,25 @@
+import { CachedImageSource } from '../services/ImageCache';
+
+export type MascotType = 'happy' | 'excited' | 'thoughtful' | 'encouraging' | 'celebration' | 'sad' | 'peeking';
+
+export const MASCOT_IMAGES: Record<MascotType, number> = {
+  happy: require('../assets/images/mascot_happy.png'),
+  excited: require('../assets/images/mascot_excited.png'),
+  thoughtful: require('../assets/images/mascot_thoughtful.png'),
+  encouraging: require('../assets/images/mascot_encouraging.png'),
+  celebration: require('../assets/images/mascot_celebration.png'),
+  sad: require('../assets/images/mascot_sad.png'),
+  peeking: require('../assets/images/mascot_peeking.png'),
+};
+
+export const mascotKey = (type: MascotType): string => `mascot_${type}`;
+
+// Largest boxes the views use, in dp: Mascot's "large" size and PeekingMascot
+const MASCOT_BOX = 150;
+const PEEKING_BOX = 100;
+
+/** Every mascot pose, decoded to fit the largest view that shows it. */
+export const MASCOT_CACHE_SOURCES: CachedImageSource[] = (Object.keys(MASCOT_IMAGES) as MascotType[]).map((type) => {
+  const box = type === 'peeking' ? PEEKING_BOX : MASCOT_BOX;
+  return { key: mascotKey(type), source: MASCOT_IMAGES[type], width: box, height: box };
+});
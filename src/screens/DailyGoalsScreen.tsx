@@ -1,11 +1,17 @@
 // src/screens/DailyGoalsScreen.tsx
-import React from 'react';
+import React, { useEffect, useState } from 'react';
 import { StyleSheet, SafeAreaView, View, TouchableOpacity, Text } from 'react-native';
 import { useNavigation } from '@react-navigation/native';
+import EnhancedTimerService, { UsageSnapshot } from '../services/EnhancedTimerService';
 import Icon from 'react-native-vector-icons/MaterialCommunityIcons';
 import { Colors, Fonts, Spacing } from '@/utils/constants';
 const DailyGoalsScreen = () => {
     const navigation = useNavigation();
+    const [usage, setUsage] = useState<UsageSnapshot | null>(null);
+
+    useEffect(() => {
+      EnhancedTimerService.getUsageSnapshot().then(setUsage);
+    }, []);
   
     return (
       <SafeAreaView style={styles.container}>
@@ -21,6 +27,12 @@ const DailyGoalsScreen = () => {
           <Icon name="target" size={80} color={Colors.primary} />
           <Text style={styles.message}>Daily Goals Screen</Text>
           <Text style={styles.info}>Coming soon...</Text>
+          {usage && (
+            <Text style={styles.info}>
+              Today: earned {EnhancedTimerService.formatTime(usage.today.earned)}, used{' '}
+              {EnhancedTimerService.formatTime(usage.today.spent)}
+            </Text>
+          )}
         </View>
       </SafeAreaView>
     );
@@ -529,6 +529,7 @@ const HomeScreen: React.FC<HomeScreenProps> = ({ navigation }) => {
             <TouchableOpacity
               onPress={() => handleDifficultyPress(diff.level)}
               activeOpacity={0.8}
+              testID={`home-difficulty-${diff.level}`}
             >
               <LinearGradient
                 colors={[diff.color, diff.color + 'DD']}
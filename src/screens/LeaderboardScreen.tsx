@@ -1,12 +1,65 @@
 // src/screens/LeaderboardScreen.tsx
-import React from 'react';
-import { SafeAreaView, View, TouchableOpacity, Text, StyleSheet } from 'react-native';
+import React, { useEffect, useState } from 'react';
+import { SafeAreaView, View, TouchableOpacity, Text, StyleSheet, ScrollView } from 'react-native';
 import Icon from 'react-native-vector-icons/MaterialCommunityIcons';
 import { Colors } from '@/utils/constants';
 import { useNavigation } from '@react-navigation/native';
+import EnhancedTimerService, { UsageSnapshot } from '../services/EnhancedTimerService';
+import LeaderboardService, { LeaderboardEntry, PlayerRank } from '../services/LeaderboardService';
+
+const TOP_COUNT = 20;
+const NEARBY_RADIUS = 2;
 
 const LeaderboardScreen = () => {
     const navigation = useNavigation();
+    const [usage, setUsage] = useState<UsageSnapshot | null>(null);
+    const [playerId, setPlayerId] = useState<string | null>(null);
+    const [rank, setRank] = useState<PlayerRank | null>(null);
+    const [top, setTop] = useState<LeaderboardEntry[]>([]);
+    const [nearby, setNearby] = useState<LeaderboardEntry[]>([]);
+
+    useEffect(() => {
+      EnhancedTimerService.getUsageSnapshot().then(setUsage);
+      if (!LeaderboardService.isAvailable) return;
+
+      let active = true;
+      // Pages are read from the native board; nothing is sorted here
+      const load = async () => {
+        const [id, mine, page] = await Promise.all([
+          LeaderboardService.getPlayerId(),
+          LeaderboardService.getRank(),
+          LeaderboardService.getPage(0, TOP_COUNT),
+        ]);
+        // Just past the top list the window is cut short rather than repeat its last rows
+        const nearbyStart = mine ? Math.max(TOP_COUNT, mine.position - NEARBY_RADIUS) : 0;
+        const around = mine && mine.position >= TOP_COUNT
+          ? await LeaderboardService.getPage(nearbyStart, mine.position + NEARBY_RADIUS + 1 - nearbyStart)
+          : [];
+        if (!active) return;
+        setPlayerId(id);
+        setRank(mine);
+        setTop(page);
+        setNearby(around);
+      };
+      load()
+        .then(() => LeaderboardService.sync())
+        .then((result) => (result && result.received > 0 ? load() : undefined))
+        .catch((error) => console.log('Leaderboard sync skipped:', error));
+      return () => {
+        active = false;
+      };
+    }, []);
+
+    const renderRow = (entry: LeaderboardEntry) => {
+      const isPlayer = entry.id === playerId;
+      return (
+        <View key={entry.id} style={[styles.row, isPlayer && styles.playerRow]}>
+          <Text style={styles.rowRank}>#{entry.rank}</Text>
+          <Text style={styles.rowName} numberOfLines={1}>{isPlayer ? 'You' : entry.id}</Text>
+          <Text style={styles.rowScore}>{entry.score}</Text>
+        </View>
+      );
+    };
   
     return (
       <SafeAreaView style={styles.container}>
@@ -18,11 +71,25 @@ const LeaderboardScreen = () => {
           <View style={{ width: 28 }} />
         </View>
         
-        <View style={styles.content}>
+        <ScrollView contentContainerStyle={styles.content}>
           <Icon name="podium" size={80} color={Colors.primary} />
-          <Text style={styles.message}>Leaderboard Screen</Text>
-          <Text style={styles.info}>Coming soon...</Text>
-        </View>
+          {rank ? (
+            <Text style={styles.message}>#{rank.rank} of {rank.total}</Text>
+          ) : (
+            <Text style={styles.info}>Answer a question to join the leaderboard</Text>
+          )}
+          {usage && (
+            <Text style={styles.info}>
+              Earned this week: {EnhancedTimerService.formatTime(usage.week.earned)} · this month:{' '}
+              {EnhancedTimerService.formatTime(usage.month.earned)}
+            </Text>
+          )}
+          <View style={styles.list}>
+            {top.map(renderRow)}
+            {nearby.length > 0 && <Text style={styles.gap}>···</Text>}
+            {nearby.map(renderRow)}
+          </View>
+        </ScrollView>
       </SafeAreaView>
     );
   };
@@ -47,8 +114,6 @@ const LeaderboardScreen = () => {
       color: Colors.textPrimary,
     },
     content: {
-      flex: 1,
-      justifyContent: 'center',
       alignItems: 'center',
       padding: 24,
     },
@@ -63,5 +128,41 @@ const LeaderboardScreen = () => {
       color: Colors.textLight,
       marginTop: 16,
     },
+    list: {
+      alignSelf: 'stretch',
+      marginTop: 24,
+    },
+    row: {
+      flexDirection: 'row',
+      alignItems: 'center',
+      paddingVertical: 10,
+      paddingHorizontal: 12,
+      borderBottomWidth: 1,
+      borderBottomColor: '#E0E0E0',
+    },
+    playerRow: {
+      backgroundColor: '#FFF4E0',
+    },
+    rowRank: {
+      width: 56,
+      fontSize: 16,
+      fontWeight: 'bold',
+      color: Colors.textPrimary,
+    },
+    rowName: {
+      flex: 1,
+      fontSize: 16,
+      color: Colors.textPrimary,
+    },
+    rowScore: {
+      fontSize: 16,
+      fontWeight: 'bold',
+      color: Colors.primary,
+    },
+    gap: {
+      textAlign: 'center',
+      color: Colors.textLight,
+      paddingVertical: 6,
+    },
   });
   export default LeaderboardScreen;
\ No newline at end of file
@@ -24,11 +24,15 @@ import QuizService from '../services/QuizService';
 import EnhancedTimerService from '../services/EnhancedTimerService';
 import SoundService from '../services/SoundService';
 import ScoreService from '../services/ScoreService';
+import ImageCache from '../services/ImageCache';
 
 // Import components
 import Mascot from '../components/Mascot';
 import PeekingMascot from '../components/PeekingMascot';
 
+// Frames recorded after an answer; see scripts/measure-feedback-frames.sh
+const FEEDBACK_FRAME_WINDOW_MS = 1500;
+
 // Types
 interface QuizScreenProps {
   navigation: NavigationProp<any>;
@@ -84,6 +88,9 @@ const QuizScreen: React.FC<QuizScreenProps> = ({ navigation, route }) => {
   const pointsSlideAnim = useRef(new Animated.Value(0)).current;
   const explanationAnim = useRef(new Animated.Value(0)).current;
   
+  // When the current question was shown, for the scheduler's response time
+  const questionShownAt = useRef(0);
+  
   // Create animation values for each option
   const optionAnims = useRef([
     new Animated.Value(0),
@@ -154,6 +161,7 @@ const QuizScreen: React.FC<QuizScreenProps> = ({ navigation, route }) => {
       const question = await QuizService.getRandomQuestion(category);
       if (question) {
         setCurrentQuestion(question);
+        questionShownAt.current = Date.now();
         
         // Animate question entrance
         Animated.parallel([
@@ -210,8 +218,20 @@ const QuizScreen: React.FC<QuizScreenProps> = ({ navigation, route }) => {
     SoundService.playButtonPress();
     
     setSelectedAnswer(answer);
+    if (mascotEnabled && ImageCache.isMeasuringFrames()) {
+      // Covers the mascot swap, including the delayed one after a wrong answer
+      ImageCache.captureFrames(FEEDBACK_FRAME_WINDOW_MS).then((stats) => {
+        if (__DEV__ && stats) {
+          console.log(`[frames] cache=${ImageCache.isEnabled()} frames=${stats.frames} janky=${stats.janky} `
+            + `p50=${stats.p50Ms.toFixed(1)}ms p90=${stats.p90Ms.toFixed(1)}ms max=${stats.maxMs.toFixed(1)}ms`);
+        }
+      });
+    }
     const correct = answer === currentQuestion?.correctAnswer;
     setIsCorrect(correct);
+    if (currentQuestion) {
+      QuizService.recordAnswer(currentQuestion.id, correct, Date.now() - questionShownAt.current);
+    }
     
     // Update statistics
     setQuestionsAnswered(prev => prev + 1);
@@ -437,6 +457,7 @@ const QuizScreen: React.FC<QuizScreenProps> = ({ navigation, route }) => {
           onPress={() => handleAnswerSelect(optionKey)}
           disabled={selectedAnswer !== null}
           activeOpacity={0.7}
+          testID={`quiz-answer-${optionKey}`}
         >
           <View style={styles.optionContent}>
             <View style={[styles.optionLabel, { backgroundColor: borderColor }]}>
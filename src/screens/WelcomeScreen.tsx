@@ -200,7 +200,7 @@ const WelcomeScreen: React.FC<WelcomeScreenProps> = ({ navigation }) => {
       <View style={styles.buttonContainer}>
         {currentPage < pages.length - 1 ? (
           <>
-            <TouchableOpacity onPress={handleSkip} style={styles.skipButton}>
+            <TouchableOpacity onPress={handleSkip} style={styles.skipButton} testID="welcome-skip">
               <Text style={styles.skipText}>Skip</Text>
             </TouchableOpacity>
             
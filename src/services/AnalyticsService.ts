@@ -1,6 +1,10 @@
 import AsyncStorage from '@react-native-async-storage/async-storage';
 import DeviceInfo from 'react-native-device-info';
 import analytics from '@react-native-firebase/analytics';
+import { NativeModules, Platform } from 'react-native';
+
+// Native append-only event log; keeps running aggregates so metrics are never rebuilt in JS
+const NativeAnalytics = Platform.OS === 'android' ? NativeModules.BrainBitesAnalytics : null;
 
 interface AnalyticsEvent {
   name: string;
@@ -45,8 +49,16 @@ class AnalyticsService {
     lastActiveDate: new Date().toISOString(),
   };
 
+  private useNativeLog = !!NativeAnalytics;
+
   async initialize(): Promise<void> {
     try {
+      if (this.useNativeLog) {
+        await this.refreshMetrics();
+        this.startSession();
+        return;
+      }
+
       // Load saved metrics
       const savedMetrics = await AsyncStorage.getItem(this.STORAGE_KEY);
       if (savedMetrics) {
@@ -90,6 +102,11 @@ class AnalyticsService {
       startTime: Date.now(),
       events: [],
     };
+
+    if (this.useNativeLog) {
+      NativeAnalytics.startSession();
+      return;
+    }
     
     this.metrics.totalSessions++;
     this.metrics.lastActiveDate = new Date().toISOString();
@@ -100,6 +117,13 @@ class AnalyticsService {
   async endSession(): Promise<void> {
     if (!this.currentSession) return;
 
+    if (this.useNativeLog) {
+      NativeAnalytics.endSession();
+      this.currentSession = null;
+      await this.refreshMetrics();
+      return;
+    }
+
     this.currentSession.endTime = Date.now();
     const sessionLength = this.currentSession.endTime - this.currentSession.startTime;
     
@@ -133,19 +157,34 @@ class AnalyticsService {
   trackEvent(eventName: string, properties?: Record<string, any>): void {
     if (!this.currentSession) return;
 
-    const event: AnalyticsEvent = {
-      name: eventName,
-      properties,
-      timestamp: Date.now(),
-    };
+    if (this.useNativeLog) {
+      this.logNativeEvent(eventName, properties);
+    } else {
+      const event: AnalyticsEvent = {
+        name: eventName,
+        properties,
+        timestamp: Date.now(),
+      };
 
-    this.currentSession.events.push(event);
-    this.saveCurrentSession();
+      this.currentSession.events.push(event);
+      this.saveCurrentSession();
 
-    // Update specific metrics based on event
-    this.updateMetricsFromEvent(eventName, properties);
+      // Update specific metrics based on event
+      this.updateMetricsFromEvent(eventName, properties);
+    }
 
-    // Send to Firebase Analytics
+    this.logFirebaseEvent(eventName, properties);
+  }
+
+  // Events from background work such as the timer events task, where there is no session
+  trackBackgroundEvent(eventName: string, properties?: Record<string, any>): void {
+    if (this.useNativeLog) {
+      this.logNativeEvent(eventName, properties);
+    }
+    this.logFirebaseEvent(eventName, properties);
+  }
+
+  private logFirebaseEvent(eventName: string, properties?: Record<string, any>): void {
     if (eventName && typeof analytics === 'function') {
       // Firebase Analytics event names must be <= 40 chars, alphanumeric/underscores only
       const firebaseEventName = eventName.replace(/[^a-zA-Z0-9_]/g, '').slice(0, 40);
@@ -153,6 +192,45 @@ class AnalyticsService {
     }
   }
 
+  // One fixed-size record per event; the native side updates the aggregates incrementally
+  private logNativeEvent(eventName: string, properties?: Record<string, any>): void {
+    const types = NativeAnalytics.EVENT_TYPES || {};
+    const type = types[eventName] ?? types.other ?? 0;
+    let value = 0;
+
+    switch (eventName) {
+      case 'question_answered':
+        value = properties?.correct ? 1 : 0;
+        break;
+      case 'time_earned':
+        value = properties?.seconds || 0;
+        break;
+      case 'quiz_completed':
+        value = properties?.correct_answers || 0;
+        break;
+    }
+
+    NativeAnalytics.logEvent(type, properties?.category ?? null, value, 0);
+  }
+
+  // Pull the natively maintained aggregates into the cached summary
+  async refreshMetrics(): Promise<UserMetrics> {
+    if (!this.useNativeLog) {
+      return this.getAnalyticsSummary();
+    }
+
+    try {
+      const nativeMetrics = await NativeAnalytics.getMetrics();
+      this.metrics = {
+        ...nativeMetrics,
+        lastActiveDate: new Date(nativeMetrics.lastActiveTime || Date.now()).toISOString(),
+      };
+    } catch (error) {
+      console.error('Error reading native analytics metrics:', error);
+    }
+    return this.getAnalyticsSummary();
+  }
+
   private updateMetricsFromEvent(eventName: string, properties?: Record<string, any>): void {
     switch (eventName) {
       case 'question_answered':
@@ -264,6 +342,10 @@ class AnalyticsService {
     };
     
     this.currentSession = null;
+
+    if (this.useNativeLog) {
+      await NativeAnalytics.clear();
+    }
     
     await AsyncStorage.multiRemove([this.STORAGE_KEY, this.SESSION_STORAGE_KEY]);
   }
@@ -1,4 +1,5 @@
-import AsyncStorage from '@react-native-async-storage/async-storage';
+import KeyValueStore, { KVEntries } from './KeyValueStore';
+import GoalRules, { GoalAggregation, GoalEvent, RuleSpec } from './GoalRules';
 
 interface DailyGoal {
   id: string;
@@ -12,6 +13,15 @@ interface DailyGoal {
   type: 'questions' | 'streak' | 'accuracy' | 'time' | 'categories';
 }
 
+// How each goal type is evaluated by the native rules engine
+const GOAL_RULES: Record<DailyGoal['type'], { event: number; aggregation: number }> = {
+  questions: { event: GoalEvent.question, aggregation: GoalAggregation.sum },
+  streak: { event: GoalEvent.streak, aggregation: GoalAggregation.max },
+  accuracy: { event: GoalEvent.accuracy, aggregation: GoalAggregation.latest },
+  time: { event: GoalEvent.playTime, aggregation: GoalAggregation.sum },
+  categories: { event: GoalEvent.categories, aggregation: GoalAggregation.latest },
+};
+
 interface DailyGoalsData {
   date: string;
   goals: DailyGoal[];
@@ -21,7 +31,11 @@ interface DailyGoalsData {
 
 class DailyGoalsService {
   private STORAGE_KEY = 'brainbites_daily_goals';
+  // Goal definitions come from the templates; only the day's picks and
+  // per-goal progress are stored, one key per value
+  private KEY_PREFIX = 'goals.';
   private currentGoals: DailyGoalsData | null = null;
+  private rulesLoaded = false;
 
   // Goal templates
   private goalTemplates: Partial<DailyGoal>[] = [
@@ -87,17 +101,16 @@ class DailyGoalsService {
 
   private async loadDailyGoals(): Promise<void> {
     try {
-      const stored = await AsyncStorage.getItem(this.STORAGE_KEY);
+      await KeyValueStore.hydrate();
+      await this.migrateLegacyGoals();
       const today = new Date().toDateString();
+      const data = this.readGoals();
 
-      if (stored) {
-        const data: DailyGoalsData = JSON.parse(stored);
-        
-        // Check if goals are from today
-        if (data.date === today) {
-          this.currentGoals = data;
-          return;
-        }
+      // Check if goals are from today
+      if (data && data.date === today) {
+        this.currentGoals = data;
+        await this.loadRules();
+        return;
       }
 
       // Generate new daily goals
@@ -130,18 +143,92 @@ class DailyGoalsService {
     };
 
     await this.saveGoals();
+    await this.loadRules();
+  }
+
+  /** Hands today's goals, with their progress so far, to the native engine. */
+  private async loadRules(): Promise<void> {
+    if (!GoalRules.isAvailable || !this.currentGoals) return;
+    this.rulesLoaded = false;
+    try {
+      const rules: RuleSpec[] = this.currentGoals.goals.map(goal => ({
+        id: goal.id,
+        ...GOAL_RULES[goal.type],
+        target: goal.target,
+        value: goal.current,
+        completed: goal.completed,
+      }));
+      await GoalRules.load('daily', rules);
+      this.rulesLoaded = true;
+    } catch (error) {
+      console.error('Error loading goal rules:', error);
+    }
+  }
+
+  private async migrateLegacyGoals(): Promise<void> {
+    // Goals are keyed per id, so the document is laid out by goalEntries rather than field by field
+    await KeyValueStore.migrateDocument<DailyGoalsData>(this.STORAGE_KEY, this.KEY_PREFIX, (data) =>
+      this.goalEntries(data),
+    );
+  }
+
+  private readGoals(): DailyGoalsData | null {
+    const stored = KeyValueStore.getByPrefix(this.KEY_PREFIX);
+    const date = stored[this.KEY_PREFIX + 'date'];
+    const ids = stored[this.KEY_PREFIX + 'ids'];
+    if (typeof date !== 'string' || typeof ids !== 'string') return null;
+
+    const goals: DailyGoal[] = [];
+    for (const id of JSON.parse(ids) as string[]) {
+      const template = this.goalTemplates.find(t => t.id === id);
+      if (!template) continue;
+      goals.push({
+        ...template as DailyGoal,
+        current: (stored[this.goalKey(id, 'current')] as number) || 0,
+        completed: stored[this.goalKey(id, 'completed')] === true,
+      });
+    }
+
+    return {
+      date,
+      goals,
+      completedGoals: (stored[this.KEY_PREFIX + 'completedGoals'] as number) || 0,
+      totalRewardsEarned: (stored[this.KEY_PREFIX + 'totalRewardsEarned'] as number) || 0,
+    };
+  }
+
+  private goalKey(goalId: string, field: 'current' | 'completed'): string {
+    return `${this.KEY_PREFIX}${goalId}.${field}`;
   }
 
-  private async saveGoals(): Promise<void> {
+  /** Writes the day's goal list and totals, plus progress for `goals` (all by default). */
+  private async saveGoals(goals?: DailyGoal[]): Promise<void> {
     try {
       if (this.currentGoals) {
-        await AsyncStorage.setItem(this.STORAGE_KEY, JSON.stringify(this.currentGoals));
+        await KeyValueStore.multiSet(this.goalEntries(this.currentGoals, goals));
       }
     } catch (error) {
       console.error('Error saving daily goals:', error);
     }
   }
 
+  /** Keys for `data`; with `goals`, only those goals' progress and not the day's goal list. */
+  private goalEntries(data: DailyGoalsData, goals?: DailyGoal[]): KVEntries {
+    const entries: KVEntries = {
+      [this.KEY_PREFIX + 'completedGoals']: data.completedGoals,
+      [this.KEY_PREFIX + 'totalRewardsEarned']: data.totalRewardsEarned,
+    };
+    if (!goals) {
+      entries[this.KEY_PREFIX + 'date'] = data.date;
+      entries[this.KEY_PREFIX + 'ids'] = JSON.stringify(data.goals.map(g => g.id));
+    }
+    for (const goal of goals || data.goals) {
+      entries[this.goalKey(goal.id, 'current')] = goal.current;
+      entries[this.goalKey(goal.id, 'completed')] = goal.completed;
+    }
+    return entries;
+  }
+
   getDailyGoals(): DailyGoal[] {
     return this.currentGoals?.goals || [];
   }
@@ -157,7 +244,12 @@ class DailyGoalsService {
   async updateProgress(type: DailyGoal['type'], value: number, additionalData?: any): Promise<DailyGoal[]> {
     if (!this.currentGoals) return [];
 
+    if (this.rulesLoaded) {
+      return this.updateProgressNative(type, value, additionalData);
+    }
+
     const completedGoals: DailyGoal[] = [];
+    const updatedGoals: DailyGoal[] = [];
 
     for (const goal of this.currentGoals.goals) {
       if (goal.completed) continue;
@@ -204,6 +296,7 @@ class DailyGoalsService {
 
       if (shouldUpdate) {
         goal.current = newValue;
+        updatedGoals.push(goal);
 
         // Check if goal is completed
         if (newValue >= goal.target && !goal.completed) {
@@ -215,7 +308,61 @@ class DailyGoalsService {
       }
     }
 
-    await this.saveGoals();
+    if (updatedGoals.length > 0) {
+      await this.saveGoals(updatedGoals);
+    }
+    return completedGoals;
+  }
+
+  private async updateProgressNative(
+    type: DailyGoal['type'],
+    value: number,
+    additionalData?: any
+  ): Promise<DailyGoal[]> {
+    let eventValue = value;
+    if (type === 'accuracy') {
+      if (!(additionalData?.totalQuestions >= 5)) return [];
+      eventValue = Math.round((additionalData.correctAnswers / additionalData.totalQuestions) * 100);
+    } else if (type === 'categories') {
+      if (!additionalData?.categories) return [];
+      eventValue = additionalData.categories.size;
+    }
+
+    try {
+      const delta = await GoalRules.submit('daily', [GOAL_RULES[type].event, eventValue]);
+      return this.applyDelta(delta.touched, delta.completed);
+    } catch (error) {
+      console.error('Error updating goal progress:', error);
+      return [];
+    }
+  }
+
+  /** Applies an engine delta to the in-memory goals and stores just those goals. */
+  private async applyDelta(touched: number[], completed: number[]): Promise<DailyGoal[]> {
+    const data = this.currentGoals;
+    if (!data || touched.length === 0) return [];
+
+    const updatedGoals: DailyGoal[] = [];
+    for (let i = 0; i < touched.length; i += 2) {
+      const goal = data.goals[touched[i]];
+      if (goal) {
+        goal.current = touched[i + 1];
+        updatedGoals.push(goal);
+      }
+    }
+
+    const completedGoals: DailyGoal[] = [];
+    for (const index of completed) {
+      const goal = data.goals[index];
+      if (goal && !goal.completed) {
+        goal.completed = true;
+        data.completedGoals++;
+        data.totalRewardsEarned += goal.reward;
+        completedGoals.push(goal);
+      }
+    }
+
+    await this.saveGoals(updatedGoals);
     return completedGoals;
   }
 
@@ -229,7 +376,7 @@ class DailyGoalsService {
   }
 
   async resetDailyGoals(): Promise<void> {
-    await AsyncStorage.removeItem(this.STORAGE_KEY);
+    await KeyValueStore.removeByPrefix(this.KEY_PREFIX);
     this.currentGoals = null;
     await this.generateDailyGoals();
   }
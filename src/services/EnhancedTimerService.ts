@@ -1,4 +1,4 @@
-import AsyncStorage from '@react-native-async-storage/async-storage';
+import KeyValueStore from './KeyValueStore';
 import { NativeModules, Platform, DeviceEventEmitter, AppState } from 'react-native';
 
 const BrainBitesTimer = Platform.OS === 'android' ? NativeModules.BrainBitesTimer : null;
@@ -12,6 +12,44 @@ interface TimerData {
   lastResetDate: string;
 }
 
+export interface UsageTotals {
+  earned: number;
+  spent: number;
+  overtime: number;
+}
+
+export interface UsageSnapshot {
+  today: UsageTotals;
+  week: UsageTotals;
+  month: UsageTotals;
+  todayHourlySpent: number[];
+  apps: Record<string, { today: number; week: number; month: number }>;
+}
+
+export interface TimerProfile {
+  id: string;
+  remainingTime: number;
+  negativeTime: number;
+  active: boolean;
+}
+
+export interface LatencySummary {
+  count: number;
+  meanUs: number;
+  p50Us: number;
+  p95Us: number;
+  p99Us: number;
+  maxUs: number;
+  buckets: number[];
+}
+
+export interface TimerMetrics {
+  since: number;
+  counters: Record<string, number>;
+  bucketBoundsUs: number[];
+  histograms: Record<string, LatencySummary>;
+}
+
 class EnhancedTimerService {
   private timerData: TimerData = {
     availableTime: 300, // Start with 5 minutes
@@ -23,13 +61,21 @@ class EnhancedTimerService {
   };
 
   private STORAGE_KEY = 'brainbites_timer_data';
+  private KEY_PREFIX = 'timer.';
+  private PROFILE_KEY = 'timerProfile.active';
   private updateListeners: Array<(time: number) => void> = [];
   private useNativeTimer = Platform.OS === 'android' && BrainBitesTimer;
   private nativeTimerSubscription: any = null;
   private appStateSubscription: any = null;
   private negativeTimeAccumulated = 0;
+  // Learner whose balance this service shows and credits; the native timer
+  // only ever charges its active profile
+  private profileId = 'default';
 
   async initialize(): Promise<void> {
+    // Restore the learner picked last time before anything reaches the native timer
+    await this.loadProfile();
+
     // Set up app state listener
     this.setupAppStateListener();
     
@@ -54,7 +100,7 @@ class EnhancedTimerService {
           
           // Start tracking if we have time
           if (this.timerData.availableTime > 0) {
-            BrainBitesTimer.startTracking();
+            BrainBitesTimer.startTracking(this.profileId);
           }
         }
       }
@@ -65,6 +111,7 @@ class EnhancedTimerService {
     this.nativeTimerSubscription = DeviceEventEmitter.addListener(
       'TimerUpdate',
       (data) => {
+        if (data.profileId && data.profileId !== this.profileId) return;
         this.timerData.availableTime = data.remainingTime;
         this.negativeTimeAccumulated = data.negativeTime;
         this.notifyListeners();
@@ -77,12 +124,24 @@ class EnhancedTimerService {
     );
   }
 
+  private async loadProfile(): Promise<void> {
+    try {
+      await KeyValueStore.hydrate();
+      const stored = KeyValueStore.getMany([this.PROFILE_KEY])[this.PROFILE_KEY];
+      if (typeof stored === 'string' && stored) {
+        this.profileId = stored;
+      }
+    } catch (error) {
+      console.error('Error loading timer profile:', error);
+    }
+  }
+
   async loadSavedTime(): Promise<void> {
     try {
       if (this.useNativeTimer && BrainBitesTimer) {
         // Get time from native service
-        const remainingTime = await BrainBitesTimer.getRemainingTime();
-        const negativeTime = await BrainBitesTimer.getNegativeTime();
+        const remainingTime = await BrainBitesTimer.getRemainingTime(this.profileId);
+        const negativeTime = await BrainBitesTimer.getNegativeTime(this.profileId);
         
         this.timerData.availableTime = remainingTime;
         this.negativeTimeAccumulated = negativeTime;
@@ -91,14 +150,13 @@ class EnhancedTimerService {
         
         // Start tracking if we have time or negative time
         if (remainingTime > 0 || negativeTime > 0) {
-          BrainBitesTimer.startTracking();
+          BrainBitesTimer.startTracking(this.profileId);
         }
       } else {
-        // Fallback to AsyncStorage
-        const savedData = await AsyncStorage.getItem(this.STORAGE_KEY);
-        if (savedData) {
-          this.timerData = JSON.parse(savedData);
-        }
+        // Fallback to the stored fields
+        await KeyValueStore.hydrate();
+        await KeyValueStore.migrateDocument<TimerData>(this.STORAGE_KEY, this.KEY_PREFIX);
+        this.timerData = KeyValueStore.readObject(this.KEY_PREFIX, this.timerData);
       }
       
       await this.checkDailyReset();
@@ -110,7 +168,12 @@ class EnhancedTimerService {
   private async saveData(): Promise<void> {
     try {
       this.timerData.lastUpdateTime = new Date().toISOString();
-      await AsyncStorage.setItem(this.STORAGE_KEY, JSON.stringify(this.timerData));
+      // Six scalars; unchanged ones are dropped natively, so this appends only what moved
+      await KeyValueStore.writeFields(
+        this.KEY_PREFIX,
+        this.timerData,
+        Object.keys(this.timerData) as (keyof TimerData)[]
+      );
     } catch (error) {
       console.error('Error saving timer data:', error);
     }
@@ -147,7 +210,7 @@ class EnhancedTimerService {
   async addTime(seconds: number): Promise<void> {
     if (this.useNativeTimer && BrainBitesTimer) {
       // Add time through native service
-      await BrainBitesTimer.addTime(seconds);
+      await BrainBitesTimer.addTime(this.profileId, seconds);
     } else {
       // Fallback to local storage
       this.timerData.availableTime += seconds;
@@ -178,6 +241,42 @@ class EnhancedTimerService {
     return true;
   }
 
+  getProfileId(): string {
+    return this.profileId;
+  }
+
+  /**
+   * Switches the learner using the device. The native timer charges the
+   * outgoing profile up to now and carries on against this one's balance.
+   */
+  async setProfile(profileId: string): Promise<void> {
+    if (profileId === this.profileId) return;
+    if (this.useNativeTimer && BrainBitesTimer) {
+      // Only take the profile on once the native timer has
+      await BrainBitesTimer.setActiveProfile(profileId);
+    }
+    this.profileId = profileId;
+    await KeyValueStore.multiSet({ [this.PROFILE_KEY]: profileId });
+    if (this.useNativeTimer && BrainBitesTimer) {
+      await this.loadSavedTime();
+      this.notifyListeners();
+    }
+  }
+
+  async getProfiles(): Promise<TimerProfile[]> {
+    if (!this.useNativeTimer || !BrainBitesTimer?.getProfiles) {
+      return [];
+    }
+    return BrainBitesTimer.getProfiles();
+  }
+
+  async removeProfile(profileId: string): Promise<boolean> {
+    if (!this.useNativeTimer || !BrainBitesTimer?.removeProfile) {
+      return false;
+    }
+    return BrainBitesTimer.removeProfile(profileId);
+  }
+
   getAvailableTime(): number {
     return this.timerData.availableTime;
   }
@@ -188,7 +287,7 @@ class EnhancedTimerService {
 
   async clearNegativeTime(): Promise<void> {
     if (this.useNativeTimer && BrainBitesTimer) {
-      await BrainBitesTimer.clearNegativeTime();
+      await BrainBitesTimer.clearNegativeTime(this.profileId);
       this.negativeTimeAccumulated = 0;
     }
   }
@@ -275,7 +374,7 @@ class EnhancedTimerService {
 
     try {
       // Check if service is available by trying to get time
-      const time = await BrainBitesTimer.getRemainingTime();
+      const time = await BrainBitesTimer.getRemainingTime(this.profileId);
       return typeof time === 'number';
     } catch (error) {
       console.log('Native timer check failed:', error);
@@ -287,8 +386,8 @@ class EnhancedTimerService {
     if (!this.useNativeTimer || !BrainBitesTimer) return;
 
     try {
-      const nativeTime = await BrainBitesTimer.getRemainingTime();
-      const nativeNegativeTime = await BrainBitesTimer.getNegativeTime();
+      const nativeTime = await BrainBitesTimer.getRemainingTime(this.profileId);
+      const nativeNegativeTime = await BrainBitesTimer.getNegativeTime(this.profileId);
       
       this.timerData.availableTime = nativeTime;
       this.negativeTimeAccumulated = nativeNegativeTime;
@@ -312,13 +411,57 @@ class EnhancedTimerService {
     
     // Clear negative time if using native timer
     if (this.useNativeTimer && BrainBitesTimer) {
-      await BrainBitesTimer.clearNegativeTime();
+      await BrainBitesTimer.clearNegativeTime(this.profileId);
     }
     
     await this.saveData();
     this.notifyListeners();
   }
 
+  // Rolling today / 7-day / 30-day totals maintained natively by the timer service
+  async getUsageSnapshot(): Promise<UsageSnapshot | null> {
+    if (!this.useNativeTimer || !BrainBitesTimer?.getUsageSnapshot) {
+      return null;
+    }
+
+    try {
+      return await BrainBitesTimer.getUsageSnapshot(this.profileId);
+    } catch (error) {
+      console.log('Usage snapshot failed:', error);
+      return null;
+    }
+  }
+
+  /**
+   * Balances (in seconds) at which a low-time warning fires on the way down.
+   * Expiry always fires; defaults are 300 and 60.
+   */
+  async setWarningThresholds(seconds: number[]): Promise<boolean> {
+    if (!this.useNativeTimer || !BrainBitesTimer?.setWarningThresholds) {
+      return false;
+    }
+
+    try {
+      return await BrainBitesTimer.setWarningThresholds(seconds);
+    } catch (error) {
+      console.log('Setting warning thresholds failed:', error);
+      return false;
+    }
+  }
+
+  async getMetrics(): Promise<TimerMetrics | null> {
+    if (!this.useNativeTimer || !BrainBitesTimer?.getMetrics) {
+      return null;
+    }
+
+    try {
+      return await BrainBitesTimer.getMetrics();
+    } catch (error) {
+      console.log('Timer metrics failed:', error);
+      return null;
+    }
+  }
+
   cleanup(): void {
     if (this.nativeTimerSubscription) {
       this.nativeTimerSubscription.remove();
@@ -0,0 +1,57 @@
+import { NativeModules, Platform } from 'react-native';
+
+// Native indexed rules engine; events only visit the rules that read them
+const NativeGoals = Platform.OS === 'android' ? NativeModules.BrainBitesGoals : null;
+
+export const GoalEvent = {
+  question: 0,
+  correct: 1,
+  streak: 2,
+  accuracy: 3,
+  playTime: 4,
+  categories: 5,
+  score: 6,
+  dailyStreak: 7,
+} as const;
+
+export const GoalAggregation = {
+  sum: 0,
+  max: 1,
+  latest: 2,
+  ratio: 3, // percentage of `event` over `denominator`, once the denominator reaches minCount
+} as const;
+
+export interface RuleSpec {
+  id: string;
+  event: number;
+  aggregation: number;
+  target: number;
+  denominator?: number;
+  minCount?: number;
+  // Seed state
+  value?: number;
+  count?: number;
+  completed?: boolean;
+}
+
+export interface RuleDelta {
+  // Flat [ruleIndex, progress, ruleIndex, progress, ...] for rules that changed
+  touched: number[];
+  // Indexes of rules this batch completed
+  completed: number[];
+}
+
+const GoalRules = {
+  isAvailable: !!NativeGoals,
+
+  load(scope: string, rules: RuleSpec[]): Promise<number> {
+    return NativeGoals.load(scope, rules);
+  },
+
+  /** Applies `events`, a flat [GoalEvent, value, ...] list, to one scope. */
+  submit(scope: string, events: number[]): Promise<RuleDelta> {
+    return NativeGoals.submit(scope, events);
+  },
+};
+
+export default GoalRules;
@@ -0,0 +1,80 @@
+import { Image, ImageSourcePropType, NativeModules, Platform } from 'react-native';
+
+// Native downsampled bitmap cache behind <CachedImage>; decodes off the main thread
+const NativeImages = Platform.OS === 'android' ? NativeModules.BrainBitesImages : null;
+
+export interface CachedImageSource {
+  key: string;
+  source: ImageSourcePropType;
+  width: number; // dp of the largest view showing it
+  height: number;
+}
+
+export interface ImageCacheStats {
+  count: number;
+  bytes: number;
+  maxBytes: number;
+}
+
+export interface FrameStats {
+  frames: number;
+  janky: number; // intervals over 1.5 display frames
+  p50Ms: number;
+  p90Ms: number;
+  maxMs: number;
+}
+
+// <CachedImage> falls back to <Image> when switched off for a before/after frame run
+let nativeCacheEnabled = true;
+
+const ImageCache = {
+  isAvailable: !!NativeImages,
+
+  isEnabled(): boolean {
+    return !!NativeImages && nativeCacheEnabled;
+  },
+
+  /**
+   * Makes <CachedImage> decode per view with <Image> instead of using the
+   * native cache. Frame intervals from captureFrames go into the native
+   * "frame_cached" or "frame_legacy" metrics accordingly, readable through
+   * EnhancedTimerService.getMetrics().
+   */
+  setNativeCacheEnabled(enabled: boolean) {
+    nativeCacheEnabled = enabled;
+  },
+
+  /** Decodes the images to their view size in the background; resolves once all are in memory. */
+  preload(sources: CachedImageSource[]): Promise<ImageCacheStats | null> {
+    if (!NativeImages) return Promise.resolve(null);
+    return NativeImages.preload(
+      sources.map(({ key, source, width, height }) => ({
+        key,
+        uri: Image.resolveAssetSource(source).uri,
+        width,
+        height,
+      })),
+    );
+  },
+
+  getStats(): Promise<ImageCacheStats | null> {
+    if (!NativeImages) return Promise.resolve(null);
+    return NativeImages.getStats();
+  },
+
+  /**
+   * Whether answers record frame times: in debug builds, and in release
+   * builds made with -PframeMetricsEnabled=true for measurement runs.
+   */
+  isMeasuringFrames(): boolean {
+    return !!NativeImages && (__DEV__ || NativeImages.frameMetrics === true);
+  },
+
+  /** Records main-thread frame intervals for `durationMs` from now; null unless measuring. */
+  captureFrames(durationMs: number): Promise<FrameStats | null> {
+    if (!this.isMeasuringFrames()) return Promise.resolve(null);
+    return NativeImages.captureFrames(durationMs, this.isEnabled());
+  },
+};
+
+export default ImageCache;
@@ -0,0 +1,174 @@
+import AsyncStorage from '@react-native-async-storage/async-storage';
+import { NativeModules, Platform } from 'react-native';
+
+// Native memory-mapped log store; reads are synchronous and writes append only the keys given
+const NativeKV = Platform.OS === 'android' ? NativeModules.BrainBitesKV : null;
+
+// Fallback keeps one AsyncStorage entry per key under this prefix
+const FALLBACK_PREFIX = 'brainbites_kv:';
+
+// Set with a legacy document's fields, so a copy left behind is never migrated twice
+const MIGRATED_PREFIX = 'migrated:';
+
+export type KVValue = string | number | boolean;
+export type KVEntries = Record<string, KVValue | null>;
+
+const cache = new Map<string, KVValue>();
+let hydrated: Promise<void> | null = null;
+
+const isScalar = (value: unknown): value is KVValue =>
+  typeof value === 'string' || typeof value === 'number' || typeof value === 'boolean';
+
+const KeyValueStore = {
+  isNative: !!NativeKV,
+
+  /**
+   * Loads the fallback cache. The native store is always loaded, so this
+   * resolves at once on Android; services await it before their first read.
+   */
+  hydrate(): Promise<void> {
+    if (NativeKV) return Promise.resolve();
+    if (!hydrated) {
+      hydrated = (async () => {
+        try {
+          const keys = (await AsyncStorage.getAllKeys()).filter((k) => k.startsWith(FALLBACK_PREFIX));
+          const pairs = await AsyncStorage.multiGet(keys);
+          for (const [key, raw] of pairs) {
+            if (raw != null) {
+              cache.set(key.substring(FALLBACK_PREFIX.length), JSON.parse(raw));
+            }
+          }
+        } catch (error) {
+          console.error('Error loading key-value store:', error);
+        }
+      })();
+    }
+    return hydrated;
+  },
+
+  getMany(keys: string[]): Record<string, KVValue> {
+    if (NativeKV) {
+      return NativeKV.getMany(keys);
+    }
+    const result: Record<string, KVValue> = {};
+    for (const key of keys) {
+      const value = cache.get(key);
+      if (value !== undefined) result[key] = value;
+    }
+    return result;
+  },
+
+  getByPrefix(prefix: string): Record<string, KVValue> {
+    if (NativeKV) {
+      return NativeKV.getByPrefix(prefix);
+    }
+    const result: Record<string, KVValue> = {};
+    cache.forEach((value, key) => {
+      if (key.startsWith(prefix)) result[key] = value;
+    });
+    return result;
+  },
+
+  /** Writes all entries in one batch; null removes a key. */
+  async multiSet(entries: KVEntries): Promise<void> {
+    if (NativeKV) {
+      await NativeKV.multiSet(entries);
+      return;
+    }
+
+    const sets: [string, string][] = [];
+    const removes: string[] = [];
+    for (const key of Object.keys(entries)) {
+      const value = entries[key];
+      if (value === null) {
+        cache.delete(key);
+        removes.push(FALLBACK_PREFIX + key);
+      } else {
+        cache.set(key, value);
+        sets.push([FALLBACK_PREFIX + key, JSON.stringify(value)]);
+      }
+    }
+    if (sets.length > 0) await AsyncStorage.multiSet(sets);
+    if (removes.length > 0) await AsyncStorage.multiRemove(removes);
+  },
+
+  async removeByPrefix(prefix: string): Promise<void> {
+    if (NativeKV) {
+      await NativeKV.removeByPrefix(prefix);
+      return;
+    }
+    const removals: KVEntries = {};
+    cache.forEach((_, key) => {
+      if (key.startsWith(prefix)) removals[key] = null;
+    });
+    await this.multiSet(removals);
+  },
+
+  /**
+   * Reads the fields of `defaults` stored under `prefix`, e.g.
+   * "score." + "totalScore". Non-scalar fields are stored as JSON strings.
+   */
+  readObject<T extends object>(prefix: string, defaults: T): T {
+    const stored = this.getByPrefix(prefix);
+    const result: any = { ...defaults };
+    for (const field of Object.keys(defaults)) {
+      const value = stored[prefix + field];
+      if (value === undefined) continue;
+      const fallback = (defaults as any)[field];
+      result[field] = isScalar(fallback) ? value : JSON.parse(value as string);
+    }
+    return result;
+  },
+
+  /** Writes only the listed fields of `source` as one batch, along with any `extra` entries. */
+  writeFields<T extends object>(prefix: string, source: T, fields: (keyof T)[], extra: KVEntries = {}): Promise<void> {
+    const entries: KVEntries = { ...extra };
+    for (const field of fields) {
+      const value: unknown = source[field];
+      entries[prefix + String(field)] =
+        value === undefined || value === null ? null : isScalar(value) ? value : JSON.stringify(value);
+    }
+    return this.multiSet(entries);
+  },
+
+  /**
+   * Moves a legacy whole-document AsyncStorage entry into per-field keys
+   * once, then deletes it. The fields and a migrated marker go in one batch,
+   * so if the delete fails or never runs the stale document is only removed
+   * on the next launch, not copied over newer fields; if the batch fails the
+   * document stays for the next try. `toEntries` maps documents that aren't
+   * one key per field. Returns whether anything was migrated.
+   */
+  async migrateDocument<T extends object>(
+    legacyKey: string,
+    prefix: string,
+    toEntries?: (document: T) => KVEntries,
+  ): Promise<boolean> {
+    try {
+      const raw = await AsyncStorage.getItem(legacyKey);
+      if (!raw) return false;
+      const marker = MIGRATED_PREFIX + legacyKey;
+      if (this.getMany([marker])[marker] === true) {
+        await AsyncStorage.removeItem(legacyKey);
+        return false;
+      }
+      const document: T = JSON.parse(raw);
+      if (toEntries) {
+        await this.multiSet({ ...toEntries(document), [marker]: true });
+      } else {
+        await this.writeFields(prefix, document, Object.keys(document) as (keyof T)[], { [marker]: true });
+      }
+      await AsyncStorage.removeItem(legacyKey);
+      return true;
+    } catch (error) {
+      console.error(`Error migrating ${legacyKey}:`, error);
+      return false;
+    }
+  },
+
+  async getStats(): Promise<{ keys: number; logBytes: number; liveBytes: number; compactions: number } | null> {
+    return NativeKV ? NativeKV.getStats() : null;
+  },
+};
+
+export default KeyValueStore;
@@ -0,0 +1,71 @@
+import { NativeModules, Platform } from 'react-native';
+import KeyValueStore from './KeyValueStore';
+
+// Native order-statistic leaderboard; updates and rank lookups are O(log n)
+const NativeLeaderboard = Platform.OS === 'android' ? NativeModules.BrainBitesLeaderboard : null;
+
+const PLAYER_ID_KEY = 'leaderboard.playerId';
+
+export interface LeaderboardEntry {
+  id: string;
+  score: number;
+  rank: number; // shared by ties
+}
+
+export interface PlayerRank {
+  rank: number;
+  position: number; // 0-based place in the full order
+  score: number;
+  total: number;
+}
+
+export interface LeaderboardSyncResult {
+  uploaded: number;
+  received: number;
+  version: number;
+}
+
+let playerId: string | null = null;
+
+const LeaderboardService = {
+  isAvailable: !!NativeLeaderboard,
+
+  /** This install's player id, made up on first use. */
+  async getPlayerId(): Promise<string> {
+    if (playerId) return playerId;
+    await KeyValueStore.hydrate();
+    const stored = KeyValueStore.getMany([PLAYER_ID_KEY])[PLAYER_ID_KEY];
+    if (typeof stored === 'string') {
+      playerId = stored;
+    } else {
+      playerId = `${Date.now().toString(36)}-${Math.random().toString(36).slice(2, 10)}`;
+      await KeyValueStore.multiSet({ [PLAYER_ID_KEY]: playerId });
+    }
+    return playerId;
+  },
+
+  /** Moves this player to `score`; resolves their new rank, or -1 without the native board. */
+  async submitScore(score: number): Promise<number> {
+    if (!NativeLeaderboard) return -1;
+    return NativeLeaderboard.submitScore(await this.getPlayerId(), score);
+  },
+
+  async getRank(): Promise<PlayerRank | null> {
+    if (!NativeLeaderboard) return null;
+    return NativeLeaderboard.getRank(await this.getPlayerId());
+  },
+
+  /** Up to `count` entries from `position` on, best first. */
+  getPage(position: number, count: number): Promise<LeaderboardEntry[]> {
+    if (!NativeLeaderboard) return Promise.resolve([]);
+    return NativeLeaderboard.getPage(position, count);
+  },
+
+  /** Pushes queued score changes and pulls remote ones; null when the build has no board server. */
+  sync(): Promise<LeaderboardSyncResult | null> {
+    if (!NativeLeaderboard) return Promise.resolve(null);
+    return NativeLeaderboard.sync();
+  },
+};
+
+export default LeaderboardService;
@@ -0,0 +1,81 @@
+import { NativeModules, Platform } from 'react-native';
+
+// Pages through native result sets instead of receiving them in one bridge payload
+const NativeCursorModule = Platform.OS === 'android' ? NativeModules.BrainBitesCursor : null;
+const UsageStats = Platform.OS === 'android' ? NativeModules.UsageStatsModule : null;
+
+export interface CursorHandle {
+  handle: number;
+  columns: string[];
+}
+
+export interface CursorPage {
+  count: number;
+  done: boolean;
+  // One array per column, in CursorHandle.columns order
+  columns: any[][];
+}
+
+export interface InstalledApp {
+  packageName: string;
+  appName: string;
+}
+
+const DEFAULT_PAGE_SIZE = 50;
+
+const NativeCursor = {
+  isAvailable: !!NativeCursorModule,
+
+  next(handle: number, rows: number): Promise<CursorPage> {
+    return NativeCursorModule.next(handle, rows);
+  },
+
+  close(handle: number): Promise<boolean> {
+    return NativeCursorModule.close(handle);
+  },
+
+  /**
+   * Reads a cursor page by page, handing each page's rows to `onRows` as they
+   * arrive, and always closes it. Return false from `onRows` to stop early.
+   */
+  async read<T>(
+    cursor: CursorHandle,
+    toRow: (columns: any[][], index: number) => T,
+    onRows: (rows: T[]) => boolean | void,
+    pageSize: number = DEFAULT_PAGE_SIZE
+  ): Promise<void> {
+    try {
+      let done = false;
+      while (!done) {
+        const page = await NativeCursorModule.next(cursor.handle, pageSize);
+        const rows: T[] = new Array(page.count);
+        for (let i = 0; i < page.count; i++) {
+          rows[i] = toRow(page.columns, i);
+        }
+        // The last page still goes to onRows
+        const stop = onRows(rows) === false;
+        done = page.done || stop;
+      }
+    } finally {
+      await NativeCursorModule.close(cursor.handle);
+    }
+  },
+
+  /** User-installed apps, delivered a page at a time; labels load lazily per page. */
+  async readInstalledApps(
+    onApps: (apps: InstalledApp[]) => boolean | void,
+    pageSize?: number
+  ): Promise<void> {
+    const cursor: CursorHandle = await UsageStats.openInstalledApps();
+    const packageColumn = cursor.columns.indexOf('packageName');
+    const nameColumn = cursor.columns.indexOf('appName');
+    await NativeCursor.read<InstalledApp>(
+      cursor,
+      (columns, i) => ({ packageName: columns[packageColumn][i], appName: columns[nameColumn][i] }),
+      onApps,
+      pageSize
+    );
+  },
+};
+
+export default NativeCursor;
@@ -1,4 +1,5 @@
 import AsyncStorage from '@react-native-async-storage/async-storage';
+import ReviewQueue, { deckName } from './ReviewQueue';
 
 interface Question {
   id: number;
@@ -21,6 +22,10 @@ class QuizService {
   private usedQuestionIds: Set<number> = new Set();
   private STORAGE_KEY = 'brainbites_used_questions';
   private initialized = false;
+  private questionsById: Map<number, Question> = new Map();
+  private decks: string[] = [];
+  // Set once the native scheduler holds the bank; picks then come from it
+  private reviewSynced = false;
 
   async initialize(): Promise<void> {
     if (this.initialized) return;
@@ -36,6 +41,8 @@ class QuizService {
       // Extract categories
       this.extractCategories();
       
+      await this.syncReviewQueue();
+      
       this.initialized = true;
     } catch (error) {
       console.error('Error initializing QuizService:', error);
@@ -201,6 +208,30 @@ class QuizService {
     this.categories = Array.from(categorySet);
   }
 
+  private async syncReviewQueue(): Promise<void> {
+    this.questionsById = new Map(this.questions.map(q => [q.id, q]));
+    const decks = this.questions.map(q => deckName(q.category, q.level));
+    this.decks = Array.from(new Set(decks));
+    if (!ReviewQueue.isAvailable) return;
+    try {
+      await ReviewQueue.sync(this.questions.map(q => q.id), decks);
+      this.reviewSynced = true;
+    } catch (error) {
+      console.error('Error syncing review queue:', error);
+    }
+  }
+
+  /** Decks matching the filters, or null for the whole bank. */
+  private decksFor(category?: string, difficulty?: string): string[] | null {
+    const anyCategory = !category || category === 'all';
+    const anyLevel = !difficulty || difficulty === 'mixed';
+    if (anyCategory && anyLevel) return null;
+    return this.decks.filter(deck => {
+      const [deckCategory, deckLevel] = deck.split('|');
+      return (anyCategory || deckCategory === category) && (anyLevel || deckLevel === difficulty);
+    });
+  }
+
   private async loadUsedQuestions(): Promise<void> {
     try {
       const stored = await AsyncStorage.getItem(this.STORAGE_KEY);
@@ -227,6 +258,17 @@ class QuizService {
       await this.initialize();
     }
 
+    if (this.reviewSynced) {
+      try {
+        const decks = this.decksFor(category, difficulty);
+        if (decks && decks.length === 0) return null;
+        const id = await ReviewQueue.next(decks);
+        return this.questionsById.get(id) || null;
+      } catch (error) {
+        console.error('Error picking scheduled question:', error);
+      }
+    }
+
     // Filter questions
     let availableQuestions = this.questions.filter(q => !this.usedQuestionIds.has(q.id));
     
@@ -264,6 +306,16 @@ class QuizService {
     return question;
   }
 
+  /** Reschedules the question from how it was answered; only used with the native scheduler. */
+  async recordAnswer(questionId: number, correct: boolean, responseMs: number): Promise<void> {
+    if (!this.reviewSynced) return;
+    try {
+      await ReviewQueue.record(questionId, correct, responseMs);
+    } catch (error) {
+      console.error('Error recording answer:', error);
+    }
+  }
+
   async resetUsedQuestions(): Promise<void> {
     this.usedQuestionIds.clear();
     await AsyncStorage.removeItem(this.STORAGE_KEY);
@@ -0,0 +1,37 @@
+import { NativeModules, Platform } from 'react-native';
+
+// Native spaced-repetition scheduler; picks are O(log n) over the whole bank
+const NativeReview = Platform.OS === 'android' ? NativeModules.BrainBitesReview : null;
+
+export interface ReviewStats {
+  due: number; // seen questions due now
+  unseen: number; // questions never asked
+}
+
+/** Questions are scheduled per deck: one category at one level. */
+export const deckName = (category: string, level?: string): string => `${category}|${level || 'any'}`;
+
+const ReviewQueue = {
+  isAvailable: !!NativeReview,
+
+  /** Makes the native bank exactly these questions; `decks[i]` is the deck of `ids[i]`. */
+  sync(ids: number[], decks: string[]): Promise<number> {
+    return NativeReview.sync(ids, decks);
+  },
+
+  /** Id of the question to ask next from `decks` (all when null), or -1 if they are empty. */
+  next(decks: string[] | null): Promise<number> {
+    return NativeReview.next(decks);
+  },
+
+  /** Reschedules a question; resolves its new interval in minutes. */
+  record(id: number, correct: boolean, responseMs: number): Promise<number> {
+    return NativeReview.record(id, correct, responseMs);
+  },
+
+  getStats(decks: string[] | null): Promise<ReviewStats> {
+    return NativeReview.getStats(decks);
+  },
+};
+
+export default ReviewQueue;
@@ -1,4 +1,6 @@
-import AsyncStorage from '@react-native-async-storage/async-storage';
+import KeyValueStore, { KVEntries } from './KeyValueStore';
+import GoalRules, { GoalAggregation, GoalEvent, RuleSpec } from './GoalRules';
+import LeaderboardService from './LeaderboardService';
 
 interface ScoreData {
   totalScore: number;
@@ -17,6 +19,8 @@ interface Achievement {
   description: string;
   icon: string;
   condition: (data: ScoreData) => boolean;
+  // Same condition for the native rules engine
+  rule: Pick<RuleSpec, 'event' | 'aggregation' | 'target' | 'denominator' | 'minCount'>;
 }
 
 class ScoreService {
@@ -32,6 +36,12 @@ class ScoreService {
   };
 
   private STORAGE_KEY = 'brainbites_score_data';
+  // Each ScoreData field is its own key, so a change writes only what it touched
+  private KEY_PREFIX = 'score.';
+  // Unlocked by events outside addPoints, not yet returned to a caller
+  private pendingAchievements: string[] = [];
+  private rulesLoaded = false;
+  private loaded = false;
 
   private achievements: Achievement[] = [
     {
@@ -40,6 +50,7 @@ class ScoreService {
       description: 'Answer your first question correctly',
       icon: 'star',
       condition: (data) => data.correctAnswers >= 1,
+      rule: { event: GoalEvent.correct, aggregation: GoalAggregation.sum, target: 1 },
     },
     {
       id: 'streak_5',
@@ -47,6 +58,7 @@ class ScoreService {
       description: 'Get 5 correct answers in a row',
       icon: 'fire',
       condition: (data) => data.highestStreak >= 5,
+      rule: { event: GoalEvent.streak, aggregation: GoalAggregation.max, target: 5 },
     },
     {
       id: 'streak_10',
@@ -54,6 +66,7 @@ class ScoreService {
       description: 'Get 10 correct answers in a row',
       icon: 'rocket',
       condition: (data) => data.highestStreak >= 10,
+      rule: { event: GoalEvent.streak, aggregation: GoalAggregation.max, target: 10 },
     },
     {
       id: 'streak_20',
@@ -61,6 +74,7 @@ class ScoreService {
       description: 'Get 20 correct answers in a row',
       icon: 'brain',
       condition: (data) => data.highestStreak >= 20,
+      rule: { event: GoalEvent.streak, aggregation: GoalAggregation.max, target: 20 },
     },
     {
       id: 'score_100',
@@ -68,6 +82,7 @@ class ScoreService {
       description: 'Reach 100 total points',
       icon: 'trophy',
       condition: (data) => data.totalScore >= 100,
+      rule: { event: GoalEvent.score, aggregation: GoalAggregation.latest, target: 100 },
     },
     {
       id: 'score_1000',
@@ -75,6 +90,7 @@ class ScoreService {
       description: 'Reach 1,000 total points',
       icon: 'medal',
       condition: (data) => data.totalScore >= 1000,
+      rule: { event: GoalEvent.score, aggregation: GoalAggregation.latest, target: 1000 },
     },
     {
       id: 'daily_streak_7',
@@ -82,6 +98,7 @@ class ScoreService {
       description: 'Play for 7 days in a row',
       icon: 'calendar-check',
       condition: (data) => data.dailyStreak >= 7,
+      rule: { event: GoalEvent.dailyStreak, aggregation: GoalAggregation.latest, target: 7 },
     },
     {
       id: 'daily_streak_30',
@@ -89,6 +106,7 @@ class ScoreService {
       description: 'Play for 30 days in a row',
       icon: 'school',
       condition: (data) => data.dailyStreak >= 30,
+      rule: { event: GoalEvent.dailyStreak, aggregation: GoalAggregation.latest, target: 30 },
     },
     {
       id: 'questions_100',
@@ -96,6 +114,7 @@ class ScoreService {
       description: 'Answer 100 questions',
       icon: 'help-circle',
       condition: (data) => data.questionsAnswered >= 100,
+      rule: { event: GoalEvent.question, aggregation: GoalAggregation.sum, target: 100 },
     },
     {
       id: 'accuracy_80',
@@ -105,14 +124,25 @@ class ScoreService {
       condition: (data) => 
         data.questionsAnswered >= 50 && 
         (data.correctAnswers / data.questionsAnswered) >= 0.8,
+      rule: {
+        event: GoalEvent.correct,
+        denominator: GoalEvent.question,
+        aggregation: GoalAggregation.ratio,
+        target: 80,
+        minCount: 50,
+      },
     },
   ];
 
   async loadSavedData(): Promise<void> {
     try {
-      const savedData = await AsyncStorage.getItem(this.STORAGE_KEY);
-      if (savedData) {
-        this.scoreData = JSON.parse(savedData);
+      await KeyValueStore.hydrate();
+      const migrated = await KeyValueStore.migrateDocument<ScoreData>(this.STORAGE_KEY, this.KEY_PREFIX);
+      this.scoreData = KeyValueStore.readObject(this.KEY_PREFIX, this.scoreData);
+      this.loaded = true;
+      this.pushScore();
+      await this.loadRules();
+      if (migrated || this.scoreData.lastPlayDate) {
         await this.checkDailyStreak();
       }
     } catch (error) {
@@ -120,14 +150,32 @@ class ScoreService {
     }
   }
 
-  private async saveData(): Promise<void> {
+  /** Loads saved data unless the app already has, e.g. from a headless task. */
+  async ensureLoaded(): Promise<void> {
+    if (!this.loaded) {
+      await this.loadSavedData();
+    }
+  }
+
+  private async saveData(...fields: (keyof ScoreData)[]): Promise<void> {
     try {
-      await AsyncStorage.setItem(this.STORAGE_KEY, JSON.stringify(this.scoreData));
+      const changed = fields.length > 0 ? fields : (Object.keys(this.scoreData) as (keyof ScoreData)[]);
+      await KeyValueStore.writeFields(this.KEY_PREFIX, this.scoreData, changed);
+      if (changed.includes('totalScore')) {
+        this.pushScore();
+      }
     } catch (error) {
       console.error('Error saving score data:', error);
     }
   }
 
+  /** Moves this player on the native leaderboard; it batches the upload itself. */
+  private pushScore(): void {
+    LeaderboardService.submitScore(this.scoreData.totalScore).catch((error) => {
+      console.error('Error updating leaderboard:', error);
+    });
+  }
+
   private async checkDailyStreak(): Promise<void> {
     const today = new Date().toDateString();
     const lastPlay = this.scoreData.lastPlayDate;
@@ -152,7 +200,8 @@ class ScoreService {
     }
 
     this.scoreData.lastPlayDate = today;
-    await this.saveData();
+    await this.submitEvents([GoalEvent.dailyStreak, this.scoreData.dailyStreak]);
+    await this.saveData('lastPlayDate', 'dailyStreak');
   }
 
   async addPoints(points: number, currentStreak: number): Promise<string[]> {
@@ -164,9 +213,16 @@ class ScoreService {
     }
 
     // Check for new achievements
-    const newAchievements = await this.checkAchievements();
+    const newAchievements = await this.checkAchievements([
+      GoalEvent.score, this.scoreData.totalScore,
+      GoalEvent.streak, currentStreak,
+    ]);
     
-    await this.saveData();
+    const changed: (keyof ScoreData)[] = ['totalScore', 'currentStreak', 'highestStreak'];
+    if (newAchievements.length > 0) {
+      changed.push('achievements');
+    }
+    await this.saveData(...changed);
     return newAchievements;
   }
 
@@ -175,14 +231,72 @@ class ScoreService {
     if (isCorrect) {
       this.scoreData.correctAnswers++;
     }
-    await this.saveData();
+    await this.submitEvents([GoalEvent.question, 1, GoalEvent.correct, isCorrect ? 1 : 0]);
+    await this.saveData('questionsAnswered', 'correctAnswers');
   }
 
   resetStreak(): void {
     this.scoreData.currentStreak = 0;
   }
 
-  private async checkAchievements(): Promise<string[]> {
+  /** Seeds the native engine with lifetime stats and the achievements already earned. */
+  private async loadRules(): Promise<void> {
+    if (!GoalRules.isAvailable) return;
+    this.rulesLoaded = false;
+    const seeds: Record<number, number> = {
+      [GoalEvent.correct]: this.scoreData.correctAnswers,
+      [GoalEvent.question]: this.scoreData.questionsAnswered,
+      [GoalEvent.streak]: this.scoreData.highestStreak,
+      [GoalEvent.score]: this.scoreData.totalScore,
+      [GoalEvent.dailyStreak]: this.scoreData.dailyStreak,
+    };
+    try {
+      await GoalRules.load('achievements', this.achievements.map(a => ({
+        id: a.id,
+        ...a.rule,
+        value: seeds[a.rule.event] || 0,
+        count: a.rule.denominator !== undefined ? seeds[a.rule.denominator] || 0 : 0,
+        completed: this.scoreData.achievements.includes(a.id),
+      })));
+      this.rulesLoaded = true;
+    } catch (error) {
+      console.error('Error loading achievement rules:', error);
+    }
+  }
+
+  /**
+   * Feeds events that may unlock achievements outside of addPoints; those
+   * unlocks are recorded now and reported by the next addPoints call, which
+   * is where callers already look for them.
+   */
+  private async submitEvents(events: number[]): Promise<void> {
+    if (!this.rulesLoaded) return;
+    const unlocked = await this.checkAchievements(events);
+    if (unlocked.length > 0) {
+      this.pendingAchievements.push(...unlocked);
+      await this.saveData('achievements');
+    }
+  }
+
+  private async checkAchievements(events: number[]): Promise<string[]> {
+    if (this.rulesLoaded) {
+      const newAchievements = this.pendingAchievements;
+      this.pendingAchievements = [];
+      try {
+        const delta = await GoalRules.submit('achievements', events);
+        for (const index of delta.completed) {
+          const id = this.achievements[index].id;
+          if (!this.scoreData.achievements.includes(id)) {
+            this.scoreData.achievements.push(id);
+            newAchievements.push(id);
+          }
+        }
+      } catch (error) {
+        console.error('Error checking achievements:', error);
+      }
+      return newAchievements;
+    }
+
     const newAchievements: string[] = [];
 
     for (const achievement of this.achievements) {
@@ -245,17 +359,30 @@ class ScoreService {
 
   async deductPoints(points: number): Promise<void> {
     this.scoreData.totalScore = Math.max(0, this.scoreData.totalScore - points);
-    await this.saveData();
+    await this.saveData('totalScore');
   }
 
-  async handleOvertimeUsage(negativeSeconds: number): Promise<void> {
-    // Deduct points for overtime usage
+  /**
+   * Deducts points for overtime usage and writes `extra` in the same batch,
+   * so a caller's record of what it has applied can't drift from the score.
+   * Throws if the write fails, with the score left as it was.
+   */
+  async handleOvertimeUsage(negativeSeconds: number, extra: KVEntries = {}): Promise<void> {
     // 10 points per minute of overtime
     const minutesOvertime = Math.floor(negativeSeconds / 60);
     const pointsToDeduct = minutesOvertime * 10;
-    
+
+    const previous = this.scoreData.totalScore;
+    this.scoreData.totalScore = Math.max(0, previous - pointsToDeduct);
+    try {
+      await KeyValueStore.writeFields(this.KEY_PREFIX, this.scoreData, ['totalScore'], extra);
+    } catch (error) {
+      this.scoreData.totalScore = previous;
+      throw error;
+    }
+
     if (pointsToDeduct > 0) {
-      await this.deductPoints(pointsToDeduct);
+      this.pushScore();
       console.log(`Deducted ${pointsToDeduct} points for ${minutesOvertime} minutes of overtime usage`);
     }
   }
@@ -271,7 +398,9 @@ class ScoreService {
       lastPlayDate: '',
       dailyStreak: 0,
     };
+    this.pendingAchievements = [];
     await this.saveData();
+    await this.loadRules();
   }
 }
 
@@ -1,9 +1,12 @@
 import AsyncStorage from '@react-native-async-storage/async-storage';
 import SoundPlayer from 'react-native-sound-player';
-import { Platform } from 'react-native';
+import { NativeModules, Platform } from 'react-native';
 
 const SOUNDS_ENABLED_KEY = 'brainbites_sounds_enabled';
 
+// Preloaded SoundPool effects plus one reused music player (Android only)
+const NativeSound = Platform.OS === 'android' ? NativeModules.BrainBitesSound : null;
+
 const soundFiles = {
   menuMusic: 'menu_music',
   buttonPress: 'button_press',
@@ -18,31 +21,110 @@ const soundFiles = {
 let menuMusicLooping = false;
 let quizMusicLooping = false;
 
+// Cached so a tap never waits on AsyncStorage; loaded once, updated on change
+let soundsEnabled = true;
+let enabledLoaded: Promise<boolean> | null = null;
+
+// Effects go through SoundPool unless switched off for a before/after latency run
+let useNativeEffects = true;
+
+// Tap time of the last effect started through the fallback player, for latency samples
+let legacyTappedAt = 0;
+let legacyListenerAttached = false;
+
 const getFileType = () => 'mp3'; // All your files are mp3
 
+const loadEnabled = (): Promise<boolean> => {
+  if (!enabledLoaded) {
+    enabledLoaded = AsyncStorage.getItem(SOUNDS_ENABLED_KEY)
+      .then((value) => {
+        soundsEnabled = value !== 'false'; // default to true
+        NativeSound?.setEnabled(soundsEnabled);
+        return soundsEnabled;
+      })
+      .catch(() => soundsEnabled);
+  }
+  return enabledLoaded;
+};
+
+const attachLegacyLatencyListener = () => {
+  if (legacyListenerAttached || !NativeSound) return;
+  legacyListenerAttached = true;
+  SoundPlayer.addEventListener('FinishedLoading', () => {
+    if (legacyTappedAt > 0) {
+      NativeSound.recordLegacyLatency(legacyTappedAt, Date.now());
+      legacyTappedAt = 0;
+    }
+  });
+};
+
+const playEffect = (name: string, label: string) => {
+  const tappedAt = Date.now();
+  if (NativeSound && useNativeEffects) {
+    // The native side holds its own copy of the flag
+    NativeSound.play(name, tappedAt);
+    return;
+  }
+
+  const start = () => {
+    if (!soundsEnabled) return;
+    try {
+      attachLegacyLatencyListener();
+      legacyTappedAt = tappedAt;
+      SoundPlayer.playSoundFile(name, getFileType());
+    } catch (e) {
+      console.log(`Failed to play ${label} sound`, e);
+    }
+  };
+  if (enabledLoaded) {
+    start();
+  } else {
+    loadEnabled().then(start);
+  }
+};
+
 const SoundService = {
   async isSoundsEnabled() {
-    const value = await AsyncStorage.getItem(SOUNDS_ENABLED_KEY);
-    return value !== 'false'; // default to true
+    return loadEnabled();
   },
 
   async setSoundsEnabled(enabled: boolean) {
+    soundsEnabled = enabled;
+    enabledLoaded = Promise.resolve(enabled);
+    NativeSound?.setEnabled(enabled);
     await AsyncStorage.setItem(SOUNDS_ENABLED_KEY, enabled ? 'true' : 'false');
   },
 
   async initialize() {
-    // No preloading needed for react-native-sound-player
+    // Effects are preloaded natively when the module is created; this only
+    // syncs the stored flag
     menuMusicLooping = false;
     quizMusicLooping = false;
+    await loadEnabled();
+  },
+
+  /**
+   * Routes effects through the old decode-per-tap player instead of
+   * SoundPool. Both paths record tap-to-sound latency into the native
+   * metrics ("sound_tap" and "sound_tap_legacy"), readable through
+   * EnhancedTimerService.getMetrics() or `adb shell dumpsys activity service
+   * com.brainbites/.BrainBitesTimerService`.
+   */
+  setNativeEffectsEnabled(enabled: boolean) {
+    useNativeEffects = enabled;
   },
 
   async playMenuMusic() {
-    if (!(await this.isSoundsEnabled())) return;
+    if (!(await loadEnabled())) return;
     try {
-      SoundPlayer.stop();
-      SoundPlayer.playSoundFile(soundFiles.menuMusic, getFileType());
+      if (NativeSound) {
+        NativeSound.playMusic(soundFiles.menuMusic, true);
+      } else {
+        SoundPlayer.stop();
+        SoundPlayer.playSoundFile(soundFiles.menuMusic, getFileType());
+        SoundPlayer.setNumberOfLoops(-1); // Loop indefinitely
+      }
       menuMusicLooping = true;
-      SoundPlayer.setNumberOfLoops(-1); // Loop indefinitely
     } catch (e) {
       console.log('Failed to play menu music', e);
     }
@@ -50,7 +132,11 @@ const SoundService = {
 
   stopMusic() {
     try {
-      SoundPlayer.stop();
+      if (NativeSound) {
+        NativeSound.stopMusic();
+      } else {
+        SoundPlayer.stop();
+      }
       menuMusicLooping = false;
       quizMusicLooping = false;
     } catch (e) {
@@ -58,59 +144,29 @@ const SoundService = {
     }
   },
 
-  async playButtonPress() {
-    if (!(await this.isSoundsEnabled())) return;
-    try {
-      SoundPlayer.playSoundFile(soundFiles.buttonPress, getFileType());
-    } catch (e) {
-      console.log('Failed to play button press sound', e);
-    }
+  playButtonPress() {
+    playEffect(soundFiles.buttonPress, 'button press');
   },
 
-  async playCorrectAnswer() {
-    if (!(await this.isSoundsEnabled())) return;
-    try {
-      SoundPlayer.playSoundFile(soundFiles.correctAnswer, getFileType());
-    } catch (e) {
-      console.log('Failed to play correct answer sound', e);
-    }
+  playCorrectAnswer() {
+    playEffect(soundFiles.correctAnswer, 'correct answer');
   },
 
-  async playWrongAnswer() {
-    if (!(await this.isSoundsEnabled())) return;
-    try {
-      SoundPlayer.playSoundFile(soundFiles.wrongAnswer, getFileType());
-    } catch (e) {
-      console.log('Failed to play wrong answer sound', e);
-    }
+  playWrongAnswer() {
+    playEffect(soundFiles.wrongAnswer, 'wrong answer');
   },
 
-  async playAchievement() {
-    if (!(await this.isSoundsEnabled())) return;
-    try {
-      SoundPlayer.playSoundFile(soundFiles.achievement, getFileType());
-    } catch (e) {
-      console.log('Failed to play achievement sound', e);
-    }
+  playAchievement() {
+    playEffect(soundFiles.achievement, 'achievement');
   },
 
-  async playLevelUp() {
-    if (!(await this.isSoundsEnabled())) return;
-    try {
-      SoundPlayer.playSoundFile(soundFiles.levelUp, getFileType());
-    } catch (e) {
-      console.log('Failed to play level up sound', e);
-    }
+  playLevelUp() {
+    playEffect(soundFiles.levelUp, 'level up');
   },
 
-  async playTimeBonus() {
-    if (!(await this.isSoundsEnabled())) return;
-    try {
-      SoundPlayer.playSoundFile(soundFiles.timeBonus, getFileType());
-    } catch (e) {
-      console.log('Failed to play time bonus sound', e);
-    }
+  playTimeBonus() {
+    playEffect(soundFiles.timeBonus, 'time bonus');
   },
 };
 
-export default SoundService;
\ No newline at end of file
+export default SoundService;
@@ -0,0 +1,99 @@
+import { NativeModules, Platform } from 'react-native';
+import KeyValueStore from './KeyValueStore';
+import ScoreService from './ScoreService';
+import AnalyticsService from './AnalyticsService';
+
+const BrainBitesTimer = Platform.OS === 'android' ? NativeModules.BrainBitesTimer : null;
+
+// Registered in index.js; TimerEventsTaskService starts it with one batch
+export const TIMER_EVENTS_TASK = 'BrainBitesTimerEvents';
+
+// Mirrors TimerEventBatcher
+export const TimerEventType = {
+  overtime: 0, // seconds, summed over the batch
+  spent: 1, // seconds, summed over the batch
+  lowTime: 2, // latest warning threshold crossed, in seconds
+  expired: 3,
+} as const;
+
+export interface TimerEvent {
+  type: number;
+  profileId: string;
+  value: number;
+  firstAt: number;
+  lastAt: number;
+}
+
+export interface TimerEventBatch {
+  seq: number;
+  events: TimerEvent[];
+}
+
+const KEY_PREFIX = 'timerEvents.';
+const LAST_SEQ_KEY = KEY_PREFIX + 'lastSeq';
+// Overtime seconds not yet worth a whole penalty minute
+const OVERTIME_CARRY_KEY = KEY_PREFIX + 'overtimeCarry';
+
+/**
+ * Applies one batch of native timer events. Batches can arrive more than
+ * once (the service resends until acked), so the last applied sequence
+ * number is stored in the same write as the results and anything at or
+ * below it is only acked again. A failed write throws before the ack, so
+ * the batch comes back.
+ */
+export default async function timerEventsTask(batch: TimerEventBatch): Promise<void> {
+  await KeyValueStore.hydrate();
+  const stored = KeyValueStore.getMany([LAST_SEQ_KEY, OVERTIME_CARRY_KEY]);
+  const lastSeq = (stored[LAST_SEQ_KEY] as number) || 0;
+
+  if (batch.seq > lastSeq) {
+    let overtime = (stored[OVERTIME_CARRY_KEY] as number) || 0;
+    for (const event of batch.events) {
+      switch (event.type) {
+        case TimerEventType.overtime:
+          overtime += event.value;
+          AnalyticsService.trackBackgroundEvent('timer_overtime', {
+            profile_id: event.profileId,
+            seconds: event.value,
+          });
+          break;
+        case TimerEventType.spent:
+          AnalyticsService.trackBackgroundEvent('timer_time_spent', {
+            profile_id: event.profileId,
+            seconds: event.value,
+          });
+          break;
+        case TimerEventType.lowTime:
+          AnalyticsService.trackBackgroundEvent('timer_low_time', {
+            profile_id: event.profileId,
+            threshold: event.value,
+          });
+          break;
+        case TimerEventType.expired:
+          AnalyticsService.trackBackgroundEvent('timer_expired', { profile_id: event.profileId });
+          break;
+      }
+    }
+
+    // Penalties are per whole minute, so keep the remainder for the next batch
+    const penalised = overtime - (overtime % 60);
+    const applied = {
+      [LAST_SEQ_KEY]: batch.seq,
+      [OVERTIME_CARRY_KEY]: overtime - penalised,
+    };
+    if (penalised > 0) {
+      // One batch with the score, so a crash can't apply the penalty twice or drop it
+      await ScoreService.ensureLoaded();
+      await ScoreService.handleOvertimeUsage(penalised, applied);
+    } else {
+      await KeyValueStore.multiSet(applied);
+    }
+  }
+
+  try {
+    await BrainBitesTimer?.ackTimerEvents(batch.seq);
+  } catch (error) {
+    // Not fatal: the batch comes back and is skipped above
+    console.log('Timer events ack failed:', error);
+  }
+}